@@ -0,0 +1,156 @@
+package jmh.java;
+import main.java.Employee;
+import main.java.EmployeeDatabase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// The EmployeeDatabase calls the application makes, against databases of
+// EmployeeGenerator employees from 10k to 10M. Each benchmark runs in its own
+// fork on its own database, so indexes and sorted views one of them builds
+// do not slow another's writes. Arguments cycle through INPUTS precomputed
+// values so lookups do not all hit the same row.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class EmployeeDatabaseBenchmark {
+    private static final int INPUTS = 4096;
+
+    @Param({"10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    private EmployeeDatabase<Integer> database;
+    private int[] ids;
+    private String[] departments;
+    private String[] searchTerms;
+    private double[] salaries;
+    private double[] salaryFloors;
+    private Employee<Integer>[] newcomers;
+    private int next;
+    private int added;
+    private boolean raised;
+
+    @Setup(Level.Trial)
+    public void load() {
+        EmployeeGenerator generator = new EmployeeGenerator(42);
+        database = new EmployeeDatabase<>();
+        for (int id = 0; id < size; id++) {
+            database.addEmployee(generator.next(id));
+        }
+        ids = new int[INPUTS];
+        departments = new String[INPUTS];
+        searchTerms = new String[INPUTS];
+        salaries = new double[INPUTS];
+        salaryFloors = new double[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            Employee<Integer> sample = generator.next(i);
+            ids[i] = (int) ((i * 2654435761L) % size);
+            departments[i] = sample.getDepartment();
+            searchTerms[i] = generator.searchTerm();
+            salaries[i] = sample.getSalary();
+            salaryFloors[i] = Math.rint(sample.getSalary() / 1000) * 1000;
+        }
+        newcomers = generator.employees(INPUTS);
+    }
+
+    // Keeps addEmployee measuring a database of the same size every iteration
+    @TearDown(Level.Iteration)
+    public void removeAdded() {
+        for (int id = size; id < size + added; id++) {
+            database.removeEmployee(id);
+        }
+        added = 0;
+    }
+
+    private int next() {
+        return next = (next + 1) & (INPUTS - 1);
+    }
+
+    @Benchmark
+    public boolean addEmployee() {
+        Employee<Integer> newcomer = new Employee<>(newcomers[next()]);
+        newcomer.setEmployeeId(size + added++);
+        return database.addEmployee(newcomer);
+    }
+
+    @Benchmark
+    public Optional<Employee<Integer>> getEmployee() {
+        return database.getEmployee(ids[next()]);
+    }
+
+    @Benchmark
+    public boolean updateEmployeeDetails() {
+        int i = next();
+        return database.updateEmployeeDetails(ids[i], "salary", salaries[i]);
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getEmployeesByDepartment() {
+        return database.getEmployeesByDepartment(departments[next()]);
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> searchEmployeesByName() {
+        return database.searchEmployeesByName(searchTerms[next()]);
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getEmployeesByMinRating() {
+        return database.getEmployeesByMinRating(4.5);
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getEmployeesBySalaryRange() {
+        double floor = salaryFloors[next()];
+        return database.getEmployeesBySalaryRange(floor, floor + 5000);
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getEmployeesSortedByName() {
+        return database.getEmployeesSortedByName();
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getEmployeesSortedByDepartment() {
+        return database.getEmployeesSortedByDepartment();
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getEmployeesSortedBySalary() {
+        return database.getEmployeesSortedBySalary();
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getEmployeesSortedByPerformance() {
+        return database.getEmployeesSortedByPerformance();
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getEmployeesSortedByExperience() {
+        return database.getEmployeesSortedByExperience();
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> getTopNHighestPaidEmployees() {
+        return database.getTopNHighestPaidEmployees(10);
+    }
+
+    // Alternately raises and lowers the same salaries, so they do not creep
+    // upwards over millions of calls
+    @Benchmark
+    public int giveSalaryRaise() {
+        raised = !raised;
+        return database.giveSalaryRaise(4.5, raised ? 10 : -100.0 / 11);
+    }
+
+    @Benchmark
+    public Map<String, Long> getDepartmentCounts() {
+        return database.getDepartmentCounts();
+    }
+}
@@ -0,0 +1,114 @@
+package jmh.java;
+import main.java.Employee;
+
+import java.util.SplittableRandom;
+
+// Synthetic employees shaped like a real company rather than uniform noise:
+// a few large departments and a long tail of small ones, names drawn from
+// common first and last names so searches hit many rows, experience skewed
+// towards the junior end, salaries that grow with experience and differ by
+// department, and ratings clustered around 3.5 on the 0-5 scale in tenths.
+// The same seed always gives the same employees, so runs compare.
+public final class EmployeeGenerator {
+    static final String[] DEPARTMENTS = {
+            "Engineering", "Sales", "Operations", "Customer Support", "Marketing", "Finance", "HR", "IT",
+            "Legal", "Research", "Product", "Design", "Procurement", "Facilities", "Security", "Compliance"};
+    // Relative headcount of each department above
+    private static final double[] DEPARTMENT_WEIGHTS = {
+            24, 18, 14, 12, 7, 5, 4, 4, 2, 2, 2, 1.5, 1.5, 1, 1, 1};
+    // Median salary of a new hire in each department above
+    private static final double[] BASE_SALARIES = {
+            72000, 52000, 45000, 38000, 55000, 60000, 50000, 58000,
+            80000, 75000, 70000, 62000, 50000, 36000, 48000, 56000};
+    private static final String[] FIRST_NAMES = {
+            "James", "Mary", "John", "Patricia", "Robert", "Jennifer", "Michael", "Linda", "David", "Elizabeth",
+            "William", "Barbara", "Richard", "Susan", "Joseph", "Jessica", "Thomas", "Sarah", "Charles", "Karen",
+            "Kwame", "Ama", "Kofi", "Akosua", "Emmanuel", "Abena", "Yaw", "Efua", "Wei", "Mei", "Hiroshi", "Yuki",
+            "Carlos", "Sofia", "Luis", "Camila", "Ahmed", "Fatima", "Omar", "Aisha", "Ivan", "Olga", "Lars", "Ingrid",
+            "Raj", "Priya", "Arjun", "Ananya", "Liam", "Emma", "Noah", "Olivia", "Lucas", "Chloe", "Mateo", "Zoe"};
+    private static final String[] LAST_NAMES = {
+            "Smith", "Johnson", "Williams", "Brown", "Jones", "Garcia", "Miller", "Davis", "Rodriguez", "Martinez",
+            "Hernandez", "Lopez", "Wilson", "Anderson", "Thomas", "Taylor", "Moore", "Jackson", "Martin", "Lee",
+            "Mensah", "Asante", "Owusu", "Boateng", "Arhu", "Osei", "Appiah", "Wang", "Li", "Zhang", "Tanaka",
+            "Suzuki", "Kim", "Park", "Nguyen", "Singh", "Patel", "Kumar", "Khan", "Ali", "Hassan", "Ivanov",
+            "Petrova", "Schmidt", "Muller", "Rossi", "Dubois", "Silva", "Santos", "Johansson", "O'Brien", "Murphy"};
+
+    private final SplittableRandom random;
+    private final double[] departmentCumulative = new double[DEPARTMENTS.length];
+
+    public EmployeeGenerator(long seed) {
+        this.random = new SplittableRandom(seed);
+        double total = 0;
+        for (double weight : DEPARTMENT_WEIGHTS) {
+            total += weight;
+        }
+        double sum = 0;
+        for (int i = 0; i < DEPARTMENTS.length; i++) {
+            sum += DEPARTMENT_WEIGHTS[i];
+            departmentCumulative[i] = sum / total;
+        }
+    }
+
+    public Employee<Integer> next(int employeeId) {
+        int department = pickDepartment();
+        int experience = experience();
+        return new Employee<>(employeeId, name(), DEPARTMENTS[department], salary(department, experience),
+                rating(), experience, random.nextInt(100) < 92);
+    }
+
+    @SuppressWarnings("unchecked")
+    public Employee<Integer>[] employees(int count) {
+        Employee<Integer>[] employees = new Employee[count];
+        for (int id = 0; id < count; id++) {
+            employees[id] = next(id);
+        }
+        return employees;
+    }
+
+    public String department() {
+        return DEPARTMENTS[pickDepartment()];
+    }
+
+    // A first name as typed into the search box
+    public String searchTerm() {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)];
+    }
+
+    private int pickDepartment() {
+        double draw = random.nextDouble();
+        for (int i = 0; i < departmentCumulative.length - 1; i++) {
+            if (draw < departmentCumulative[i]) {
+                return i;
+            }
+        }
+        return departmentCumulative.length - 1;
+    }
+
+    private String name() {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    // Geometric with a mean of about 7 years, capped at 45
+    private int experience() {
+        int years = (int) (Math.log(1 - random.nextDouble()) / Math.log(1 - 1 / 7.5));
+        return Math.min(years, 45);
+    }
+
+    // Log-normal around the department's base, about 3% more a year, in whole dollars
+    private double salary(int department, int experience) {
+        double median = BASE_SALARIES[department] * Math.pow(1.03, experience);
+        return Math.rint(median * Math.exp(0.18 * gaussian()));
+    }
+
+    private double rating() {
+        double rating = 3.5 + 0.7 * gaussian();
+        return Math.rint(Math.max(0, Math.min(5, rating)) * 10) / 10;
+    }
+
+    // Box-Muller; SplittableRandom has no nextGaussian
+    private double gaussian() {
+        double u = 1 - random.nextDouble();
+        double v = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u)) * Math.cos(2 * Math.PI * v);
+    }
+}
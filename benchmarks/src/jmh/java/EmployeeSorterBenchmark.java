@@ -0,0 +1,52 @@
+package jmh.java;
+import main.java.Employee;
+import main.java.EmployeeOrder;
+import main.java.EmployeeSorter;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// EmployeeSorter against List.sort with the order's comparator, on
+// EmployeeGenerator employees in generated order. Every invocation sorts a
+// fresh copy of the same unsorted rows; the copy is made outside the timing.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EmployeeSorterBenchmark {
+    @Param({"100000", "2000000"})
+    public int size;
+
+    @Param
+    public EmployeeOrder order;
+
+    private List<Employee<Integer>> employees;
+    private List<Employee<Integer>> rows;
+
+    @Setup(Level.Trial)
+    public void generate() {
+        employees = Arrays.asList(new EmployeeGenerator(42).employees(size));
+    }
+
+    @Setup(Level.Invocation)
+    public void copy() {
+        rows = new ArrayList<>(employees);
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> employeeSorter() {
+        EmployeeSorter.sort(rows, order);
+        return rows;
+    }
+
+    @Benchmark
+    public List<Employee<Integer>> listSort() {
+        rows.sort(order.comparator());
+        return rows;
+    }
+}
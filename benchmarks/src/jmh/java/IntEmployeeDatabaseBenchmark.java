@@ -0,0 +1,88 @@
+package jmh.java;
+import main.java.Employee;
+import main.java.EmployeeDatabase;
+import main.java.IntEmployeeDatabase;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+// IntEmployeeDatabase against EmployeeDatabase<Integer> holding the same
+// EmployeeGenerator employees. Both layouts run the same calls, with the ids
+// boxed up front, so the difference is the primary map behind them. Each
+// fork also logs the heap the database holds beyond its records, measured
+// once after loading.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx12g")
+public class IntEmployeeDatabaseBenchmark {
+    private static final int INPUTS = 4096;
+
+    @Param({"EmployeeDatabase", "IntEmployeeDatabase"})
+    public String layout;
+
+    @Param({"1000000", "10000000"})
+    public int size;
+
+    private EmployeeDatabase<Integer> database;
+    private Integer[] ids;
+    private Employee<Integer>[] newcomers;
+    private int next;
+    private int added;
+
+    @Setup(Level.Trial)
+    public void load() {
+        EmployeeGenerator generator = new EmployeeGenerator(42);
+        // Built before measuring, so only the database's own structures count
+        Employee<Integer>[] records = generator.employees(size);
+        long before = usedHeap();
+        database = layout.equals("IntEmployeeDatabase") ? new IntEmployeeDatabase() : new EmployeeDatabase<>();
+        for (Employee<Integer> record : records) {
+            database.addEmployee(record);
+        }
+        long footprint = usedHeap() - before;
+        System.out.printf("%s of %,d records holds %,d MB beyond them, %,d bytes per record%n",
+                layout, size, footprint >> 20, footprint / size);
+        ids = new Integer[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            ids[i] = (int) ((i * 2654435761L) % size);
+        }
+        newcomers = generator.employees(INPUTS);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Keeps addEmployee measuring a database of the same size every iteration
+    @TearDown(Level.Iteration)
+    public void removeAdded() {
+        for (int id = size; id < size + added; id++) {
+            database.removeEmployee(id);
+        }
+        added = 0;
+    }
+
+    private int next() {
+        return next = (next + 1) & (INPUTS - 1);
+    }
+
+    @Benchmark
+    public Optional<Employee<Integer>> getEmployee() {
+        return database.getEmployee(ids[next()]);
+    }
+
+    @Benchmark
+    public boolean addEmployee() {
+        Employee<Integer> newcomer = new Employee<>(newcomers[next()]);
+        newcomer.setEmployeeId(size + added++);
+        return database.addEmployee(newcomer);
+    }
+}
@@ -0,0 +1,82 @@
+package jmh.java;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Latencies in nanoseconds counted in log-linear buckets, like HdrHistogram:
+// exact below 128ns, and above that 64 buckets for each power of two, so any
+// value is known to within 1/64 (about 1.6%) whatever its size. Recording is
+// one increment, and a histogram is fixed at about 29 KB however many values
+// it holds. One thread records; any thread may read, so a reporter can
+// watch a histogram while its worker fills it.
+final class LatencyHistogram {
+    private static final int LINEAR = 128;
+    private static final int HALF = LINEAR / 2;
+    // Enough for values up to Long.MAX_VALUE
+    static final int BUCKETS = LINEAR + 56 * HALF;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+
+    void record(long nanos) {
+        int bucket = bucket(Math.max(0, nanos));
+        // Single writer, so a plain read and ordered write are enough
+        counts.lazySet(bucket, counts.get(bucket) + 1);
+    }
+
+    // Adds this histogram's counts to into, which has BUCKETS entries
+    void addTo(long[] into) {
+        for (int i = 0; i < BUCKETS; i++) {
+            into[i] += counts.get(i);
+        }
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 6;
+        return LINEAR + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    // The largest value that falls in bucket
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR) / HALF + 1;
+        long lowest = (long) ((bucket - LINEAR) % HALF + HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+
+    static long total(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    // The value percentile percent of counts are at or below, 0 when empty
+    static long valueAt(long[] counts, double percentile) {
+        long total = total(counts);
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(total * percentile / 100));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return highestValue(i);
+            }
+        }
+        return highestValue(counts.length - 1);
+    }
+
+    static long max(long[] counts) {
+        for (int i = counts.length - 1; i >= 0; i--) {
+            if (counts[i] > 0) {
+                return highestValue(i);
+            }
+        }
+        return 0;
+    }
+}
@@ -0,0 +1,401 @@
+package jmh.java;
+import main.java.ConcurrentEmployeeDatabase;
+import main.java.EmployeeDatabase;
+
+import java.util.*;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// Drives an EmployeeDatabase with a mix of operations from many threads, the
+// way the application's users would, and reports throughput each interval and
+// latency percentiles per operation at the end. With --rate the load is open
+// loop: every thread has a schedule of start times and keeps to it however
+// long operations take, and latency is measured from the scheduled start, so
+// time spent queued behind a slow operation counts as it would for a user.
+// With --rate 0 each thread starts its next operation when the last ends.
+//
+//   java -cp benchmarks/target/benchmarks.jar jmh.java.LoadGenerator \
+//       --size 1000000 --threads 8 --rate 50000 --duration 60 \
+//       --mix get=70,search=15,department=5,update=9.9,raise=0.1
+public final class LoadGenerator {
+    enum Operation {
+        GET, SEARCH, DEPARTMENT, UPDATE, RAISE;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    enum Target {
+        // ConcurrentEmployeeDatabase, shared without locking
+        CONCURRENT,
+        // EmployeeDatabase behind a read-write lock
+        LOCKED
+    }
+
+    static final class Settings {
+        int size = 100_000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        double rate = 10_000;
+        int durationSeconds = 30;
+        int warmupSeconds = 5;
+        int reportSeconds = 1;
+        boolean virtualThreads;
+        Target target = Target.CONCURRENT;
+        long seed = 42;
+        final double[] mix = {60, 25, 5, 9.9, 0.1};
+
+        static Settings parse(String[] args) {
+            Settings settings = new Settings();
+            for (int i = 0; i < args.length; i++) {
+                String option = args[i];
+                if (option.equals("--virtual")) {
+                    settings.virtualThreads = true;
+                    continue;
+                }
+                if (i + 1 == args.length) {
+                    throw new IllegalArgumentException("Missing value for " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--size":
+                        settings.size = Integer.parseInt(value);
+                        break;
+                    case "--threads":
+                        settings.threads = Integer.parseInt(value);
+                        break;
+                    case "--rate":
+                        settings.rate = Double.parseDouble(value);
+                        break;
+                    case "--duration":
+                        settings.durationSeconds = Integer.parseInt(value);
+                        break;
+                    case "--warmup":
+                        settings.warmupSeconds = Integer.parseInt(value);
+                        break;
+                    case "--report":
+                        settings.reportSeconds = Integer.parseInt(value);
+                        break;
+                    case "--database":
+                        settings.target = Target.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--seed":
+                        settings.seed = Long.parseLong(value);
+                        break;
+                    case "--mix":
+                        settings.parseMix(value);
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            if (settings.size < 1 || settings.threads < 1 || settings.rate < 0 || settings.durationSeconds < 1
+                    || settings.warmupSeconds < 0 || settings.reportSeconds < 1) {
+                throw new IllegalArgumentException("Sizes, threads and times must be positive");
+            }
+            return settings;
+        }
+
+        // name=weight pairs; operations left out are not run
+        private void parseMix(String value) {
+            Arrays.fill(mix, 0);
+            for (String part : value.split(",")) {
+                String[] pair = part.split("=");
+                if (pair.length != 2) {
+                    throw new IllegalArgumentException("Expected operation=weight, got " + part);
+                }
+                double weight = Double.parseDouble(pair[1]);
+                if (weight < 0) {
+                    throw new IllegalArgumentException("Negative weight for " + pair[0]);
+                }
+                mix[Operation.valueOf(pair[0].trim().toUpperCase(Locale.ROOT)).ordinal()] = weight;
+            }
+            if (Arrays.stream(mix).sum() <= 0) {
+                throw new IllegalArgumentException("The mix has no operations");
+            }
+        }
+    }
+
+    private final Settings settings;
+    private final EmployeeDatabase<Integer> database;
+    // Only for Target.LOCKED
+    private final ReadWriteLock lock;
+    private final double[] cumulativeMix;
+    private final List<Worker> workers = new ArrayList<>();
+    private volatile boolean stopped;
+
+    LoadGenerator(Settings settings) {
+        this.settings = settings;
+        this.database = settings.target == Target.CONCURRENT
+                ? new ConcurrentEmployeeDatabase<>() : new EmployeeDatabase<>();
+        this.lock = settings.target == Target.LOCKED ? new ReentrantReadWriteLock() : null;
+        this.cumulativeMix = new double[settings.mix.length];
+        double total = Arrays.stream(settings.mix).sum();
+        double sum = 0;
+        for (int i = 0; i < cumulativeMix.length; i++) {
+            sum += settings.mix[i];
+            cumulativeMix[i] = sum / total;
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Settings settings;
+        try {
+            settings = Settings.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println("Options: --size N --threads N --rate OPS_PER_SECOND (0 = closed loop) --duration S"
+                    + " --warmup S --report S --database concurrent|locked --virtual --seed N"
+                    + " --mix get=W,search=W,department=W,update=W,raise=W");
+            System.exit(2);
+            return;
+        }
+        new LoadGenerator(settings).run();
+    }
+
+    void run() throws InterruptedException {
+        long loadStart = System.nanoTime();
+        EmployeeGenerator generator = new EmployeeGenerator(settings.seed);
+        for (int id = 0; id < settings.size; id++) {
+            database.addEmployee(generator.next(id));
+        }
+        System.out.printf("Loaded %,d employees into the %s database in %d ms%n", settings.size,
+                settings.target.name().toLowerCase(Locale.ROOT),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - loadStart));
+        System.out.printf("%d %s threads, %s, %ds warmup, %ds measured%n", settings.threads,
+                settings.virtualThreads ? "virtual" : "platform",
+                settings.rate > 0 ? String.format("%,.0f ops/s scheduled", settings.rate) : "closed loop",
+                settings.warmupSeconds, settings.durationSeconds);
+
+        long start = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(100);
+        long measureFrom = start + TimeUnit.SECONDS.toNanos(settings.warmupSeconds);
+        long end = measureFrom + TimeUnit.SECONDS.toNanos(settings.durationSeconds);
+        ThreadFactory threads = threadFactory(settings.virtualThreads);
+        SplittableRandom seeds = new SplittableRandom(settings.seed);
+        List<Thread> running = new ArrayList<>();
+        for (int i = 0; i < settings.threads; i++) {
+            Worker worker = new Worker(i, seeds.split(), start, measureFrom, end);
+            workers.add(worker);
+            Thread thread = threads.newThread(worker);
+            running.add(thread);
+            thread.start();
+        }
+
+        report(measureFrom, end);
+        stopped = true;
+        for (Thread thread : running) {
+            thread.join();
+        }
+        summarize();
+    }
+
+    // Prints throughput and latency over each interval until end
+    private void report(long measureFrom, long end) {
+        long interval = TimeUnit.SECONDS.toNanos(settings.reportSeconds);
+        long[] previous = new long[LatencyHistogram.BUCKETS];
+        System.out.printf("%8s %12s %10s %10s %10s %10s%n", "time", "ops/s", "p50", "p99", "p99.9", "max");
+        for (long next = measureFrom + interval; next <= end; next += interval) {
+            sleepUntil(next);
+            long[] current = new long[LatencyHistogram.BUCKETS];
+            for (Worker worker : workers) {
+                for (LatencyHistogram histogram : worker.histograms) {
+                    histogram.addTo(current);
+                }
+            }
+            long[] delta = new long[LatencyHistogram.BUCKETS];
+            for (int i = 0; i < delta.length; i++) {
+                delta[i] = current[i] - previous[i];
+            }
+            previous = current;
+            System.out.printf("%7ds %,12.0f %10s %10s %10s %10s%n",
+                    TimeUnit.NANOSECONDS.toSeconds(next - measureFrom),
+                    LatencyHistogram.total(delta) / (double) settings.reportSeconds,
+                    duration(LatencyHistogram.valueAt(delta, 50)), duration(LatencyHistogram.valueAt(delta, 99)),
+                    duration(LatencyHistogram.valueAt(delta, 99.9)), duration(LatencyHistogram.max(delta)));
+        }
+        sleepUntil(end);
+    }
+
+    private void summarize() {
+        System.out.println();
+        System.out.printf("%-11s %12s %12s %10s %10s %10s %10s %10s%n",
+                "operation", "count", "ops/s", "p50", "p90", "p99", "p99.9", "max");
+        long[] all = new long[LatencyHistogram.BUCKETS];
+        for (Operation operation : Operation.values()) {
+            long[] counts = new long[LatencyHistogram.BUCKETS];
+            for (Worker worker : workers) {
+                worker.histograms[operation.ordinal()].addTo(counts);
+            }
+            if (LatencyHistogram.total(counts) > 0) {
+                printRow(operation.label(), counts);
+            }
+            for (int i = 0; i < all.length; i++) {
+                all[i] += counts[i];
+            }
+        }
+        printRow("all", all);
+        long missed = 0;
+        for (Worker worker : workers) {
+            missed += worker.behind;
+        }
+        if (missed > 0) {
+            System.out.printf("%n%,d operations started more than 10ms after their scheduled time:"
+                    + " the database could not keep up with the rate%n", missed);
+        }
+    }
+
+    private void printRow(String label, long[] counts) {
+        long total = LatencyHistogram.total(counts);
+        System.out.printf("%-11s %,12d %,12.0f %10s %10s %10s %10s %10s%n", label, total,
+                total / (double) settings.durationSeconds,
+                duration(LatencyHistogram.valueAt(counts, 50)), duration(LatencyHistogram.valueAt(counts, 90)),
+                duration(LatencyHistogram.valueAt(counts, 99)), duration(LatencyHistogram.valueAt(counts, 99.9)),
+                duration(LatencyHistogram.max(counts)));
+    }
+
+    static String duration(long nanos) {
+        if (nanos < 10_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 10_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        }
+        return String.format("%.1fms", nanos / 1e6);
+    }
+
+    // parkNanos can wake tens of microseconds late, which would show up as
+    // latency, so the last SPIN_NANOS are spun instead
+    private static void sleepUntil(long deadline) {
+        for (long now = System.nanoTime(); now < deadline; now = System.nanoTime()) {
+            if (deadline - now > SPIN_NANOS) {
+                LockSupport.parkNanos(deadline - now - SPIN_NANOS);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    // Virtual threads need Java 21; the build targets 17, so they are found reflectively
+    private static ThreadFactory threadFactory(boolean virtual) {
+        if (!virtual) {
+            return runnable -> {
+                Thread thread = new Thread(runnable, "load-generator");
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) builder.getClass().getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Virtual threads need Java 21 or later", e);
+        }
+    }
+
+    private static final long LATE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(50);
+
+    private final class Worker implements Runnable {
+        final LatencyHistogram[] histograms = new LatencyHistogram[Operation.values().length];
+        private final SplittableRandom random;
+        private final EmployeeGenerator generator;
+        private final long start;
+        private final long measureFrom;
+        private final long end;
+        private final long period;
+        private boolean raised;
+        // Measured operations that started late by more than LATE_NANOS
+        volatile long behind;
+
+        Worker(int index, SplittableRandom random, long start, long measureFrom, long end) {
+            for (int i = 0; i < histograms.length; i++) {
+                histograms[i] = new LatencyHistogram();
+            }
+            this.random = random;
+            this.generator = new EmployeeGenerator(random.nextLong());
+            this.period = settings.rate > 0 ? (long) (1e9 * settings.threads / settings.rate) : 0;
+            // Spread the threads' schedules over one period rather than starting them together
+            this.start = start + period * index / settings.threads;
+            this.measureFrom = measureFrom;
+            this.end = end;
+        }
+
+        @Override
+        public void run() {
+            long scheduled = start;
+            long late = 0;
+            while (!stopped) {
+                long now = System.nanoTime();
+                if (period == 0) {
+                    scheduled = now;
+                } else if (now < scheduled) {
+                    sleepUntil(scheduled);
+                }
+                if (scheduled >= end) {
+                    break;
+                }
+                Operation operation = pick();
+                execute(operation);
+                long finished = System.nanoTime();
+                if (scheduled >= measureFrom) {
+                    histograms[operation.ordinal()].record(finished - scheduled);
+                    if (now - scheduled > LATE_NANOS) {
+                        behind = ++late;
+                    }
+                }
+                scheduled += period;
+            }
+        }
+
+        private Operation pick() {
+            double draw = random.nextDouble();
+            int last = 0;
+            for (int i = 0; i < cumulativeMix.length; i++) {
+                if (settings.mix[i] > 0) {
+                    if (draw < cumulativeMix[i]) {
+                        return Operation.values()[i];
+                    }
+                    last = i;
+                }
+            }
+            // Only when rounding left the last weight's sum a hair below 1
+            return Operation.values()[last];
+        }
+
+        private void execute(Operation operation) {
+            boolean write = operation == Operation.UPDATE || operation == Operation.RAISE;
+            if (lock != null) {
+                (write ? lock.writeLock() : lock.readLock()).lock();
+            }
+            try {
+                switch (operation) {
+                    case GET:
+                        database.getEmployee(random.nextInt(settings.size));
+                        break;
+                    case SEARCH:
+                        database.searchEmployeesByName(generator.searchTerm());
+                        break;
+                    case DEPARTMENT:
+                        database.getEmployeesByDepartment(generator.department());
+                        break;
+                    case UPDATE:
+                        database.updateEmployeeDetails(random.nextInt(settings.size), "salary",
+                                30000 + random.nextInt(170_000));
+                        break;
+                    default:
+                        // Alternately up and back down, so salaries do not creep over a long run
+                        raised = !raised;
+                        database.giveSalaryRaise(4.8, raised ? 10 : -100.0 / 11);
+                        break;
+                }
+            } finally {
+                if (lock != null) {
+                    (write ? lock.writeLock() : lock.readLock()).unlock();
+                }
+            }
+        }
+    }
+}
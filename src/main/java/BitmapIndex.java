@@ -0,0 +1,215 @@
+package main.java;
+import java.util.*;
+
+// Gives every employee a dense row number and keeps a RowBitmap of rows per
+// low-cardinality attribute: active, each department (case-folded), half-point
+// rating buckets and five-year experience bands. A query's conditions on these
+// attributes then become a few AND/OR/ANDNOT operations over compressed bitmaps
+// instead of a probe per candidate. Rows stay dense: a removed row is filled
+// by moving the last row into it. Not thread-safe; only the single-threaded
+// database keeps one.
+class BitmapIndex<T> {
+    static final int RATING_BUCKETS = 11;
+    static final int EXPERIENCE_BUCKETS = 11;
+    private static final int EXPERIENCE_BAND = 5;
+
+    private final Map<T, Integer> rowsById = new HashMap<>();
+    private Object[] ids = new Object[16];
+    // The buckets each row was last filed under, so it can be unfiled without the old record
+    private int[] departmentOfRow = new int[16];
+    private byte[] ratingOfRow = new byte[16];
+    private byte[] experienceOfRow = new byte[16];
+    private int size;
+
+    private final Map<String, Integer> departmentCodes = new HashMap<>();
+    private final List<RowBitmap> departments = new ArrayList<>();
+    private final RowBitmap active = new RowBitmap();
+    private final RowBitmap[] ratings = new RowBitmap[RATING_BUCKETS];
+    private final RowBitmap[] experience = new RowBitmap[EXPERIENCE_BUCKETS];
+
+    BitmapIndex() {
+        for (int bucket = 0; bucket < RATING_BUCKETS; bucket++) {
+            ratings[bucket] = new RowBitmap();
+        }
+        for (int bucket = 0; bucket < EXPERIENCE_BUCKETS; bucket++) {
+            experience[bucket] = new RowBitmap();
+        }
+    }
+
+    // Half-point steps; anything below 0.5 shares the first bucket, 5 and above the last
+    static int ratingBucket(double rating) {
+        if (!(rating >= 0)) {
+            return 0;
+        }
+        return (int) Math.min(RATING_BUCKETS - 1, Math.floor(rating * 2));
+    }
+
+    static int experienceBucket(int years) {
+        return Math.max(0, Math.min(EXPERIENCE_BUCKETS - 1, years / EXPERIENCE_BAND));
+    }
+
+    void add(Employee<T> employee) {
+        if (rowsById.containsKey(employee.getEmployeeId())) {
+            return;
+        }
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            departmentOfRow = Arrays.copyOf(departmentOfRow, capacity);
+            ratingOfRow = Arrays.copyOf(ratingOfRow, capacity);
+            experienceOfRow = Arrays.copyOf(experienceOfRow, capacity);
+        }
+        int row = size++;
+        ids[row] = employee.getEmployeeId();
+        rowsById.put(employee.getEmployeeId(), row);
+        file(row, employee);
+    }
+
+    void remove(T employeeId) {
+        Integer removed = rowsById.remove(employeeId);
+        if (removed == null) {
+            return;
+        }
+        int row = removed;
+        unfile(row);
+        int last = --size;
+        if (row != last) {
+            boolean lastActive = active.contains(last);
+            unfile(last);
+            departmentOfRow[row] = departmentOfRow[last];
+            ratingOfRow[row] = ratingOfRow[last];
+            experienceOfRow[row] = experienceOfRow[last];
+            refile(row, lastActive);
+            ids[row] = ids[last];
+            rowsById.put(id(row), row);
+        }
+        ids[last] = null;
+    }
+
+    // Refiles an employee after its department, rating, experience or active flag changed
+    void update(Employee<T> employee) {
+        Integer row = rowsById.get(employee.getEmployeeId());
+        if (row != null) {
+            unfile(row);
+            file(row, employee);
+        }
+    }
+
+    private void file(int row, Employee<T> employee) {
+        departmentOfRow[row] = employee.getDepartment() == null ? -1 : departmentCode(employee.getDepartment());
+        ratingOfRow[row] = (byte) ratingBucket(employee.getPerformanceRating());
+        experienceOfRow[row] = (byte) experienceBucket(employee.getYearsOfExperience());
+        refile(row, employee.isActive());
+    }
+
+    private void refile(int row, boolean isActive) {
+        if (departmentOfRow[row] >= 0) {
+            departments.get(departmentOfRow[row]).add(row);
+        }
+        ratings[ratingOfRow[row]].add(row);
+        experience[experienceOfRow[row]].add(row);
+        if (isActive) {
+            active.add(row);
+        }
+    }
+
+    private void unfile(int row) {
+        if (departmentOfRow[row] >= 0) {
+            departments.get(departmentOfRow[row]).remove(row);
+        }
+        ratings[ratingOfRow[row]].remove(row);
+        experience[experienceOfRow[row]].remove(row);
+        active.remove(row);
+    }
+
+    private int departmentCode(String department) {
+        return departmentCodes.computeIfAbsent(DepartmentIndex.key(department), key -> {
+            departments.add(new RowBitmap());
+            return departments.size() - 1;
+        });
+    }
+
+    @SuppressWarnings("unchecked")
+    T id(int row) {
+        return (T) ids[row];
+    }
+
+    // The rows that may match the query's department, active, rating and
+    // experience conditions, or null when it has none of them. Department and
+    // active are exact; rows in the one rating or experience bucket a bound
+    // falls inside are included, so callers still check every condition.
+    RowBitmap candidates(EmployeeQuery query) {
+        RowBitmap result = null;
+        if (query.department() != null) {
+            Integer code = departmentCodes.get(DepartmentIndex.key(query.department()));
+            result = code == null ? new RowBitmap() : departments.get(code);
+        }
+        if (query.active() != null) {
+            if (query.active()) {
+                result = result == null ? active : result.and(active);
+            } else {
+                result = (result == null ? RowBitmap.firstRows(size) : result).andNot(active);
+            }
+        }
+        if (query.minRating() != null) {
+            result = atLeast(result, ratings, ratingBucket(query.minRating()));
+        }
+        if (query.minExperience() != null) {
+            result = atLeast(result, experience, experienceBucket(query.minExperience()));
+        }
+        return result;
+    }
+
+    // Narrows result to the rows in buckets from and above, by ORing those
+    // buckets or by subtracting the ones below, whichever holds fewer rows
+    private RowBitmap atLeast(RowBitmap result, RowBitmap[] buckets, int from) {
+        long below = 0;
+        for (int bucket = 0; bucket < from; bucket++) {
+            below += buckets[bucket].cardinality();
+        }
+        if (below * 2 > size) {
+            RowBitmap above = from == buckets.length - 1 ? buckets[from] : RowBitmap.union(buckets, from, buckets.length);
+            return result == null ? above : result.and(above);
+        }
+        if (from == 0) {
+            return result == null ? RowBitmap.firstRows(size) : result;
+        }
+        RowBitmap excluded = from == 1 ? buckets[0] : RowBitmap.union(buckets, 0, from);
+        return (result == null ? RowBitmap.firstRows(size) : result).andNot(excluded);
+    }
+
+    // Bytes held by the bitmaps, not counting the row numbering itself
+    long bitmapBytes() {
+        long bytes = active.sizeInBytes();
+        for (RowBitmap bitmap : departments) {
+            bytes += bitmap.sizeInBytes();
+        }
+        for (RowBitmap bitmap : ratings) {
+            bytes += bitmap.sizeInBytes();
+        }
+        for (RowBitmap bitmap : experience) {
+            bytes += bitmap.sizeInBytes();
+        }
+        return bytes;
+    }
+
+    // Rows numbered, including those freed by removals
+    int size() {
+        return size;
+    }
+
+    void clear() {
+        rowsById.clear();
+        Arrays.fill(ids, 0, size, null);
+        size = 0;
+        departmentCodes.clear();
+        departments.clear();
+        active.clear();
+        for (RowBitmap bitmap : ratings) {
+            bitmap.clear();
+        }
+        for (RowBitmap bitmap : experience) {
+            bitmap.clear();
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package main.java;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Column-oriented EmployeeStore. Each attribute lives in its own primitive
+// array indexed by a dense row number: salary, rating and experience in
+// double/int arrays, isActive in a BitSet and departments as codes into a
+// dictionary. Predicates and aggregates run as straight loops over those arrays
+// and only matching rows become Employee objects, which are detached copies:
+// changes go through updateEmployee, not through the returned objects.
+// Removal moves the last row into the hole so the columns stay dense.
+public class ColumnarEmployeeStore<T> implements EmployeeStore<T> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Map<T, Integer> rowsById;
+    private final List<String> departmentNames;
+    private final Map<String, Integer> departmentCodes;
+
+    private Object[] ids;
+    private String[] names;
+    private String[] foldedNames;
+    private int[] departments;
+    private double[] salaries;
+    private double[] ratings;
+    private int[] experience;
+    private final BitSet active;
+    private int size;
+
+    public ColumnarEmployeeStore() {
+        this.rowsById = new HashMap<>();
+        this.departmentNames = new ArrayList<>();
+        this.departmentCodes = new HashMap<>();
+        this.ids = new Object[INITIAL_CAPACITY];
+        this.names = new String[INITIAL_CAPACITY];
+        this.foldedNames = new String[INITIAL_CAPACITY];
+        this.departments = new int[INITIAL_CAPACITY];
+        this.salaries = new double[INITIAL_CAPACITY];
+        this.ratings = new double[INITIAL_CAPACITY];
+        this.experience = new int[INITIAL_CAPACITY];
+        this.active = new BitSet();
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= ids.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, ids.length * 2);
+        ids = Arrays.copyOf(ids, newCapacity);
+        names = Arrays.copyOf(names, newCapacity);
+        foldedNames = Arrays.copyOf(foldedNames, newCapacity);
+        departments = Arrays.copyOf(departments, newCapacity);
+        salaries = Arrays.copyOf(salaries, newCapacity);
+        ratings = Arrays.copyOf(ratings, newCapacity);
+        experience = Arrays.copyOf(experience, newCapacity);
+    }
+
+    private int departmentCode(String department) {
+        Integer code = departmentCodes.get(department);
+        if (code == null) {
+            code = departmentNames.size();
+            departmentNames.add(department);
+            departmentCodes.put(department, code);
+        }
+        return code;
+    }
+
+    // Marks every dictionary code whose name matches ignoring case
+    private boolean[] matchingDepartmentCodes(String department) {
+        boolean[] matches = new boolean[departmentNames.size()];
+        for (int code = 0; code < matches.length; code++) {
+            String name = departmentNames.get(code);
+            matches[code] = name != null && name.equalsIgnoreCase(department);
+        }
+        return matches;
+    }
+
+    private void setName(int row, String name) {
+        names[row] = name;
+        foldedNames[row] = name == null ? null : NameIndex.fold(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    private T idAt(int row) {
+        return (T) ids[row];
+    }
+
+    private Employee<T> materialize(int row) {
+        return new Employee<>(idAt(row), names[row], departmentNames.get(departments[row]),
+                salaries[row], ratings[row], experience[row], active.get(row));
+    }
+
+    private List<Employee<T>> materialize(int[] rows, int count) {
+        List<Employee<T>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(materialize(rows[i]));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean addEmployee(Employee<T> employee) {
+        if (rowsById.containsKey(employee.getEmployeeId())) {
+            return false;
+        }
+        ensureCapacity(size + 1);
+        int row = size++;
+        ids[row] = employee.getEmployeeId();
+        setName(row, employee.getName());
+        departments[row] = departmentCode(employee.getDepartment());
+        salaries[row] = employee.getSalary();
+        ratings[row] = employee.getPerformanceRating();
+        experience[row] = employee.getYearsOfExperience();
+        active.set(row, employee.isActive());
+        rowsById.put(employee.getEmployeeId(), row);
+        return true;
+    }
+
+    @Override
+    public boolean removeEmployee(T employeeId) {
+        Integer row = rowsById.remove(employeeId);
+        if (row == null) {
+            return false;
+        }
+        int last = --size;
+        if (row != last) {
+            ids[row] = ids[last];
+            names[row] = names[last];
+            foldedNames[row] = foldedNames[last];
+            departments[row] = departments[last];
+            salaries[row] = salaries[last];
+            ratings[row] = ratings[last];
+            experience[row] = experience[last];
+            active.set(row, active.get(last));
+            rowsById.put(idAt(row), row);
+        }
+        ids[last] = null;
+        names[last] = null;
+        foldedNames[last] = null;
+        active.clear(last);
+        return true;
+    }
+
+    @Override
+    public Optional<Employee<T>> getEmployee(T employeeId) {
+        Integer row = rowsById.get(employeeId);
+        return row == null ? Optional.empty() : Optional.of(materialize(row));
+    }
+
+    @Override
+    public void updateEmployee(T employeeId, EmployeeUpdate update) {
+        Integer row = rowsById.get(employeeId);
+        if (row == null) {
+            throw new EmployeeNotFoundException("No employee with id " + employeeId);
+        }
+        switch (update.field()) {
+            case NAME:
+                setName(row, update.textValue());
+                break;
+            case DEPARTMENT:
+                departments[row] = departmentCode(update.textValue());
+                break;
+            case SALARY:
+                salaries[row] = update.doubleValue();
+                break;
+            case PERFORMANCE_RATING:
+                ratings[row] = update.doubleValue();
+                break;
+            case YEARS_OF_EXPERIENCE:
+                experience[row] = update.intValue();
+                break;
+            case IS_ACTIVE:
+                active.set(row, update.booleanValue());
+                break;
+        }
+    }
+
+    // Materializes rows as the stream reaches them; splits evenly by row range
+    @Override
+    public Stream<Employee<T>> stream() {
+        return IntStream.range(0, size).mapToObj(this::materialize);
+    }
+
+    @Override
+    public Iterator<Employee<T>> getEmployeeIterator() {
+        return stream().iterator();
+    }
+
+    @Override
+    public List<Employee<T>> getAllEmployees() {
+        List<Employee<T>> result = new ArrayList<>(size);
+        for (int row = 0; row < size; row++) {
+            result.add(materialize(row));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Employee<T>> getEmployeesByDepartment(String department) {
+        boolean[] matches = matchingDepartmentCodes(department);
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches[departments[row]]) {
+                rows[count++] = row;
+            }
+        }
+        return materialize(rows, count);
+    }
+
+    @Override
+    public List<Employee<T>> searchEmployeesByName(String searchTerm) {
+        String query = NameIndex.fold(searchTerm);
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (foldedNames[row] != null && foldedNames[row].contains(query)) {
+                rows[count++] = row;
+            }
+        }
+        return materialize(rows, count);
+    }
+
+    @Override
+    public List<Employee<T>> getEmployeesByMinRating(double minRating) {
+        double[] ratings = this.ratings;
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (ratings[row] >= minRating) {
+                rows[count++] = row;
+            }
+        }
+        return materialize(rows, count);
+    }
+
+    @Override
+    public List<Employee<T>> getEmployeesBySalaryRange(double minSalary, double maxSalary) {
+        double[] salaries = this.salaries;
+        int[] rows = new int[size];
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            double salary = salaries[row];
+            if (salary >= minSalary && salary <= maxSalary) {
+                rows[count++] = row;
+            }
+        }
+        return materialize(rows, count);
+    }
+
+    @Override
+    public int giveSalaryRaise(double minRating, double percentage) {
+        double[] salaries = this.salaries;
+        double[] ratings = this.ratings;
+        double factor = 1 + percentage / 100;
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (ratings[row] >= minRating) {
+                salaries[row] *= factor;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<Employee<T>> getTopNHighestPaidEmployees(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException(Integer.toString(n));
+        }
+        // Min-heap of row numbers holding the n best salaries seen so far
+        PriorityQueue<Integer> top = new PriorityQueue<>(Math.max(1, Math.min(n, size)),
+                (a, b) -> Double.compare(salaries[a], salaries[b]));
+        for (int row = 0; row < size && n > 0; row++) {
+            if (top.size() < n) {
+                top.add(row);
+            } else if (salaries[row] > salaries[top.peek()]) {
+                top.poll();
+                top.add(row);
+            }
+        }
+        List<Employee<T>> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(materialize(top.poll()));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public double calculateAverageSalaryByDepartment(String department) {
+        boolean[] matches = matchingDepartmentCodes(department);
+        double total = 0;
+        int count = 0;
+        for (int row = 0; row < size; row++) {
+            if (matches[departments[row]]) {
+                total += salaries[row];
+                count++;
+            }
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    @Override
+    public int getEmployeeCount() {
+        return size;
+    }
+
+    @Override
+    public Map<String, Long> getDepartmentCounts() {
+        long[] counts = new long[departmentNames.size()];
+        for (int row = 0; row < size; row++) {
+            counts[departments[row]]++;
+        }
+        Map<String, Long> result = new HashMap<>();
+        for (int code = 0; code < counts.length; code++) {
+            // Employees without a department are left out, as EmployeeDatabase does
+            if (counts[code] > 0 && departmentNames.get(code) != null) {
+                result.put(departmentNames.get(code), counts[code]);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clearDatabase() {
+        Arrays.fill(ids, 0, size, null);
+        Arrays.fill(names, 0, size, null);
+        Arrays.fill(foldedNames, 0, size, null);
+        active.clear();
+        rowsById.clear();
+        departmentNames.clear();
+        departmentCodes.clear();
+        size = 0;
+    }
+}
@@ -0,0 +1,47 @@
+package main.java;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+// Chooses the collections a database and its indexes are built on, so the same
+// index code backs both the single-threaded and the concurrent database.
+enum Concurrency {
+    SINGLE_THREADED {
+        @Override
+        <K, V> Map<K, V> newMap() {
+            return new HashMap<>();
+        }
+
+        @Override
+        <K, V> NavigableMap<K, V> newNavigableMap() {
+            return new TreeMap<>();
+        }
+
+        @Override
+        <E> Set<E> newSet() {
+            return new HashSet<>();
+        }
+    },
+    CONCURRENT {
+        @Override
+        <K, V> Map<K, V> newMap() {
+            return new ConcurrentHashMap<>();
+        }
+
+        @Override
+        <K, V> NavigableMap<K, V> newNavigableMap() {
+            return new ConcurrentSkipListMap<>();
+        }
+
+        @Override
+        <E> Set<E> newSet() {
+            return ConcurrentHashMap.newKeySet();
+        }
+    };
+
+    abstract <K, V> Map<K, V> newMap();
+
+    abstract <K, V> NavigableMap<K, V> newNavigableMap();
+
+    abstract <E> Set<E> newSet();
+}
@@ -0,0 +1,19 @@
+package main.java;
+
+// Thread-safe EmployeeDatabase. The primary map and every index sit on
+// concurrent collections, so reads take no locks, and each add, remove and
+// update runs as one atomic compute on the employee's id. Updates are applied
+// to a copy that replaces the published record: an Employee handed out by this
+// database is never modified by it afterwards, so readers can't observe a
+// half-applied change. Callers must not mutate returned employees themselves.
+public class ConcurrentEmployeeDatabase<T> extends EmployeeDatabase<T> {
+
+    public ConcurrentEmployeeDatabase() {
+        super(Concurrency.CONCURRENT);
+    }
+
+    @Override
+    Employee<T> beginUpdate(Employee<T> current) {
+        return new Employee<>(current);
+    }
+}
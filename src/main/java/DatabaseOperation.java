@@ -0,0 +1,64 @@
+package main.java;
+
+// The public EmployeeDatabase methods EmployeeMetrics counts and times, one
+// constant per method name (both stream methods are STREAM). A QUERY reads
+// many rows; a READ looks up one value or an aggregate kept up to date.
+public enum DatabaseOperation {
+    ADD_EMPLOYEE("addEmployee", Kind.WRITE),
+    REMOVE_EMPLOYEE("removeEmployee", Kind.WRITE),
+    UPSERT_EMPLOYEE("upsertEmployee", Kind.WRITE),
+    ADD_EMPLOYEES("addEmployees", Kind.WRITE),
+    REMOVE_EMPLOYEES("removeEmployees", Kind.WRITE),
+    APPLY_BATCH("applyBatch", Kind.WRITE),
+    UPDATE_EMPLOYEE("updateEmployee", Kind.WRITE),
+    UPDATE_EMPLOYEE_DETAILS("updateEmployeeDetails", Kind.WRITE),
+    GIVE_SALARY_RAISE("giveSalaryRaise", Kind.WRITE),
+    CLEAR_DATABASE("clearDatabase", Kind.WRITE),
+    GET_EMPLOYEE("getEmployee", Kind.READ),
+    // IntEmployeeDatabase only
+    CONTAINS_EMPLOYEE("containsEmployee", Kind.READ),
+    GET_EMPLOYEE_COUNT("getEmployeeCount", Kind.READ),
+    GET_EMPLOYEE_ITERATOR("getEmployeeIterator", Kind.READ),
+    GET_DEPARTMENT_COUNTS("getDepartmentCounts", Kind.READ),
+    GET_DEPARTMENT_STATISTICS("getDepartmentStatistics", Kind.READ),
+    CALCULATE_AVERAGE_SALARY_BY_DEPARTMENT("calculateAverageSalaryByDepartment", Kind.READ),
+    EXPLAIN("explain", Kind.READ),
+    SNAPSHOT("snapshot", Kind.READ),
+    GET_ALL_EMPLOYEES("getAllEmployees", Kind.QUERY),
+    GET_EMPLOYEES_BY_DEPARTMENT("getEmployeesByDepartment", Kind.QUERY),
+    SEARCH_EMPLOYEES_BY_NAME("searchEmployeesByName", Kind.QUERY),
+    GET_EMPLOYEES_BY_MIN_RATING("getEmployeesByMinRating", Kind.QUERY),
+    GET_EMPLOYEES_BY_SALARY_RANGE("getEmployeesBySalaryRange", Kind.QUERY),
+    GET_EMPLOYEES_SORTED_BY_EXPERIENCE("getEmployeesSortedByExperience", Kind.QUERY),
+    GET_EMPLOYEES_SORTED_BY_SALARY("getEmployeesSortedBySalary", Kind.QUERY),
+    GET_EMPLOYEES_SORTED_BY_PERFORMANCE("getEmployeesSortedByPerformance", Kind.QUERY),
+    GET_EMPLOYEES_SORTED_BY_NAME("getEmployeesSortedByName", Kind.QUERY),
+    GET_EMPLOYEES_SORTED_BY_DEPARTMENT("getEmployeesSortedByDepartment", Kind.QUERY),
+    GET_TOP_N_HIGHEST_PAID_EMPLOYEES("getTopNHighestPaidEmployees", Kind.QUERY),
+    FILTER_EMPLOYEES("filterEmployees", Kind.QUERY),
+    QUERY("query", Kind.QUERY),
+    // Counted but not timed: the call only sets the stream up, and its rows
+    // are produced later, as the caller consumes them
+    STREAM("stream", Kind.QUERY),
+    GET_STATISTICS("getStatistics", Kind.QUERY);
+
+    public enum Kind {
+        WRITE, READ, QUERY
+    }
+
+    private final String methodName;
+    private final Kind kind;
+
+    DatabaseOperation(String methodName, Kind kind) {
+        this.methodName = methodName;
+        this.kind = kind;
+    }
+
+    public String methodName() {
+        return methodName;
+    }
+
+    public Kind kind() {
+        return kind;
+    }
+}
@@ -0,0 +1,114 @@
+package main.java;
+import java.util.Collection;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Running totals for one department spelling. Salaries are also kept as a
+// sorted multiset so min and max stay exact when the extreme employee leaves.
+// The totals are compensated sums, so adding and removing the same employees
+// over and over doesn't drift the averages, and start over at zero whenever
+// the department empties.
+// Guarded by its own monitor, so the concurrent database's readers always see
+// totals that belong together.
+class DepartmentAggregate {
+    private final String key;
+    private final NavigableMap<Double, Integer> salaries = new TreeMap<>();
+    private long count;
+    private long activeCount;
+    private final CompensatedSum totalSalary = new CompensatedSum();
+    private final CompensatedSum totalRating = new CompensatedSum();
+
+    DepartmentAggregate(String key) {
+        this.key = key;
+    }
+
+    // The case-folded department name, as used by DepartmentIndex.key
+    String key() {
+        return key;
+    }
+
+    synchronized void add(double salary, double rating, boolean active) {
+        count++;
+        if (active) {
+            activeCount++;
+        }
+        totalSalary.add(salary);
+        totalRating.add(rating);
+        salaries.merge(salary, 1, Integer::sum);
+    }
+
+    synchronized void remove(double salary, double rating, boolean active) {
+        count--;
+        if (active) {
+            activeCount--;
+        }
+        if (count == 0) {
+            totalSalary.reset();
+            totalRating.reset();
+        } else {
+            totalSalary.add(-salary);
+            totalRating.add(-rating);
+        }
+        salaries.computeIfPresent(salary, (key, n) -> n == 1 ? null : n - 1);
+    }
+
+    synchronized void replace(double oldSalary, double oldRating, boolean oldActive,
+                              double salary, double rating, boolean active) {
+        remove(oldSalary, oldRating, oldActive);
+        add(salary, rating, active);
+    }
+
+    synchronized <T> void addAll(Collection<Employee<T>> employees) {
+        for (Employee<T> employee : employees) {
+            add(employee.getSalary(), employee.getPerformanceRating(), employee.isActive());
+        }
+    }
+
+    synchronized <T> void removeAll(Collection<Employee<T>> employees) {
+        for (Employee<T> employee : employees) {
+            remove(employee.getSalary(), employee.getPerformanceRating(), employee.isActive());
+        }
+    }
+
+    synchronized long count() {
+        return count;
+    }
+
+    synchronized boolean isEmpty() {
+        return count == 0;
+    }
+
+    synchronized DepartmentStats snapshot(String department) {
+        if (count == 0) {
+            return new DepartmentStats(department, 0, 0, 0, 0, 0, 0);
+        }
+        return new DepartmentStats(department, count, activeCount, totalSalary.value(),
+                salaries.firstKey(), salaries.lastKey(), totalRating.value());
+    }
+
+    // Neumaier's variant of Kahan summation: the low-order bits each addition
+    // rounds away are collected in compensation and added back on reading
+    private static final class CompensatedSum {
+        private double sum;
+        private double compensation;
+
+        void add(double value) {
+            double total = sum + value;
+            if (Math.abs(sum) >= Math.abs(value)) {
+                compensation += (sum - total) + value;
+            } else {
+                compensation += (value - total) + sum;
+            }
+            sum = total;
+        }
+
+        double value() {
+            return sum + compensation;
+        }
+
+        void reset() {
+            sum = 0;
+            compensation = 0;
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package main.java;
+import java.util.*;
+
+// Secondary index from case-folded department name to the ids of its members.
+// Running totals are also kept per exact department spelling, so
+// getDepartmentCounts keeps grouping the way it always has and the department
+// statistics cost one step per department rather than a scan.
+class DepartmentIndex<T> {
+    private final Concurrency concurrency;
+    private final Map<String, Set<T>> membersByKey;
+    private final Map<String, DepartmentAggregate> aggregatesByName;
+
+    DepartmentIndex(Concurrency concurrency) {
+        this.concurrency = concurrency;
+        this.membersByKey = concurrency.newMap();
+        this.aggregatesByName = concurrency.newMap();
+    }
+
+    static String key(String department) {
+        return department.toLowerCase(Locale.ROOT);
+    }
+
+    void add(Employee<T> employee) {
+        String department = employee.getDepartment();
+        if (department == null) {
+            return;
+        }
+        T id = employee.getEmployeeId();
+        membersByKey.compute(key(department), (key, members) -> {
+            if (members == null) {
+                members = concurrency.newSet();
+            }
+            members.add(id);
+            return members;
+        });
+        aggregatesByName.compute(department, (name, aggregate) -> {
+            if (aggregate == null) {
+                aggregate = new DepartmentAggregate(key(name));
+            }
+            aggregate.add(employee.getSalary(), employee.getPerformanceRating(), employee.isActive());
+            return aggregate;
+        });
+    }
+
+    void remove(Employee<T> employee) {
+        String department = employee.getDepartment();
+        if (department == null) {
+            return;
+        }
+        T id = employee.getEmployeeId();
+        boolean[] removed = {false};
+        membersByKey.computeIfPresent(key(department), (key, members) -> {
+            removed[0] = members.remove(id);
+            return members.isEmpty() ? null : members;
+        });
+        if (removed[0]) {
+            aggregatesByName.computeIfPresent(department, (name, aggregate) -> {
+                aggregate.remove(employee.getSalary(), employee.getPerformanceRating(), employee.isActive());
+                return aggregate.isEmpty() ? null : aggregate;
+            });
+        }
+    }
+
+    // Updates the totals after a member's salary, rating or active flag changed
+    void change(Employee<T> employee, double oldSalary, double oldRating, boolean oldActive) {
+        if (employee.getDepartment() == null) {
+            return;
+        }
+        // The employee is a member, so its department's aggregate can't be dropped meanwhile
+        DepartmentAggregate aggregate = aggregatesByName.get(employee.getDepartment());
+        if (aggregate != null) {
+            aggregate.replace(oldSalary, oldRating, oldActive,
+                    employee.getSalary(), employee.getPerformanceRating(), employee.isActive());
+        }
+    }
+
+    // Batch forms: one compute per department rather than one per employee
+    void addAll(Collection<Employee<T>> batch) {
+        Map<String, List<T>> idsByKey = new HashMap<>();
+        Map<String, List<Employee<T>>> added = new HashMap<>();
+        for (Employee<T> employee : batch) {
+            String department = employee.getDepartment();
+            if (department != null) {
+                idsByKey.computeIfAbsent(key(department), key -> new ArrayList<>()).add(employee.getEmployeeId());
+                added.computeIfAbsent(department, name -> new ArrayList<>()).add(employee);
+            }
+        }
+        idsByKey.forEach((key, ids) -> membersByKey.compute(key, (k, members) -> {
+            if (members == null) {
+                members = concurrency.newSet();
+            }
+            members.addAll(ids);
+            return members;
+        }));
+        added.forEach((department, group) -> aggregatesByName.compute(department, (name, aggregate) -> {
+            if (aggregate == null) {
+                aggregate = new DepartmentAggregate(key(name));
+            }
+            aggregate.addAll(group);
+            return aggregate;
+        }));
+    }
+
+    void removeAll(Collection<Employee<T>> batch) {
+        Map<String, List<Employee<T>>> employeesByKey = new HashMap<>();
+        for (Employee<T> employee : batch) {
+            if (employee.getDepartment() != null) {
+                employeesByKey.computeIfAbsent(key(employee.getDepartment()), key -> new ArrayList<>()).add(employee);
+            }
+        }
+        Map<String, List<Employee<T>>> removed = new HashMap<>();
+        employeesByKey.forEach((key, group) -> membersByKey.computeIfPresent(key, (k, members) -> {
+            for (Employee<T> employee : group) {
+                if (members.remove(employee.getEmployeeId())) {
+                    removed.computeIfAbsent(employee.getDepartment(), name -> new ArrayList<>()).add(employee);
+                }
+            }
+            return members.isEmpty() ? null : members;
+        }));
+        removed.forEach((department, group) -> aggregatesByName.computeIfPresent(department, (name, aggregate) -> {
+            aggregate.removeAll(group);
+            return aggregate.isEmpty() ? null : aggregate;
+        }));
+    }
+
+    Set<T> members(String department) {
+        if (department == null) {
+            return Collections.emptySet();
+        }
+        Set<T> members = membersByKey.get(key(department));
+        return members == null ? Collections.emptySet() : members;
+    }
+
+    Map<String, Long> counts() {
+        Map<String, Long> counts = new HashMap<>();
+        aggregatesByName.forEach((department, aggregate) -> counts.put(department, aggregate.count()));
+        return counts;
+    }
+
+    Map<String, DepartmentStats> statistics() {
+        Map<String, DepartmentStats> statistics = new HashMap<>();
+        aggregatesByName.forEach((department, aggregate) -> statistics.put(department, aggregate.snapshot(department)));
+        return statistics;
+    }
+
+    // Matches the department ignoring case, like members()
+    double averageSalary(String department) {
+        if (department == null) {
+            return 0;
+        }
+        String key = key(department);
+        double total = 0;
+        long count = 0;
+        for (DepartmentAggregate aggregate : aggregatesByName.values()) {
+            if (aggregate.key().equals(key)) {
+                DepartmentStats stats = aggregate.snapshot(department);
+                total += stats.getTotalSalary();
+                count += stats.getCount();
+            }
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    // Distinct departments, case-folded
+    int size() {
+        return membersByKey.size();
+    }
+
+    void clear() {
+        membersByKey.clear();
+        aggregatesByName.clear();
+    }
+}
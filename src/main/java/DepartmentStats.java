@@ -0,0 +1,72 @@
+package main.java;
+
+// Totals for one department at the moment they were read.
+public final class DepartmentStats {
+    private final String department;
+    private final long count;
+    private final long activeCount;
+    private final double totalSalary;
+    private final double minSalary;
+    private final double maxSalary;
+    private final double totalRating;
+
+    DepartmentStats(String department, long count, long activeCount, double totalSalary,
+                    double minSalary, double maxSalary, double totalRating) {
+        this.department = department;
+        this.count = count;
+        this.activeCount = activeCount;
+        this.totalSalary = totalSalary;
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+        this.totalRating = totalRating;
+    }
+
+    public String getDepartment() {
+        return department;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getActiveCount() {
+        return activeCount;
+    }
+
+    public double getTotalSalary() {
+        return totalSalary;
+    }
+
+    public double getMinSalary() {
+        return minSalary;
+    }
+
+    public double getMaxSalary() {
+        return maxSalary;
+    }
+
+    public double getTotalRating() {
+        return totalRating;
+    }
+
+    public double getAverageSalary() {
+        return count == 0 ? 0 : totalSalary / count;
+    }
+
+    public double getAverageRating() {
+        return count == 0 ? 0 : totalRating / count;
+    }
+
+    @Override
+    public String toString() {
+        return "DepartmentStats{" +
+                "department='" + department + '\'' +
+                ", count=" + count +
+                ", activeCount=" + activeCount +
+                ", averageSalary=" + getAverageSalary() +
+                ", minSalary=" + minSalary +
+                ", maxSalary=" + maxSalary +
+                ", averageRating=" + getAverageRating() +
+                '}';
+    }
+}
@@ -0,0 +1,176 @@
+package main.java;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// EmployeeDatabase whose mutations survive a restart. Each successful
+// mutation is applied and appended to the write-ahead log under the same lock,
+// so the log order is the apply order. An append only copies the entry into
+// memory; the journal fsyncs batches in the background (group commit), and
+// sync() waits for durability when a caller needs it. Once enough log has
+// accumulated, a snapshot is written in the background and older segments are
+// dropped, so recovery replays only the tail of the log.
+//
+// Reads are unsynchronised, as in EmployeeDatabase.
+public class DurableEmployeeDatabase<T> extends EmployeeDatabase<T> implements Closeable {
+    public static final long DEFAULT_FLUSH_INTERVAL_MILLIS = 2;
+    public static final long DEFAULT_CHECKPOINT_BYTES = 64L << 20;
+
+    private final EmployeeJournal<T> journal;
+    private final ExecutorService checkpointer;
+    private boolean checkpointRunning;
+
+    private DurableEmployeeDatabase(Path directory, EmployeeIdCodec<T> codec, long flushIntervalMillis,
+                                    long checkpointBytes) throws IOException {
+        // Recovery replays through the overridden mutators while journal is still null
+        this.journal = EmployeeJournal.recover(directory, codec, this, flushIntervalMillis, checkpointBytes);
+        this.checkpointer = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "employee-checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static <T> DurableEmployeeDatabase<T> open(Path directory, EmployeeIdCodec<T> codec) throws IOException {
+        return open(directory, codec, DEFAULT_FLUSH_INTERVAL_MILLIS, DEFAULT_CHECKPOINT_BYTES);
+    }
+
+    public static <T> DurableEmployeeDatabase<T> open(Path directory, EmployeeIdCodec<T> codec,
+                                                      long flushIntervalMillis, long checkpointBytes)
+            throws IOException {
+        return new DurableEmployeeDatabase<>(directory, codec, flushIntervalMillis, checkpointBytes);
+    }
+
+    private void logged(Runnable append) {
+        if (journal == null) {
+            return;
+        }
+        append.run();
+        if (!checkpointRunning && journal.checkpointDue()) {
+            checkpointRunning = true;
+            checkpointer.execute(() -> {
+                try {
+                    checkpoint();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+    }
+
+    @Override
+    public synchronized boolean addEmployee(Employee<T> employee) {
+        boolean added = super.addEmployee(employee);
+        if (added) {
+            logged(() -> journal.appendEmployee(EmployeeJournal.ADD, employee));
+        }
+        return added;
+    }
+
+    @Override
+    public synchronized boolean removeEmployee(T employeeId) {
+        boolean removed = super.removeEmployee(employeeId);
+        if (removed) {
+            logged(() -> journal.appendRemove(employeeId));
+        }
+        return removed;
+    }
+
+    @Override
+    public synchronized void upsertEmployee(Employee<T> employee) {
+        super.upsertEmployee(employee);
+        logged(() -> journal.appendEmployee(EmployeeJournal.PUT, employee));
+    }
+
+    // The batch methods log through batchApplied: the whole batch is applied and
+    // appended under one lock, and recovery replays all of it or none of it
+    @Override
+    public synchronized int addEmployees(Collection<Employee<T>> batch) {
+        return super.addEmployees(batch);
+    }
+
+    @Override
+    public synchronized int removeEmployees(Collection<T> employeeIds) {
+        return super.removeEmployees(employeeIds);
+    }
+
+    @Override
+    public synchronized int applyBatch(EmployeeBatch<T> batch) {
+        return super.applyBatch(batch);
+    }
+
+    @Override
+    void batchApplied(Map<T, Employee<T>> changes) {
+        logged(() -> journal.appendBatch(changes));
+    }
+
+    @Override
+    public synchronized boolean updateEmployeeDetails(T employeeId, String field, Object newValue) {
+        boolean updated = super.updateEmployeeDetails(employeeId, field, newValue);
+        if (updated) {
+            // Log the resulting record so replay doesn't depend on how the value was parsed
+            logged(() -> journal.appendEmployee(EmployeeJournal.PUT, stored(employeeId)));
+        }
+        return updated;
+    }
+
+    @Override
+    public synchronized void updateEmployee(T employeeId, EmployeeUpdate update) {
+        super.updateEmployee(employeeId, update);
+        logged(() -> journal.appendEmployee(EmployeeJournal.PUT, stored(employeeId)));
+    }
+
+    @Override
+    public synchronized int giveSalaryRaise(double minRating, double percentage) {
+        int count = super.giveSalaryRaise(minRating, percentage);
+        if (count > 0) {
+            logged(() -> journal.appendRaise(minRating, percentage));
+        }
+        return count;
+    }
+
+    @Override
+    public synchronized void clearDatabase() {
+        super.clearDatabase();
+        logged(() -> journal.appendClear());
+    }
+
+    // Waits until every mutation made so far is on disk
+    public void sync() {
+        journal.sync();
+    }
+
+    // Writes a snapshot now. Writers are held off only while the records are
+    // copied and the log is switched to a new segment.
+    public void checkpoint() throws IOException {
+        long segment;
+        List<Employee<T>> copy;
+        synchronized (this) {
+            segment = journal.rotate();
+            copy = new ArrayList<>(getEmployeeCount());
+            for (Employee<T> employee : getAllEmployees()) {
+                copy.add(new Employee<>(employee));
+            }
+        }
+        try {
+            journal.writeSnapshot(segment, copy);
+        } finally {
+            synchronized (this) {
+                checkpointRunning = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        checkpointer.shutdown();
+        journal.close();
+    }
+}
@@ -21,6 +21,11 @@ public class Employee<T> implements Comparable<Employee<T>> {
         this.isActive = isActive;
     }
 
+    public Employee(Employee<T> other) {
+        this(other.employeeId, other.name, other.department, other.salary,
+                other.performanceRating, other.yearsOfExperience, other.isActive);
+    }
+
     // Getters and setters
     public T getEmployeeId() {
         return employeeId;
@@ -81,14 +86,15 @@ public class Employee<T> implements Comparable<Employee<T>> {
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
+        // Snapshots hand out read-only subclasses that equal the live record
+        if (!(o instanceof Employee)) return false;
         Employee<?> employee = (Employee<?>) o;
         return Objects.equals(employeeId, employee.employeeId);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(employeeId);
+        return Objects.hashCode(employeeId);
     }
 
     @Override
@@ -109,11 +115,8 @@ public class Employee<T> implements Comparable<Employee<T>> {
         // Sort by years of experience in descending order (most experienced first)
         return Integer.compare(other.yearsOfExperience, this.yearsOfExperience);
     }
-<<<<<<< HEAD
-=======
 
     public String getLastName() {
         return "";
     }
->>>>>>> master
 }
\ No newline at end of file
@@ -0,0 +1,61 @@
+package main.java;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// An ordered set of upserts, field updates and removals that
+// EmployeeDatabase.applyBatch validates up front and then applies together.
+public class EmployeeBatch<T> {
+
+    enum Kind {
+        UPSERT, UPDATE, REMOVE
+    }
+
+    static final class Operation<T> {
+        final Kind kind;
+        final T employeeId;
+        final Employee<T> employee;
+        final EmployeeUpdate update;
+
+        private Operation(Kind kind, T employeeId, Employee<T> employee, EmployeeUpdate update) {
+            this.kind = kind;
+            this.employeeId = employeeId;
+            this.employee = employee;
+            this.update = update;
+        }
+    }
+
+    private final List<Operation<T>> operations = new ArrayList<>();
+
+    public EmployeeBatch<T> upsert(Employee<T> employee) {
+        operations.add(new Operation<>(Kind.UPSERT, employee.getEmployeeId(), employee, null));
+        return this;
+    }
+
+    public EmployeeBatch<T> update(T employeeId, EmployeeUpdate update) {
+        operations.add(new Operation<>(Kind.UPDATE, employeeId, null, update));
+        return this;
+    }
+
+    // Converts the value now, so a bad value is reported while the batch is built
+    public EmployeeBatch<T> update(T employeeId, String field, Object newValue) {
+        return update(employeeId, EmployeeUpdate.of(field, newValue));
+    }
+
+    public EmployeeBatch<T> remove(T employeeId) {
+        operations.add(new Operation<>(Kind.REMOVE, employeeId, null, null));
+        return this;
+    }
+
+    public int size() {
+        return operations.size();
+    }
+
+    public boolean isEmpty() {
+        return operations.isEmpty();
+    }
+
+    List<Operation<T>> operations() {
+        return Collections.unmodifiableList(operations);
+    }
+}
@@ -0,0 +1,135 @@
+package main.java;
+import java.util.Collections;
+import java.util.List;
+
+// One change to an EmployeeDatabase, as delivered by its change feed.
+// Replacing a record reports its removal and then the new record's addition.
+public final class EmployeeChange<T> {
+    public enum Kind {
+        ADDED,
+        REMOVED,
+        FIELD_CHANGED,
+        RAISE,
+        CLEARED
+    }
+
+    private final Kind kind;
+    private final T employeeId;
+    private final Employee<T> employee;
+    private final EmployeeField field;
+    private final Object oldValue;
+    private final Object newValue;
+    private final double minRating;
+    private final double percentage;
+    private final List<T> raisedIds;
+
+    private EmployeeChange(Kind kind, T employeeId, Employee<T> employee, EmployeeField field,
+                           Object oldValue, Object newValue, double minRating, double percentage, List<T> raisedIds) {
+        this.kind = kind;
+        this.employeeId = employeeId;
+        this.employee = employee;
+        this.field = field;
+        this.oldValue = oldValue;
+        this.newValue = newValue;
+        this.minRating = minRating;
+        this.percentage = percentage;
+        this.raisedIds = raisedIds;
+    }
+
+    // Records are copied, as the database goes on updating its own in place
+    static <T> EmployeeChange<T> added(Employee<T> employee) {
+        return new EmployeeChange<>(Kind.ADDED, employee.getEmployeeId(), new Employee<>(employee),
+                null, null, null, 0, 0, null);
+    }
+
+    static <T> EmployeeChange<T> removed(Employee<T> employee) {
+        return new EmployeeChange<>(Kind.REMOVED, employee.getEmployeeId(), employee, null, null, null, 0, 0, null);
+    }
+
+    static <T> EmployeeChange<T> fieldChanged(T employeeId, EmployeeField field, Object oldValue, Object newValue) {
+        return new EmployeeChange<>(Kind.FIELD_CHANGED, employeeId, null, field, oldValue, newValue, 0, 0, null);
+    }
+
+    static <T> EmployeeChange<T> raise(double minRating, double percentage, List<T> raisedIds) {
+        return new EmployeeChange<>(Kind.RAISE, null, null, null, null, null, minRating, percentage,
+                Collections.unmodifiableList(raisedIds));
+    }
+
+    static <T> EmployeeChange<T> cleared() {
+        return new EmployeeChange<>(Kind.CLEARED, null, null, null, null, null, 0, 0, null);
+    }
+
+    // The field's value boxed as its own type: String, Double, Integer or Boolean
+    static Object value(EmployeeField field, Employee<?> employee) {
+        switch (field) {
+            case NAME:
+                return employee.getName();
+            case DEPARTMENT:
+                return employee.getDepartment();
+            case SALARY:
+                return employee.getSalary();
+            case PERFORMANCE_RATING:
+                return employee.getPerformanceRating();
+            case YEARS_OF_EXPERIENCE:
+                return employee.getYearsOfExperience();
+            default:
+                return employee.isActive();
+        }
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    // Null for RAISE and CLEARED
+    public T getEmployeeId() {
+        return employeeId;
+    }
+
+    // The record added, or the one removed
+    public Employee<T> getEmployee() {
+        return employee;
+    }
+
+    public EmployeeField getField() {
+        return field;
+    }
+
+    public Object getOldValue() {
+        return oldValue;
+    }
+
+    // Applies as EmployeeUpdate.of(getField(), getNewValue())
+    public Object getNewValue() {
+        return newValue;
+    }
+
+    // A raise multiplied the salary of every employee in getRaisedIds() by 1 + percentage / 100.
+    // Only the single-threaded database reports a raise this way; the concurrent one
+    // reports each raised salary as a FIELD_CHANGED.
+    public double getMinRating() {
+        return minRating;
+    }
+
+    public double getPercentage() {
+        return percentage;
+    }
+
+    public List<T> getRaisedIds() {
+        return raisedIds;
+    }
+
+    @Override
+    public String toString() {
+        switch (kind) {
+            case FIELD_CHANGED:
+                return kind + " " + employeeId + " " + field.fieldName() + ": " + oldValue + " -> " + newValue;
+            case RAISE:
+                return kind + " " + percentage + "% for " + raisedIds.size() + " rated >= " + minRating;
+            case CLEARED:
+                return kind.toString();
+            default:
+                return kind + " " + employeeId;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package main.java;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+// The changes made to an EmployeeDatabase, delivered in order and in batches
+// to every listener on one background thread. Writers only put a change into
+// a RingBuffer, which never blocks them; with no listener they build no
+// change at all. If the listeners fall so far behind that the ring fills up,
+// later changes are dropped and the listeners are told how many, so a
+// replica can reload rather than drift.
+public final class EmployeeChangeFeed<T> implements AutoCloseable {
+    public interface Listener<T> {
+        // batch is in the order the changes were made; the list is the listener's to keep
+        void changed(List<EmployeeChange<T>> batch);
+
+        // lost changes were dropped since the last call
+        default void overflowed(long lost) {
+        }
+    }
+
+    static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int MAX_BATCH = 1024;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    private final RingBuffer<EmployeeChange<T>> ring;
+    private final List<Listener<T>> listeners = new CopyOnWriteArrayList<>();
+    private final LongAdder lost = new LongAdder();
+    private final Thread dispatcher;
+    private volatile boolean idle;
+    private volatile boolean closed;
+    // Changes handed to the listeners so far; written by the dispatcher only
+    private volatile long delivered;
+
+    EmployeeChangeFeed(int capacity) {
+        this.ring = new RingBuffer<>(capacity);
+        this.dispatcher = new Thread(this::dispatch, "employee-changes");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    // Receives the changes made from now on
+    public void subscribe(Listener<T> listener) {
+        listeners.add(listener);
+    }
+
+    public void unsubscribe(Listener<T> listener) {
+        listeners.remove(listener);
+    }
+
+    boolean isObserved() {
+        return !closed && !listeners.isEmpty();
+    }
+
+    void publish(EmployeeChange<T> change) {
+        if (!ring.offer(change)) {
+            lost.increment();
+        } else if (idle) {
+            LockSupport.unpark(dispatcher);
+        }
+    }
+
+    // Waits until every change published so far has reached the listeners
+    public boolean awaitDelivery(long timeout, TimeUnit unit) {
+        long target = ring.offered();
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (delivered < target) {
+            if (closed || System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            LockSupport.unpark(dispatcher);
+            LockSupport.parkNanos(TimeUnit.MICROSECONDS.toNanos(100));
+        }
+        return true;
+    }
+
+    private void dispatch() {
+        long reportedLost = 0;
+        while (!closed) {
+            List<EmployeeChange<T>> batch = new ArrayList<>();
+            int count = ring.drainTo(batch, MAX_BATCH);
+            if (count > 0) {
+                List<EmployeeChange<T>> changes = Collections.unmodifiableList(batch);
+                for (Listener<T> listener : listeners) {
+                    try {
+                        listener.changed(changes);
+                    } catch (RuntimeException e) {
+                        // One failing listener must not starve the others
+                        System.err.println("Change listener " + listener + " failed: " + e);
+                    }
+                }
+                delivered += count;
+            }
+            long lostSoFar = lost.sum();
+            if (lostSoFar > reportedLost) {
+                for (Listener<T> listener : listeners) {
+                    try {
+                        listener.overflowed(lostSoFar - reportedLost);
+                    } catch (RuntimeException e) {
+                        System.err.println("Change listener " + listener + " failed: " + e);
+                    }
+                }
+                reportedLost = lostSoFar;
+            }
+            if (count == 0) {
+                // Publishers unpark the dispatcher once they see it idle
+                idle = true;
+                if (ring.isEmpty() && !closed) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+                idle = false;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        listeners.clear();
+        LockSupport.unpark(dispatcher);
+    }
+}
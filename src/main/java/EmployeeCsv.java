@@ -0,0 +1,337 @@
+package main.java;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+// Bulk CSV import and export. Columns are
+//   id,name,department,salary,performanceRating,yearsOfExperience,isActive
+// with an optional header line. Fields containing commas or quotes, with
+// leading or trailing spaces, or empty, are quoted the RFC 4180 way; unquoted
+// fields are trimmed. An empty unquoted department is an employee without
+// one; every employee needs a name. A field may not contain a line break.
+public class EmployeeCsv {
+    public static final String HEADER = "id,name,department,salary,performanceRating,yearsOfExperience,isActive";
+
+    private static final int WINDOW_SIZE = 64 << 20;
+    private static final int MIN_CHUNK_SIZE = 1 << 20;
+    private static final int BATCH_SIZE = 10_000;
+    private static final int MAX_REPORTED_ERRORS = 20;
+
+    private EmployeeCsv() {
+    }
+
+    // Parses the file a window at a time, in parallel within each window, and
+    // adds each window's rows in batches before reading the next, so at most one
+    // window of rows is held. If any row is invalid the rows already added are
+    // removed again and the exception lists the offending lines. Returns how many
+    // employees were added (rows whose id already exists are skipped).
+    public static <T> int importCsv(Path file, EmployeeStore<T> store, Function<String, T> idParser)
+            throws IOException {
+        List<T> added = new ArrayList<>();
+        try {
+            load(file, store, idParser, added);
+        } catch (IOException | RuntimeException e) {
+            // Leaves the store as it was
+            store.removeEmployees(added);
+            throw e;
+        }
+        return added.size();
+    }
+
+    // Adds the file's rows to store, recording their ids in added. After the
+    // first invalid row nothing more is added, but parsing goes on so that
+    // every bad line is reported.
+    private static <T> void load(Path file, EmployeeStore<T> store, Function<String, T> idParser, List<T> added)
+            throws IOException {
+        List<String> errors = new ArrayList<>();
+        int errorCount = 0;
+        List<Employee<T>> batch = new ArrayList<>(BATCH_SIZE);
+        Set<T> batchIds = new HashSet<>();
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long position = 0;
+            long firstLine = 1;
+            while (position < size) {
+                MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position,
+                        Math.min(WINDOW_SIZE, size - position));
+                int end = window.limit();
+                if (position + end < size) {
+                    // Stop at the last complete line; the rest starts the next window
+                    while (end > 0 && window.get(end - 1) != '\n') {
+                        end--;
+                    }
+                    if (end == 0) {
+                        throw new InvalidEmployeeDataException("line " + firstLine + ": line too long");
+                    }
+                }
+
+                List<Chunk<T>> chunks = parseWindow(window, end, firstLine == 1, idParser);
+                for (Chunk<T> chunk : chunks) {
+                    for (int i = 0; i < chunk.errorLines.size(); i++) {
+                        if (errors.size() < MAX_REPORTED_ERRORS) {
+                            errors.add("line " + (firstLine + chunk.errorLines.get(i)) + ": " + chunk.errorMessages.get(i));
+                        }
+                        errorCount++;
+                    }
+                    if (errorCount == 0) {
+                        for (Employee<T> employee : chunk.employees) {
+                            // Only ids new to the store and the batch, so added lists exactly what was added
+                            T id = employee.getEmployeeId();
+                            if (batchIds.add(id) && store.getEmployee(id).isEmpty()) {
+                                batch.add(employee);
+                                if (batch.size() == BATCH_SIZE) {
+                                    addBatch(store, batch, batchIds, added);
+                                }
+                            }
+                        }
+                    }
+                    firstLine += chunk.lines;
+                }
+                position += end;
+            }
+        }
+
+        if (errorCount > 0) {
+            throw new InvalidEmployeeDataException("Invalid employee data on " + errorCount + " line(s): "
+                    + String.join("; ", errors) + (errorCount > errors.size() ? "; ..." : ""));
+        }
+        addBatch(store, batch, batchIds, added);
+    }
+
+    private static <T> void addBatch(EmployeeStore<T> store, List<Employee<T>> batch, Set<T> batchIds,
+                                     List<T> added) {
+        store.addEmployees(batch);
+        for (Employee<T> employee : batch) {
+            added.add(employee.getEmployeeId());
+        }
+        batch.clear();
+        batchIds.clear();
+    }
+
+    // Splits [0, end) at line boundaries and parses the pieces across cores
+    private static <T> List<Chunk<T>> parseWindow(MappedByteBuffer window, int end, boolean atFileStart,
+                                                  Function<String, T> idParser) {
+        int pieces = Math.max(1, Math.min(Runtime.getRuntime().availableProcessors() * 4, end / MIN_CHUNK_SIZE));
+        List<Integer> bounds = new ArrayList<>();
+        bounds.add(0);
+        for (int i = 1; i < pieces; i++) {
+            int bound = Math.max((int) ((long) end * i / pieces), bounds.get(bounds.size() - 1));
+            while (bound < end && window.get(bound - 1) != '\n') {
+                bound++;
+            }
+            if (bound > bounds.get(bounds.size() - 1) && bound < end) {
+                bounds.add(bound);
+            }
+        }
+        bounds.add(end);
+
+        return IntStream.range(0, bounds.size() - 1)
+                .parallel()
+                .mapToObj(i -> {
+                    ByteBuffer slice = window.duplicate();
+                    slice.limit(bounds.get(i + 1));
+                    slice.position(bounds.get(i));
+                    String text = StandardCharsets.UTF_8.decode(slice).toString();
+                    return parseChunk(text, atFileStart && i == 0, idParser);
+                })
+                .collect(Collectors.toList());
+    }
+
+    private static <T> Chunk<T> parseChunk(String text, boolean mayHaveHeader, Function<String, T> idParser) {
+        Chunk<T> chunk = new Chunk<>();
+        int start = 0;
+        while (start < text.length()) {
+            int newline = text.indexOf('\n', start);
+            int lineEnd = newline < 0 ? text.length() : newline;
+            int contentEnd = lineEnd > start && text.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            String line = text.substring(start, contentEnd);
+            boolean header = mayHaveHeader && chunk.lines == 0 && line.regionMatches(true, 0, "id,", 0, 3);
+            if (!header && !line.isBlank()) {
+                try {
+                    chunk.employees.add(parseLine(line, idParser));
+                } catch (InvalidEmployeeDataException e) {
+                    chunk.errorLines.add(chunk.lines);
+                    chunk.errorMessages.add(e.getMessage());
+                }
+            }
+            chunk.lines++;
+            start = lineEnd + 1;
+        }
+        return chunk;
+    }
+
+    static <T> Employee<T> parseLine(String line, Function<String, T> idParser) {
+        BitSet quoted = new BitSet(7);
+        List<String> fields = splitFields(line, quoted);
+        if (fields.size() != 7) {
+            throw new InvalidEmployeeDataException("expected 7 fields but found " + fields.size());
+        }
+        T id;
+        try {
+            id = idParser.apply(fields.get(0).trim());
+        } catch (RuntimeException e) {
+            throw new InvalidEmployeeDataException("invalid id '" + fields.get(0) + "'");
+        }
+        String name = fields.get(1);
+        if (name.isBlank()) {
+            throw new InvalidEmployeeDataException("name is required");
+        }
+        String department = fields.get(2).isEmpty() && !quoted.get(2) ? null : fields.get(2);
+        double salary = parseDouble(fields.get(3), "salary");
+        double rating = parseDouble(fields.get(4), "performanceRating");
+        int experience;
+        try {
+            experience = Integer.parseInt(fields.get(5).trim());
+        } catch (NumberFormatException e) {
+            throw new InvalidEmployeeDataException("yearsOfExperience '" + fields.get(5) + "' is not a whole number");
+        }
+        String active = fields.get(6).trim();
+        if (!active.equalsIgnoreCase("true") && !active.equalsIgnoreCase("false")) {
+            throw new InvalidEmployeeDataException("isActive '" + fields.get(6) + "' is not true or false");
+        }
+        if (salary < 0) {
+            throw new InvalidEmployeeDataException("salary must not be negative");
+        }
+        if (rating < 0 || rating > 5) {
+            throw new InvalidEmployeeDataException("performanceRating must be between 0 and 5");
+        }
+        if (experience < 0) {
+            throw new InvalidEmployeeDataException("yearsOfExperience must not be negative");
+        }
+        return new Employee<>(id, name, department, salary, rating, experience, Boolean.parseBoolean(active));
+    }
+
+    private static double parseDouble(String field, String column) {
+        try {
+            double value = Double.parseDouble(field.trim());
+            if (Double.isNaN(value) || Double.isInfinite(value)) {
+                throw new NumberFormatException();
+            }
+            return value;
+        } catch (NumberFormatException e) {
+            throw new InvalidEmployeeDataException(column + " '" + field + "' is not a number");
+        }
+    }
+
+    // Unquoted fields are trimmed; quoted ones are kept exactly, and spaces
+    // around their quotes are dropped. Sets the numbers of quoted fields in quotedFields.
+    private static List<String> splitFields(String line, BitSet quotedFields) {
+        List<String> fields = new ArrayList<>(7);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                if (!wasQuoted && field.toString().isBlank()) {
+                    field.setLength(0);
+                }
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                if (wasQuoted) {
+                    quotedFields.set(fields.size());
+                }
+                fields.add(wasQuoted ? field.toString() : field.toString().trim());
+                field.setLength(0);
+                wasQuoted = false;
+            } else if (!wasQuoted || c > ' ') {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidEmployeeDataException("unterminated quoted field");
+        }
+        if (wasQuoted) {
+            quotedFields.set(fields.size());
+        }
+        fields.add(wasQuoted ? field.toString() : field.toString().trim());
+        return fields;
+    }
+
+    // Writes every employee while iterating the store, so the file is never built in memory.
+    // Returns the number of rows written. An employee without a name can't be
+    // imported again, so it fails the export and the file is deleted.
+    public static <T> long exportCsv(EmployeeStore<T> store, Path file) throws IOException {
+        try {
+            return write(store, file);
+        } catch (InvalidEmployeeDataException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+    }
+
+    private static <T> long write(EmployeeStore<T> store, Path file) throws IOException {
+        long rows = 0;
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write(HEADER);
+            out.newLine();
+            StringBuilder line = new StringBuilder(128);
+            var iterator = store.getEmployeeIterator();
+            while (iterator.hasNext()) {
+                Employee<T> employee = iterator.next();
+                line.setLength(0);
+                appendField(line, String.valueOf(employee.getEmployeeId())).append(',');
+                String name = employee.getName();
+                if (name == null || name.isBlank()) {
+                    throw new InvalidEmployeeDataException("employee " + employee.getEmployeeId() + " has no name");
+                }
+                appendField(line, name).append(',');
+                appendField(line, employee.getDepartment()).append(',');
+                line.append(employee.getSalary()).append(',')
+                        .append(employee.getPerformanceRating()).append(',')
+                        .append(employee.getYearsOfExperience()).append(',')
+                        .append(employee.isActive());
+                out.append(line);
+                out.newLine();
+                rows++;
+            }
+        }
+        return rows;
+    }
+
+    private static StringBuilder appendField(StringBuilder line, String value) {
+        if (value == null) {
+            return line;
+        }
+        // Empty values are quoted to tell them from null, and spaces at either
+        // end because importing would trim them
+        boolean padded = value.isEmpty() || value.charAt(0) <= ' ' || value.charAt(value.length() - 1) <= ' ';
+        if (!padded && value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+            return line.append(value);
+        }
+        return line.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+
+    // Result of parsing one piece of a window; error lines are counted from the chunk's first line
+    private static class Chunk<T> {
+        private final List<Employee<T>> employees = new ArrayList<>();
+        private final List<Integer> errorLines = new ArrayList<>();
+        private final List<String> errorMessages = new ArrayList<>();
+        private int lines;
+    }
+}
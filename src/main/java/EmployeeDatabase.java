@@ -1,198 +1,972 @@
 package main.java;
 import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public class EmployeeDatabase<T> {
+public class EmployeeDatabase<T> implements EmployeeStore<T> {
+    private final Concurrency concurrency;
     private final Map<T, Employee<T>> employees;
+    private final DepartmentIndex<T> departmentIndex;
+    private final SalaryIndex<T> salaryIndex;
+    private final NameIndex<T> nameIndex;
+    // Null for the concurrent database: dense row numbers would need one lock around every write
+    private final BitmapIndex<T> bitmapIndex;
+    // One per EmployeeOrder, built the first time that order is read and kept in
+    // step by every write from then on. Null for the concurrent database, where a
+    // view built while writers run could miss their changes.
+    private final SortedView<T>[] sortedViews;
+    private final QueryPlanner<T> planner;
+    // Started by the first call to changes()
+    private volatile EmployeeChangeFeed<T> changeFeed;
+    // Committed versions for snapshot(), kept from the first snapshot on.
+    // Writers publish to them once set; snapshots read them once complete.
+    private volatile EmployeeVersions<T> versions;
+    private volatile boolean versionsComplete;
+    // Concurrent database only. Writes of many records share it until
+    // versions are kept, holding off the first snapshot, which must not start
+    // in the middle of one; from then on each takes it alone, so that its
+    // records reach snapshots as one version.
+    private final ReadWriteLock groupLock = new ReentrantReadWriteLock();
+    private final EmployeeMetrics metrics;
 
     public EmployeeDatabase() {
-        this.employees = new HashMap<>();
+        this(Concurrency.SINGLE_THREADED);
     }
 
+    EmployeeDatabase(Concurrency concurrency) {
+        this(concurrency.newMap(), concurrency);
+    }
+
+    @SuppressWarnings("unchecked")
+    EmployeeDatabase(Map<T, Employee<T>> employees, Concurrency concurrency) {
+        this.concurrency = concurrency;
+        this.employees = employees;
+        this.departmentIndex = new DepartmentIndex<>(concurrency);
+        this.salaryIndex = new SalaryIndex<>(concurrency);
+        this.nameIndex = new NameIndex<>(concurrency);
+        this.bitmapIndex = concurrency == Concurrency.CONCURRENT ? null : new BitmapIndex<>();
+        this.sortedViews = concurrency == Concurrency.CONCURRENT ? null
+                : (SortedView<T>[]) new SortedView<?>[EmployeeOrder.values().length];
+        this.planner = new QueryPlanner<>(employees, departmentIndex, salaryIndex, nameIndex, bitmapIndex,
+                sortedViews == null ? null : this::sortedView);
+        this.metrics = new EmployeeMetrics(employees::size, departmentIndex::counts, this::indexSizes);
+    }
+
+    @Override
     public boolean addEmployee(Employee<T> employee) {
-        if (employees.containsKey(employee.getEmployeeId())) {
-            return false;
+        return timed(DatabaseOperation.ADD_EMPLOYEE, () -> add(employee));
+    }
+
+    // add, remove and upsert are the unmetered writes behind the public
+    // methods, for batches that are counted once as a whole. Each writes at once
+    // unless a batch or raise on another thread has already written the
+    // record, when each waits for it to be published and tries again
+    private boolean add(Employee<T> employee) {
+        while (true) {
+            boolean[] added = {false};
+            List<EmployeeVersions<T>.Group> blocked = new ArrayList<>();
+            employees.computeIfAbsent(employee.getEmployeeId(), id -> {
+                if (blockedBy(id, blocked)) {
+                    return null;
+                }
+                index(employee);
+                version(employee);
+                added[0] = true;
+                publish(EmployeeChange.added(employee));
+                return employee;
+            });
+            if (blocked.isEmpty()) {
+                return added[0];
+            }
+            blocked.get(0).awaitPublished();
         }
-        employees.put(employee.getEmployeeId(), employee);
-        return true;
     }
 
+    @Override
     public boolean removeEmployee(T employeeId) {
-        if (!employees.containsKey(employeeId)) {
-            return false;
+        return timed(DatabaseOperation.REMOVE_EMPLOYEE, () -> remove(employeeId));
+    }
+
+    boolean remove(T employeeId) {
+        while (true) {
+            boolean[] removed = {false};
+            List<EmployeeVersions<T>.Group> blocked = new ArrayList<>();
+            employees.computeIfPresent(employeeId, (id, employee) -> {
+                if (blockedBy(id, blocked)) {
+                    return employee;
+                }
+                unindex(employee);
+                unversion(id);
+                removed[0] = true;
+                publish(EmployeeChange.removed(employee));
+                return null;
+            });
+            if (blocked.isEmpty()) {
+                return removed[0];
+            }
+            blocked.get(0).awaitPublished();
         }
-        employees.remove(employeeId);
-        return true;
     }
 
-    public Optional<Employee<T>> getEmployee(T employeeId) {
-        return Optional.ofNullable(employees.get(employeeId));
+    // Adds the employee, replacing any record with the same id in one step
+    public void upsertEmployee(Employee<T> employee) {
+        timed(DatabaseOperation.UPSERT_EMPLOYEE, () -> upsert(employee));
     }
 
-    public boolean updateEmployeeDetails(T employeeId, String field, Object newValue) {
-        Employee<T> employee = employees.get(employeeId);
-        if (employee == null) {
-            return false;
+    private void upsert(Employee<T> employee) {
+        while (true) {
+            List<EmployeeVersions<T>.Group> blocked = new ArrayList<>();
+            employees.compute(employee.getEmployeeId(), (id, current) -> {
+                if (blockedBy(id, blocked)) {
+                    return current;
+                }
+                if (current != null) {
+                    unindex(current);
+                }
+                index(employee);
+                version(employee);
+                EmployeeChangeFeed<T> feed = observedFeed();
+                if (feed != null) {
+                    if (current != null) {
+                        feed.publish(EmployeeChange.removed(current));
+                    }
+                    feed.publish(EmployeeChange.added(employee));
+                }
+                return employee;
+            });
+            if (blocked.isEmpty()) {
+                return;
+            }
+            blocked.get(0).awaitPublished();
         }
+    }
 
-        try {
-            switch (field.toLowerCase()) {
-                case "name":
-                    employee.setName((String) newValue);
-                    break;
-                case "department":
-                    employee.setDepartment((String) newValue);
-                    break;
-                case "salary":
-                    if (newValue instanceof String) {
-                        employee.setSalary(Double.parseDouble((String) newValue));
-                    } else {
-                        employee.setSalary((Double) newValue);
+    @Override
+    public int addEmployees(Collection<Employee<T>> batch) {
+        return timed(DatabaseOperation.ADD_EMPLOYEES, () -> {
+            if (concurrency == Concurrency.CONCURRENT) {
+                return grouped(() -> {
+                    int added = 0;
+                    for (Employee<T> employee : batch) {
+                        if (add(employee)) {
+                            added++;
+                        }
                     }
-                    break;
-                case "performancerating":
-                    if (newValue instanceof String) {
-                        employee.setPerformanceRating(Double.parseDouble((String) newValue));
-                    } else {
-                        employee.setPerformanceRating((Double) newValue);
+                    return added;
+                });
+            }
+            Map<T, Employee<T>> changes = new LinkedHashMap<>();
+            for (Employee<T> employee : batch) {
+                if (!employees.containsKey(employee.getEmployeeId())) {
+                    changes.putIfAbsent(employee.getEmployeeId(), employee);
+                }
+            }
+            applyChanges(changes);
+            return changes.size();
+        });
+    }
+
+    @Override
+    public int removeEmployees(Collection<T> employeeIds) {
+        return timed(DatabaseOperation.REMOVE_EMPLOYEES, () -> {
+            if (concurrency == Concurrency.CONCURRENT) {
+                return grouped(() -> {
+                    int removed = 0;
+                    for (T id : employeeIds) {
+                        if (remove(id)) {
+                            removed++;
+                        }
                     }
+                    return removed;
+                });
+            }
+            Map<T, Employee<T>> changes = new LinkedHashMap<>();
+            for (T id : employeeIds) {
+                if (employees.containsKey(id)) {
+                    changes.put(id, null);
+                }
+            }
+            applyChanges(changes);
+            return changes.size();
+        });
+    }
+
+    // Checks every operation before anything changes, so a batch that updates a
+    // missing employee leaves the database untouched (values were already checked
+    // when the batch was built). Returns the number of employees changed.
+    // The concurrent database then applies the operations one record at a time;
+    // otherwise the batch is applied as a whole by applyChanges.
+    public int applyBatch(EmployeeBatch<T> batch) {
+        return timed(DatabaseOperation.APPLY_BATCH, () -> {
+            Map<T, Employee<T>> changes = stage(batch);
+            if (concurrency != Concurrency.CONCURRENT) {
+                applyChanges(changes);
+                return changes.size();
+            }
+            return grouped(() -> {
+                for (EmployeeBatch.Operation<T> operation : batch.operations()) {
+                    switch (operation.kind) {
+                        case UPSERT:
+                            upsert(operation.employee);
+                            break;
+                        case UPDATE:
+                            tryUpdate(operation.employeeId, operation.update);
+                            break;
+                        case REMOVE:
+                            remove(operation.employeeId);
+                            break;
+                    }
+                }
+                return changes.size();
+            });
+        });
+    }
+
+    // Resolves a batch to the final record of every employee it touches (null
+    // when removed). Field updates go to copies, never to published records
+    // or to the caller's upserted ones.
+    private Map<T, Employee<T>> stage(EmployeeBatch<T> batch) {
+        Map<T, Employee<T>> staged = new LinkedHashMap<>();
+        // Ids whose staged record is a copy made here
+        Set<T> copies = new HashSet<>();
+        for (EmployeeBatch.Operation<T> operation : batch.operations()) {
+            T id = operation.employeeId;
+            switch (operation.kind) {
+                case UPSERT:
+                    staged.put(id, operation.employee);
+                    copies.remove(id);
                     break;
-                case "yearsofexperience":
-                    if (newValue instanceof String) {
-                        employee.setYearsOfExperience(Integer.parseInt((String) newValue));
+                case REMOVE:
+                    if (employees.containsKey(id)) {
+                        staged.put(id, null);
                     } else {
-                        employee.setYearsOfExperience((Integer) newValue);
+                        staged.remove(id);
                     }
                     break;
-                case "isactive":
-                    if (newValue instanceof String) {
-                        employee.setActive(Boolean.parseBoolean((String) newValue));
-                    } else {
-                        employee.setActive((Boolean) newValue);
+                case UPDATE:
+                    Employee<T> target = staged.get(id);
+                    if (target == null) {
+                        Employee<T> current = staged.containsKey(id) ? null : employees.get(id);
+                        if (current == null) {
+                            throw new EmployeeNotFoundException("No employee with id " + id);
+                        }
+                        target = new Employee<>(current);
+                        staged.put(id, target);
+                        copies.add(id);
+                    } else if (copies.add(id)) {
+                        target = new Employee<>(target);
+                        staged.put(id, target);
                     }
+                    operation.update.applyTo(target);
                     break;
-                default:
-                    return false;
             }
-            return true;
-        } catch (ClassCastException | NumberFormatException e) {
+        }
+        return staged;
+    }
+
+    // Applies final records (null meaning removed) with one pass over the primary
+    // map and one grouped update per secondary index. Not for the concurrent
+    // database, whose readers would see the map and indexes disagree.
+    void applyChanges(Map<T, Employee<T>> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<Employee<T>> outgoing = new ArrayList<>();
+        List<T> outgoingIds = new ArrayList<>();
+        List<Employee<T>> incoming = new ArrayList<>(changes.size());
+        EmployeeChangeFeed<T> feed = observedFeed();
+        for (Map.Entry<T, Employee<T>> change : changes.entrySet()) {
+            Employee<T> employee = change.getValue();
+            Employee<T> previous = employee == null
+                    ? employees.remove(change.getKey())
+                    : employees.put(change.getKey(), employee);
+            if (previous != null) {
+                outgoing.add(previous);
+                outgoingIds.add(change.getKey());
+            }
+            if (employee != null) {
+                incoming.add(employee);
+            }
+            if (feed != null) {
+                if (previous != null) {
+                    feed.publish(EmployeeChange.removed(previous));
+                }
+                if (employee != null) {
+                    feed.publish(EmployeeChange.added(employee));
+                }
+            }
+        }
+        departmentIndex.removeAll(outgoing);
+        salaryIndex.removeAll(outgoing);
+        nameIndex.removeAll(outgoingIds);
+        departmentIndex.addAll(incoming);
+        salaryIndex.addAll(incoming);
+        nameIndex.addAll(incoming);
+        for (T id : outgoingIds) {
+            bitmapIndex.remove(id);
+        }
+        for (Employee<T> employee : incoming) {
+            bitmapIndex.add(employee);
+        }
+        for (SortedView<T> view : sortedViews) {
+            if (view != null) {
+                outgoing.forEach(view::remove);
+                view.addAll(incoming);
+            }
+        }
+        EmployeeVersions<T> versions = this.versions;
+        if (versions != null) {
+            versions.putAll(changes);
+        }
+        batchApplied(changes);
+    }
+
+    // Runs a write of many records one record at a time, publishing them to
+    // snapshots as one version once versions are kept
+    private <R> R grouped(Supplier<R> write) {
+        if (concurrency == Concurrency.CONCURRENT && versions == null) {
+            Lock shared = groupLock.readLock();
+            shared.lock();
+            try {
+                if (versions == null) {
+                    return write.get();
+                }
+            } finally {
+                shared.unlock();
+            }
+        }
+        EmployeeVersions<T> versions = this.versions;
+        if (versions == null) {
+            return write.get();
+        }
+        Lock exclusive = concurrency == Concurrency.CONCURRENT ? groupLock.writeLock() : null;
+        if (exclusive != null) {
+            exclusive.lock();
+        }
+        try {
+            EmployeeVersions<T>.Group group = versions.open();
+            try {
+                return write.get();
+            } finally {
+                group.publish();
+            }
+        } finally {
+            if (exclusive != null) {
+                exclusive.unlock();
+            }
+        }
+    }
+
+    // Called after applyChanges with the records it applied
+    void batchApplied(Map<T, Employee<T>> changes) {
+    }
+
+    // Calls and latency of every public method below, and gauges of what the database holds
+    public EmployeeMetrics metrics() {
+        return metrics;
+    }
+
+    final <R> R timed(DatabaseOperation operation, Supplier<R> call) {
+        long started = metrics.started(operation);
+        try {
+            return call.get();
+        } finally {
+            metrics.finished(operation, started);
+        }
+    }
+
+    final void timed(DatabaseOperation operation, Runnable call) {
+        long started = metrics.started(operation);
+        try {
+            call.run();
+        } finally {
+            metrics.finished(operation, started);
+        }
+    }
+
+    private Map<String, Long> indexSizes() {
+        Map<String, Long> sizes = new LinkedHashMap<>();
+        sizes.put("departments", (long) departmentIndex.size());
+        sizes.put("salaries", (long) salaryIndex.size());
+        sizes.put("nameTrigrams", (long) nameIndex.size());
+        if (bitmapIndex != null) {
+            sizes.put("bitmapRows", (long) bitmapIndex.size());
+            sizes.put("bitmapBytes", bitmapIndex.bitmapBytes());
+        }
+        if (sortedViews != null) {
+            for (SortedView<T> view : sortedViews) {
+                if (view != null) {
+                    sizes.put("sortedBy" + view.order(), (long) view.size());
+                }
+            }
+        }
+        return sizes;
+    }
+
+    // A consistent, read-only view of the database as it is now, which later
+    // writes don't change; see EmployeeSnapshot. It can be taken and read from
+    // any thread, and neither waits for writers nor holds them up. The first
+    // call lists every record once, so on the single-threaded database it
+    // must not overlap a write, like any other call; it is synchronized to
+    // keep durable writers off. On the concurrent database it waits for
+    // writes of many records in progress and holds off new ones while it
+    // lists, but not single-record writes. Each write after that also
+    // publishes a copy of the records it changed.
+    public EmployeeSnapshot<T> snapshot() {
+        return timed(DatabaseOperation.SNAPSHOT, () -> {
+            if (!versionsComplete) {
+                synchronized (this) {
+                    if (!versionsComplete) {
+                        keepVersions();
+                        versionsComplete = true;
+                    }
+                }
+            }
+            return new EmployeeSnapshot<>(versions.current());
+        });
+    }
+
+    private void keepVersions() {
+        if (concurrency != Concurrency.CONCURRENT) {
+            versions = new EmployeeVersions<>(employees.values());
+            return;
+        }
+        Lock exclusive = groupLock.writeLock();
+        exclusive.lock();
+        try {
+            EmployeeVersions<T> versions = new EmployeeVersions<>();
+            // Writers publish their own records from here on. Each record is
+            // listed under its entry's lock, so a write to it either shows in
+            // the record listed or publishes itself after it.
+            this.versions = versions;
+            for (T id : employees.keySet()) {
+                employees.computeIfPresent(id, (key, employee) -> {
+                    versions.putIfAbsent(employee);
+                    return employee;
+                });
+            }
+        } finally {
+            exclusive.unlock();
+        }
+    }
+
+    // Null until snapshot() is first called, so writes without snapshots copy nothing
+    private void version(Employee<T> employee) {
+        EmployeeVersions<T> versions = this.versions;
+        if (versions != null) {
+            versions.put(employee);
+        }
+    }
+
+    // Whether a batch or raise on another thread has already written the
+    // record, adding it to blocked if so; called under the record's entry lock
+    private boolean blockedBy(T employeeId, List<EmployeeVersions<T>.Group> blocked) {
+        EmployeeVersions<T> versions = this.versions;
+        EmployeeVersions<T>.Group group = versions == null ? null : versions.blocking(employeeId);
+        if (group == null) {
+            return false;
+        }
+        blocked.add(group);
+        return true;
+    }
+
+    private void unversion(T employeeId) {
+        EmployeeVersions<T> versions = this.versions;
+        if (versions != null) {
+            versions.remove(employeeId);
+        }
+    }
+
+    // The feed of changes to this database. Each change is published while
+    // the employee's entry is still being written, so two changes to one
+    // employee arrive in the order they were made even from different threads.
+    public EmployeeChangeFeed<T> changes() {
+        EmployeeChangeFeed<T> feed = changeFeed;
+        if (feed == null) {
+            synchronized (this) {
+                feed = changeFeed;
+                if (feed == null) {
+                    feed = new EmployeeChangeFeed<>(EmployeeChangeFeed.DEFAULT_CAPACITY);
+                    changeFeed = feed;
+                }
+            }
+        }
+        return feed;
+    }
+
+    // Null when no one is listening, so unobserved writes build no changes
+    private EmployeeChangeFeed<T> observedFeed() {
+        EmployeeChangeFeed<T> feed = changeFeed;
+        return feed != null && feed.isObserved() ? feed : null;
+    }
+
+    private void publish(EmployeeChange<T> change) {
+        EmployeeChangeFeed<T> feed = observedFeed();
+        if (feed != null) {
+            feed.publish(change);
+        }
+    }
+
+    private void index(Employee<T> employee) {
+        departmentIndex.add(employee);
+        salaryIndex.add(employee.getEmployeeId(), employee.getSalary());
+        nameIndex.add(employee.getEmployeeId(), employee.getName());
+        if (bitmapIndex != null) {
+            bitmapIndex.add(employee);
+        }
+        if (sortedViews != null) {
+            for (SortedView<T> view : sortedViews) {
+                if (view != null) {
+                    view.add(employee);
+                }
+            }
+        }
+    }
+
+    private void unindex(Employee<T> employee) {
+        departmentIndex.remove(employee);
+        salaryIndex.remove(employee.getEmployeeId(), employee.getSalary());
+        nameIndex.remove(employee.getEmployeeId());
+        if (bitmapIndex != null) {
+            bitmapIndex.remove(employee.getEmployeeId());
+        }
+        if (sortedViews != null) {
+            for (SortedView<T> view : sortedViews) {
+                if (view != null) {
+                    view.remove(employee);
+                }
+            }
+        }
+    }
+
+    // The employees in order's sort, building the view on first use. Synchronized
+    // so a read that builds it is held off durable writers like a checkpoint is.
+    // Null for the concurrent database.
+    synchronized SortedView<T> sortedView(EmployeeOrder order) {
+        if (sortedViews == null) {
+            return null;
+        }
+        SortedView<T> view = sortedViews[order.ordinal()];
+        if (view == null) {
+            view = new SortedView<>(order);
+            view.addAll(employees.values());
+            sortedViews[order.ordinal()] = view;
+        }
+        return view;
+    }
+
+    // The view, if built, that a change to field reorders; salary has its own in changeSalary
+    private SortedView<T> builtViewOrderedBy(EmployeeField field) {
+        if (sortedViews == null) {
+            return null;
+        }
+        switch (field) {
+            case NAME:
+                return sortedViews[EmployeeOrder.NAME.ordinal()];
+            case DEPARTMENT:
+                return sortedViews[EmployeeOrder.DEPARTMENT.ordinal()];
+            case PERFORMANCE_RATING:
+                return sortedViews[EmployeeOrder.PERFORMANCE.ordinal()];
+            case YEARS_OF_EXPERIENCE:
+                return sortedViews[EmployeeOrder.EXPERIENCE.ordinal()];
+            default:
+                return null;
+        }
+    }
+
+    private List<Employee<T>> sorted(EmployeeOrder order) {
+        SortedView<T> view = sortedView(order);
+        if (view == null) {
+            List<Employee<T>> sortedList = new ArrayList<>(employees.values());
+            EmployeeSorter.sort(sortedList, order);
+            return sortedList;
+        }
+        List<Employee<T>> sortedList = new ArrayList<>(view.size());
+        for (T id : view.ids(null)) {
+            sortedList.add(employees.get(id));
+        }
+        return sortedList;
+    }
+
+    // Returns the record an update is applied to. The single-threaded database
+    // updates in place; the concurrent one works on a copy it then publishes.
+    Employee<T> beginUpdate(Employee<T> current) {
+        return current;
+    }
+
+    // Applies a change atomically with respect to other writers of the same
+    // employee. The change receives the published record and the one to modify.
+    private boolean applyUpdate(T employeeId, BiConsumer<Employee<T>, Employee<T>> change) {
+        while (true) {
+            List<EmployeeVersions<T>.Group> blocked = new ArrayList<>();
+            boolean updated = employees.computeIfPresent(employeeId, (id, current) -> {
+                if (blockedBy(id, blocked)) {
+                    return current;
+                }
+                Employee<T> employee = beginUpdate(current);
+                change.accept(current, employee);
+                return employee;
+            }) != null;
+            if (blocked.isEmpty()) {
+                return updated;
+            }
+            blocked.get(0).awaitPublished();
+        }
+    }
+
+    private void changeSalary(Employee<T> current, Employee<T> employee, double newSalary) {
+        double oldSalary = current.getSalary();
+        SortedView<T> view = sortedViews == null ? null : sortedViews[EmployeeOrder.SALARY.ordinal()];
+        if (view != null) {
+            view.remove(current);
+        }
+        salaryIndex.remove(current.getEmployeeId(), oldSalary);
+        employee.setSalary(newSalary);
+        salaryIndex.add(employee.getEmployeeId(), newSalary);
+        if (view != null) {
+            view.add(employee);
+        }
+        departmentIndex.change(employee, oldSalary, employee.getPerformanceRating(), employee.isActive());
+    }
+
+    @Override
+    public Optional<Employee<T>> getEmployee(T employeeId) {
+        return timed(DatabaseOperation.GET_EMPLOYEE, () -> Optional.ofNullable(employees.get(employeeId)));
+    }
+
+    // The stored record, for subclasses reading back their own writes without
+    // counting them as calls
+    final Employee<T> stored(T employeeId) {
+        return employees.get(employeeId);
+    }
+
+    @Override
+    public void updateEmployee(T employeeId, EmployeeUpdate update) {
+        timed(DatabaseOperation.UPDATE_EMPLOYEE, () -> {
+            if (!tryUpdate(employeeId, update)) {
+                throw new EmployeeNotFoundException("No employee with id " + employeeId);
+            }
+        });
+    }
+
+    @Override
+    public boolean updateEmployeeDetails(T employeeId, String field, Object newValue) {
+        return timed(DatabaseOperation.UPDATE_EMPLOYEE_DETAILS, () -> {
+            EmployeeUpdate update;
+            try {
+                update = EmployeeUpdate.of(field, newValue);
+            } catch (InvalidEmployeeDataException e) {
+                return false;
+            }
+            return tryUpdate(employeeId, update);
+        });
+    }
+
+    private boolean tryUpdate(T employeeId, EmployeeUpdate update) {
+        if (concurrency == Concurrency.CONCURRENT) {
+            return applyUpdate(employeeId, (current, employee) -> apply(update, current, employee));
+        }
+        // Single-threaded records are updated in place, so there is nothing to publish
+        Employee<T> employee = employees.get(employeeId);
+        if (employee == null) {
             return false;
         }
+        apply(update, employee, employee);
+        return true;
+    }
+
+    // Keeps the indexes the field feeds in step with the change
+    private void apply(EmployeeUpdate update, Employee<T> current, Employee<T> employee) {
+        T id = current.getEmployeeId();
+        EmployeeChangeFeed<T> feed = observedFeed();
+        // Read first: the single-threaded database updates current itself
+        Object oldValue = feed == null ? null : EmployeeChange.value(update.field(), current);
+        SortedView<T> view = builtViewOrderedBy(update.field());
+        if (view != null) {
+            view.remove(current);
+        }
+        switch (update.field()) {
+            case NAME:
+                nameIndex.remove(id);
+                employee.setName(update.textValue());
+                nameIndex.add(id, update.textValue());
+                break;
+            case DEPARTMENT:
+                departmentIndex.remove(current);
+                employee.setDepartment(update.textValue());
+                departmentIndex.add(employee);
+                break;
+            case SALARY:
+                changeSalary(current, employee, update.doubleValue());
+                break;
+            case PERFORMANCE_RATING:
+            case IS_ACTIVE:
+                double rating = current.getPerformanceRating();
+                boolean active = current.isActive();
+                update.applyTo(employee);
+                departmentIndex.change(employee, employee.getSalary(), rating, active);
+                break;
+            default:
+                update.applyTo(employee);
+                break;
+        }
+        if (bitmapIndex != null && update.field() != EmployeeField.NAME && update.field() != EmployeeField.SALARY) {
+            bitmapIndex.update(employee);
+        }
+        if (view != null) {
+            view.add(employee);
+        }
+        version(employee);
+        if (feed != null) {
+            feed.publish(EmployeeChange.fieldChanged(id, update.field(), oldValue,
+                    EmployeeChange.value(update.field(), employee)));
+        }
     }
 
+    @Override
     public List<Employee<T>> getAllEmployees() {
-        return new ArrayList<>(employees.values());
+        return timed(DatabaseOperation.GET_ALL_EMPLOYEES, () -> new ArrayList<>(employees.values()));
     }
 
+    @Override
     public List<Employee<T>> getEmployeesByDepartment(String department) {
-        return employees.values().stream()
-                .filter(e -> e.getDepartment().equalsIgnoreCase(department))
-                .collect(Collectors.toList());
+        return timed(DatabaseOperation.GET_EMPLOYEES_BY_DEPARTMENT, () -> {
+            List<Employee<T>> result = new ArrayList<>();
+            resolveInto(departmentIndex.members(department), result);
+            return result;
+        });
     }
 
+    @Override
     public List<Employee<T>> searchEmployeesByName(String searchTerm) {
-        return employees.values().stream()
-                .filter(e -> e.getName().toLowerCase().contains(searchTerm.toLowerCase()))
-                .collect(Collectors.toList());
+        return timed(DatabaseOperation.SEARCH_EMPLOYEES_BY_NAME, () -> {
+            List<Employee<T>> result = new ArrayList<>();
+            resolveInto(nameIndex.search(searchTerm), result);
+            return result;
+        });
+    }
+
+    // Index entries hold ids; an id whose employee was removed concurrently is skipped
+    private void resolveInto(Collection<T> ids, List<Employee<T>> result) {
+        for (T id : ids) {
+            Employee<T> employee = employees.get(id);
+            if (employee != null) {
+                result.add(employee);
+            }
+        }
     }
 
+    @Override
     public List<Employee<T>> getEmployeesByMinRating(double minRating) {
-        return employees.values().stream()
-                .filter(e -> e.getPerformanceRating() >= minRating)
-                .collect(Collectors.toList());
+        return timed(DatabaseOperation.GET_EMPLOYEES_BY_MIN_RATING, () -> {
+            EmployeeQuery query = new EmployeeQuery().minRating(minRating);
+            return planner.execute(query, planner.plan(query));
+        });
     }
 
+    @Override
     public List<Employee<T>> getEmployeesBySalaryRange(double minSalary, double maxSalary) {
-        return employees.values().stream()
-                .filter(e -> e.getSalary() >= minSalary && e.getSalary() <= maxSalary)
-                .collect(Collectors.toList());
+        return timed(DatabaseOperation.GET_EMPLOYEES_BY_SALARY_RANGE, () -> {
+            List<Employee<T>> result = new ArrayList<>();
+            for (Set<T> ids : salaryIndex.range(minSalary, maxSalary)) {
+                for (T id : ids) {
+                    Employee<T> employee = employees.get(id);
+                    if (employee != null && employee.getSalary() >= minSalary && employee.getSalary() <= maxSalary) {
+                        result.add(employee);
+                    }
+                }
+            }
+            return result;
+        });
     }
 
+    @Override
     public List<Employee<T>> getEmployeesSortedByExperience() {
-        List<Employee<T>> sortedList = new ArrayList<>(employees.values());
-        Collections.sort(sortedList);
-        return sortedList;
+        return timed(DatabaseOperation.GET_EMPLOYEES_SORTED_BY_EXPERIENCE, () -> sorted(EmployeeOrder.EXPERIENCE));
     }
 
+    @Override
     public List<Employee<T>> getEmployeesSortedBySalary() {
-        List<Employee<T>> sortedList = new ArrayList<>(employees.values());
-        sortedList.sort(new EmployeeComparators.EmployeeSalaryComparator<>());
-        return sortedList;
+        return timed(DatabaseOperation.GET_EMPLOYEES_SORTED_BY_SALARY, () -> sorted(EmployeeOrder.SALARY));
     }
 
+    @Override
     public List<Employee<T>> getEmployeesSortedByPerformance() {
-        List<Employee<T>> sortedList = new ArrayList<>(employees.values());
-        sortedList.sort(new EmployeeComparators.EmployeePerformanceComparator<>());
-        return sortedList;
+        return timed(DatabaseOperation.GET_EMPLOYEES_SORTED_BY_PERFORMANCE, () -> sorted(EmployeeOrder.PERFORMANCE));
     }
 
+    @Override
     public List<Employee<T>> getEmployeesSortedByName() {
-        List<Employee<T>> sortedList = new ArrayList<>(employees.values());
-        sortedList.sort(new EmployeeComparators.EmployeeNameComparator<>());
-        return sortedList;
+        return timed(DatabaseOperation.GET_EMPLOYEES_SORTED_BY_NAME, () -> sorted(EmployeeOrder.NAME));
     }
 
+    @Override
     public List<Employee<T>> getEmployeesSortedByDepartment() {
-        List<Employee<T>> sortedList = new ArrayList<>(employees.values());
-        sortedList.sort(new EmployeeComparators.EmployeeDepartmentComparator<>());
-        return sortedList;
+        return timed(DatabaseOperation.GET_EMPLOYEES_SORTED_BY_DEPARTMENT, () -> sorted(EmployeeOrder.DEPARTMENT));
     }
 
+    @Override
     public int giveSalaryRaise(double minRating, double percentage) {
-        int count = 0;
-        for (Employee<T> employee : employees.values()) {
-            if (employee.getPerformanceRating() >= minRating) {
-                double newSalary = employee.getSalary() * (1 + percentage / 100);
-                employee.setSalary(newSalary);
-                count++;
+        return timed(DatabaseOperation.GIVE_SALARY_RAISE, () -> {
+            // One change for the whole raise rather than one per salary. On the
+            // concurrent database another writer can change a raised employee
+            // before the raise ends, so there each salary is published as it
+            // changes, in order with that employee's other changes.
+            EmployeeChangeFeed<T> feed = observedFeed();
+            EmployeeChangeFeed<T> salaryFeed = concurrency == Concurrency.CONCURRENT ? feed : null;
+            BiConsumer<Employee<T>, Employee<T>> raise = (current, employee) -> {
+                double oldSalary = current.getSalary();
+                changeSalary(current, employee, oldSalary * (1 + percentage / 100));
+                version(employee);
+                if (salaryFeed != null) {
+                    salaryFeed.publish(EmployeeChange.fieldChanged(employee.getEmployeeId(), EmployeeField.SALARY,
+                            oldSalary, employee.getSalary()));
+                }
+            };
+            List<T> raised = feed == null || salaryFeed != null ? null : new ArrayList<>();
+            // The raise reaches snapshots as one version, like a batch
+            int count = grouped(() -> {
+                int raisedCount = 0;
+                for (Employee<T> employee : employees.values()) {
+                    if (employee.getPerformanceRating() >= minRating && applyUpdate(employee.getEmployeeId(), raise)) {
+                        raisedCount++;
+                        if (raised != null) {
+                            raised.add(employee.getEmployeeId());
+                        }
+                    }
+                }
+                return raisedCount;
+            });
+            if (raised != null) {
+                feed.publish(EmployeeChange.raise(minRating, percentage, raised));
             }
-        }
-        return count;
+            return count;
+        });
     }
 
+    @Override
     public List<Employee<T>> getTopNHighestPaidEmployees(int n) {
-        return employees.values().stream()
-                .sorted(new EmployeeComparators.EmployeeSalaryComparator<>())
-                .limit(n)
-                .collect(Collectors.toList());
+        return timed(DatabaseOperation.GET_TOP_N_HIGHEST_PAID_EMPLOYEES, () -> {
+            if (n < 0) {
+                throw new IllegalArgumentException(Integer.toString(n));
+            }
+            List<Employee<T>> result = new ArrayList<>(Math.min(n, 64));
+            for (Set<T> ids : salaryIndex.descending()) {
+                for (T id : ids) {
+                    if (result.size() >= n) {
+                        return result;
+                    }
+                    Employee<T> employee = employees.get(id);
+                    if (employee != null) {
+                        result.add(employee);
+                    }
+                }
+            }
+            return result;
+        });
     }
 
+    @Override
     public double calculateAverageSalaryByDepartment(String department) {
-        List<Employee<T>> deptEmployees = getEmployeesByDepartment(department);
-        if (deptEmployees.isEmpty()) {
-            return 0;
-        }
-
-        return deptEmployees.stream()
-                .mapToDouble(Employee::getSalary)
-                .average()
-                .orElse(0);
+        return timed(DatabaseOperation.CALCULATE_AVERAGE_SALARY_BY_DEPARTMENT,
+                () -> departmentIndex.averageSalary(department));
     }
 
+    @Override
     public List<Employee<T>> filterEmployees(Predicate<Employee<T>> predicate) {
-        return employees.values().stream()
+        return timed(DatabaseOperation.FILTER_EMPLOYEES, () -> employees.values().stream()
                 .filter(predicate)
-                .collect(Collectors.toList());
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public List<Employee<T>> query(EmployeeQuery query) {
+        return timed(DatabaseOperation.QUERY, () -> planner.execute(query, planner.plan(query)));
+    }
+
+    @Override
+    public Stream<Employee<T>> stream() {
+        metrics.counted(DatabaseOperation.STREAM);
+        return employees.values().stream();
     }
 
+    // Unordered queries stream off the planned access path; ordered ones are
+    // sorted up front, the way query() does
+    @Override
+    public Stream<Employee<T>> stream(EmployeeQuery query) {
+        metrics.counted(DatabaseOperation.STREAM);
+        if (query.order() != null) {
+            return planner.execute(query, planner.plan(query)).stream();
+        }
+        return planner.stream(query, planner.plan(query));
+    }
+
+    // The plan query() would use right now
+    public QueryPlan explain(EmployeeQuery query) {
+        return timed(DatabaseOperation.EXPLAIN, () -> planner.plan(query));
+    }
+
+    @Override
+    public <K> Map<K, EmployeeStatistics> getStatistics(Predicate<Employee<T>> filter,
+                                                        Function<Employee<T>, K> groupBy) {
+        return timed(DatabaseOperation.GET_STATISTICS, () -> {
+            // The stream's workers give up once the calling thread is interrupted, like a query
+            Thread caller = Thread.currentThread();
+            return EmployeeStatistics.collect(employees.values().parallelStream().filter(employee -> {
+                if (caller.isInterrupted()) {
+                    throw new CancellationException("Statistics interrupted");
+                }
+                return filter.test(employee);
+            }), groupBy);
+        });
+    }
+
+    @Override
     public int getEmployeeCount() {
-        return employees.size();
+        return timed(DatabaseOperation.GET_EMPLOYEE_COUNT, () -> employees.size());
     }
 
+    @Override
     public Iterator<Employee<T>> getEmployeeIterator() {
-        return employees.values().iterator();
+        return timed(DatabaseOperation.GET_EMPLOYEE_ITERATOR, () -> employees.values().iterator());
     }
 
+    @Override
     public Map<String, Long> getDepartmentCounts() {
-        return employees.values().stream()
-                .collect(Collectors.groupingBy(
-                        Employee::getDepartment,
-                        Collectors.counting()
-                ));
+        return timed(DatabaseOperation.GET_DEPARTMENT_COUNTS, () -> departmentIndex.counts());
+    }
+
+    @Override
+    public Map<String, DepartmentStats> getDepartmentStatistics() {
+        return timed(DatabaseOperation.GET_DEPARTMENT_STATISTICS, () -> departmentIndex.statistics());
     }
 
+    @Override
     public void clearDatabase() {
-        employees.clear();
+        timed(DatabaseOperation.CLEAR_DATABASE, () -> {
+            employees.clear();
+            departmentIndex.clear();
+            salaryIndex.clear();
+            nameIndex.clear();
+            if (bitmapIndex != null) {
+                bitmapIndex.clear();
+            }
+            if (sortedViews != null) {
+                Arrays.fill(sortedViews, null);
+            }
+            EmployeeVersions<T> versions = this.versions;
+            if (versions != null) {
+                versions.clear();
+            }
+            publish(EmployeeChange.cleared());
+        });
     }
 }
\ No newline at end of file
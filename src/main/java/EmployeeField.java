@@ -0,0 +1,41 @@
+package main.java;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+// The updatable employee fields, named as in the CSV header.
+public enum EmployeeField {
+    NAME("name"),
+    DEPARTMENT("department"),
+    SALARY("salary"),
+    PERFORMANCE_RATING("performanceRating"),
+    YEARS_OF_EXPERIENCE("yearsOfExperience"),
+    IS_ACTIVE("isActive");
+
+    private static final Map<String, EmployeeField> BY_NAME = new HashMap<>();
+
+    static {
+        for (EmployeeField field : values()) {
+            BY_NAME.put(field.fieldName.toLowerCase(Locale.ROOT), field);
+        }
+    }
+
+    private final String fieldName;
+
+    EmployeeField(String fieldName) {
+        this.fieldName = fieldName;
+    }
+
+    public String fieldName() {
+        return fieldName;
+    }
+
+    // Looks a field up by name, ignoring case
+    public static EmployeeField of(String fieldName) {
+        EmployeeField field = fieldName == null ? null : BY_NAME.get(fieldName.toLowerCase(Locale.ROOT));
+        if (field == null) {
+            throw new InvalidEmployeeDataException("Unknown employee field '" + fieldName + "'");
+        }
+        return field;
+    }
+}
@@ -0,0 +1,36 @@
+package main.java;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+// Writes and reads employee ids for the on-disk log and snapshots.
+public interface EmployeeIdCodec<T> {
+
+    EmployeeIdCodec<Integer> INTEGER = new EmployeeIdCodec<>() {
+        @Override
+        public void write(DataOutput out, Integer employeeId) throws IOException {
+            out.writeInt(employeeId);
+        }
+
+        @Override
+        public Integer read(DataInput in) throws IOException {
+            return in.readInt();
+        }
+    };
+
+    EmployeeIdCodec<String> STRING = new EmployeeIdCodec<>() {
+        @Override
+        public void write(DataOutput out, String employeeId) throws IOException {
+            out.writeUTF(employeeId);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    void write(DataOutput out, T employeeId) throws IOException;
+
+    T read(DataInput in) throws IOException;
+}
@@ -0,0 +1,504 @@
+package main.java;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32C;
+
+// Write-ahead log and snapshots behind DurableEmployeeDatabase.
+//
+// The directory holds log segments wal-<n>.log and snapshots snapshot-<n>.dat,
+// where snapshot n is the state at the moment segment n was started. Recovery
+// loads the newest snapshot and replays segments from n on. Each log entry is
+// framed as [length][crc32c][payload]; a torn entry at the end of the last
+// segment is cut off during recovery, and a bad entry anywhere else fails it. A large batch spans several BATCH
+// entries, the last one flagged; recovery applies a batch only once it has
+// read that last entry, so a batch torn by a crash is dropped whole.
+//
+// Appends only copy the entry into an in-memory batch. A flusher thread writes
+// the batch and fsyncs it once per flush interval (group commit), and sync()
+// waits until everything appended so far is on disk.
+class EmployeeJournal<T> implements Closeable {
+    static final byte ADD = 1;
+    static final byte PUT = 2;
+    static final byte REMOVE = 3;
+    static final byte RAISE = 4;
+    static final byte CLEAR = 5;
+    static final byte BATCH = 6;
+
+    private static final int BATCH_ENTRY_CHANGES = 16_384;
+    private static final int SNAPSHOT_LOAD_BATCH = 10_000;
+
+    private static final int SNAPSHOT_MAGIC = 0x454D534E;
+    private static final Pattern SEGMENT = Pattern.compile("(wal|snapshot)-(\\d+)\\.(log|dat)");
+
+    private final Path directory;
+    private final EmployeeIdCodec<T> codec;
+    private final long flushIntervalMillis;
+    private final long checkpointBytes;
+    private final Object ioLock = new Object();
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+    private final DataOutputStream scratchOut = new DataOutputStream(scratch);
+    private final Thread flusher;
+
+    private ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    private FileChannel channel;
+    private long segment;
+    private long appendedSeq;
+    private long durableSeq;
+    private long bytesSinceCheckpoint;
+    private boolean closed;
+    private IOException failure;
+
+    private EmployeeJournal(Path directory, EmployeeIdCodec<T> codec, long flushIntervalMillis,
+                            long checkpointBytes, long segment) throws IOException {
+        this.directory = directory;
+        this.codec = codec;
+        this.flushIntervalMillis = flushIntervalMillis;
+        this.checkpointBytes = checkpointBytes;
+        this.segment = segment;
+        this.channel = openSegment(segment);
+        this.flusher = new Thread(this::flushLoop, "employee-journal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    // Rebuilds the database from disk and returns a journal appending to a fresh segment
+    static <T> EmployeeJournal<T> recover(Path directory, EmployeeIdCodec<T> codec, EmployeeDatabase<T> database,
+                                          long flushIntervalMillis, long checkpointBytes) throws IOException {
+        Files.createDirectories(directory);
+        long snapshot = -1;
+        List<Long> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    long n = Long.parseLong(matcher.group(2));
+                    if (matcher.group(1).equals("snapshot")) {
+                        snapshot = Math.max(snapshot, n);
+                    } else {
+                        segments.add(n);
+                    }
+                }
+            }
+        }
+        segments.sort(null);
+
+        if (snapshot >= 0) {
+            readSnapshot(directory.resolve("snapshot-" + snapshot + ".dat"), codec, database);
+        }
+        long first = Math.max(snapshot, 0);
+        // Segments older than the snapshot are left over from an interrupted cleanup
+        segments.removeIf(n -> n < first);
+        // Only the last segment written to can end in a torn write; empty ones
+        // after it were started by a rotation or recovery just before a crash
+        long last = first;
+        for (long n : segments) {
+            if (Files.size(directory.resolve("wal-" + n + ".log")) > 0) {
+                last = n;
+            }
+        }
+        long next = first;
+        for (long n : segments) {
+            replay(directory.resolve("wal-" + n + ".log"), codec, database, n >= last);
+            next = n + 1;
+        }
+        return new EmployeeJournal<>(directory, codec, flushIntervalMillis, checkpointBytes, next);
+    }
+
+    private FileChannel openSegment(long n) throws IOException {
+        return FileChannel.open(directory.resolve("wal-" + n + ".log"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    // Encoding shared by log entries and snapshots
+
+    private static <T> void writeEmployee(DataOutput out, EmployeeIdCodec<T> codec, Employee<T> employee)
+            throws IOException {
+        codec.write(out, employee.getEmployeeId());
+        writeString(out, employee.getName());
+        writeString(out, employee.getDepartment());
+        out.writeDouble(employee.getSalary());
+        out.writeDouble(employee.getPerformanceRating());
+        out.writeInt(employee.getYearsOfExperience());
+        out.writeBoolean(employee.isActive());
+    }
+
+    private static <T> Employee<T> readEmployee(DataInput in, EmployeeIdCodec<T> codec) throws IOException {
+        return new Employee<>(codec.read(in), readString(in), readString(in),
+                in.readDouble(), in.readDouble(), in.readInt(), in.readBoolean());
+    }
+
+    private static void writeString(DataOutput out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInput in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    // Appending
+
+    void appendEmployee(byte type, Employee<T> employee) {
+        try {
+            scratchOut.writeByte(type);
+            writeEmployee(scratchOut, codec, employee);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        appendScratch();
+    }
+
+    void appendRemove(T employeeId) {
+        try {
+            scratchOut.writeByte(REMOVE);
+            codec.write(scratchOut, employeeId);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        appendScratch();
+    }
+
+    void appendRaise(double minRating, double percentage) {
+        try {
+            scratchOut.writeByte(RAISE);
+            scratchOut.writeDouble(minRating);
+            scratchOut.writeDouble(percentage);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        appendScratch();
+    }
+
+    void appendClear() {
+        try {
+            scratchOut.writeByte(CLEAR);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        appendScratch();
+    }
+
+    // Each change is the final record of an employee, or just its id when it was removed
+    void appendBatch(Map<T, Employee<T>> changes) {
+        Iterator<Map.Entry<T, Employee<T>>> iterator = changes.entrySet().iterator();
+        int remaining = changes.size();
+        do {
+            int count = Math.min(remaining, BATCH_ENTRY_CHANGES);
+            remaining -= count;
+            try {
+                scratchOut.writeByte(BATCH);
+                scratchOut.writeBoolean(remaining == 0);
+                scratchOut.writeInt(count);
+                for (int i = 0; i < count; i++) {
+                    Map.Entry<T, Employee<T>> change = iterator.next();
+                    scratchOut.writeBoolean(change.getValue() != null);
+                    if (change.getValue() == null) {
+                        codec.write(scratchOut, change.getKey());
+                    } else {
+                        writeEmployee(scratchOut, codec, change.getValue());
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            appendScratch();
+        } while (remaining > 0);
+    }
+
+    // Callers serialise appends, so the scratch buffer is never shared
+    private void appendScratch() {
+        byte[] payload = scratch.toByteArray();
+        scratch.reset();
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        synchronized (this) {
+            checkUsable();
+            boolean wasEmpty = pending.size() == 0;
+            writeInt(pending, payload.length);
+            writeInt(pending, (int) crc.getValue());
+            pending.write(payload, 0, payload.length);
+            appendedSeq++;
+            bytesSinceCheckpoint += 8 + payload.length;
+            if (wasEmpty) {
+                notifyAll();
+            }
+        }
+    }
+
+    private static void writeInt(ByteArrayOutputStream out, int value) {
+        out.write(value >>> 24);
+        out.write(value >>> 16);
+        out.write(value >>> 8);
+        out.write(value);
+    }
+
+    private void checkUsable() {
+        if (failure != null) {
+            throw new UncheckedIOException("Employee journal failed", failure);
+        }
+        if (closed) {
+            throw new IllegalStateException("Employee journal is closed");
+        }
+    }
+
+    synchronized boolean checkpointDue() {
+        return bytesSinceCheckpoint >= checkpointBytes;
+    }
+
+    // Group commit
+
+    private void flushLoop() {
+        try {
+            while (true) {
+                synchronized (this) {
+                    while (pending.size() == 0 && !closed) {
+                        wait();
+                    }
+                    if (pending.size() == 0) {
+                        return;
+                    }
+                    if (!closed) {
+                        // Let more writers join this batch before paying for the fsync
+                        wait(flushIntervalMillis);
+                    }
+                }
+                flush();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            synchronized (this) {
+                failure = e;
+                notifyAll();
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        synchronized (ioLock) {
+            byte[] batch;
+            long upTo;
+            synchronized (this) {
+                batch = pending.toByteArray();
+                pending = new ByteArrayOutputStream(Math.max(32, batch.length));
+                upTo = appendedSeq;
+            }
+            if (batch.length > 0) {
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+            }
+            synchronized (this) {
+                durableSeq = Math.max(durableSeq, upTo);
+                notifyAll();
+            }
+        }
+    }
+
+    // Blocks until every entry appended so far has been fsynced
+    void sync() {
+        synchronized (this) {
+            long target = appendedSeq;
+            notifyAll();
+            try {
+                while (durableSeq < target) {
+                    if (failure != null) {
+                        throw new UncheckedIOException("Employee journal failed", failure);
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // Snapshots
+
+    // Starts a new segment; the caller must hold off writers so that the state it
+    // snapshots afterwards is exactly the state at the start of that segment
+    long rotate() throws IOException {
+        synchronized (ioLock) {
+            flush();
+            channel.close();
+            synchronized (this) {
+                segment++;
+                bytesSinceCheckpoint = 0;
+            }
+            channel = openSegment(segment);
+            return segment;
+        }
+    }
+
+    void writeSnapshot(long n, List<Employee<T>> employees) throws IOException {
+        Path temporary = directory.resolve("snapshot-" + n + ".tmp");
+        try (FileOutputStream file = new FileOutputStream(temporary.toFile());
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(file, 1 << 16))) {
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(employees.size());
+            for (Employee<T> employee : employees) {
+                writeEmployee(out, codec, employee);
+            }
+            out.flush();
+            file.getChannel().force(true);
+        }
+        Files.move(temporary, directory.resolve("snapshot-" + n + ".dat"), StandardCopyOption.ATOMIC_MOVE);
+        // The rename must be on disk before the segments it replaces are deleted
+        try (FileChannel directoryChannel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            directoryChannel.force(true);
+        }
+
+        // Everything before snapshot n is now redundant
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT.matcher(file.getFileName().toString());
+                if (matcher.matches() && Long.parseLong(matcher.group(2)) < n) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // Recovery
+
+    private static <T> void readSnapshot(Path file, EmployeeIdCodec<T> codec, EmployeeDatabase<T> database)
+            throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            if (in.readInt() != SNAPSHOT_MAGIC) {
+                throw new IOException("Not an employee snapshot: " + file);
+            }
+            int count = in.readInt();
+            List<Employee<T>> batch = new ArrayList<>(Math.min(count, SNAPSHOT_LOAD_BATCH));
+            for (int i = 0; i < count; i++) {
+                batch.add(readEmployee(in, codec));
+                if (batch.size() == SNAPSHOT_LOAD_BATCH || i == count - 1) {
+                    database.addEmployees(batch);
+                    batch.clear();
+                }
+            }
+        }
+    }
+
+    private static <T> void replay(Path file, EmployeeIdCodec<T> codec, EmployeeDatabase<T> database,
+                                   boolean last) throws IOException {
+        long read = 0;
+        long valid = 0;
+        Map<T, Employee<T>> batch = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 1 << 16))) {
+            while (true) {
+                byte[] payload;
+                int expectedCrc;
+                try {
+                    int length = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (length < 1 || length > (1 << 24)) {
+                        break;
+                    }
+                    payload = new byte[length];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    break;
+                }
+                CRC32C crc = new CRC32C();
+                crc.update(payload);
+                if ((int) crc.getValue() != expectedCrc) {
+                    break;
+                }
+                apply(new DataInputStream(new ByteArrayInputStream(payload)), codec, database, batch);
+                read += 8 + payload.length;
+                if (batch.isEmpty()) {
+                    valid = read;
+                }
+            }
+        }
+        if (Files.size(file) > valid) {
+            if (!last) {
+                throw new IOException("Corrupt journal entry in " + file + " at byte " + valid);
+            }
+            // Torn write from a crash: drop it so later entries never follow garbage
+            try (FileChannel torn = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                torn.truncate(valid);
+            }
+        }
+    }
+
+    // Changes of an unfinished batch are collected in batch until its last entry arrives
+    private static <T> void apply(DataInputStream in, EmployeeIdCodec<T> codec, EmployeeDatabase<T> database,
+                                  Map<T, Employee<T>> batch) throws IOException {
+        byte type = in.readByte();
+        switch (type) {
+            case ADD:
+                database.addEmployee(readEmployee(in, codec));
+                break;
+            case PUT:
+                database.upsertEmployee(readEmployee(in, codec));
+                break;
+            case REMOVE:
+                database.removeEmployee(codec.read(in));
+                break;
+            case RAISE:
+                database.giveSalaryRaise(in.readDouble(), in.readDouble());
+                break;
+            case CLEAR:
+                database.clearDatabase();
+                break;
+            case BATCH:
+                boolean last = in.readBoolean();
+                int count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    if (in.readBoolean()) {
+                        Employee<T> employee = readEmployee(in, codec);
+                        batch.put(employee.getEmployeeId(), employee);
+                    } else {
+                        batch.put(codec.read(in), null);
+                    }
+                }
+                if (last) {
+                    database.applyChanges(batch);
+                    batch.clear();
+                }
+                break;
+            default:
+                throw new IOException("Unknown journal entry type " + type);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            notifyAll();
+        }
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        synchronized (ioLock) {
+            channel.close();
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package main.java;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+// How often each public EmployeeDatabase method is called and how long it
+// takes, plus gauges of what the database holds. The database records every
+// call into a LatencyRecorder, so the hot path costs two clock reads and a few
+// atomic adds, never a lock. READ operations take nanoseconds, less than the
+// clock reads themselves, so only one call in READ_SAMPLE_INTERVAL is timed;
+// all calls are counted. Everything here can be read from any thread, and
+// exported through JMX or dumped as text on a schedule.
+public final class EmployeeMetrics implements EmployeeMetricsMXBean {
+    private static final int GAUGE_ATTEMPTS = 3;
+    static final int READ_SAMPLE_INTERVAL = 16;
+
+    private final LatencyRecorder[] recorders = new LatencyRecorder[DatabaseOperation.values().length];
+    private final IntSupplier recordCount;
+    private final Supplier<Map<String, Long>> departmentCounts;
+    private final Supplier<Map<String, Long>> indexSizes;
+    private ScheduledExecutorService dumper;
+
+    EmployeeMetrics(IntSupplier recordCount, Supplier<Map<String, Long>> departmentCounts,
+                    Supplier<Map<String, Long>> indexSizes) {
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            recorders[operation.ordinal()] = new LatencyRecorder(
+                    operation.kind() == DatabaseOperation.Kind.READ ? READ_SAMPLE_INTERVAL : 1);
+        }
+        this.recordCount = recordCount;
+        this.departmentCounts = departmentCounts;
+        this.indexSizes = indexSizes;
+    }
+
+    long started(DatabaseOperation operation) {
+        return recorders[operation.ordinal()].started();
+    }
+
+    void finished(DatabaseOperation operation, long started) {
+        recorders[operation.ordinal()].finished(started);
+    }
+
+    void counted(DatabaseOperation operation) {
+        recorders[operation.ordinal()].counted();
+    }
+
+    public long calls(DatabaseOperation operation) {
+        return recorders[operation.ordinal()].calls();
+    }
+
+    // Durations of the timed calls: all of them, or a sample for READ operations
+    public LatencySnapshot latency(DatabaseOperation operation) {
+        return recorders[operation.ordinal()].snapshot();
+    }
+
+    // All operations of kind together, e.g. every query for a status bar
+    public LatencySnapshot latency(DatabaseOperation.Kind kind) {
+        LatencySnapshot total = LatencySnapshot.EMPTY;
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            if (operation.kind() == kind) {
+                total = total.plus(latency(operation));
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public int getEmployeeCount() {
+        return recordCount.getAsInt();
+    }
+
+    @Override
+    public Map<String, Long> getDepartmentCounts() {
+        return gauge(departmentCounts);
+    }
+
+    @Override
+    public Map<String, Long> getIndexSizes() {
+        return gauge(indexSizes);
+    }
+
+    // The single-threaded database's maps may change while a JMX or dump thread
+    // reads them; a read that trips over a write is retried, then given up
+    private static <V> Map<String, V> gauge(Supplier<Map<String, V>> source) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return new TreeMap<>(source.get());
+            } catch (ConcurrentModificationException | NoSuchElementException e) {
+                if (attempt == GAUGE_ATTEMPTS) {
+                    return Collections.emptyMap();
+                }
+            }
+        }
+    }
+
+    @Override
+    public Map<String, OperationStatistics> getOperations() {
+        Map<String, OperationStatistics> operations = new LinkedHashMap<>();
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            long calls = calls(operation);
+            if (calls > 0) {
+                operations.put(operation.methodName(), OperationStatistics.of(calls, latency(operation)));
+            }
+        }
+        return operations;
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("employees %,d%n", getEmployeeCount()));
+        text.append("departments ").append(getDepartmentCounts()).append(System.lineSeparator());
+        text.append("indexes ").append(getIndexSizes()).append(System.lineSeparator());
+        text.append(String.format("%-36s %12s %10s %10s %10s %10s %10s%n",
+                "operation", "calls", "mean", "p50", "p99", "p99.9", "max"));
+        for (DatabaseOperation operation : DatabaseOperation.values()) {
+            long calls = calls(operation);
+            if (calls > 0) {
+                LatencySnapshot latency = latency(operation);
+                text.append(String.format("%-36s %,12d %10s %10s %10s %10s %10s%n", operation.methodName(),
+                        calls, duration((long) latency.meanNanos()),
+                        duration(latency.percentileNanos(50)), duration(latency.percentileNanos(99)),
+                        duration(latency.percentileNanos(99.9)), duration(latency.maxNanos())));
+            }
+        }
+        return text.toString();
+    }
+
+    public static String duration(long nanos) {
+        if (nanos < 1_000) {
+            return nanos + "ns";
+        }
+        if (nanos < 1_000_000) {
+            return String.format("%.1fus", nanos / 1e3);
+        }
+        if (nanos < 1_000_000_000) {
+            return String.format("%.1fms", nanos / 1e6);
+        }
+        return String.format("%.2fs", nanos / 1e9);
+    }
+
+    // Registers these metrics with the platform MBean server as
+    // main.java:type=EmployeeMetrics,name=<name>
+    public ObjectName registerMBean(String name) {
+        try {
+            ObjectName objectName = new ObjectName("main.java", new Hashtable<>(
+                    Map.of("type", "EmployeeMetrics", "name", ObjectName.quote(name))));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not register metrics as " + name, e);
+        }
+    }
+
+    public static void unregisterMBean(ObjectName name) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Could not unregister " + name, e);
+        }
+    }
+
+    // Hands dump() to sink every period on a background thread; cancel the
+    // returned future to stop
+    public synchronized ScheduledFuture<?> dumpEvery(long period, TimeUnit unit, Consumer<String> sink) {
+        if (dumper == null) {
+            dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+                Thread thread = new Thread(task, "employee-metrics");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return dumper.scheduleAtFixedRate(() -> {
+            try {
+                sink.accept(dump());
+            } catch (RuntimeException e) {
+                // A failed dump must not cancel the ones after it
+                System.err.println("Metrics dump failed: " + e);
+            }
+        }, period, period, unit);
+    }
+}
@@ -0,0 +1,16 @@
+package main.java;
+import java.util.Map;
+
+// What EmployeeMetrics.registerMBean shows in JConsole, VisualVM and other JMX clients
+public interface EmployeeMetricsMXBean {
+    int getEmployeeCount();
+
+    Map<String, Long> getDepartmentCounts();
+
+    Map<String, Long> getIndexSizes();
+
+    // By method name, for the methods that have been called
+    Map<String, OperationStatistics> getOperations();
+
+    String dump();
+}
@@ -0,0 +1,26 @@
+package main.java;
+import java.util.Comparator;
+
+// Orderings offered by the employee list; salary and performance put the highest first.
+public enum EmployeeOrder {
+    NAME,
+    DEPARTMENT,
+    SALARY,
+    PERFORMANCE,
+    EXPERIENCE;
+
+    public <T> Comparator<Employee<T>> comparator() {
+        switch (this) {
+            case NAME:
+                return new EmployeeComparators.EmployeeNameComparator<>();
+            case DEPARTMENT:
+                return new EmployeeComparators.EmployeeDepartmentComparator<>();
+            case SALARY:
+                return new EmployeeComparators.EmployeeSalaryComparator<>();
+            case PERFORMANCE:
+                return new EmployeeComparators.EmployeePerformanceComparator<>();
+            default:
+                return Comparator.naturalOrder();
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package main.java;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// One page of query results and the cursor that continues after it.
+public final class EmployeePage<T> {
+    private final List<Employee<T>> employees;
+    private final String nextCursor;
+
+    private EmployeePage(List<Employee<T>> employees, String nextCursor) {
+        this.employees = Collections.unmodifiableList(employees);
+        this.nextCursor = nextCursor;
+    }
+
+    // rows holds up to pageSize + 1 matches in page order; the extra one only
+    // shows that another page exists
+    static <T> EmployeePage<T> of(List<Employee<T>> rows, int pageSize, EmployeeOrder order) {
+        if (rows.size() <= pageSize) {
+            return new EmployeePage<>(rows, null);
+        }
+        List<Employee<T>> page = new ArrayList<>(rows.subList(0, pageSize));
+        return new EmployeePage<>(page, PageCursor.encode(order, page.get(pageSize - 1)));
+    }
+
+    public List<Employee<T>> getEmployees() {
+        return employees;
+    }
+
+    // Pass to page() for the following page; null on the last page
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,227 @@
+package main.java;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+// A declarative employee search: any combination of conditions (all must
+// hold), an optional ordering and an optional limit. EmployeeDatabase plans
+// it against its indexes; other stores check matches() on every employee.
+public class EmployeeQuery {
+    private String department;
+    private double minSalary = Double.NEGATIVE_INFINITY;
+    private double maxSalary = Double.POSITIVE_INFINITY;
+    private boolean salaryRange;
+    private Double minRating;
+    private Boolean active;
+    private Integer minExperience;
+    private String nameContains;
+    private EmployeeOrder order;
+    private int limit = -1;
+    // Set on the copies page() makes
+    private boolean paged;
+    private PageCursor after;
+
+    public EmployeeQuery() {
+    }
+
+    private EmployeeQuery(EmployeeQuery other) {
+        this.department = other.department;
+        this.minSalary = other.minSalary;
+        this.maxSalary = other.maxSalary;
+        this.salaryRange = other.salaryRange;
+        this.minRating = other.minRating;
+        this.active = other.active;
+        this.minExperience = other.minExperience;
+        this.nameContains = other.nameContains;
+        this.order = other.order;
+        this.limit = other.limit;
+    }
+
+    // Ignores case, like getEmployeesByDepartment
+    public EmployeeQuery department(String department) {
+        this.department = department;
+        return this;
+    }
+
+    // Both bounds inclusive
+    public EmployeeQuery salaryBetween(double minSalary, double maxSalary) {
+        this.minSalary = minSalary;
+        this.maxSalary = maxSalary;
+        this.salaryRange = true;
+        return this;
+    }
+
+    public EmployeeQuery minRating(double minRating) {
+        this.minRating = minRating;
+        return this;
+    }
+
+    public EmployeeQuery active(boolean active) {
+        this.active = active;
+        return this;
+    }
+
+    public EmployeeQuery minExperience(int years) {
+        this.minExperience = years;
+        return this;
+    }
+
+    // Ignores case, like searchEmployeesByName
+    public EmployeeQuery nameContains(String text) {
+        this.nameContains = text;
+        return this;
+    }
+
+    public EmployeeQuery orderBy(EmployeeOrder order) {
+        this.order = order;
+        return this;
+    }
+
+    public EmployeeQuery limit(int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException(Integer.toString(limit));
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    String department() {
+        return department;
+    }
+
+    boolean hasSalaryRange() {
+        return salaryRange;
+    }
+
+    double minSalary() {
+        return minSalary;
+    }
+
+    double maxSalary() {
+        return maxSalary;
+    }
+
+    Double minRating() {
+        return minRating;
+    }
+
+    Boolean active() {
+        return active;
+    }
+
+    Integer minExperience() {
+        return minExperience;
+    }
+
+    String nameContains() {
+        return nameContains;
+    }
+
+    EmployeeOrder order() {
+        return order;
+    }
+
+    // -1 when there is no limit
+    int limit() {
+        return limit;
+    }
+
+    // The order rows are returned in; null when unordered
+    <T> Comparator<Employee<T>> comparator() {
+        if (paged) {
+            return PageCursor.totalOrder(order);
+        }
+        return order == null ? null : order.comparator();
+    }
+
+    boolean isPaged() {
+        return paged;
+    }
+
+    // Where the page starts; null for the first page and for unpaged queries
+    PageCursor after() {
+        return after;
+    }
+
+    // A copy that returns the page after cursor (null for the first page) as
+    // up to pageSize + 1 rows, the extra one showing whether another page
+    // follows. A salary-ordered cursor also caps the salary range, so the
+    // planner seeks past the earlier pages in the salary index.
+    EmployeeQuery page(String cursor, int pageSize) {
+        if (pageSize <= 0) {
+            throw new IllegalArgumentException(Integer.toString(pageSize));
+        }
+        EmployeeQuery page = new EmployeeQuery(this);
+        page.paged = true;
+        page.after = PageCursor.decode(cursor, order);
+        page.limit = Math.min(pageSize, Integer.MAX_VALUE - 1) + 1;
+        if (page.after != null && page.after.salaryCeiling() < page.maxSalary) {
+            page.maxSalary = page.after.salaryCeiling();
+            page.salaryRange = true;
+        }
+        return page;
+    }
+
+    public boolean matches(Employee<?> employee) {
+        if (department != null && (employee.getDepartment() == null
+                || !DepartmentIndex.key(employee.getDepartment()).equals(DepartmentIndex.key(department)))) {
+            return false;
+        }
+        return matchesOtherThanDepartment(employee, nameContains == null ? null : NameIndex.fold(nameContains));
+    }
+
+    // For callers that have already checked the department, with the search text pre-folded
+    boolean matchesOtherThanDepartment(Employee<?> employee, String foldedName) {
+        if (salaryRange && !(employee.getSalary() >= minSalary && employee.getSalary() <= maxSalary)) {
+            return false;
+        }
+        if (minRating != null && !(employee.getPerformanceRating() >= minRating)) {
+            return false;
+        }
+        if (active != null && employee.isActive() != active) {
+            return false;
+        }
+        if (minExperience != null && employee.getYearsOfExperience() < minExperience) {
+            return false;
+        }
+        if (after != null && !after.precedes(employee)) {
+            return false;
+        }
+        return foldedName == null
+                || (employee.getName() != null && NameIndex.fold(employee.getName()).contains(foldedName));
+    }
+
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        if (department != null) {
+            parts.add("department = " + department);
+        }
+        if (salaryRange) {
+            parts.add("salary in [" + minSalary + ", " + maxSalary + "]");
+        }
+        if (minRating != null) {
+            parts.add("rating >= " + minRating);
+        }
+        if (active != null) {
+            parts.add("active = " + active);
+        }
+        if (minExperience != null) {
+            parts.add("experience >= " + minExperience);
+        }
+        if (nameContains != null) {
+            parts.add("name contains \"" + nameContains + "\"");
+        }
+        if (after != null) {
+            parts.add("after cursor");
+        }
+        String text = parts.isEmpty() ? "all employees" : String.join(" and ", parts);
+        if (order != null) {
+            text += ", order by " + order;
+        }
+        if (limit >= 0) {
+            text += ", limit " + limit;
+        }
+        return text;
+    }
+}
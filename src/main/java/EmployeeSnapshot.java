@@ -0,0 +1,190 @@
+package main.java;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// A read-only, consistent view of an EmployeeDatabase at the moment
+// snapshot() was called, with the whole query API. It holds one committed
+// version of the records and nothing the database changes afterwards, so a
+// report run against it sees every salary either before or after a raise,
+// never a mix, and can't trip over a concurrent write. Taking one costs a
+// single read; the records are listed into an array the first time a query
+// needs them, and every query after that scans the array. There are no
+// indexes here, so lookups by department, name or salary scan too. Returned
+// employees refuse changes, and so do the write methods.
+public final class EmployeeSnapshot<T> implements EmployeeStore<T> {
+    private final EmployeeVersions.Version version;
+    // Listed on first use; racing threads may list it twice, but get equal arrays
+    private volatile Employee<T>[] records;
+
+    EmployeeSnapshot(EmployeeVersions.Version version) {
+        this.version = version;
+    }
+
+    private Employee<T>[] records() {
+        Employee<T>[] records = this.records;
+        if (records == null) {
+            records = EmployeeVersions.records(version);
+            this.records = records;
+        }
+        return records;
+    }
+
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("Snapshots are read-only");
+    }
+
+    @Override
+    public boolean addEmployee(Employee<T> employee) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean removeEmployee(T employeeId) {
+        throw readOnly();
+    }
+
+    @Override
+    public int addEmployees(Collection<Employee<T>> batch) {
+        throw readOnly();
+    }
+
+    @Override
+    public int removeEmployees(Collection<T> employeeIds) {
+        throw readOnly();
+    }
+
+    @Override
+    public void updateEmployee(T employeeId, EmployeeUpdate update) {
+        throw readOnly();
+    }
+
+    @Override
+    public boolean updateEmployeeDetails(T employeeId, String field, Object newValue) {
+        throw readOnly();
+    }
+
+    @Override
+    public int giveSalaryRaise(double minRating, double percentage) {
+        throw readOnly();
+    }
+
+    @Override
+    public void clearDatabase() {
+        throw readOnly();
+    }
+
+    @Override
+    public Optional<Employee<T>> getEmployee(T employeeId) {
+        return Optional.ofNullable(EmployeeVersions.get(version, employeeId));
+    }
+
+    @Override
+    public int getEmployeeCount() {
+        return version.size;
+    }
+
+    @Override
+    public List<Employee<T>> getAllEmployees() {
+        return new ArrayList<>(Arrays.asList(records()));
+    }
+
+    @Override
+    public Stream<Employee<T>> stream() {
+        return Arrays.stream(records());
+    }
+
+    @Override
+    public Iterator<Employee<T>> getEmployeeIterator() {
+        return Collections.unmodifiableList(Arrays.asList(records())).iterator();
+    }
+
+    @Override
+    public List<Employee<T>> filterEmployees(Predicate<Employee<T>> predicate) {
+        List<Employee<T>> result = new ArrayList<>();
+        for (Employee<T> employee : records()) {
+            if (predicate.test(employee)) {
+                result.add(employee);
+            }
+        }
+        return result;
+    }
+
+    // Matches the department ignoring case, like the database's index
+    @Override
+    public List<Employee<T>> getEmployeesByDepartment(String department) {
+        if (department == null) {
+            return new ArrayList<>();
+        }
+        String key = DepartmentIndex.key(department);
+        return filterEmployees(employee -> employee.getDepartment() != null
+                && DepartmentIndex.key(employee.getDepartment()).equals(key));
+    }
+
+    @Override
+    public List<Employee<T>> searchEmployeesByName(String searchTerm) {
+        String query = NameIndex.fold(searchTerm);
+        return filterEmployees(employee -> employee.getName() != null
+                && NameIndex.fold(employee.getName()).contains(query));
+    }
+
+    @Override
+    public List<Employee<T>> getEmployeesByMinRating(double minRating) {
+        return filterEmployees(employee -> employee.getPerformanceRating() >= minRating);
+    }
+
+    @Override
+    public List<Employee<T>> getEmployeesBySalaryRange(double minSalary, double maxSalary) {
+        return filterEmployees(employee -> employee.getSalary() >= minSalary && employee.getSalary() <= maxSalary);
+    }
+
+    @Override
+    public List<Employee<T>> getTopNHighestPaidEmployees(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException(Integer.toString(n));
+        }
+        Employee<T>[] records = records();
+        // Min-heap holding the n best salaries seen so far
+        PriorityQueue<Employee<T>> top = new PriorityQueue<>(Math.max(1, Math.min(n, records.length)),
+                Comparator.comparingDouble(Employee::getSalary));
+        for (int i = 0; i < records.length && n > 0; i++) {
+            if (top.size() < n) {
+                top.add(records[i]);
+            } else if (records[i].getSalary() > top.peek().getSalary()) {
+                top.poll();
+                top.add(records[i]);
+            }
+        }
+        List<Employee<T>> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(top.poll());
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public double calculateAverageSalaryByDepartment(String department) {
+        List<Employee<T>> members = getEmployeesByDepartment(department);
+        double total = 0;
+        for (Employee<T> employee : members) {
+            total += employee.getSalary();
+        }
+        return members.isEmpty() ? 0 : total / members.size();
+    }
+
+    @Override
+    public Map<String, Long> getDepartmentCounts() {
+        return Arrays.stream(records())
+                .filter(employee -> employee.getDepartment() != null)
+                .collect(Collectors.groupingBy(Employee::getDepartment, HashMap::new, Collectors.counting()));
+    }
+
+    @Override
+    public <K> Map<K, EmployeeStatistics> getStatistics(Predicate<Employee<T>> filter,
+                                                        Function<Employee<T>, K> groupBy) {
+        return EmployeeStatistics.collect(Arrays.stream(records()).parallel().filter(filter), groupBy);
+    }
+}
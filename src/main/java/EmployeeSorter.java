@@ -0,0 +1,336 @@
+package main.java;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.RecursiveAction;
+
+// Sorts employees into an EmployeeOrder without going back to the records for
+// every comparison: each row's key is read once into an array, the keys are
+// sorted carrying the row numbers along, and the rows are then put in place
+// in one pass. Salary, rating and experience become 64-bit keys whose
+// unsigned order is the sort order, radix sorted eight bits a pass, skipping
+// the bytes every key shares. Names and departments are case-folded once, as
+// compareToIgnoreCase compares them, and sorted most significant chunk first:
+// four characters at a time packed into a 64-bit key and radix sorted, then
+// each run of rows that tie on the chunk by the next four characters. Above
+// PARALLEL_THRESHOLD rows the halves are sorted on fork/join and merged. The
+// sort is stable, like List.sort with the order's comparator. Like a query,
+// it gives up with a CancellationException once the calling thread is
+// interrupted, checking before each range of at most PARALLEL_THRESHOLD rows.
+public final class EmployeeSorter {
+    static final int PARALLEL_THRESHOLD = 1 << 16;
+    private static final int INSERTION_THRESHOLD = 24;
+
+    private EmployeeSorter() {
+    }
+
+    public static <T> void sort(List<Employee<T>> rows, EmployeeOrder order) {
+        int size = rows.size();
+        if (size < 2) {
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Employee<T>[] employees = (Employee<T>[]) rows.toArray(new Employee<?>[0]);
+        Sort sort;
+        if (order == EmployeeOrder.NAME || order == EmployeeOrder.DEPARTMENT) {
+            String[] texts = new String[size];
+            for (int i = 0; i < size; i++) {
+                texts[i] = SortedView.fold(order == EmployeeOrder.NAME
+                        ? employees[i].getName() : employees[i].getDepartment());
+            }
+            sort = new TextSort(texts);
+        } else {
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = numericKey(employees[i], order);
+            }
+            sort = new NumericSort(keys);
+        }
+        int[] positions = sort.run();
+        for (int i = 0; i < size; i++) {
+            rows.set(i, employees[positions[i]]);
+        }
+    }
+
+    // Unsigned order of the result is the order's: salary and rating highest
+    // first as Double.compare ranks them, experience most first
+    static long numericKey(Employee<?> employee, EmployeeOrder order) {
+        long ascending;
+        switch (order) {
+            case SALARY:
+                ascending = doubleKey(employee.getSalary());
+                break;
+            case PERFORMANCE:
+                ascending = doubleKey(employee.getPerformanceRating());
+                break;
+            default:
+                ascending = employee.getYearsOfExperience() ^ Long.MIN_VALUE;
+                break;
+        }
+        return ~ascending;
+    }
+
+    private static long doubleKey(double value) {
+        long bits = Double.doubleToLongBits(value);
+        // Negative numbers flip entirely, so larger magnitudes sort lower
+        return bits ^ ((bits >> 63) | Long.MIN_VALUE);
+    }
+
+    // Characters offset to offset + 3 of text, zero past its end, so unsigned
+    // order of the chunks is the order of String.compareTo on them
+    private static long chunk(String text, int offset) {
+        long chunk = 0;
+        for (int i = offset; i < offset + 4; i++) {
+            chunk = (chunk << 16) | (i < text.length() ? text.charAt(i) : 0);
+        }
+        return chunk;
+    }
+
+    // Stable LSD radix sort of keys[from, to), carrying positions along, through
+    // the buffers' same range
+    private static void radixSort(long[] keys, int[] positions, long[] keyBuffer, int[] positionBuffer,
+                                  int from, int to) {
+        int[][] counts = new int[8][256];
+        for (int i = from; i < to; i++) {
+            long key = keys[i];
+            for (int pass = 0; pass < 8; pass++) {
+                counts[pass][(int) (key >>> (pass * 8)) & 0xFF]++;
+            }
+        }
+        long[] sourceKeys = keys;
+        int[] sourcePositions = positions;
+        long[] targetKeys = keyBuffer;
+        int[] targetPositions = positionBuffer;
+        for (int pass = 0; pass < 8; pass++) {
+            int shift = pass * 8;
+            int[] offsets = counts[pass];
+            if (offsets[(int) (keys[from] >>> shift) & 0xFF] == to - from) {
+                continue;
+            }
+            int next = from;
+            for (int digit = 0; digit < 256; digit++) {
+                int count = offsets[digit];
+                offsets[digit] = next;
+                next += count;
+            }
+            for (int i = from; i < to; i++) {
+                long key = sourceKeys[i];
+                int target = offsets[(int) (key >>> shift) & 0xFF]++;
+                targetKeys[target] = key;
+                targetPositions[target] = sourcePositions[i];
+            }
+            long[] swapKeys = sourceKeys;
+            sourceKeys = targetKeys;
+            targetKeys = swapKeys;
+            int[] swapPositions = sourcePositions;
+            sourcePositions = targetPositions;
+            targetPositions = swapPositions;
+        }
+        if (sourceKeys != keys) {
+            System.arraycopy(sourceKeys, from, keys, from, to - from);
+            System.arraycopy(sourcePositions, from, positions, from, to - from);
+        }
+    }
+
+    // Sorts positions, the row numbers, by key. Big ranges are halved, the
+    // halves sorted at once and merged, the left first on ties.
+    private abstract static class Sort {
+        final int[] positions;
+        final int[] positionBuffer;
+
+        Sort(int size) {
+            this.positions = new int[size];
+            this.positionBuffer = new int[size];
+            for (int i = 0; i < size; i++) {
+                positions[i] = i;
+            }
+        }
+
+        // The thread that called sort, whose interrupt the fork/join workers check
+        private final Thread caller = Thread.currentThread();
+
+        int[] run() {
+            if (positions.length <= PARALLEL_THRESHOLD) {
+                checkInterrupted();
+                sortRange(0, positions.length);
+            } else {
+                new Task(0, positions.length).invoke();
+            }
+            return positions;
+        }
+
+        abstract void sortRange(int from, int to);
+
+        final void checkInterrupted() {
+            if (caller.isInterrupted()) {
+                throw new CancellationException("Sort interrupted");
+            }
+        }
+
+        // Whether the row at index left of the array may stay before the one at right
+        abstract boolean inOrder(int left, int right);
+
+        // Moves the row at index from to index to of the buffers
+        abstract void toBuffer(int from, int to);
+
+        abstract void fromBuffer(int from, int to);
+
+        private void merge(int from, int middle, int to) {
+            if (inOrder(middle - 1, middle)) {
+                return;
+            }
+            int left = from;
+            int right = middle;
+            for (int i = from; i < to; i++) {
+                if (right == to || (left < middle && inOrder(left, right))) {
+                    toBuffer(left++, i);
+                } else {
+                    toBuffer(right++, i);
+                }
+            }
+            fromBuffer(from, to);
+        }
+
+        private final class Task extends RecursiveAction {
+            private static final long serialVersionUID = 1L;
+
+            private final int from;
+            private final int to;
+
+            Task(int from, int to) {
+                this.from = from;
+                this.to = to;
+            }
+
+            @Override
+            protected void compute() {
+                if (to - from <= PARALLEL_THRESHOLD) {
+                    checkInterrupted();
+                    sortRange(from, to);
+                    return;
+                }
+                int middle = (from + to) >>> 1;
+                invokeAll(new Task(from, middle), new Task(middle, to));
+                merge(from, middle, to);
+            }
+        }
+    }
+
+    private static final class NumericSort extends Sort {
+        private final long[] keys;
+        private final long[] keyBuffer;
+
+        NumericSort(long[] keys) {
+            super(keys.length);
+            this.keys = keys;
+            this.keyBuffer = new long[keys.length];
+        }
+
+        @Override
+        void sortRange(int from, int to) {
+            radixSort(keys, positions, keyBuffer, positionBuffer, from, to);
+        }
+
+        @Override
+        boolean inOrder(int left, int right) {
+            return Long.compareUnsigned(keys[left], keys[right]) <= 0;
+        }
+
+        @Override
+        void toBuffer(int from, int to) {
+            keyBuffer[to] = keys[from];
+            positionBuffer[to] = positions[from];
+        }
+
+        @Override
+        void fromBuffer(int from, int to) {
+            System.arraycopy(keyBuffer, from, keys, from, to - from);
+            System.arraycopy(positionBuffer, from, positions, from, to - from);
+        }
+    }
+
+    private static final class TextSort extends Sort {
+        // By row number; only positions move
+        private final String[] texts;
+        private final long[] chunks;
+        private final long[] chunkBuffer;
+
+        TextSort(String[] texts) {
+            super(texts.length);
+            this.texts = texts;
+            this.chunks = new long[texts.length];
+            this.chunkBuffer = new long[texts.length];
+        }
+
+        @Override
+        void sortRange(int from, int to) {
+            sortRun(from, to, 0);
+        }
+
+        // Sorts rows that agree on their first offset characters
+        private void sortRun(int from, int to, int offset) {
+            if (to - from <= INSERTION_THRESHOLD) {
+                insertionSort(from, to);
+                return;
+            }
+            boolean longer = false;
+            for (int i = from; i < to; i++) {
+                String text = texts[positions[i]];
+                chunks[i] = chunk(text, offset);
+                longer |= text.length() > offset + 4;
+            }
+            radixSort(chunks, positions, chunkBuffer, positionBuffer, from, to);
+            if (!longer) {
+                // Any remaining ties differ only in trailing zero characters,
+                // which chunk() cannot tell from the end of the text
+                insertionSortIfUnsorted(from, to);
+                return;
+            }
+            int start = from;
+            for (int i = from + 1; i <= to; i++) {
+                if (i == to || chunks[i] != chunks[start]) {
+                    if (i - start > 1) {
+                        sortRun(start, i, offset + 4);
+                    }
+                    start = i;
+                }
+            }
+        }
+
+        private void insertionSort(int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                int position = positions[i];
+                String text = texts[position];
+                int j = i - 1;
+                while (j >= from && texts[positions[j]].compareTo(text) > 0) {
+                    positions[j + 1] = positions[j];
+                    j--;
+                }
+                positions[j + 1] = position;
+            }
+        }
+
+        private void insertionSortIfUnsorted(int from, int to) {
+            for (int i = from + 1; i < to; i++) {
+                if (!inOrder(i - 1, i)) {
+                    insertionSort(from, to);
+                    return;
+                }
+            }
+        }
+
+        @Override
+        boolean inOrder(int left, int right) {
+            return texts[positions[left]].compareTo(texts[positions[right]]) <= 0;
+        }
+
+        @Override
+        void toBuffer(int from, int to) {
+            positionBuffer[to] = positions[from];
+        }
+
+        @Override
+        void fromBuffer(int from, int to) {
+            System.arraycopy(positionBuffer, from, positions, from, to - from);
+        }
+    }
+}
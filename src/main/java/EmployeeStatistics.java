@@ -0,0 +1,77 @@
+package main.java;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
+
+// Aggregates for one group of employees, computed in a single pass by
+// EmployeeDatabase.getStatistics: the count, the active count, and summaries
+// of salary and performance rating.
+public final class EmployeeStatistics {
+    private long count;
+    private long activeCount;
+    private final NumericSummary salary = new NumericSummary();
+    private final NumericSummary rating = new NumericSummary();
+
+    // Groups employees into bands of the given number of years: 0, 5, 10, ...
+    public static <T> Function<Employee<T>, Integer> experienceBand(int years) {
+        if (years <= 0) {
+            throw new IllegalArgumentException(Integer.toString(years));
+        }
+        return employee -> employee.getYearsOfExperience() / years * years;
+    }
+
+    // Each fork/join leaf fills its own map; the maps are merged pairwise as the
+    // pass unwinds. A null key is a group of its own.
+    static <T, K> Map<K, EmployeeStatistics> collect(Stream<Employee<T>> employees,
+                                                     Function<Employee<T>, K> groupBy) {
+        return employees.collect(Collector.of(
+                HashMap::new,
+                (Map<K, EmployeeStatistics> groups, Employee<T> employee) ->
+                        groups.computeIfAbsent(groupBy.apply(employee), key -> new EmployeeStatistics()).add(employee),
+                (left, right) -> {
+                    right.forEach((key, statistics) -> left.merge(key, statistics, EmployeeStatistics::merge));
+                    return left;
+                }));
+    }
+
+    private void add(Employee<?> employee) {
+        count++;
+        if (employee.isActive()) {
+            activeCount++;
+        }
+        salary.add(employee.getSalary());
+        rating.add(employee.getPerformanceRating());
+    }
+
+    private EmployeeStatistics merge(EmployeeStatistics other) {
+        count += other.count;
+        activeCount += other.activeCount;
+        salary.merge(other.salary);
+        rating.merge(other.rating);
+        return this;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getActiveCount() {
+        return activeCount;
+    }
+
+    public NumericSummary getSalary() {
+        return salary;
+    }
+
+    public NumericSummary getRating() {
+        return rating;
+    }
+
+    @Override
+    public String toString() {
+        return "EmployeeStatistics{count=" + count + ", activeCount=" + activeCount
+                + ", salary={" + salary + "}, rating={" + rating + "}}";
+    }
+}
@@ -0,0 +1,177 @@
+package main.java;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+// The query surface shared by EmployeeDatabase and the alternative storage
+// layouts. Stores that don't keep Employee objects create them when results
+// are returned; the sort and filter defaults work from getAllEmployees.
+public interface EmployeeStore<T> {
+
+    boolean addEmployee(Employee<T> employee);
+
+    boolean removeEmployee(T employeeId);
+
+    // Batch forms; stores that can apply a batch in one pass override these
+    default int addEmployees(Collection<Employee<T>> batch) {
+        int added = 0;
+        for (Employee<T> employee : batch) {
+            if (addEmployee(employee)) {
+                added++;
+            }
+        }
+        return added;
+    }
+
+    default int removeEmployees(Collection<T> employeeIds) {
+        int removed = 0;
+        for (T id : employeeIds) {
+            if (removeEmployee(id)) {
+                removed++;
+            }
+        }
+        return removed;
+    }
+
+    Optional<Employee<T>> getEmployee(T employeeId);
+
+    // Throws EmployeeNotFoundException when there is no such employee
+    void updateEmployee(T employeeId, EmployeeUpdate update);
+
+    // Resolves the field and value on every call and reports any failure as
+    // false; updateEmployee with a prepared EmployeeUpdate says what went wrong
+    default boolean updateEmployeeDetails(T employeeId, String field, Object newValue) {
+        try {
+            updateEmployee(employeeId, EmployeeUpdate.of(field, newValue));
+            return true;
+        } catch (InvalidEmployeeDataException | EmployeeNotFoundException e) {
+            return false;
+        }
+    }
+
+    List<Employee<T>> getAllEmployees();
+
+    List<Employee<T>> getEmployeesByDepartment(String department);
+
+    List<Employee<T>> searchEmployeesByName(String searchTerm);
+
+    List<Employee<T>> getEmployeesByMinRating(double minRating);
+
+    List<Employee<T>> getEmployeesBySalaryRange(double minSalary, double maxSalary);
+
+    default List<Employee<T>> getEmployeesSortedByExperience() {
+        List<Employee<T>> sortedList = getAllEmployees();
+        EmployeeSorter.sort(sortedList, EmployeeOrder.EXPERIENCE);
+        return sortedList;
+    }
+
+    default List<Employee<T>> getEmployeesSortedBySalary() {
+        List<Employee<T>> sortedList = getAllEmployees();
+        EmployeeSorter.sort(sortedList, EmployeeOrder.SALARY);
+        return sortedList;
+    }
+
+    default List<Employee<T>> getEmployeesSortedByPerformance() {
+        List<Employee<T>> sortedList = getAllEmployees();
+        EmployeeSorter.sort(sortedList, EmployeeOrder.PERFORMANCE);
+        return sortedList;
+    }
+
+    default List<Employee<T>> getEmployeesSortedByName() {
+        List<Employee<T>> sortedList = getAllEmployees();
+        EmployeeSorter.sort(sortedList, EmployeeOrder.NAME);
+        return sortedList;
+    }
+
+    default List<Employee<T>> getEmployeesSortedByDepartment() {
+        List<Employee<T>> sortedList = getAllEmployees();
+        EmployeeSorter.sort(sortedList, EmployeeOrder.DEPARTMENT);
+        return sortedList;
+    }
+
+    int giveSalaryRaise(double minRating, double percentage);
+
+    List<Employee<T>> getTopNHighestPaidEmployees(int n);
+
+    double calculateAverageSalaryByDepartment(String department);
+
+    default List<Employee<T>> filterEmployees(Predicate<Employee<T>> predicate) {
+        return getAllEmployees().stream()
+                .filter(predicate)
+                .collect(Collectors.toList());
+    }
+
+    default List<Employee<T>> query(EmployeeQuery query) {
+        List<Employee<T>> result = filterEmployees(query::matches);
+        if (query.isPaged()) {
+            result.sort(query.comparator());
+        } else if (query.order() != null) {
+            EmployeeSorter.sort(result, query.order());
+        }
+        if (query.limit() >= 0 && result.size() > query.limit()) {
+            return new ArrayList<>(result.subList(0, query.limit()));
+        }
+        return result;
+    }
+
+    // The page of query's matches after cursor, in the query's order (by id when
+    // it has none); a null cursor starts at the first page. A cursor holds the
+    // last row's sort key rather than a position, so pages neither repeat nor
+    // skip rows when employees are added or removed between calls. The query's
+    // own limit does not apply.
+    default EmployeePage<T> page(EmployeeQuery query, String cursor, int pageSize) {
+        return EmployeePage.of(query(query.page(cursor, pageSize)), pageSize, query.order());
+    }
+
+    // All employees without copying them into a list first, where the store allows
+    default Stream<Employee<T>> stream() {
+        return getAllEmployees().stream();
+    }
+
+    default Stream<Employee<T>> stream(EmployeeQuery query) {
+        Stream<Employee<T>> matches = stream().filter(query::matches);
+        if (query.order() != null) {
+            matches = matches.sorted(query.order().comparator());
+        }
+        return query.limit() >= 0 ? matches.limit(query.limit()) : matches;
+    }
+
+    // Count, salary and rating statistics per group, computed in one parallel
+    // pass over the employees that match filter
+    default <K> Map<K, EmployeeStatistics> getStatistics(Predicate<Employee<T>> filter,
+                                                         Function<Employee<T>, K> groupBy) {
+        return EmployeeStatistics.collect(getAllEmployees().parallelStream().filter(filter), groupBy);
+    }
+
+    default <K> Map<K, EmployeeStatistics> getStatistics(Function<Employee<T>, K> groupBy) {
+        return getStatistics(employee -> true, groupBy);
+    }
+
+    int getEmployeeCount();
+
+    default Iterator<Employee<T>> getEmployeeIterator() {
+        return getAllEmployees().iterator();
+    }
+
+    Map<String, Long> getDepartmentCounts();
+
+    // Keyed by exact department spelling, like getDepartmentCounts
+    default Map<String, DepartmentStats> getDepartmentStatistics() {
+        Map<String, DepartmentAggregate> aggregates = new HashMap<>();
+        Iterator<Employee<T>> iterator = getEmployeeIterator();
+        while (iterator.hasNext()) {
+            Employee<T> employee = iterator.next();
+            if (employee.getDepartment() != null) {
+                aggregates.computeIfAbsent(employee.getDepartment(), name -> new DepartmentAggregate(name))
+                        .add(employee.getSalary(), employee.getPerformanceRating(), employee.isActive());
+            }
+        }
+        Map<String, DepartmentStats> statistics = new HashMap<>();
+        aggregates.forEach((department, aggregate) -> statistics.put(department, aggregate.snapshot(department)));
+        return statistics;
+    }
+
+    void clearDatabase();
+}
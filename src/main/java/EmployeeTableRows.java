@@ -0,0 +1,265 @@
+package main.java;
+import javafx.collections.ObservableListBase;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+// The employee table's items: the ids of the rows on show, in display order,
+// with each Employee looked up only when the table asks for that row. The
+// TableView only asks for the rows it draws, so a 500k-row result costs an int
+// array rather than a second list of records. Edits move, insert, remove or
+// redraw just the rows they touch.
+final class EmployeeTableRows extends ObservableListBase<Employee<Integer>> {
+    private final EmployeeStore<Integer> store;
+    // The query the rows are the result of; null for a fixed list such as the top paid
+    private EmployeeQuery query;
+    private int[] ids = new int[0];
+    private int size;
+    // The row of each id, so an edit finds its row without a scan. Open
+    // addressing: slotRows holds row + 1, 0 for an empty slot. Built by the
+    // first edit after the rows are replaced, then kept up to date.
+    private int[] slotIds;
+    private int[] slotRows;
+    private int mask;
+
+    EmployeeTableRows(EmployeeStore<Integer> store) {
+        this.store = store;
+    }
+
+    // The ids of query's matches in its order, collected without keeping the
+    // records. Gives up if the thread is interrupted, as QueryExecutor does
+    // to a search that was overtaken.
+    static int[] matchingIds(EmployeeStore<Integer> store, EmployeeQuery query) {
+        if (query.order() == null) {
+            return store.stream(query).mapToInt(employee -> {
+                if (Thread.currentThread().isInterrupted()) {
+                    throw new CancellationException("Query interrupted: " + query);
+                }
+                return employee.getEmployeeId();
+            }).toArray();
+        }
+        return store.query(query).stream().mapToInt(Employee::getEmployeeId).toArray();
+    }
+
+    void show(EmployeeQuery query) {
+        show(query, matchingIds(store, query));
+    }
+
+    // Replaces the rows with ids already worked out for query
+    void show(EmployeeQuery query, int[] ids) {
+        this.query = query;
+        replace(ids);
+    }
+
+    void show(List<Employee<Integer>> employees) {
+        this.query = null;
+        replace(employees.stream().mapToInt(Employee::getEmployeeId).toArray());
+    }
+
+    EmployeeQuery query() {
+        return query;
+    }
+
+    private void replace(int[] newIds) {
+        beginChange();
+        if (size > 0) {
+            nextRemove(0, new RemovedRows(ids, size));
+        }
+        ids = newIds;
+        size = newIds.length;
+        slotIds = null;
+        slotRows = null;
+        if (size > 0) {
+            nextAdd(0, size);
+        }
+        endChange();
+    }
+
+    @Override
+    public Employee<Integer> get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index + " of " + size);
+        }
+        // Null only if the employee was removed behind the table's back
+        return store.getEmployee(ids[index]).orElse(null);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // After an add or edit: redraws the employee's row if it stays in place,
+    // otherwise moves it, or adds or drops it as it now matches the query.
+    // previous is the record before the edit, null for an add; it is what the
+    // change reports as removed, since the store already holds the new one.
+    void changed(Employee<Integer> previous, Employee<Integer> employee) {
+        int index = rowOf(employee.getEmployeeId());
+        boolean belongs = query == null ? index >= 0 : query.matches(employee);
+        if (index >= 0 && belongs && inPlace(index, employee)) {
+            beginChange();
+            nextUpdate(index);
+            endChange();
+            return;
+        }
+        beginChange();
+        if (index >= 0) {
+            removeAt(index);
+            nextRemove(index, previous);
+        }
+        if (belongs) {
+            int position = insertionPoint(employee);
+            insertAt(position, employee.getEmployeeId());
+            nextAdd(position, position + 1);
+        }
+        endChange();
+    }
+
+    void removed(Employee<Integer> employee) {
+        int index = rowOf(employee.getEmployeeId());
+        if (index >= 0) {
+            beginChange();
+            removeAt(index);
+            nextRemove(index, employee);
+            endChange();
+        }
+    }
+
+    private int rowOf(int employeeId) {
+        if (slotIds == null) {
+            indexRows();
+        }
+        return slotRows[slotOf(employeeId)] - 1;
+    }
+
+    // Sized for at most half full, so it takes half as many rows again before it is rebuilt
+    private void indexRows() {
+        int capacity = Integer.highestOneBit(Math.max(16, size * 2)) * 2;
+        slotIds = new int[capacity];
+        slotRows = new int[capacity];
+        mask = capacity - 1;
+        renumber(0);
+    }
+
+    // Slot holding employeeId, or the empty slot where it would go
+    private int slotOf(int employeeId) {
+        int h = employeeId * 0x9E3779B9;
+        int slot = (h ^ (h >>> 16)) & mask;
+        while (slotRows[slot] != 0 && slotIds[slot] != employeeId) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    // Points the ids of rows [from, size) at their rows
+    private void renumber(int from) {
+        for (int row = from; row < size; row++) {
+            int slot = slotOf(ids[row]);
+            slotIds[slot] = ids[row];
+            slotRows[slot] = row + 1;
+        }
+    }
+
+    private void unindex(int employeeId) {
+        // Backward-shift deletion keeps every probe chain unbroken
+        int hole = slotOf(employeeId);
+        int next = (hole + 1) & mask;
+        while (slotRows[next] != 0) {
+            int h = slotIds[next] * 0x9E3779B9;
+            int home = (h ^ (h >>> 16)) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                slotIds[hole] = slotIds[next];
+                slotRows[hole] = slotRows[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        slotRows[hole] = 0;
+    }
+
+    private Comparator<Employee<Integer>> order() {
+        return query == null || query.order() == null ? null : query.order().comparator();
+    }
+
+    private boolean inPlace(int index, Employee<Integer> employee) {
+        Comparator<Employee<Integer>> order = order();
+        if (order == null) {
+            return true;
+        }
+        Employee<Integer> previous = index > 0 ? get(index - 1) : null;
+        Employee<Integer> next = index + 1 < size ? get(index + 1) : null;
+        return (previous == null || order.compare(previous, employee) <= 0)
+                && (next == null || order.compare(employee, next) <= 0);
+    }
+
+    // Binary search by the query's order, looking up only log(size) rows; the end when unordered
+    private int insertionPoint(Employee<Integer> employee) {
+        Comparator<Employee<Integer>> order = order();
+        if (order == null) {
+            return size;
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            Employee<Integer> row = get(middle);
+            if (row != null && order.compare(row, employee) > 0) {
+                high = middle;
+            } else {
+                low = middle + 1;
+            }
+        }
+        return low;
+    }
+
+    private void removeAt(int index) {
+        if (slotIds != null) {
+            unindex(ids[index]);
+        }
+        System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+        size--;
+        if (slotIds != null) {
+            renumber(index);
+        }
+    }
+
+    private void insertAt(int index, int employeeId) {
+        if (size == ids.length) {
+            ids = Arrays.copyOf(ids, Math.max(16, size * 2));
+        }
+        System.arraycopy(ids, index, ids, index + 1, size - index);
+        ids[index] = employeeId;
+        size++;
+        if (slotIds != null) {
+            if (size > (mask + 1) / 4 * 3) {
+                indexRows();
+            } else {
+                renumber(index);
+            }
+        }
+    }
+
+    // The removed rows as the change event reports them, looked up only if a listener reads them
+    private final class RemovedRows extends AbstractList<Employee<Integer>> {
+        private final int[] removedIds;
+        private final int count;
+
+        RemovedRows(int[] removedIds, int count) {
+            this.removedIds = removedIds;
+            this.count = count;
+        }
+
+        @Override
+        public Employee<Integer> get(int index) {
+            return store.getEmployee(removedIds[index]).orElse(null);
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package main.java;
+
+// A validated change of one field to one value. Values are converted and checked
+// when the update is created, and kept unboxed, so applying an update costs a
+// field store; one instance can be applied to any number of employees.
+public final class EmployeeUpdate {
+    private final EmployeeField field;
+    private final String text;
+    private final double number;
+    private final int years;
+    private final boolean flag;
+
+    private EmployeeUpdate(EmployeeField field, String text, double number, int years, boolean flag) {
+        this.field = field;
+        this.text = text;
+        this.number = number;
+        this.years = years;
+        this.flag = flag;
+    }
+
+    public static EmployeeUpdate name(String name) {
+        return new EmployeeUpdate(EmployeeField.NAME, requireText(name, "name"), 0, 0, false);
+    }
+
+    public static EmployeeUpdate department(String department) {
+        return new EmployeeUpdate(EmployeeField.DEPARTMENT, requireText(department, "department"), 0, 0, false);
+    }
+
+    public static EmployeeUpdate salary(double salary) {
+        if (!(salary >= 0) || Double.isInfinite(salary)) {
+            throw new InvalidEmployeeDataException("salary must be a non-negative number, not " + salary);
+        }
+        return new EmployeeUpdate(EmployeeField.SALARY, null, salary, 0, false);
+    }
+
+    public static EmployeeUpdate performanceRating(double rating) {
+        if (!(rating >= 0 && rating <= 5)) {
+            throw new InvalidEmployeeDataException("performanceRating must be between 0 and 5, not " + rating);
+        }
+        return new EmployeeUpdate(EmployeeField.PERFORMANCE_RATING, null, rating, 0, false);
+    }
+
+    public static EmployeeUpdate yearsOfExperience(int years) {
+        if (years < 0) {
+            throw new InvalidEmployeeDataException("yearsOfExperience must not be negative, not " + years);
+        }
+        return new EmployeeUpdate(EmployeeField.YEARS_OF_EXPERIENCE, null, 0, years, false);
+    }
+
+    public static EmployeeUpdate active(boolean active) {
+        return new EmployeeUpdate(EmployeeField.IS_ACTIVE, null, 0, 0, active);
+    }
+
+    public static EmployeeUpdate of(String field, Object value) {
+        return of(EmployeeField.of(field), value);
+    }
+
+    // Accepts the value as text or as the field's own type (any Number for the numeric fields)
+    public static EmployeeUpdate of(EmployeeField field, Object value) {
+        if (value == null) {
+            throw new InvalidEmployeeDataException(field.fieldName() + " must not be null");
+        }
+        switch (field) {
+            case NAME:
+                return name(asText(field, value));
+            case DEPARTMENT:
+                return department(asText(field, value));
+            case SALARY:
+                return salary(asDouble(field, value));
+            case PERFORMANCE_RATING:
+                return performanceRating(asDouble(field, value));
+            case YEARS_OF_EXPERIENCE:
+                return yearsOfExperience(asInt(field, value));
+            default:
+                return active(asBoolean(field, value));
+        }
+    }
+
+    private static String requireText(String value, String fieldName) {
+        if (value == null || value.isBlank()) {
+            throw new InvalidEmployeeDataException(fieldName + " must not be empty");
+        }
+        return value;
+    }
+
+    private static String asText(EmployeeField field, Object value) {
+        if (!(value instanceof String)) {
+            throw wrongType(field, value);
+        }
+        return (String) value;
+    }
+
+    private static double asDouble(EmployeeField field, Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Double.parseDouble(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidEmployeeDataException(field.fieldName() + " '" + value + "' is not a number");
+            }
+        }
+        throw wrongType(field, value);
+    }
+
+    private static int asInt(EmployeeField field, Object value) {
+        if (value instanceof Number) {
+            Number number = (Number) value;
+            if (number.intValue() != number.doubleValue()) {
+                throw new InvalidEmployeeDataException(field.fieldName() + " " + value + " is not a whole number");
+            }
+            return number.intValue();
+        }
+        if (value instanceof String) {
+            try {
+                return Integer.parseInt(((String) value).trim());
+            } catch (NumberFormatException e) {
+                throw new InvalidEmployeeDataException(field.fieldName() + " '" + value + "' is not a whole number");
+            }
+        }
+        throw wrongType(field, value);
+    }
+
+    private static boolean asBoolean(EmployeeField field, Object value) {
+        if (value instanceof Boolean) {
+            return (Boolean) value;
+        }
+        if (value instanceof String) {
+            String text = ((String) value).trim();
+            if (text.equalsIgnoreCase("true") || text.equalsIgnoreCase("false")) {
+                return Boolean.parseBoolean(text);
+            }
+            throw new InvalidEmployeeDataException(field.fieldName() + " '" + value + "' is not true or false");
+        }
+        throw wrongType(field, value);
+    }
+
+    private static InvalidEmployeeDataException wrongType(EmployeeField field, Object value) {
+        return new InvalidEmployeeDataException(field.fieldName() + " cannot be set from a "
+                + value.getClass().getSimpleName());
+    }
+
+    public EmployeeField field() {
+        return field;
+    }
+
+    // The new value; only the accessor matching field() is meaningful
+    public String textValue() {
+        return text;
+    }
+
+    public double doubleValue() {
+        return number;
+    }
+
+    public int intValue() {
+        return years;
+    }
+
+    public boolean booleanValue() {
+        return flag;
+    }
+
+    public <T> void applyTo(Employee<T> employee) {
+        switch (field) {
+            case NAME:
+                employee.setName(text);
+                break;
+            case DEPARTMENT:
+                employee.setDepartment(text);
+                break;
+            case SALARY:
+                employee.setSalary(number);
+                break;
+            case PERFORMANCE_RATING:
+                employee.setPerformanceRating(number);
+                break;
+            case YEARS_OF_EXPERIENCE:
+                employee.setYearsOfExperience(years);
+                break;
+            case IS_ACTIVE:
+                employee.setActive(flag);
+                break;
+        }
+    }
+
+    @Override
+    public String toString() {
+        switch (field) {
+            case NAME:
+            case DEPARTMENT:
+                return field.fieldName() + "=" + text;
+            case YEARS_OF_EXPERIENCE:
+                return field.fieldName() + "=" + years;
+            case IS_ACTIVE:
+                return field.fieldName() + "=" + flag;
+            default:
+                return field.fieldName() + "=" + number;
+        }
+    }
+}
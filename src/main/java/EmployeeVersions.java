@@ -0,0 +1,463 @@
+package main.java;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Committed versions of a database's records, for snapshot(). The records
+// sit in a persistent hash trie: 32-way nodes keyed by five bits of the id's
+// hash at a time, holding only the slots in use. A write copies the path
+// from the root to its record, about four small nodes for a million
+// employees, and leaves everything else shared, so every version ever
+// published stays intact for as long as a snapshot holds it. Publishing is
+// one compare-and-set of the root; a reader takes the root with one read and
+// never waits, and a writer never waits for a reader. Records are stored as
+// Frozen copies, so nothing can change a version after it is published.
+// A write of many records runs as a Group and is published as one version.
+final class EmployeeVersions<T> {
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    // One committed state of the whole database
+    static final class Version {
+        final Object root;
+        final int size;
+
+        Version(Object root, int size) {
+            this.root = root;
+            this.size = size;
+        }
+    }
+
+    // An inner trie node: one bit per occupied slot, and the slots in bit
+    // order, each a record, a Node or a Collision
+    private static final class Node {
+        final int bitmap;
+        final Object[] slots;
+
+        Node(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+    }
+
+    // Records whose ids have the same full hash
+    private static final class Collision {
+        final int hash;
+        final Employee<?>[] records;
+
+        Collision(int hash, Employee<?>[] records) {
+            this.hash = hash;
+            this.records = records;
+        }
+    }
+
+    // A published record; the setters refuse, so a snapshot's reader can't
+    // change what other snapshots of the same version see
+    static final class Frozen<T> extends Employee<T> {
+        private Frozen(Employee<T> employee) {
+            super(employee);
+        }
+
+        private static UnsupportedOperationException readOnly() {
+            return new UnsupportedOperationException("Snapshot records are read-only");
+        }
+
+        @Override
+        public void setEmployeeId(T employeeId) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setName(String name) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setDepartment(String department) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setSalary(double salary) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setPerformanceRating(double performanceRating) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setYearsOfExperience(int yearsOfExperience) {
+            throw readOnly();
+        }
+
+        @Override
+        public void setActive(boolean active) {
+            throw readOnly();
+        }
+    }
+
+    private static final Version EMPTY = new Version(null, 0);
+
+    // Writes of many records, published together so no snapshot sees part of
+    // one. The group's own thread writes into it; another writer of a record
+    // the group has already written waits for the group to be published, so
+    // its write lands after the group's in every version. Callers open one
+    // group at a time.
+    final class Group {
+        private final Thread owner = Thread.currentThread();
+        private final Set<Object> ids = ConcurrentHashMap.newKeySet();
+        // The final record of each id written, null meaning removed; owner only
+        private final Map<T, Employee<T>> writes = new HashMap<>();
+        private final CountDownLatch published = new CountDownLatch(1);
+
+        private void write(T employeeId, Employee<T> employee) {
+            ids.add(employeeId);
+            writes.put(employeeId, employee == null ? null : new Frozen<>(employee));
+        }
+
+        void publish() {
+            publishAll(writes);
+            open = null;
+            published.countDown();
+        }
+
+        void awaitPublished() {
+            boolean interrupted = false;
+            while (true) {
+                try {
+                    published.await();
+                    break;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private final AtomicReference<Version> current = new AtomicReference<>(EMPTY);
+    private volatile Group open;
+
+    EmployeeVersions() {
+    }
+
+    // The first version holds records, which must not change while it is built
+    EmployeeVersions(Collection<Employee<T>> records) {
+        Object root = null;
+        int[] size = {0};
+        for (Employee<T> employee : records) {
+            root = with(root, 0, hash(employee.getEmployeeId()), new Frozen<>(employee), size);
+        }
+        current.set(new Version(root, size[0]));
+    }
+
+    Version current() {
+        return current.get();
+    }
+
+    Group open() {
+        Group group = new Group();
+        open = group;
+        return group;
+    }
+
+    // The open group another thread must wait for before writing employeeId.
+    // Checked under the record's entry lock, which the group's own write of
+    // it takes too, so the answer holds until that lock is released.
+    Group blocking(T employeeId) {
+        Group group = open;
+        return group != null && group.owner != Thread.currentThread() && group.ids.contains(employeeId)
+                ? group : null;
+    }
+
+    private Group owned() {
+        Group group = open;
+        return group != null && group.owner == Thread.currentThread() ? group : null;
+    }
+
+    // Publishes employee's current state. Concurrent writers of other records
+    // retry rather than wait; callers serialize writes to the same record.
+    void put(Employee<T> employee) {
+        Group group = owned();
+        if (group != null) {
+            group.write(employee.getEmployeeId(), employee);
+            return;
+        }
+        Frozen<T> record = new Frozen<>(employee);
+        int hash = hash(employee.getEmployeeId());
+        while (true) {
+            Version version = current.get();
+            int[] size = {version.size};
+            Object root = with(version.root, 0, hash, record, size);
+            if (current.compareAndSet(version, new Version(root, size[0]))) {
+                return;
+            }
+        }
+    }
+
+    // Publishes employee only if its id has no version yet, for filling in a
+    // database's records while writers may already be publishing theirs
+    void putIfAbsent(Employee<T> employee) {
+        Frozen<T> record = new Frozen<>(employee);
+        int hash = hash(employee.getEmployeeId());
+        while (true) {
+            Version version = current.get();
+            if (find(version.root, hash, employee.getEmployeeId()) != null) {
+                return;
+            }
+            int[] size = {version.size};
+            Object root = with(version.root, 0, hash, record, size);
+            if (current.compareAndSet(version, new Version(root, size[0]))) {
+                return;
+            }
+        }
+    }
+
+    void remove(T employeeId) {
+        Group group = owned();
+        if (group != null) {
+            group.write(employeeId, null);
+            return;
+        }
+        int hash = hash(employeeId);
+        while (true) {
+            Version version = current.get();
+            int[] size = {version.size};
+            Object root = without(version.root, 0, hash, employeeId, size);
+            if (root == version.root || current.compareAndSet(version, new Version(root, size[0]))) {
+                return;
+            }
+        }
+    }
+
+    // Publishes a group of writes as one version, so no snapshot sees part of
+    // it: final records, with null meaning removed
+    void putAll(Map<T, Employee<T>> changes) {
+        Map<T, Employee<T>> frozen = new HashMap<>();
+        changes.forEach((id, employee) -> frozen.put(id, employee == null ? null : new Frozen<>(employee)));
+        publishAll(frozen);
+    }
+
+    private void publishAll(Map<T, Employee<T>> records) {
+        while (true) {
+            Version version = current.get();
+            Object root = version.root;
+            int[] size = {version.size};
+            for (Map.Entry<T, Employee<T>> record : records.entrySet()) {
+                int hash = hash(record.getKey());
+                root = record.getValue() == null
+                        ? without(root, 0, hash, record.getKey(), size)
+                        : with(root, 0, hash, record.getValue(), size);
+            }
+            if (current.compareAndSet(version, new Version(root, size[0]))) {
+                return;
+            }
+        }
+    }
+
+    void clear() {
+        current.set(EMPTY);
+    }
+
+    private static int hash(Object id) {
+        int h = Objects.hashCode(id);
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    private static int index(int bitmap, int bit) {
+        return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> Employee<T> get(Version version, T employeeId) {
+        return (Employee<T>) find(version.root, hash(employeeId), employeeId);
+    }
+
+    private static Employee<?> find(Object slot, int hash, Object id) {
+        for (int shift = 0; slot != null; shift += BITS) {
+            if (slot instanceof Node) {
+                Node node = (Node) slot;
+                int bit = bit(hash, shift);
+                slot = (node.bitmap & bit) == 0 ? null : node.slots[index(node.bitmap, bit)];
+            } else if (slot instanceof Collision) {
+                for (Employee<?> record : ((Collision) slot).records) {
+                    if (Objects.equals(record.getEmployeeId(), id)) {
+                        return record;
+                    }
+                }
+                return null;
+            } else {
+                Employee<?> record = (Employee<?>) slot;
+                return Objects.equals(record.getEmployeeId(), id) ? record : null;
+            }
+        }
+        return null;
+    }
+
+    // Every record of version, in trie order
+    @SuppressWarnings("unchecked")
+    static <T> Employee<T>[] records(Version version) {
+        Employee<T>[] records = (Employee<T>[]) new Employee<?>[version.size];
+        int count = collect(version.root, records, 0);
+        assert count == records.length;
+        return records;
+    }
+
+    private static int collect(Object slot, Employee<?>[] into, int count) {
+        if (slot instanceof Node) {
+            for (Object child : ((Node) slot).slots) {
+                count = collect(child, into, count);
+            }
+        } else if (slot instanceof Collision) {
+            for (Employee<?> record : ((Collision) slot).records) {
+                into[count++] = record;
+            }
+        } else if (slot != null) {
+            into[count++] = (Employee<?>) slot;
+        }
+        return count;
+    }
+
+    private static int hashOf(Object slot) {
+        return slot instanceof Collision ? ((Collision) slot).hash : hash(((Employee<?>) slot).getEmployeeId());
+    }
+
+    // Returns slot with record in place of any record with its id; size[0]
+    // counts a record that wasn't there before
+    private static Object with(Object slot, int shift, int hash, Employee<?> record, int[] size) {
+        if (slot == null) {
+            size[0]++;
+            return record;
+        }
+        if (slot instanceof Node) {
+            Node node = (Node) slot;
+            int bit = bit(hash, shift);
+            int index = index(node.bitmap, bit);
+            if ((node.bitmap & bit) == 0) {
+                size[0]++;
+                Object[] slots = new Object[node.slots.length + 1];
+                System.arraycopy(node.slots, 0, slots, 0, index);
+                slots[index] = record;
+                System.arraycopy(node.slots, index, slots, index + 1, node.slots.length - index);
+                return new Node(node.bitmap | bit, slots);
+            }
+            Object[] slots = node.slots.clone();
+            slots[index] = with(slots[index], shift + BITS, hash, record, size);
+            return new Node(node.bitmap, slots);
+        }
+        if (slot instanceof Collision) {
+            Collision collision = (Collision) slot;
+            if (collision.hash != hash) {
+                size[0]++;
+                return split(slot, collision.hash, record, hash, shift);
+            }
+            Employee<?>[] records = collision.records;
+            for (int i = 0; i < records.length; i++) {
+                if (Objects.equals(records[i].getEmployeeId(), record.getEmployeeId())) {
+                    records = records.clone();
+                    records[i] = record;
+                    return new Collision(hash, records);
+                }
+            }
+            size[0]++;
+            records = Arrays.copyOf(records, records.length + 1);
+            records[records.length - 1] = record;
+            return new Collision(hash, records);
+        }
+        Employee<?> existing = (Employee<?>) slot;
+        if (Objects.equals(existing.getEmployeeId(), record.getEmployeeId())) {
+            return record;
+        }
+        size[0]++;
+        return split(existing, hashOf(existing), record, hash, shift);
+    }
+
+    // A subtree holding two entries that shared a slot at shift
+    private static Object split(Object a, int hashA, Object b, int hashB, int shift) {
+        if (hashA == hashB) {
+            return new Collision(hashA, new Employee<?>[]{(Employee<?>) a, (Employee<?>) b});
+        }
+        int bitA = bit(hashA, shift);
+        int bitB = bit(hashB, shift);
+        if (bitA == bitB) {
+            return new Node(bitA, new Object[]{split(a, hashA, b, hashB, shift + BITS)});
+        }
+        // Unsigned order: slot 31's bit is the sign bit
+        return new Node(bitA | bitB, Integer.compareUnsigned(bitA, bitB) < 0 ? new Object[]{a, b} : new Object[]{b, a});
+    }
+
+    // Returns slot without the record for id, or slot itself when it has none.
+    // A node left with one record or collision is replaced by it, so the trie
+    // stays as shallow as its contents need.
+    private static Object without(Object slot, int shift, int hash, Object id, int[] size) {
+        if (slot == null) {
+            return null;
+        }
+        if (slot instanceof Node) {
+            Node node = (Node) slot;
+            int bit = bit(hash, shift);
+            if ((node.bitmap & bit) == 0) {
+                return slot;
+            }
+            int index = index(node.bitmap, bit);
+            Object child = without(node.slots[index], shift + BITS, hash, id, size);
+            if (child == node.slots[index]) {
+                return slot;
+            }
+            if (child == null) {
+                if (node.slots.length == 1) {
+                    return null;
+                }
+                Object[] slots = new Object[node.slots.length - 1];
+                System.arraycopy(node.slots, 0, slots, 0, index);
+                System.arraycopy(node.slots, index + 1, slots, index, slots.length - index);
+                if (slots.length == 1 && !(slots[0] instanceof Node)) {
+                    return slots[0];
+                }
+                return new Node(node.bitmap & ~bit, slots);
+            }
+            if (node.slots.length == 1 && !(child instanceof Node)) {
+                return child;
+            }
+            Object[] slots = node.slots.clone();
+            slots[index] = child;
+            return new Node(node.bitmap, slots);
+        }
+        if (slot instanceof Collision) {
+            Collision collision = (Collision) slot;
+            Employee<?>[] records = collision.records;
+            for (int i = 0; i < records.length; i++) {
+                if (Objects.equals(records[i].getEmployeeId(), id)) {
+                    size[0]--;
+                    if (records.length == 2) {
+                        return records[1 - i];
+                    }
+                    Employee<?>[] rest = new Employee<?>[records.length - 1];
+                    System.arraycopy(records, 0, rest, 0, i);
+                    System.arraycopy(records, i + 1, rest, i, rest.length - i);
+                    return new Collision(collision.hash, rest);
+                }
+            }
+            return slot;
+        }
+        if (Objects.equals(((Employee<?>) slot).getEmployeeId(), id)) {
+            size[0]--;
+            return null;
+        }
+        return slot;
+    }
+}
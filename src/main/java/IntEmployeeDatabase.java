@@ -0,0 +1,37 @@
+package main.java;
+import java.util.Optional;
+
+// EmployeeDatabase specialised for int ids. Records are kept in an
+// open-addressing IntEmployeeMap instead of a HashMap, so the primary map
+// allocates no Integer keys or entry nodes, and the int overloads below look
+// employees up without boxing. The secondary indexes are EmployeeDatabase's
+// and still box each id, so writes and index queries cost what they do
+// there. Not thread-safe.
+public class IntEmployeeDatabase extends EmployeeDatabase<Integer> {
+    private final IntEmployeeMap records;
+
+    public IntEmployeeDatabase() {
+        this(new IntEmployeeMap());
+    }
+
+    private IntEmployeeDatabase(IntEmployeeMap records) {
+        super(records, Concurrency.SINGLE_THREADED);
+        this.records = records;
+    }
+
+    public Optional<Employee<Integer>> getEmployee(int employeeId) {
+        return timed(DatabaseOperation.GET_EMPLOYEE, () -> Optional.ofNullable(records.get(employeeId)));
+    }
+
+    public boolean containsEmployee(int employeeId) {
+        return timed(DatabaseOperation.CONTAINS_EMPLOYEE, () -> records.get(employeeId) != null);
+    }
+
+    public boolean removeEmployee(int employeeId) {
+        return timed(DatabaseOperation.REMOVE_EMPLOYEE, () -> {
+            Employee<Integer> employee = records.get(employeeId);
+            // Reuse the record's own Integer rather than boxing a new one
+            return employee != null && remove(employee.getEmployeeId());
+        });
+    }
+}
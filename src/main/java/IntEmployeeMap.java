@@ -0,0 +1,279 @@
+package main.java;
+import java.util.*;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+// Open-addressing map from an int employee id to its record. Keys sit in an
+// int[] and records in a parallel array, probed linearly, so there are no
+// Integer keys or per-entry nodes; removal shifts the following run back
+// instead of leaving tombstones. The int overloads never box, and the
+// compute methods the database writes through find their slot once. Only
+// this map is unboxed: the database's secondary indexes still hold Integer
+// ids, the same as for EmployeeDatabase<Integer>.
+class IntEmployeeMap extends AbstractMap<Integer, Employee<Integer>> {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private int[] keys;
+    private Employee<Integer>[] values;
+    private int size;
+    // Structural changes, to catch a mapping function that changes the map
+    private int modCount;
+    private int mask;
+    private int resizeAt;
+
+    IntEmployeeMap() {
+        allocate(INITIAL_CAPACITY);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void allocate(int capacity) {
+        keys = new int[capacity];
+        values = (Employee<Integer>[]) new Employee<?>[capacity];
+        mask = capacity - 1;
+        resizeAt = capacity / 4 * 3;
+    }
+
+    private int slotOf(int key) {
+        int h = key * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+    // Slot holding key, or the empty slot where it would be inserted
+    private int find(int key) {
+        int slot = slotOf(key);
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        Employee<Integer>[] oldValues = values;
+        allocate(oldKeys.length * 2);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = find(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    Employee<Integer> get(int key) {
+        return values[find(key)];
+    }
+
+    Employee<Integer> put(int key, Employee<Integer> value) {
+        Objects.requireNonNull(value);
+        int slot = find(key);
+        Employee<Integer> previous = values[slot];
+        if (previous == null) {
+            insert(slot, key, value);
+        } else {
+            values[slot] = value;
+        }
+        return previous;
+    }
+
+    // Fills the empty slot find(key) returned
+    private void insert(int slot, int key, Employee<Integer> value) {
+        keys[slot] = key;
+        values[slot] = value;
+        modCount++;
+        if (++size > resizeAt) {
+            grow();
+        }
+    }
+
+    Employee<Integer> remove(int key) {
+        int slot = find(key);
+        Employee<Integer> previous = values[slot];
+        if (previous != null) {
+            removeAt(slot);
+        }
+        return previous;
+    }
+
+    private void removeAt(int slot) {
+        // Backward-shift deletion keeps every probe chain unbroken
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (values[next] != null) {
+            int home = slotOf(keys[next]);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                keys[hole] = keys[next];
+                values[hole] = values[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        values[hole] = null;
+        size--;
+        modCount++;
+    }
+
+    private void checkUnchanged(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    @Override
+    public Employee<Integer> computeIfAbsent(Integer key,
+                                             Function<? super Integer, ? extends Employee<Integer>> mapping) {
+        int slot = find(key);
+        if (values[slot] != null) {
+            return values[slot];
+        }
+        int expectedModCount = modCount;
+        Employee<Integer> value = mapping.apply(key);
+        checkUnchanged(expectedModCount);
+        if (value != null) {
+            insert(slot, key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public Employee<Integer> computeIfPresent(Integer key, BiFunction<? super Integer, ? super Employee<Integer>,
+            ? extends Employee<Integer>> remapping) {
+        int slot = find(key);
+        Employee<Integer> current = values[slot];
+        if (current == null) {
+            return null;
+        }
+        int expectedModCount = modCount;
+        Employee<Integer> value = remapping.apply(key, current);
+        checkUnchanged(expectedModCount);
+        if (value == null) {
+            removeAt(slot);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public Employee<Integer> compute(Integer key, BiFunction<? super Integer, ? super Employee<Integer>,
+            ? extends Employee<Integer>> remapping) {
+        int slot = find(key);
+        Employee<Integer> current = values[slot];
+        int expectedModCount = modCount;
+        Employee<Integer> value = remapping.apply(key, current);
+        checkUnchanged(expectedModCount);
+        if (value == null) {
+            if (current != null) {
+                removeAt(slot);
+            }
+        } else if (current == null) {
+            insert(slot, key, value);
+        } else {
+            values[slot] = value;
+        }
+        return value;
+    }
+
+    @Override
+    public Employee<Integer> get(Object key) {
+        return key instanceof Integer ? get(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Employee<Integer> put(Integer key, Employee<Integer> value) {
+        return put(key.intValue(), value);
+    }
+
+    @Override
+    public Employee<Integer> remove(Object key) {
+        return key instanceof Integer ? remove(((Integer) key).intValue()) : null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+        modCount++;
+    }
+
+    @Override
+    public Collection<Employee<Integer>> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Employee<Integer>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    Employee<Integer> at(int slot) {
+                        return values[slot];
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public Set<Entry<Integer, Employee<Integer>>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<Entry<Integer, Employee<Integer>>> iterator() {
+                return new SlotIterator<>() {
+                    @Override
+                    Entry<Integer, Employee<Integer>> at(int slot) {
+                        return new SimpleImmutableEntry<>(keys[slot], values[slot]);
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        private final Employee<Integer>[] slots = values;
+        private final int expectedModCount = modCount;
+        private int next = advance(0);
+
+        private int advance(int from) {
+            while (from < slots.length && slots[from] == null) {
+                from++;
+            }
+            return from;
+        }
+
+        abstract E at(int slot);
+
+        @Override
+        public boolean hasNext() {
+            return next < slots.length;
+        }
+
+        @Override
+        public E next() {
+            checkUnchanged(expectedModCount);
+            if (next >= slots.length) {
+                throw new NoSuchElementException();
+            }
+            E element = at(next);
+            next = advance(next + 1);
+            return element;
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package main.java;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Calls to one operation, and their durations counted in log-linear buckets:
+// exact below 32ns, then 16 buckets per power of two, so a duration is known
+// to within 1/16 up to about 73 minutes. Every call is counted but only one in
+// sampleInterval is timed, since two clock reads can cost more than a lookup.
+// Threads record into one of a few stripes picked by thread id, so recording
+// is a few uncontended atomic adds and never a lock; a stripe is allocated the
+// first time a thread lands on it. Readers sum the stripes.
+final class LatencyRecorder {
+    static final long NOT_TIMED = Long.MIN_VALUE;
+    private static final int LINEAR = 32;
+    private static final int HALF = LINEAR / 2;
+    private static final long LARGEST = (1L << 42) - 1;
+    static final int BUCKETS = LINEAR + 37 * HALF;
+    private static final int STRIPES =
+            Integer.highestOneBit(Math.min(64, Runtime.getRuntime().availableProcessors()) * 2 - 1);
+
+    private static final int TOTAL = BUCKETS;
+    private static final int CALLS = BUCKETS + 1;
+
+    // BUCKETS counts, then the sum of the durations, then the calls
+    private final AtomicReferenceArray<AtomicLongArray> stripes = new AtomicReferenceArray<>(STRIPES);
+    private final long sampleMask;
+
+    // sampleInterval is a power of two
+    LatencyRecorder(int sampleInterval) {
+        this.sampleMask = sampleInterval - 1;
+    }
+
+    // Counts a call; the clock reading to pass to finished, or NOT_TIMED
+    long started() {
+        long calls = stripe().getAndIncrement(CALLS);
+        return (calls & sampleMask) == 0 ? System.nanoTime() : NOT_TIMED;
+    }
+
+    // Counts a call that isn't timed
+    void counted() {
+        stripe().getAndIncrement(CALLS);
+    }
+
+    void finished(long started) {
+        if (started != NOT_TIMED) {
+            record(System.nanoTime() - started);
+        }
+    }
+
+    void record(long nanos) {
+        AtomicLongArray stripe = stripe();
+        long value = Math.max(0, Math.min(nanos, LARGEST));
+        stripe.getAndIncrement(bucket(value));
+        stripe.getAndAdd(TOTAL, value);
+    }
+
+    long calls() {
+        long calls = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            AtomicLongArray stripe = stripes.get(i);
+            if (stripe != null) {
+                calls += stripe.get(CALLS);
+            }
+        }
+        return calls;
+    }
+
+    LatencySnapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < STRIPES; i++) {
+            AtomicLongArray stripe = stripes.get(i);
+            if (stripe != null) {
+                for (int bucket = 0; bucket < BUCKETS; bucket++) {
+                    counts[bucket] += stripe.get(bucket);
+                }
+                total += stripe.get(TOTAL);
+            }
+        }
+        return new LatencySnapshot(counts, total);
+    }
+
+    private AtomicLongArray stripe() {
+        long id = Thread.currentThread().getId();
+        int index = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32) & (STRIPES - 1);
+        AtomicLongArray stripe = stripes.get(index);
+        if (stripe == null) {
+            stripes.compareAndSet(index, null, new AtomicLongArray(BUCKETS + 2));
+            stripe = stripes.get(index);
+        }
+        return stripe;
+    }
+
+    static int bucket(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 4;
+        return LINEAR + (shift - 1) * HALF + (int) (value >>> shift) - HALF;
+    }
+
+    // The largest value that falls in bucket
+    static long highestValue(int bucket) {
+        if (bucket < LINEAR) {
+            return bucket;
+        }
+        int shift = (bucket - LINEAR) / HALF + 1;
+        long lowest = (long) ((bucket - LINEAR) % HALF + HALF) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
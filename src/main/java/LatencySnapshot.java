@@ -0,0 +1,69 @@
+package main.java;
+
+// The durations one or more operations took, as counted by LatencyRecorder up
+// to some moment. Snapshots are cumulative; subtract an earlier one to get the
+// durations in between. Percentiles are the top of the bucket they fall in,
+// so they may overstate by up to 1/16.
+public final class LatencySnapshot {
+    static final LatencySnapshot EMPTY = new LatencySnapshot(new long[LatencyRecorder.BUCKETS], 0);
+
+    private final long[] counts;
+    private final long totalNanos;
+
+    LatencySnapshot(long[] counts, long totalNanos) {
+        this.counts = counts;
+        this.totalNanos = totalNanos;
+    }
+
+    public long count() {
+        long count = 0;
+        for (long bucket : counts) {
+            count += bucket;
+        }
+        return count;
+    }
+
+    public double meanNanos() {
+        long count = count();
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    // The duration percentile percent of the recorded ones took at most, 0 when none were
+    public long percentileNanos(double percentile) {
+        long rank = (long) Math.ceil(count() * percentile / 100);
+        long seen = 0;
+        for (int bucket = 0; bucket < counts.length; bucket++) {
+            seen += counts[bucket];
+            if (seen > 0 && seen >= rank) {
+                return LatencyRecorder.highestValue(bucket);
+            }
+        }
+        return 0;
+    }
+
+    public long maxNanos() {
+        for (int bucket = counts.length - 1; bucket >= 0; bucket--) {
+            if (counts[bucket] > 0) {
+                return LatencyRecorder.highestValue(bucket);
+            }
+        }
+        return 0;
+    }
+
+    public LatencySnapshot plus(LatencySnapshot other) {
+        long[] sum = counts.clone();
+        for (int bucket = 0; bucket < sum.length; bucket++) {
+            sum[bucket] += other.counts[bucket];
+        }
+        return new LatencySnapshot(sum, totalNanos + other.totalNanos);
+    }
+
+    // What was recorded after earlier was taken
+    public LatencySnapshot minus(LatencySnapshot earlier) {
+        long[] difference = counts.clone();
+        for (int bucket = 0; bucket < difference.length; bucket++) {
+            difference[bucket] -= earlier.counts[bucket];
+        }
+        return new LatencySnapshot(difference, totalNanos - earlier.totalNanos);
+    }
+}
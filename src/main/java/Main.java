@@ -1,25 +1,45 @@
 package main.java;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.PauseTransition;
+import javafx.animation.Timeline;
 import javafx.application.Application;
-import javafx.collections.FXCollections;
-import javafx.collections.ObservableList;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.geometry.Insets;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
-import javafx.scene.control.cell.PropertyValueFactory;
 import javafx.scene.layout.*;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
-import java.util.HashMap;
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 
 public class Main extends Application {
-    // Employee database
-    private final EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+    // Employee database, kept on disk under the user's home directory
+    private static final Path DATA_DIRECTORY = Paths.get(System.getProperty("user.home"), ".employee-management");
+    // Seconds between metrics dumps to standard output; none unless set
+    private static final long METRICS_DUMP_SECONDS = Long.getLong("employee.metrics.dumpSeconds", 0);
+    private EmployeeDatabase<Integer> database;
+    private DurableEmployeeDatabase<Integer> durableDatabase;
+    // Searches and reports run here, off the FX thread; edits go through it too
+    private QueryExecutor<EmployeeDatabase<Integer>> queries;
+    private ObjectName metricsName;
+    private ScheduledFuture<?> metricsDump;
 
     // UI components
     private TableView<Employee<Integer>> employeeTable;
-    private ObservableList<Employee<Integer>> employeeData;
+    private EmployeeTableRows employeeRows;
     private ComboBox<String> sortComboBox;
     private ComboBox<String> filterComboBox;
     private TextField searchField;
@@ -31,17 +51,81 @@ public class Main extends Application {
     private TextField experienceField;
     private CheckBox activeCheckbox;
     private Label statusLabel;
+    private ProgressBar queryProgress;
+    private Label queryTimeLabel;
+    private Label latencyLabel;
+    private Timeline latencyUpdates;
+    private PauseTransition searchDelay;
 
     // Track the next available ID
     private int nextAvailableId = 1;
 
+    @Override
+    public void init() {
+        try {
+            durableDatabase = DurableEmployeeDatabase.open(DATA_DIRECTORY, EmployeeIdCodec.INTEGER);
+            database = durableDatabase;
+        } catch (IOException e) {
+            // Keep the application usable; edits just won't outlive this session
+            System.err.println("Could not open " + DATA_DIRECTORY + ", changes will not be saved: " + e);
+            database = new EmployeeDatabase<>();
+        }
+        metricsName = database.metrics().registerMBean("Main");
+        if (METRICS_DUMP_SECONDS > 0) {
+            metricsDump = database.metrics().dumpEvery(METRICS_DUMP_SECONDS, TimeUnit.SECONDS, System.out::print);
+        }
+    }
+
+    @Override
+    public void stop() throws IOException {
+        if (latencyUpdates != null) {
+            latencyUpdates.stop();
+        }
+        if (metricsDump != null) {
+            metricsDump.cancel(false);
+        }
+        if (metricsName != null) {
+            EmployeeMetrics.unregisterMBean(metricsName);
+        }
+        if (queries != null) {
+            queries.close();
+        }
+        if (durableDatabase != null) {
+            durableDatabase.close();
+        }
+    }
+
     @Override
     public void start(Stage primaryStage) {
         BorderPane root = new BorderPane();
         root.setPadding(new Insets(10));
 
-        // Add sample data
-        addSampleData();
+        // Add sample data on first launch, otherwise continue after the highest saved ID
+        if (database.getEmployeeCount() == 0) {
+            addSampleData();
+        } else {
+            nextAvailableId = database.stream().mapToInt(Employee::getEmployeeId).max().orElse(0) + 1;
+        }
+        queries = new QueryExecutor<>(database, Platform::runLater, new QueryExecutor.Listener() {
+            @Override
+            public void started(String label) {
+                queryProgress.setVisible(true);
+                queryTimeLabel.setText(label + "...");
+            }
+
+            @Override
+            public void finished(String label, long elapsedNanos) {
+                queryProgress.setVisible(false);
+                queryTimeLabel.setText(String.format("%s took %.1f ms", label, elapsedNanos / 1e6));
+            }
+
+            @Override
+            public void failed(String label, RuntimeException error) {
+                queryProgress.setVisible(false);
+                queryTimeLabel.setText(label + " failed");
+                showAlert(label + " failed: " + error.getMessage());
+            }
+        });
 
         // Create components
         HBox topControls = createTopControls();
@@ -56,6 +140,7 @@ public class Main extends Application {
         primaryStage.setTitle("Employee Management System");
         primaryStage.setScene(scene);
         primaryStage.show();
+        applyFiltersAndSort();
     }
 
     private HBox createTopControls() {
@@ -65,6 +150,10 @@ public class Main extends Application {
         Label searchLabel = new Label("Search:");
         searchField = new TextField();
         searchField.setPrefWidth(150);
+        // Search as you type, once typing pauses
+        searchDelay = new PauseTransition(Duration.millis(250));
+        searchDelay.setOnFinished(e -> applyFiltersAndSort());
+        searchField.textProperty().addListener((obs, oldText, newText) -> searchDelay.playFromStart());
 
         Label sortLabel = new Label("Sort by:");
         sortComboBox = new ComboBox<>();
@@ -82,7 +171,10 @@ public class Main extends Application {
         filterComboBox.setValue("All Employees");
 
         Button applyButton = new Button("Apply");
-        applyButton.setOnAction(e -> applyFiltersAndSort());
+        applyButton.setOnAction(e -> {
+            searchDelay.stop();
+            applyFiltersAndSort();
+        });
 
         topBar.getChildren().addAll(
                 searchLabel, searchField, sortLabel, sortComboBox,
@@ -102,40 +194,22 @@ public class Main extends Application {
         employeeTable = new TableView<>();
         employeeTable.setPrefHeight(450);
 
-        TableColumn<Employee<Integer>, Integer> idCol = new TableColumn<>("ID");
-        idCol.setCellValueFactory(new PropertyValueFactory<>("employeeId"));
-        idCol.setPrefWidth(40);
-
-        TableColumn<Employee<Integer>, String> nameCol = new TableColumn<>("Name");
-        nameCol.setCellValueFactory(new PropertyValueFactory<>("name"));
-        nameCol.setPrefWidth(120);
-
-        TableColumn<Employee<Integer>, String> deptCol = new TableColumn<>("Department");
-        deptCol.setCellValueFactory(new PropertyValueFactory<>("department"));
-        deptCol.setPrefWidth(100);
-
-        TableColumn<Employee<Integer>, Double> salaryCol = new TableColumn<>("Salary");
-        salaryCol.setCellValueFactory(new PropertyValueFactory<>("salary"));
-        salaryCol.setPrefWidth(80);
-
-        TableColumn<Employee<Integer>, Double> ratingCol = new TableColumn<>("Rating");
-        ratingCol.setCellValueFactory(new PropertyValueFactory<>("performanceRating"));
-        ratingCol.setPrefWidth(60);
-
-        TableColumn<Employee<Integer>, Integer> expCol = new TableColumn<>("Experience");
-        expCol.setCellValueFactory(new PropertyValueFactory<>("yearsOfExperience"));
-        expCol.setPrefWidth(80);
+        TableColumn<Employee<Integer>, Integer> idCol = column("ID", 40, Employee::getEmployeeId);
+        TableColumn<Employee<Integer>, String> nameCol = column("Name", 120, Employee::getName);
+        TableColumn<Employee<Integer>, String> deptCol = column("Department", 100, Employee::getDepartment);
+        TableColumn<Employee<Integer>, Double> salaryCol = column("Salary", 80, Employee::getSalary);
+        TableColumn<Employee<Integer>, Double> ratingCol = column("Rating", 60, Employee::getPerformanceRating);
+        TableColumn<Employee<Integer>, Integer> expCol = column("Experience", 80, Employee::getYearsOfExperience);
+        TableColumn<Employee<Integer>, Boolean> activeCol = column("Active", 60, Employee::isActive);
 
-        TableColumn<Employee<Integer>, Boolean> activeCol = new TableColumn<>("Active");
-        activeCol.setCellValueFactory(new PropertyValueFactory<>("active"));
-        activeCol.setPrefWidth(60);
-
-        employeeTable.getColumns().addAll(
+        employeeTable.getColumns().addAll(List.of(
                 idCol, nameCol, deptCol, salaryCol, ratingCol, expCol, activeCol
-        );
+        ));
 
-        employeeData = FXCollections.observableArrayList(database.getAllEmployees());
-        employeeTable.setItems(employeeData);
+        // Rows are looked up as the table draws them rather than copied in;
+        // the first search fills them once the window is up
+        employeeRows = new EmployeeTableRows(database);
+        employeeTable.setItems(employeeRows);
 
         employeeTable.getSelectionModel().selectedItemProperty().addListener(
                 (obs, oldVal, newVal) -> {
@@ -238,12 +312,49 @@ public class Main extends Application {
         return container;
     }
 
+    // A column reading its value straight off the record. Not sortable by
+    // header click: the rows are ordered by the query behind them.
+    private static <V> TableColumn<Employee<Integer>, V> column(String title, double width,
+                                                               Function<Employee<Integer>, V> value) {
+        TableColumn<Employee<Integer>, V> column = new TableColumn<>(title);
+        column.setCellValueFactory(cell -> new ReadOnlyObjectWrapper<>(
+                cell.getValue() == null ? null : value.apply(cell.getValue())));
+        column.setPrefWidth(width);
+        column.setSortable(false);
+        return column;
+    }
+
     private HBox createStatusBar() {
         HBox statusBar = new HBox(10);
         statusBar.setPadding(new Insets(10, 0, 0, 0));
 
         statusLabel = new Label("Ready. " + database.getEmployeeCount() + " employees loaded.");
-        statusBar.getChildren().add(statusLabel);
+
+        // Shown while a search or report runs, then how long it took
+        Region spacer = new Region();
+        HBox.setHgrow(spacer, Priority.ALWAYS);
+        queryProgress = new ProgressBar(ProgressBar.INDETERMINATE_PROGRESS);
+        queryProgress.setPrefWidth(100);
+        queryProgress.setVisible(false);
+        queryTimeLabel = new Label();
+
+        // Live latency of the database's queries over the last second
+        latencyLabel = new Label();
+        LatencySnapshot[] previous = {database.metrics().latency(DatabaseOperation.Kind.QUERY)};
+        latencyUpdates = new Timeline(new KeyFrame(Duration.seconds(1), e -> {
+            LatencySnapshot current = database.metrics().latency(DatabaseOperation.Kind.QUERY);
+            LatencySnapshot lastSecond = current.minus(previous[0]);
+            previous[0] = current;
+            if (lastSecond.count() > 0) {
+                latencyLabel.setText(String.format("Queries: %d/s, p50 %s, p99 %s", lastSecond.count(),
+                        EmployeeMetrics.duration(lastSecond.percentileNanos(50)),
+                        EmployeeMetrics.duration(lastSecond.percentileNanos(99))));
+            }
+        }));
+        latencyUpdates.setCycleCount(Animation.INDEFINITE);
+        latencyUpdates.play();
+
+        statusBar.getChildren().addAll(statusLabel, spacer, queryProgress, queryTimeLabel, latencyLabel);
 
         return statusBar;
     }
@@ -296,7 +407,8 @@ public class Main extends Application {
                 Employee<Integer> newEmployee = new Employee<>(
                         nextAvailableId, name, department, salary, rating, experience, isActive
                 );
-                database.addEmployee(newEmployee);
+                queries.write(db -> db.addEmployee(newEmployee));
+                employeeRows.changed(null, newEmployee);
                 updateStatus("Employee added: " + name);
 
                 // Increment the next available ID
@@ -307,12 +419,16 @@ public class Main extends Application {
                 Employee<Integer> updatedEmployee = new Employee<>(
                         id, name, department, salary, rating, experience, isActive
                 );
-                database.removeEmployee(id);
-                database.addEmployee(updatedEmployee);
+                // The record it replaces, which the table reports as the row removed
+                Employee<Integer> previous = queries.write(db -> {
+                    Employee<Integer> current = db.getEmployee(id).orElse(null);
+                    db.upsertEmployee(updatedEmployee);
+                    return current;
+                });
+                employeeRows.changed(previous, updatedEmployee);
                 updateStatus("Employee updated: " + name);
             }
 
-            refreshTable();
             clearForm();
 
         } catch (NumberFormatException e) {
@@ -324,8 +440,8 @@ public class Main extends Application {
         Employee<Integer> selected = employeeTable.getSelectionModel().getSelectedItem();
         if (selected != null) {
             // Remove the employee
-            database.removeEmployee(selected.getEmployeeId());
-            refreshTable();
+            queries.write(db -> db.removeEmployee(selected.getEmployeeId()));
+            employeeRows.removed(selected);
             clearForm();
             updateStatus("Employee removed: " + selected.getName());
 
@@ -336,100 +452,100 @@ public class Main extends Application {
     }
 
     private void applyFiltersAndSort() {
-        List<Employee<Integer>> filteredEmployees;
+        EmployeeQuery query = new EmployeeQuery();
 
         // Apply filters
         String filterValue = filterComboBox.getValue();
-        filteredEmployees = switch (filterValue) {
-            case "Active Only" -> database.filterEmployees(Employee::isActive);
-            case "High Performers (≥4.0)" -> database.getEmployeesByMinRating(4.0);
-            case "IT Department" -> database.getEmployeesByDepartment("IT");
-            case "HR Department" -> database.getEmployeesByDepartment("HR");
-            case "Finance Department" -> database.getEmployeesByDepartment("Finance");
-            default -> database.getAllEmployees();
-        };
+        switch (filterValue) {
+            case "Active Only" -> query.active(true);
+            case "High Performers (≥4.0)" -> query.minRating(4.0);
+            case "IT Department" -> query.department("IT");
+            case "HR Department" -> query.department("HR");
+            case "Finance Department" -> query.department("Finance");
+            default -> { }
+        }
 
         // Apply search if text exists
         String searchText = searchField.getText().trim();
         if (!searchText.isEmpty()) {
-            filteredEmployees = filteredEmployees.stream()
-                    .filter(e -> e.getName().toLowerCase().contains(searchText.toLowerCase()))
-                    .toList();
+            query.nameContains(searchText);
         }
 
         // Apply sorting
         String sortValue = sortComboBox.getValue();
-        filteredEmployees = switch (sortValue) {
-            case "Name" -> filteredEmployees.stream()
-                    .sorted(new EmployeeComparators.EmployeeNameComparator<>())
-                    .toList();
-            case "Department" -> filteredEmployees.stream()
-                    .sorted(new EmployeeComparators.EmployeeDepartmentComparator<>())
-                    .toList();
-            case "Salary" -> filteredEmployees.stream()
-                    .sorted(new EmployeeComparators.EmployeeSalaryComparator<>())
-                    .toList();
-            case "Performance" -> filteredEmployees.stream()
-                    .sorted(new EmployeeComparators.EmployeePerformanceComparator<>())
-                    .toList();
-            case "Experience" -> filteredEmployees.stream()
-                    .sorted()
-                    .toList();
-            default -> filteredEmployees;
-        };
-
-        employeeData.setAll(filteredEmployees);
-        updateStatus("Found " + filteredEmployees.size() + " employees matching criteria");
+        switch (sortValue) {
+            case "Name" -> query.orderBy(EmployeeOrder.NAME);
+            case "Department" -> query.orderBy(EmployeeOrder.DEPARTMENT);
+            case "Salary" -> query.orderBy(EmployeeOrder.SALARY);
+            case "Performance" -> query.orderBy(EmployeeOrder.PERFORMANCE);
+            case "Experience" -> query.orderBy(EmployeeOrder.EXPERIENCE);
+            default -> { }
+        }
+
+        // The database picks the cheapest index for the combined conditions
+        showQuery("Search", query, count -> "Found " + count + " employees matching criteria");
+    }
+
+    // Runs query in the background, replacing any search still running, and
+    // shows its rows once it's done
+    private void showQuery(String label, EmployeeQuery query, IntFunction<String> status) {
+        queries.submit(label, db -> EmployeeTableRows.matchingIds(db, query), ids -> {
+            employeeRows.show(query, ids);
+            updateStatus(status.apply(ids.length));
+        });
     }
 
     private void showTopPaid() {
-        List<Employee<Integer>> topPaid = database.getTopNHighestPaidEmployees(5);
-        employeeData.setAll(topPaid);
-        updateStatus("Showing top 5 highest paid employees");
+        queries.submit("Top paid", db -> db.getTopNHighestPaidEmployees(5), topPaid -> {
+            employeeRows.show(topPaid);
+            updateStatus("Showing top 5 highest paid employees");
+        });
     }
 
     private void showTopPerformers() {
-        List<Employee<Integer>> topPerformers = database.getEmployeesByMinRating(4.5);
-        employeeData.setAll(topPerformers);
-        updateStatus("Showing employees with rating ≥ 4.5");
+        showQuery("Top performers", new EmployeeQuery().minRating(4.5), count -> "Showing employees with rating ≥ 4.5");
     }
 
     private void giveRaise() {
-        int count = database.giveSalaryRaise(4.5, 10);
-        refreshTable();
-        updateStatus("Gave 10% raise to " + count + " top performers");
+        int count = queries.write(db -> db.giveSalaryRaise(4.5, 10));
+        EmployeeQuery shown = employeeRows.query();
+        if (shown != null && (shown.order() == EmployeeOrder.SALARY || shown.hasSalaryRange())) {
+            // Raises can reorder the rows or move them in or out of the range
+            showQuery("Search", shown, matches -> "Gave 10% raise to " + count + " top performers");
+        } else {
+            // Rows stay put; only the salaries on screen need redrawing
+            employeeTable.refresh();
+            updateStatus("Gave 10% raise to " + count + " top performers");
+        }
     }
 
     private void generateDepartmentReport() {
-        // Example of using iterators and streaming for report generation
-        StringBuilder report = new StringBuilder("Department Report:\n\n");
-
-        // Get department statistics using streams
-        Map<String, Long> deptCounts = database.getDepartmentCounts();
-        Map<String, Double> avgSalaries = new HashMap<>();
+        queries.submit("Department report", Main::departmentReport, this::showDepartmentReport);
+    }
 
-        // Calculate average salary per department
-        for (String dept : deptCounts.keySet()) {
-            double avgSalary = database.calculateAverageSalaryByDepartment(dept);
-            avgSalaries.put(dept, avgSalary);
-        }
+    private static String departmentReport(EmployeeDatabase<Integer> database) {
+        StringBuilder report = new StringBuilder("Department Report:\n\n");
 
-        // Generate report using iterator
-        for (String dept : deptCounts.keySet()) {
-            long count = deptCounts.get(dept);
-            double avgSalary = avgSalaries.get(dept);
+        // Per-department totals are kept up to date by the database
+        Map<String, DepartmentStats> statistics = new TreeMap<>(database.getDepartmentStatistics());
 
-            report.append(String.format("Department: %s\n", dept));
-            report.append(String.format("- Employee Count: %d\n", count));
-            report.append(String.format("- Average Salary: $%.2f\n\n", avgSalary));
+        for (DepartmentStats stats : statistics.values()) {
+            report.append(String.format("Department: %s\n", stats.getDepartment()));
+            report.append(String.format("- Employee Count: %d (%d active)\n", stats.getCount(), stats.getActiveCount()));
+            report.append(String.format("- Average Salary: $%.2f\n", stats.getAverageSalary()));
+            report.append(String.format("- Salary Range: $%.2f - $%.2f\n", stats.getMinSalary(), stats.getMaxSalary()));
+            report.append(String.format("- Average Rating: %.2f\n\n", stats.getAverageRating()));
         }
+        return report.toString();
+    }
 
+    private void showDepartmentReport(String report) {
         // Display report in a dialog
         Alert reportDialog = new Alert(Alert.AlertType.INFORMATION);
         reportDialog.setTitle("Department Report");
         reportDialog.setHeaderText("Employee Statistics by Department");
 
-        TextArea textArea = new TextArea(report.toString());
+        TextArea textArea = new TextArea(report);
         textArea.setEditable(false);
         textArea.setWrapText(true);
         textArea.setPrefHeight(300);
@@ -439,10 +555,6 @@ public class Main extends Application {
         reportDialog.showAndWait();
     }
 
-    private void refreshTable() {
-        employeeData.setAll(database.getAllEmployees());
-    }
-
     private void updateStatus(String message) {
         statusLabel.setText(message + " (" + database.getEmployeeCount() + " total employees)");
     }
@@ -456,17 +568,10 @@ public class Main extends Application {
     }
 
     private void addSampleData() {
-<<<<<<< HEAD
         database.addEmployee(new Employee<>(1, "Emmanuel Arhu", "IT", 75000, 4.5, 5, true));
         database.addEmployee(new Employee<>(2, "Sarah Johnson", "HR", 65000, 4.7, 7, true));
         database.addEmployee(new Employee<>(3, "Michael Brown", "Finance", 82000, 3.9, 4, true));
         database.addEmployee(new Employee<>(4, "Emily Davis", "IT", 78000, 4.2, 6, true));
-=======
-        database.addEmployee(new Employee<>(1, "John Smith", "IT", 75000, 4.2, 5, true));
-        database.addEmployee(new Employee<>(2, "Sarah Johnson", "HR", 65000, 4.7, 7, true));
-        database.addEmployee(new Employee<>(3, "Michael Brown", "Finance", 82000, 3.9, 4, true));
-        database.addEmployee(new Employee<>(4, "Emily Davis", "IT", 78000, 4.5, 6, true));
->>>>>>> master
         database.addEmployee(new Employee<>(5, "David Wilson", "Marketing", 61000, 4.0, 3, true));
         database.addEmployee(new Employee<>(6, "Jennifer Taylor", "HR", 59000, 3.8, 2, false));
         database.addEmployee(new Employee<>(7, "Robert Martinez", "Finance", 85000, 4.6, 8, true));
@@ -0,0 +1,469 @@
+package main.java;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Off-heap EmployeeStore for int ids, kept in three memory-mapped files next to
+// a base path:
+//   .records  header, then one fixed-width record per employee, dense by row
+//   .strings  append-only UTF-8 names and departments that records point into
+//   .index    open-addressing table from employee id to row
+// The heap holds only a small department-string cache. Queries scan the
+// mapped records and create Employee objects just for the rows they return.
+// Reopening maps the files and reads the header, so it takes the same time
+// at any size. Replaced strings are not reclaimed. Not thread-safe.
+public class MappedEmployeeStore implements EmployeeStore<Integer>, Closeable {
+    private static final int MAGIC = 0x454D5053;
+    private static final int VERSION = 1;
+
+    // Header of the .records file
+    private static final long HEADER_SIZE = 64;
+    private static final long ROW_COUNT = 8;
+    private static final long INDEX_SIZE = 12;
+    private static final long STRING_END = 16;
+    private static final long INDEX_CAPACITY = 24;
+
+    // Record layout; every field is aligned to its own size
+    private static final int RECORD_SIZE = 48;
+    private static final int ID = 0;
+    private static final int FLAGS = 4;
+    private static final int NAME = 8;
+    private static final int DEPARTMENT = 16;
+    private static final int SALARY = 24;
+    private static final int RATING = 32;
+    private static final int EXPERIENCE = 40;
+    private static final byte ACTIVE = 1;
+
+    private static final long NO_STRING = -1;
+    private static final int SLOT_SIZE = 8;
+    private static final int INITIAL_INDEX_CAPACITY = 1024;
+
+    private final MappedRegion records;
+    private final MappedRegion strings;
+    private final MappedRegion index;
+    private final Map<String, Long> departmentRefs;
+
+    private int rowCount;
+    private int indexSize;
+    private int indexCapacity;
+    private long stringEnd;
+
+    public MappedEmployeeStore(Path basePath) throws IOException {
+        this.records = new MappedRegion(basePath.resolveSibling(basePath.getFileName() + ".records"));
+        this.strings = new MappedRegion(basePath.resolveSibling(basePath.getFileName() + ".strings"));
+        this.index = new MappedRegion(basePath.resolveSibling(basePath.getFileName() + ".index"));
+        this.departmentRefs = new HashMap<>();
+
+        int magic = records.getInt(0);
+        if (magic == 0) {
+            records.putInt(0, MAGIC);
+            records.putInt(4, VERSION);
+            indexCapacity = INITIAL_INDEX_CAPACITY;
+            index.ensureSize((long) indexCapacity * SLOT_SIZE);
+            writeHeader();
+        } else if (magic != MAGIC || records.getInt(4) != VERSION) {
+            throw new IOException("Not an employee store: " + basePath);
+        } else {
+            rowCount = records.getInt(ROW_COUNT);
+            indexSize = records.getInt(INDEX_SIZE);
+            stringEnd = records.getLong(STRING_END);
+            indexCapacity = records.getInt(INDEX_CAPACITY);
+        }
+    }
+
+    private void writeHeader() {
+        records.putInt(ROW_COUNT, rowCount);
+        records.putInt(INDEX_SIZE, indexSize);
+        records.putLong(STRING_END, stringEnd);
+        records.putInt(INDEX_CAPACITY, indexCapacity);
+    }
+
+    private static long recordAt(int row) {
+        return HEADER_SIZE + (long) row * RECORD_SIZE;
+    }
+
+    // String area
+
+    private long appendString(String value) {
+        if (value == null) {
+            return NO_STRING;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        long ref = stringEnd;
+        strings.ensureSize(ref + 4 + bytes.length);
+        strings.putInt(ref, bytes.length);
+        strings.put(ref + 4, bytes);
+        // Keep length prefixes int-aligned
+        stringEnd = (ref + 4 + bytes.length + 3) & ~3L;
+        return ref;
+    }
+
+    private String readString(long ref) {
+        if (ref == NO_STRING) {
+            return null;
+        }
+        byte[] bytes = new byte[strings.getInt(ref)];
+        strings.get(ref + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private long departmentRef(String department) {
+        if (department == null) {
+            return NO_STRING;
+        }
+        Long ref = departmentRefs.get(department);
+        if (ref == null) {
+            ref = appendString(department);
+            departmentRefs.put(department, ref);
+        }
+        return ref;
+    }
+
+    // Id index: linear probing over (id, row + 1) slots, 0 marking an empty slot
+
+    private int slotOf(int id) {
+        int h = id * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & (indexCapacity - 1);
+    }
+
+    private int findSlot(int id) {
+        int mask = indexCapacity - 1;
+        int slot = slotOf(id);
+        while (index.getInt((long) slot * SLOT_SIZE + 4) != 0
+                && index.getInt((long) slot * SLOT_SIZE) != id) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int rowOf(int id) {
+        return index.getInt((long) findSlot(id) * SLOT_SIZE + 4) - 1;
+    }
+
+    private void setRow(int id, int row) {
+        long slot = (long) findSlot(id) * SLOT_SIZE;
+        if (index.getInt(slot + 4) == 0) {
+            indexSize++;
+        }
+        index.putInt(slot, id);
+        index.putInt(slot + 4, row + 1);
+    }
+
+    private void removeFromIndex(int id) {
+        int mask = indexCapacity - 1;
+        int hole = findSlot(id);
+        int next = (hole + 1) & mask;
+        while (index.getInt((long) next * SLOT_SIZE + 4) != 0) {
+            int key = index.getInt((long) next * SLOT_SIZE);
+            int home = slotOf(key);
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                index.putLong((long) hole * SLOT_SIZE, index.getLong((long) next * SLOT_SIZE));
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        index.putLong((long) hole * SLOT_SIZE, 0L);
+        indexSize--;
+    }
+
+    // Doubles the table and re-inserts every id from the records
+    private void growIndex() {
+        indexCapacity *= 2;
+        index.ensureSize((long) indexCapacity * SLOT_SIZE);
+        index.fill(0, (long) indexCapacity * SLOT_SIZE);
+        indexSize = 0;
+        for (int row = 0; row < rowCount; row++) {
+            setRow(records.getInt(recordAt(row) + ID), row);
+        }
+    }
+
+    // Records
+
+    private Employee<Integer> materialize(int row) {
+        long record = recordAt(row);
+        return new Employee<>(records.getInt(record + ID),
+                readString(records.getLong(record + NAME)),
+                readString(records.getLong(record + DEPARTMENT)),
+                records.getDouble(record + SALARY),
+                records.getDouble(record + RATING),
+                records.getInt(record + EXPERIENCE),
+                (records.getByte(record + FLAGS) & ACTIVE) != 0);
+    }
+
+    private List<Employee<Integer>> materialize(int[] rows, int count) {
+        List<Employee<Integer>> result = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            result.add(materialize(rows[i]));
+        }
+        return result;
+    }
+
+    // Collects the rows in a department, returning how many there are. A
+    // per-query memo decodes each distinct department string only once.
+    private int departmentRows(String department, int[] rows) {
+        Map<Long, Boolean> matches = new HashMap<>();
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            long ref = records.getLong(recordAt(row) + DEPARTMENT);
+            Boolean match = matches.get(ref);
+            if (match == null) {
+                String name = readString(ref);
+                match = name != null && name.equalsIgnoreCase(department);
+                matches.put(ref, match);
+            }
+            if (match) {
+                rows[count++] = row;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean addEmployee(Employee<Integer> employee) {
+        int id = employee.getEmployeeId();
+        if (rowOf(id) >= 0) {
+            return false;
+        }
+        if ((indexSize + 1) * 4L > indexCapacity * 3L) {
+            growIndex();
+        }
+        int row = rowCount;
+        long record = recordAt(row);
+        records.ensureSize(record + RECORD_SIZE);
+        records.putInt(record + ID, id);
+        records.putByte(record + FLAGS, employee.isActive() ? ACTIVE : 0);
+        records.putLong(record + NAME, appendString(employee.getName()));
+        records.putLong(record + DEPARTMENT, departmentRef(employee.getDepartment()));
+        records.putDouble(record + SALARY, employee.getSalary());
+        records.putDouble(record + RATING, employee.getPerformanceRating());
+        records.putInt(record + EXPERIENCE, employee.getYearsOfExperience());
+        setRow(id, row);
+        rowCount++;
+        writeHeader();
+        return true;
+    }
+
+    @Override
+    public boolean removeEmployee(Integer employeeId) {
+        int row = rowOf(employeeId);
+        if (row < 0) {
+            return false;
+        }
+        removeFromIndex(employeeId);
+        int last = rowCount - 1;
+        if (row != last) {
+            // Move the last record into the hole to keep rows dense
+            long from = recordAt(last);
+            long to = recordAt(row);
+            for (int offset = 0; offset < RECORD_SIZE; offset += 8) {
+                records.putLong(to + offset, records.getLong(from + offset));
+            }
+            setRow(records.getInt(to + ID), row);
+        }
+        rowCount--;
+        writeHeader();
+        return true;
+    }
+
+    @Override
+    public Optional<Employee<Integer>> getEmployee(Integer employeeId) {
+        int row = rowOf(employeeId);
+        return row < 0 ? Optional.empty() : Optional.of(materialize(row));
+    }
+
+    @Override
+    public void updateEmployee(Integer employeeId, EmployeeUpdate update) {
+        int row = rowOf(employeeId);
+        if (row < 0) {
+            throw new EmployeeNotFoundException("No employee with id " + employeeId);
+        }
+        long record = recordAt(row);
+        switch (update.field()) {
+            case NAME:
+                records.putLong(record + NAME, appendString(update.textValue()));
+                writeHeader();
+                break;
+            case DEPARTMENT:
+                records.putLong(record + DEPARTMENT, departmentRef(update.textValue()));
+                writeHeader();
+                break;
+            case SALARY:
+                records.putDouble(record + SALARY, update.doubleValue());
+                break;
+            case PERFORMANCE_RATING:
+                records.putDouble(record + RATING, update.doubleValue());
+                break;
+            case YEARS_OF_EXPERIENCE:
+                records.putInt(record + EXPERIENCE, update.intValue());
+                break;
+            case IS_ACTIVE:
+                records.putByte(record + FLAGS, update.booleanValue() ? ACTIVE : 0);
+                break;
+        }
+    }
+
+    // Materializes rows as the stream reaches them; splits evenly by row range
+    @Override
+    public Stream<Employee<Integer>> stream() {
+        return IntStream.range(0, rowCount).mapToObj(this::materialize);
+    }
+
+    @Override
+    public Iterator<Employee<Integer>> getEmployeeIterator() {
+        return stream().iterator();
+    }
+
+    @Override
+    public List<Employee<Integer>> getAllEmployees() {
+        List<Employee<Integer>> result = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            result.add(materialize(row));
+        }
+        return result;
+    }
+
+    @Override
+    public List<Employee<Integer>> getEmployeesByDepartment(String department) {
+        int[] rows = new int[rowCount];
+        return materialize(rows, departmentRows(department, rows));
+    }
+
+    @Override
+    public List<Employee<Integer>> searchEmployeesByName(String searchTerm) {
+        String query = NameIndex.fold(searchTerm);
+        int[] rows = new int[rowCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            String name = readString(records.getLong(recordAt(row) + NAME));
+            if (name != null && NameIndex.fold(name).contains(query)) {
+                rows[count++] = row;
+            }
+        }
+        return materialize(rows, count);
+    }
+
+    @Override
+    public List<Employee<Integer>> getEmployeesByMinRating(double minRating) {
+        int[] rows = new int[rowCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (records.getDouble(recordAt(row) + RATING) >= minRating) {
+                rows[count++] = row;
+            }
+        }
+        return materialize(rows, count);
+    }
+
+    @Override
+    public List<Employee<Integer>> getEmployeesBySalaryRange(double minSalary, double maxSalary) {
+        int[] rows = new int[rowCount];
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            double salary = records.getDouble(recordAt(row) + SALARY);
+            if (salary >= minSalary && salary <= maxSalary) {
+                rows[count++] = row;
+            }
+        }
+        return materialize(rows, count);
+    }
+
+    @Override
+    public int giveSalaryRaise(double minRating, double percentage) {
+        double factor = 1 + percentage / 100;
+        int count = 0;
+        for (int row = 0; row < rowCount; row++) {
+            long record = recordAt(row);
+            if (records.getDouble(record + RATING) >= minRating) {
+                records.putDouble(record + SALARY, records.getDouble(record + SALARY) * factor);
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public List<Employee<Integer>> getTopNHighestPaidEmployees(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException(Integer.toString(n));
+        }
+        PriorityQueue<double[]> top = new PriorityQueue<>(Math.max(1, Math.min(n, rowCount)),
+                (a, b) -> Double.compare(a[0], b[0]));
+        for (int row = 0; row < rowCount && n > 0; row++) {
+            double salary = records.getDouble(recordAt(row) + SALARY);
+            if (top.size() < n) {
+                top.add(new double[]{salary, row});
+            } else if (salary > top.peek()[0]) {
+                top.poll();
+                top.add(new double[]{salary, row});
+            }
+        }
+        List<Employee<Integer>> result = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            result.add(materialize((int) top.poll()[1]));
+        }
+        Collections.reverse(result);
+        return result;
+    }
+
+    @Override
+    public double calculateAverageSalaryByDepartment(String department) {
+        int[] rows = new int[rowCount];
+        int count = departmentRows(department, rows);
+        double total = 0;
+        for (int i = 0; i < count; i++) {
+            total += records.getDouble(recordAt(rows[i]) + SALARY);
+        }
+        return count == 0 ? 0 : total / count;
+    }
+
+    @Override
+    public int getEmployeeCount() {
+        return rowCount;
+    }
+
+    @Override
+    public Map<String, Long> getDepartmentCounts() {
+        Map<Long, Long> countsByRef = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            countsByRef.merge(records.getLong(recordAt(row) + DEPARTMENT), 1L, Long::sum);
+        }
+        // The same name may sit at several refs when it was written in earlier sessions
+        Map<String, Long> result = new HashMap<>();
+        for (Map.Entry<Long, Long> entry : countsByRef.entrySet()) {
+            String department = readString(entry.getKey());
+            if (department != null) {
+                result.merge(department, entry.getValue(), Long::sum);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void clearDatabase() {
+        rowCount = 0;
+        indexSize = 0;
+        stringEnd = 0;
+        departmentRefs.clear();
+        index.fill(0, (long) indexCapacity * SLOT_SIZE);
+        writeHeader();
+    }
+
+    public void flush() {
+        writeHeader();
+        records.force();
+        strings.force();
+        index.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeHeader();
+        records.close();
+        strings.close();
+        index.close();
+    }
+}
@@ -0,0 +1,136 @@
+package main.java;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// A file mapped into memory as a run of fixed-size segments, so it can grow past
+// the 2 GB limit of a single MappedByteBuffer. Primitive reads and writes must
+// be aligned to their own size so they never straddle two segments; byte-array
+// transfers may.
+class MappedRegion implements Closeable {
+    private static final int SEGMENT_BITS = 30;
+    private static final long SEGMENT_SIZE = 1L << SEGMENT_BITS;
+    private static final long SEGMENT_MASK = SEGMENT_SIZE - 1;
+    private static final long MIN_SIZE = 1 << 16;
+
+    private final FileChannel channel;
+    private final List<MappedByteBuffer> segments;
+    private long mappedSize;
+
+    MappedRegion(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.segments = new ArrayList<>();
+        map(Math.max(channel.size(), MIN_SIZE));
+    }
+
+    // Maps [0, size), remapping the last, partially mapped segment if it grew
+    private void map(long size) throws IOException {
+        int first = mappedSize == 0 ? 0 : (int) ((mappedSize - 1) >>> SEGMENT_BITS);
+        while (segments.size() > first) {
+            segments.remove(segments.size() - 1);
+        }
+        for (long start = (long) first << SEGMENT_BITS; start < size; start += SEGMENT_SIZE) {
+            segments.add(channel.map(FileChannel.MapMode.READ_WRITE, start, Math.min(SEGMENT_SIZE, size - start)));
+        }
+        mappedSize = size;
+    }
+
+    long size() {
+        return mappedSize;
+    }
+
+    void ensureSize(long size) {
+        if (size <= mappedSize) {
+            return;
+        }
+        try {
+            map(Math.max(size, mappedSize * 2));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private MappedByteBuffer segment(long position) {
+        return segments.get((int) (position >>> SEGMENT_BITS));
+    }
+
+    private static int offset(long position) {
+        return (int) (position & SEGMENT_MASK);
+    }
+
+    byte getByte(long position) {
+        return segment(position).get(offset(position));
+    }
+
+    void putByte(long position, byte value) {
+        segment(position).put(offset(position), value);
+    }
+
+    int getInt(long position) {
+        return segment(position).getInt(offset(position));
+    }
+
+    void putInt(long position, int value) {
+        segment(position).putInt(offset(position), value);
+    }
+
+    long getLong(long position) {
+        return segment(position).getLong(offset(position));
+    }
+
+    void putLong(long position, long value) {
+        segment(position).putLong(offset(position), value);
+    }
+
+    double getDouble(long position) {
+        return segment(position).getDouble(offset(position));
+    }
+
+    void putDouble(long position, double value) {
+        segment(position).putDouble(offset(position), value);
+    }
+
+    void get(long position, byte[] destination) {
+        int done = 0;
+        while (done < destination.length) {
+            int length = (int) Math.min(destination.length - done, SEGMENT_SIZE - offset(position + done));
+            segment(position + done).get(offset(position + done), destination, done, length);
+            done += length;
+        }
+    }
+
+    void put(long position, byte[] source) {
+        int done = 0;
+        while (done < source.length) {
+            int length = (int) Math.min(source.length - done, SEGMENT_SIZE - offset(position + done));
+            segment(position + done).put(offset(position + done), source, done, length);
+            done += length;
+        }
+    }
+
+    void fill(long from, long to) {
+        for (long position = from; position < to; position += 8) {
+            putLong(position, 0L);
+        }
+    }
+
+    void force() {
+        for (MappedByteBuffer segment : segments) {
+            segment.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        segments.clear();
+        channel.close();
+    }
+}
@@ -0,0 +1,167 @@
+package main.java;
+import java.util.*;
+
+// Trigram inverted index over case-folded employee names. A substring query
+// shortlists ids by intersecting the posting lists of its trigrams, then
+// verifies each candidate against the stored folded name.
+class NameIndex<T> {
+    private final Concurrency concurrency;
+    private final Map<T, String> foldedNames;
+    private final Map<Long, Set<T>> postings;
+
+    NameIndex(Concurrency concurrency) {
+        this.concurrency = concurrency;
+        this.foldedNames = concurrency.newMap();
+        this.postings = concurrency.newMap();
+    }
+
+    static String fold(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long trigram(String text, int start) {
+        return ((long) text.charAt(start) << 32)
+                | ((long) text.charAt(start + 1) << 16)
+                | text.charAt(start + 2);
+    }
+
+    void add(T employeeId, String name) {
+        if (name == null) {
+            return;
+        }
+        String folded = fold(name);
+        foldedNames.put(employeeId, folded);
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            postings.compute(trigram(folded, i), (key, ids) -> {
+                if (ids == null) {
+                    ids = concurrency.newSet();
+                }
+                ids.add(employeeId);
+                return ids;
+            });
+        }
+    }
+
+    void remove(T employeeId) {
+        String folded = foldedNames.remove(employeeId);
+        if (folded == null) {
+            return;
+        }
+        for (int i = 0; i + 3 <= folded.length(); i++) {
+            postings.computeIfPresent(trigram(folded, i), (key, ids) -> {
+                ids.remove(employeeId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    // Batch forms: the ids are grouped by trigram first so each posting list is
+    // looked up once for the whole batch
+    void addAll(Collection<Employee<T>> batch) {
+        Map<Long, List<T>> idsByTrigram = new HashMap<>();
+        for (Employee<T> employee : batch) {
+            if (employee.getName() == null) {
+                continue;
+            }
+            T id = employee.getEmployeeId();
+            String folded = fold(employee.getName());
+            foldedNames.put(id, folded);
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                idsByTrigram.computeIfAbsent(trigram(folded, i), key -> new ArrayList<>()).add(id);
+            }
+        }
+        idsByTrigram.forEach((trigram, group) -> postings.compute(trigram, (key, ids) -> {
+            if (ids == null) {
+                ids = concurrency.newSet();
+            }
+            ids.addAll(group);
+            return ids;
+        }));
+    }
+
+    void removeAll(Collection<T> employeeIds) {
+        Map<Long, List<T>> idsByTrigram = new HashMap<>();
+        for (T id : employeeIds) {
+            String folded = foldedNames.remove(id);
+            if (folded == null) {
+                continue;
+            }
+            for (int i = 0; i + 3 <= folded.length(); i++) {
+                idsByTrigram.computeIfAbsent(trigram(folded, i), key -> new ArrayList<>()).add(id);
+            }
+        }
+        idsByTrigram.forEach((trigram, group) -> postings.computeIfPresent(trigram, (key, ids) -> {
+            for (T id : group) {
+                ids.remove(id);
+            }
+            return ids.isEmpty() ? null : ids;
+        }));
+    }
+
+    // Upper bound on the matches of a search: the size of its rarest trigram's
+    // posting list. Terms shorter than a trigram can't use the index.
+    int estimate(String searchTerm) {
+        String query = fold(searchTerm);
+        if (query.length() < 3) {
+            return foldedNames.size();
+        }
+        int smallest = Integer.MAX_VALUE;
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            Set<T> ids = postings.get(trigram(query, i));
+            if (ids == null) {
+                return 0;
+            }
+            smallest = Math.min(smallest, ids.size());
+        }
+        return smallest;
+    }
+
+    List<T> search(String searchTerm) {
+        String query = fold(searchTerm);
+        List<T> result = new ArrayList<>();
+        if (query.length() < 3) {
+            // Too short to have a trigram; the folded names still save a toLowerCase per record
+            for (Map.Entry<T, String> entry : foldedNames.entrySet()) {
+                if (entry.getValue().contains(query)) {
+                    result.add(entry.getKey());
+                }
+            }
+            return result;
+        }
+
+        List<Set<T>> lists = new ArrayList<>();
+        for (int i = 0; i + 3 <= query.length(); i++) {
+            Set<T> ids = postings.get(trigram(query, i));
+            if (ids == null) {
+                return result;
+            }
+            lists.add(ids);
+        }
+        lists.sort(Comparator.comparingInt(Set::size));
+
+        Set<T> shortest = lists.get(0);
+        candidates:
+        for (T id : shortest) {
+            for (int i = 1; i < lists.size(); i++) {
+                if (!lists.get(i).contains(id)) {
+                    continue candidates;
+                }
+            }
+            String folded = foldedNames.get(id);
+            if (folded != null && folded.contains(query)) {
+                result.add(id);
+            }
+        }
+        return result;
+    }
+
+    // Distinct trigrams
+    int size() {
+        return postings.size();
+    }
+
+    void clear() {
+        foldedNames.clear();
+        postings.clear();
+    }
+}
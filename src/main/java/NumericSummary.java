@@ -0,0 +1,81 @@
+package main.java;
+
+// Count, mean, variance, min, max and approximate percentiles of one numeric
+// column. Filled in one pass and merged across threads: mean and variance use
+// Welford's update and Chan's combination, so merging partial results is exact
+// up to rounding; percentiles come from a QuantileSketch and are within 1%.
+public final class NumericSummary {
+    private long count;
+    private double mean;
+    private double sumOfSquares;
+    private double min = Double.POSITIVE_INFINITY;
+    private double max = Double.NEGATIVE_INFINITY;
+    private final QuantileSketch sketch = new QuantileSketch();
+
+    void add(double value) {
+        if (Double.isNaN(value)) {
+            return;
+        }
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        sumOfSquares += delta * (value - mean);
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+        sketch.add(value);
+    }
+
+    void merge(NumericSummary other) {
+        if (other.count == 0) {
+            return;
+        }
+        long total = count + other.count;
+        double delta = other.mean - mean;
+        sumOfSquares += other.sumOfSquares + delta * delta * ((double) count * other.count / total);
+        mean += delta * other.count / total;
+        count = total;
+        min = Math.min(min, other.min);
+        max = Math.max(max, other.max);
+        sketch.merge(other.sketch);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : mean;
+    }
+
+    // Population variance
+    public double getVariance() {
+        return count == 0 ? 0 : sumOfSquares / count;
+    }
+
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    public double getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    public double getMax() {
+        return count == 0 ? 0 : max;
+    }
+
+    // percentile in [0, 100], e.g. 50 for the median
+    public double getPercentile(double percentile) {
+        if (count == 0) {
+            return 0;
+        }
+        return Math.min(max, Math.max(min, sketch.quantile(percentile / 100)));
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d, mean=%.2f, stddev=%.2f, min=%.2f, p50=%.2f, p90=%.2f, p99=%.2f, max=%.2f",
+                count, getMean(), getStandardDeviation(), getMin(),
+                getPercentile(50), getPercentile(90), getPercentile(99), getMax());
+    }
+}
@@ -0,0 +1,54 @@
+package main.java;
+import javax.management.ConstructorParameters;
+
+// How often one operation ran and how long it took, in the units JMX consoles
+// show well; a point-in-time copy for EmployeeMetricsMXBean.
+public final class OperationStatistics {
+    private final long calls;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    @ConstructorParameters({"calls", "meanMicros", "p50Micros", "p99Micros", "p999Micros", "maxMicros"})
+    public OperationStatistics(long calls, double meanMicros, double p50Micros, double p99Micros,
+                               double p999Micros, double maxMicros) {
+        this.calls = calls;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p99Micros = p99Micros;
+        this.p999Micros = p999Micros;
+        this.maxMicros = maxMicros;
+    }
+
+    static OperationStatistics of(long calls, LatencySnapshot latency) {
+        return new OperationStatistics(calls, latency.meanNanos() / 1e3,
+                latency.percentileNanos(50) / 1e3, latency.percentileNanos(99) / 1e3,
+                latency.percentileNanos(99.9) / 1e3, latency.maxNanos() / 1e3);
+    }
+
+    public long getCalls() {
+        return calls;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+}
@@ -0,0 +1,132 @@
+package main.java;
+import java.io.*;
+import java.util.Base64;
+import java.util.Comparator;
+
+// Where a page ended: the sort key and id of its last row, encoded as an opaque
+// token. Paging orders rows by the query's order with the id as tie-breaker
+// (by the id alone for an unordered query), so the order is total and the next
+// page is exactly the rows after the cursor, however the store changed since.
+final class PageCursor {
+    private final EmployeeOrder order;
+    private final String text;
+    private final double number;
+    private final String id;
+
+    private PageCursor(EmployeeOrder order, String text, double number, String id) {
+        this.order = order;
+        this.text = text;
+        this.number = number;
+        this.id = id;
+    }
+
+    static String idKey(Employee<?> employee) {
+        return String.valueOf(employee.getEmployeeId());
+    }
+
+    // The order pages follow; order may be null
+    static <T> Comparator<Employee<T>> totalOrder(EmployeeOrder order) {
+        Comparator<Employee<T>> byId = Comparator.comparing(PageCursor::idKey);
+        return order == null ? byId : order.<T>comparator().thenComparing(byId);
+    }
+
+    static String encode(EmployeeOrder order, Employee<?> last) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(order == null ? "" : order.name());
+            switch (order == null ? EmployeeOrder.EXPERIENCE : order) {
+                case NAME:
+                    out.writeUTF(last.getName());
+                    break;
+                case DEPARTMENT:
+                    out.writeUTF(last.getDepartment());
+                    break;
+                case SALARY:
+                    out.writeDouble(last.getSalary());
+                    break;
+                case PERFORMANCE:
+                    out.writeDouble(last.getPerformanceRating());
+                    break;
+                default:
+                    out.writeDouble(last.getYearsOfExperience());
+                    break;
+            }
+            out.writeUTF(idKey(last));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes.toByteArray());
+    }
+
+    // Null for a null token; a token from a query with another order is rejected
+    static PageCursor decode(String token, EmployeeOrder order) {
+        if (token == null) {
+            return null;
+        }
+        String orderName;
+        String text = null;
+        double number = 0;
+        String id;
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(Base64.getUrlDecoder().decode(token)))) {
+            orderName = in.readUTF();
+            if (orderName.equals(EmployeeOrder.NAME.name()) || orderName.equals(EmployeeOrder.DEPARTMENT.name())) {
+                text = in.readUTF();
+            } else {
+                number = in.readDouble();
+            }
+            id = in.readUTF();
+        } catch (IOException | IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed cursor '" + token + "'");
+        }
+        if (!orderName.equals(order == null ? "" : order.name())) {
+            throw new IllegalArgumentException("Cursor was issued for "
+                    + (orderName.isEmpty() ? "an unordered query" : "order " + orderName));
+        }
+        return new PageCursor(order, text, number, id);
+    }
+
+    // The last row's sort key: text for name and department order, otherwise number
+    String text() {
+        return text;
+    }
+
+    double number() {
+        return number;
+    }
+
+    String id() {
+        return id;
+    }
+
+    // Upper salary bound of the rows after a salary-ordered cursor (salary order is highest first)
+    double salaryCeiling() {
+        return order == EmployeeOrder.SALARY ? number : Double.POSITIVE_INFINITY;
+    }
+
+    // Whether employee comes after the cursor in totalOrder(order)
+    boolean precedes(Employee<?> employee) {
+        int comparison;
+        if (order == null) {
+            comparison = 0;
+        } else {
+            switch (order) {
+                case NAME:
+                    comparison = text.compareToIgnoreCase(employee.getName());
+                    break;
+                case DEPARTMENT:
+                    comparison = text.compareToIgnoreCase(employee.getDepartment());
+                    break;
+                case SALARY:
+                    comparison = Double.compare(employee.getSalary(), number);
+                    break;
+                case PERFORMANCE:
+                    comparison = Double.compare(employee.getPerformanceRating(), number);
+                    break;
+                default:
+                    comparison = Double.compare(employee.getYearsOfExperience(), number);
+                    break;
+            }
+        }
+        return comparison < 0 || (comparison == 0 && id.compareTo(idKey(employee)) < 0);
+    }
+}
@@ -0,0 +1,107 @@
+package main.java;
+
+// Relative-error quantile sketch in the style of DDSketch. Values are counted in
+// logarithmic buckets, so a quantile comes back within ACCURACY of the true value
+// whatever the distribution, a salary column needs a few hundred buckets, and two
+// sketches merge by adding their bucket counts.
+class QuantileSketch {
+    static final double ACCURACY = 0.01;
+
+    private static final double GAMMA = (1 + ACCURACY) / (1 - ACCURACY);
+    private static final double LOG_GAMMA = Math.log(GAMMA);
+    private static final double MIN_MAGNITUDE = 1e-9;
+
+    private final Buckets positive = new Buckets();
+    private final Buckets negative = new Buckets();
+    private long zeroCount;
+
+    void add(double value) {
+        if (value > MIN_MAGNITUDE) {
+            positive.add(bucketOf(value), 1);
+        } else if (value < -MIN_MAGNITUDE) {
+            negative.add(bucketOf(-value), 1);
+        } else {
+            zeroCount++;
+        }
+    }
+
+    void merge(QuantileSketch other) {
+        positive.merge(other.positive);
+        negative.merge(other.negative);
+        zeroCount += other.zeroCount;
+    }
+
+    long count() {
+        return positive.total + negative.total + zeroCount;
+    }
+
+    // q in [0, 1]; NaN when the sketch is empty
+    double quantile(double q) {
+        long count = count();
+        if (count == 0) {
+            return Double.NaN;
+        }
+        long rank = (long) (Math.min(Math.max(q, 0), 1) * (count - 1));
+        // Most negative values sit in the highest negative buckets
+        for (int i = negative.counts.length - 1; i >= 0; i--) {
+            rank -= negative.counts[i];
+            if (rank < 0) {
+                return -valueOf(negative.offset + i);
+            }
+        }
+        rank -= zeroCount;
+        if (rank < 0) {
+            return 0;
+        }
+        for (int i = 0; i < positive.counts.length; i++) {
+            rank -= positive.counts[i];
+            if (rank < 0) {
+                return valueOf(positive.offset + i);
+            }
+        }
+        return valueOf(positive.offset + positive.counts.length - 1);
+    }
+
+    private static int bucketOf(double magnitude) {
+        return (int) Math.ceil(Math.log(magnitude) / LOG_GAMMA);
+    }
+
+    // The point of the bucket whose relative distance to both edges is ACCURACY
+    private static double valueOf(int bucket) {
+        return 2 * Math.pow(GAMMA, bucket) / (GAMMA + 1);
+    }
+
+    // Dense counts for the bucket range seen so far
+    private static final class Buckets {
+        private long[] counts = new long[0];
+        private int offset;
+        private long total;
+
+        void add(int bucket, long n) {
+            if (counts.length == 0) {
+                counts = new long[64];
+                offset = bucket - 32;
+            } else if (bucket < offset || bucket >= offset + counts.length) {
+                int low = Math.min(offset, bucket);
+                int high = Math.max(offset + counts.length, bucket + 1);
+                // Grow by at least half again so a spreading range doesn't copy on every value
+                int length = Math.max(high - low, counts.length + counts.length / 2);
+                int newOffset = bucket < offset ? high - length : low;
+                long[] grown = new long[length];
+                System.arraycopy(counts, 0, grown, offset - newOffset, counts.length);
+                counts = grown;
+                offset = newOffset;
+            }
+            counts[bucket - offset] += n;
+            total += n;
+        }
+
+        void merge(Buckets other) {
+            for (int i = 0; i < other.counts.length; i++) {
+                if (other.counts[i] != 0) {
+                    add(other.offset + i, other.counts[i]);
+                }
+            }
+        }
+    }
+}
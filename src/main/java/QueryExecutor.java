@@ -0,0 +1,168 @@
+package main.java;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Runs searches and reports against a store on one background thread and
+// hands each result to a delivery executor (the FX application thread in
+// Main), so a slow query never freezes the window. Only the newest request
+// matters: submitting one cancels the one still running, and a result that
+// was overtaken is dropped rather than delivered. The store itself is not
+// thread-safe, so queries hold a read lock and changes go through write(),
+// which interrupts the running query, applies the change under the write
+// lock and then runs the interrupted query again against the new data. The
+// thread that calls write() may keep reading without the lock, as nothing
+// else writes.
+public class QueryExecutor<S> implements AutoCloseable {
+    // Told about every request on the delivery executor
+    public interface Listener {
+        void started(String label);
+
+        void finished(String label, long elapsedNanos);
+
+        void failed(String label, RuntimeException error);
+    }
+
+    private final S store;
+    private final Executor delivery;
+    private final Listener listener;
+    private final ExecutorService worker;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // The newest request; guarded by this
+    private Request<?> current;
+
+    public QueryExecutor(S store, Executor delivery, Listener listener) {
+        this.store = store;
+        this.delivery = delivery;
+        this.listener = listener;
+        this.worker = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "employee-query");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Runs query off the caller's thread and passes its result to onResult,
+    // unless a newer request comes first. The query is interrupted when
+    // cancelled; the database's planner, sorter and statistics check for
+    // that as they go, so write() waits for at most one range of rows.
+    public <R> void submit(String label, Function<? super S, R> query, Consumer<? super R> onResult) {
+        start(new Request<>(label, query, onResult));
+    }
+
+    private synchronized void start(Request<?> request) {
+        if (current != null) {
+            current.cancel();
+        }
+        current = request;
+        // Queued before the query can finish, so started always arrives first
+        delivery.execute(() -> {
+            if (isCurrent(request)) {
+                listener.started(request.label);
+            }
+        });
+        request.future = worker.submit(() -> run(request));
+    }
+
+    private <R> void run(Request<R> request) {
+        long start = System.nanoTime();
+        R result;
+        lock.readLock().lock();
+        try {
+            if (Thread.currentThread().isInterrupted()) {
+                return;
+            }
+            result = request.query.apply(store);
+        } catch (CancellationException e) {
+            return;
+        } catch (RuntimeException e) {
+            deliver(request, () -> listener.failed(request.label, e));
+            return;
+        } finally {
+            lock.readLock().unlock();
+        }
+        long elapsed = System.nanoTime() - start;
+        deliver(request, () -> {
+            request.onResult.accept(result);
+            listener.finished(request.label, elapsed);
+        });
+    }
+
+    // Checked again on the delivery thread, where a newer request may have arrived meanwhile
+    private void deliver(Request<?> request, Runnable action) {
+        delivery.execute(() -> {
+            synchronized (this) {
+                if (!isCurrent(request)) {
+                    return;
+                }
+                request.delivered = true;
+            }
+            action.run();
+        });
+    }
+
+    private synchronized boolean isCurrent(Request<?> request) {
+        return request == current && !request.cancelled;
+    }
+
+    // Applies change to the store on the caller's thread, waiting at most for
+    // the running query to notice it was interrupted
+    public <R> R write(Function<? super S, R> change) {
+        Request<?> interrupted = null;
+        synchronized (this) {
+            // A finished query whose result is still on its way is stale too
+            if (current != null && !current.delivered) {
+                current.cancel();
+                interrupted = current;
+            }
+        }
+        R result;
+        lock.writeLock().lock();
+        try {
+            result = change.apply(store);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (interrupted != null) {
+            synchronized (this) {
+                // Unless something newer was submitted by the change itself
+                if (current == interrupted) {
+                    start(new Request<>(interrupted));
+                }
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        worker.shutdownNow();
+    }
+
+    private final class Request<R> {
+        final String label;
+        final Function<? super S, R> query;
+        final Consumer<? super R> onResult;
+        // Guarded by the executor
+        Future<?> future;
+        boolean cancelled;
+        boolean delivered;
+
+        Request(String label, Function<? super S, R> query, Consumer<? super R> onResult) {
+            this.label = label;
+            this.query = query;
+            this.onResult = onResult;
+        }
+
+        Request(Request<R> other) {
+            this(other.label, other.query, other.onResult);
+        }
+
+        void cancel() {
+            cancelled = true;
+            future.cancel(true);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package main.java;
+import java.util.EnumMap;
+import java.util.Map;
+
+// How EmployeeDatabase runs an EmployeeQuery: the access path that produces
+// candidates, the estimated rows each possible path would examine, and how the
+// result is ordered and cut. toString() is the explain output.
+public final class QueryPlan {
+
+    public enum Access {
+        FULL_SCAN("full scan"),
+        DEPARTMENT_INDEX("department index"),
+        NAME_INDEX("name trigram index"),
+        SALARY_RANGE("salary index range"),
+        BITMAPS("attribute bitmaps"),
+        SALARY_ORDER("salary index in salary order"),
+        SORTED_VIEW("sorted view in query order");
+
+        private final String description;
+
+        Access(String description) {
+            this.description = description;
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private final String query;
+    private final Access access;
+    private final Map<Access, Long> estimates;
+    private final String finish;
+    // The candidate rows when access is BITMAPS, worked out while planning
+    final RowBitmap rows;
+
+    QueryPlan(String query, Access access, Map<Access, Long> estimates, String finish, RowBitmap rows) {
+        this.query = query;
+        this.access = access;
+        this.estimates = new EnumMap<>(estimates);
+        this.finish = finish;
+        this.rows = rows;
+    }
+
+    public Access getAccess() {
+        return access;
+    }
+
+    public long getEstimatedRows() {
+        return estimates.get(access);
+    }
+
+    public Map<Access, Long> getEstimates() {
+        return new EnumMap<>(estimates);
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append("Query: ").append(query).append('\n');
+        text.append("Access: ").append(access).append(" (~").append(getEstimatedRows()).append(" rows)\n");
+        text.append("Considered:");
+        estimates.forEach((path, rows) -> text.append(' ').append(path).append(" ~").append(rows).append(';'));
+        text.setLength(text.length() - 1);
+        text.append("\nThen: ").append(finish);
+        return text.toString();
+    }
+}
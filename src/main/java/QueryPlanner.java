@@ -0,0 +1,293 @@
+package main.java;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+// Plans and runs an EmployeeQuery against EmployeeDatabase's indexes. Each
+// indexed condition (department, name, salary range) offers an access path with
+// an estimate of the rows it would produce, and the smallest one drives. The
+// department, active, rating and experience conditions together offer one more:
+// their bitmaps combined, whose exact size is known once they are. Every
+// other condition is checked on the candidates; the department is checked by
+// probing the department's id set, so non-members are dropped before their
+// record is fetched. An ordered query with a limit keeps only the best rows in a
+// bounded heap. A salary-ordered query may instead walk the salary index in
+// order and stop as soon as it has enough rows, and any ordered query may walk
+// the database's sorted view of its order, starting after a page's cursor,
+// which skips the sort altogether.
+class QueryPlanner<T> {
+    private final Map<T, Employee<T>> employees;
+    private final DepartmentIndex<T> departmentIndex;
+    private final SalaryIndex<T> salaryIndex;
+    private final NameIndex<T> nameIndex;
+    private final BitmapIndex<T> bitmapIndex;
+    private final Function<EmployeeOrder, SortedView<T>> sortedViews;
+
+    // bitmapIndex and sortedViews may be null, for the concurrent database
+    QueryPlanner(Map<T, Employee<T>> employees, DepartmentIndex<T> departmentIndex,
+                 SalaryIndex<T> salaryIndex, NameIndex<T> nameIndex, BitmapIndex<T> bitmapIndex,
+                 Function<EmployeeOrder, SortedView<T>> sortedViews) {
+        this.employees = employees;
+        this.departmentIndex = departmentIndex;
+        this.salaryIndex = salaryIndex;
+        this.nameIndex = nameIndex;
+        this.bitmapIndex = bitmapIndex;
+        this.sortedViews = sortedViews;
+    }
+
+    QueryPlan plan(EmployeeQuery query) {
+        Map<QueryPlan.Access, Long> estimates = new EnumMap<>(QueryPlan.Access.class);
+        long total = employees.size();
+        estimates.put(QueryPlan.Access.FULL_SCAN, total);
+        if (query.department() != null) {
+            estimates.put(QueryPlan.Access.DEPARTMENT_INDEX, (long) departmentIndex.members(query.department()).size());
+        }
+        if (query.nameContains() != null && query.nameContains().length() >= 3) {
+            estimates.put(QueryPlan.Access.NAME_INDEX, (long) nameIndex.estimate(query.nameContains()));
+        }
+        RowBitmap rows = bitmapIndex == null ? null : bitmapIndex.candidates(query);
+        if (rows != null) {
+            estimates.put(QueryPlan.Access.BITMAPS, (long) rows.cardinality());
+        }
+        if (query.hasSalaryRange()) {
+            // Counting stops once the range can no longer beat the other paths
+            estimates.put(QueryPlan.Access.SALARY_RANGE,
+                    salaryIndex.countRange(query.minSalary(), query.maxSalary(), Collections.min(estimates.values())));
+        }
+
+        QueryPlan.Access access = QueryPlan.Access.FULL_SCAN;
+        for (Map.Entry<QueryPlan.Access, Long> estimate : estimates.entrySet()) {
+            if (estimate.getValue() < estimates.get(access)) {
+                access = estimate.getKey();
+            }
+        }
+        long filtered = estimates.get(access);
+        if (query.order() == EmployeeOrder.SALARY && query.limit() >= 0) {
+            // Rows arrive in salary order, so the walk ends after limit matches. With
+            // matches spread evenly that is about limit / selectivity rows.
+            long walked = filtered == 0
+                    ? total
+                    : Math.min(total, (long) Math.ceil((double) query.limit() * total / filtered));
+            estimates.put(QueryPlan.Access.SALARY_ORDER, walked);
+            if (walked < filtered) {
+                access = QueryPlan.Access.SALARY_ORDER;
+            }
+        }
+        if (query.order() != null && sortedViews != null) {
+            // With a limit the walk is costed like the salary index's; without
+            // one it visits every row but saves sorting the matches
+            long walked = query.limit() < 0 || filtered == 0
+                    ? total
+                    : Math.min(total, (long) Math.ceil((double) query.limit() * total / filtered));
+            long alternative = query.limit() < 0
+                    ? (long) (filtered * Math.log(Math.max(filtered, 1)) / Math.log(2))
+                    : estimates.get(access);
+            estimates.put(QueryPlan.Access.SORTED_VIEW, walked);
+            if (walked < alternative) {
+                access = QueryPlan.Access.SORTED_VIEW;
+            }
+        }
+        return new QueryPlan(query.toString(), access, estimates, finish(query, access),
+                access == QueryPlan.Access.BITMAPS ? rows : null);
+    }
+
+    private static String finish(EmployeeQuery query, QueryPlan.Access access) {
+        if (access == QueryPlan.Access.SALARY_ORDER) {
+            return "stop after " + query.limit() + " matches in index order";
+        }
+        if (access == QueryPlan.Access.SORTED_VIEW) {
+            return query.limit() >= 0
+                    ? "stop after " + query.limit() + " matches in view order"
+                    : "return all matches in view order";
+        }
+        if (query.order() != null) {
+            return query.limit() >= 0
+                    ? "keep the top " + query.limit() + " by " + query.order() + " in a bounded heap"
+                    : "sort all matches by " + query.order();
+        }
+        return query.limit() >= 0 ? "stop after " + query.limit() + " matches" : "return all matches";
+    }
+
+    List<Employee<T>> execute(EmployeeQuery query, QueryPlan plan) {
+        if (query.limit() == 0) {
+            return new ArrayList<>();
+        }
+        Run run = new Run(query, plan.getAccess());
+        switch (plan.getAccess()) {
+            case DEPARTMENT_INDEX:
+                run.ids(departmentIndex.members(query.department()));
+                break;
+            case NAME_INDEX:
+                run.ids(nameIndex.search(query.nameContains()));
+                break;
+            case SALARY_RANGE:
+                for (Set<T> ids : salaryIndex.range(query.minSalary(), query.maxSalary())) {
+                    if (!run.ids(ids)) {
+                        break;
+                    }
+                }
+                break;
+            case BITMAPS:
+                plan.rows.forEach(row -> {
+                    Employee<T> employee = employees.get(bitmapIndex.id(row));
+                    // Department membership is exact in the bitmap, so no probe
+                    return employee == null || run.offer(employee);
+                });
+                break;
+            case SALARY_ORDER:
+                Collection<Set<T>> ordered = query.hasSalaryRange()
+                        ? salaryIndex.descendingRange(query.minSalary(), query.maxSalary())
+                        : salaryIndex.descending();
+                for (Set<T> ids : ordered) {
+                    if (!run.ids(ids)) {
+                        break;
+                    }
+                }
+                break;
+            case SORTED_VIEW:
+                for (T id : sortedViews.apply(query.order()).ids(query.after())) {
+                    Employee<T> employee = employees.get(id);
+                    if (employee != null && !run.employee(employee)) {
+                        break;
+                    }
+                }
+                break;
+            default:
+                for (Employee<T> employee : employees.values()) {
+                    if (!run.employee(employee)) {
+                        break;
+                    }
+                }
+                break;
+        }
+        return run.result();
+    }
+
+    // The matches of an unordered query, streamed off the planned access path
+    // rather than collected first
+    Stream<Employee<T>> stream(EmployeeQuery query, QueryPlan plan) {
+        Stream<Employee<T>> candidates;
+        switch (plan.getAccess()) {
+            case DEPARTMENT_INDEX:
+                candidates = resolve(departmentIndex.members(query.department()).stream());
+                break;
+            case NAME_INDEX:
+                candidates = resolve(nameIndex.search(query.nameContains()).stream());
+                break;
+            case SALARY_RANGE:
+                candidates = resolve(salaryIndex.range(query.minSalary(), query.maxSalary()).stream()
+                        .flatMap(Set::stream));
+                break;
+            case BITMAPS:
+                candidates = StreamSupport.intStream(plan.rows.spliterator(), false)
+                        .mapToObj(row -> employees.get(bitmapIndex.id(row)))
+                        .filter(Objects::nonNull);
+                break;
+            default:
+                candidates = employees.values().stream();
+                break;
+        }
+        Stream<Employee<T>> matches = candidates.filter(query::matches);
+        return query.limit() >= 0 ? matches.limit(query.limit()) : matches;
+    }
+
+    private Stream<Employee<T>> resolve(Stream<T> ids) {
+        return ids.map(employees::get).filter(Objects::nonNull);
+    }
+
+    // The state of one execution; the offer methods return false once no further
+    // candidate can change the result
+    private class Run {
+        private final EmployeeQuery query;
+        private final Set<T> departmentMembers;
+        private final String foldedName;
+        private final Comparator<Employee<T>> order;
+        private final Comparator<Employee<T>> arrivalOrder;
+        private final int limit;
+        private final List<Employee<T>> rows = new ArrayList<>();
+        private final PriorityQueue<Employee<T>> best;
+        private int examined;
+
+        Run(EmployeeQuery query, QueryPlan.Access access) {
+            this.query = query;
+            this.departmentMembers = query.department() == null ? null : departmentIndex.members(query.department());
+            this.foldedName = query.nameContains() == null ? null : NameIndex.fold(query.nameContains());
+            // Rows arriving in query order need no sorting. The salary index leaves
+            // ties in no particular order, which paging orders by id; a sorted view
+            // already has.
+            boolean arrivesOrdered = access == QueryPlan.Access.SALARY_ORDER;
+            boolean arrivesSorted = access == QueryPlan.Access.SORTED_VIEW
+                    || (arrivesOrdered && !query.isPaged());
+            this.order = arrivesSorted ? null : query.comparator();
+            this.arrivalOrder = arrivesOrdered && query.isPaged() ? query.order().comparator() : null;
+            this.limit = query.limit();
+            // Worst kept row at the head, so a better candidate replaces it in log(limit)
+            this.best = order != null && limit > 0 ? new PriorityQueue<>(limit, order.reversed()) : null;
+        }
+
+        boolean ids(Collection<T> ids) {
+            for (T id : ids) {
+                if (departmentMembers != null && !departmentMembers.contains(id)) {
+                    continue;
+                }
+                Employee<T> employee = employees.get(id);
+                if (employee != null && !offer(employee)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        boolean employee(Employee<T> employee) {
+            if (departmentMembers != null && !departmentMembers.contains(employee.getEmployeeId())) {
+                checkInterrupted();
+                return true;
+            }
+            return offer(employee);
+        }
+
+        boolean offer(Employee<T> employee) {
+            checkInterrupted();
+            if (!query.matchesOtherThanDepartment(employee, foldedName)) {
+                return true;
+            }
+            if (best != null) {
+                if (best.size() < limit) {
+                    best.add(employee);
+                } else if (order.compare(employee, best.peek()) < 0) {
+                    best.poll();
+                    best.add(employee);
+                } else if (arrivalOrder != null && arrivalOrder.compare(employee, best.peek()) > 0) {
+                    // Every later arrival ranks below the kept rows too
+                    return false;
+                }
+                return true;
+            }
+            rows.add(employee);
+            return order != null || limit < 0 || rows.size() < limit;
+        }
+
+        // Lets a caller on another thread, like QueryExecutor, abandon a long
+        // scan by interrupting it; checked every few thousand rows
+        private void checkInterrupted() {
+            if ((++examined & 0xFFF) == 0 && Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Query interrupted: " + query);
+            }
+        }
+
+        List<Employee<T>> result() {
+            if (best != null) {
+                rows.addAll(best);
+            }
+            if (order != null && best == null && !query.isPaged()) {
+                // Every match, so worth extracting the keys once
+                EmployeeSorter.sort(rows, query.order());
+            } else if (order != null) {
+                rows.sort(order);
+            }
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package main.java;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// A bounded queue for any number of producers and one consumer that never
+// blocks: offer() either claims a slot with one compare-and-set or, when the
+// ring is full, returns false at once. Each slot's sequence number says
+// whether it is free for the producer of a given position or holds that
+// position's item for the consumer; setting it after the item is written
+// publishes the item.
+final class RingBuffer<E> {
+    private final int capacity;
+    private final int mask;
+    private final Object[] items;
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    // Only the consumer moves the head
+    private long head;
+
+    RingBuffer(int capacity) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two, not " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.items = new Object[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            sequences.set(slot, slot);
+        }
+    }
+
+    boolean offer(E item) {
+        long position = tail.get();
+        while (true) {
+            int slot = (int) position & mask;
+            long lag = sequences.get(slot) - position;
+            if (lag == 0) {
+                if (tail.compareAndSet(position, position + 1)) {
+                    items[slot] = item;
+                    sequences.set(slot, position + 1);
+                    return true;
+                }
+                position = tail.get();
+            } else if (lag < 0) {
+                // The consumer has not yet taken the item from a lap ago
+                return false;
+            } else {
+                // Another producer took this position
+                position = tail.get();
+            }
+        }
+    }
+
+    // Consumer only: moves up to max published items into batch, in order
+    @SuppressWarnings("unchecked")
+    int drainTo(List<? super E> batch, int max) {
+        int count = 0;
+        while (count < max) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) {
+                break;
+            }
+            batch.add((E) items[slot]);
+            items[slot] = null;
+            sequences.set(slot, head + capacity);
+            head++;
+            count++;
+        }
+        return count;
+    }
+
+    // Consumer only
+    boolean isEmpty() {
+        return sequences.get((int) head & mask) != head + 1;
+    }
+
+    // Items accepted so far, taken or not
+    long offered() {
+        return tail.get();
+    }
+}
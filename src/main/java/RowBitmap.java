@@ -0,0 +1,540 @@
+package main.java;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Spliterator;
+import java.util.function.IntConsumer;
+import java.util.function.IntPredicate;
+
+// Compressed set of row numbers in the Roaring layout. Rows are split into
+// chunks of 65536; a chunk stores the low 16 bits of its rows either as a sorted
+// array (sparse chunks, two bytes a row) or as a 1024-word bitmap (dense chunks,
+// one bit a row), switching at 4096 rows where both take 8 KB. AND, OR and
+// ANDNOT work chunk by chunk, word-wise where both sides are bitmaps.
+// Results of and/or/andNot are new bitmaps; the operands are not changed. A
+// result chunk computed word-wise stays a bitmap even when sparse, since
+// results are short-lived and usually feed the next word-wise operation.
+class RowBitmap {
+    private static final int ARRAY_LIMIT = 4096;
+    private static final int WORDS = 1024;
+
+    private Container[] chunks = new Container[0];
+
+    // Rows 0 to count - 1
+    static RowBitmap firstRows(int count) {
+        RowBitmap bitmap = new RowBitmap();
+        int chunkCount = (count + 0xFFFF) >>> 16;
+        bitmap.chunks = new Container[chunkCount];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            bitmap.chunks[chunk] = Container.firstRows(Math.min(1 << 16, count - (chunk << 16)));
+        }
+        return bitmap;
+    }
+
+    void add(int row) {
+        int chunk = row >>> 16;
+        if (chunk >= chunks.length) {
+            chunks = Arrays.copyOf(chunks, Math.max(chunk + 1, chunks.length * 2));
+        }
+        Container container = chunks[chunk];
+        if (container == null) {
+            container = new Container();
+            chunks[chunk] = container;
+        }
+        container.add((char) row);
+    }
+
+    void remove(int row) {
+        int chunk = row >>> 16;
+        if (chunk < chunks.length && chunks[chunk] != null) {
+            chunks[chunk].remove((char) row);
+            if (chunks[chunk].cardinality == 0) {
+                chunks[chunk] = null;
+            }
+        }
+    }
+
+    void clear() {
+        chunks = new Container[0];
+    }
+
+    boolean contains(int row) {
+        int chunk = row >>> 16;
+        return chunk < chunks.length && chunks[chunk] != null && chunks[chunk].contains((char) row);
+    }
+
+    int cardinality() {
+        int cardinality = 0;
+        for (Container container : chunks) {
+            if (container != null) {
+                cardinality += container.cardinality;
+            }
+        }
+        return cardinality;
+    }
+
+    RowBitmap and(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        result.chunks = new Container[Math.min(chunks.length, other.chunks.length)];
+        for (int chunk = 0; chunk < result.chunks.length; chunk++) {
+            if (chunks[chunk] != null && other.chunks[chunk] != null) {
+                result.chunks[chunk] = nonEmpty(Container.and(chunks[chunk], other.chunks[chunk]));
+            }
+        }
+        return result;
+    }
+
+    RowBitmap or(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        result.chunks = new Container[Math.max(chunks.length, other.chunks.length)];
+        for (int chunk = 0; chunk < result.chunks.length; chunk++) {
+            Container left = chunk < chunks.length ? chunks[chunk] : null;
+            Container right = chunk < other.chunks.length ? other.chunks[chunk] : null;
+            if (left != null && right != null) {
+                result.chunks[chunk] = Container.or(left, right);
+            } else if (left != null || right != null) {
+                result.chunks[chunk] = (left != null ? left : right).copy();
+            }
+        }
+        return result;
+    }
+
+    // The union of bitmaps[from] to bitmaps[to - 1], ORed into one word array per chunk
+    static RowBitmap union(RowBitmap[] bitmaps, int from, int to) {
+        int chunkCount = 0;
+        for (int i = from; i < to; i++) {
+            chunkCount = Math.max(chunkCount, bitmaps[i].chunks.length);
+        }
+        RowBitmap result = new RowBitmap();
+        result.chunks = new Container[chunkCount];
+        for (int chunk = 0; chunk < chunkCount; chunk++) {
+            long[] words = null;
+            for (int i = from; i < to; i++) {
+                Container container = chunk < bitmaps[i].chunks.length ? bitmaps[i].chunks[chunk] : null;
+                if (container != null) {
+                    if (words == null) {
+                        words = new long[WORDS];
+                    }
+                    container.orInto(words);
+                }
+            }
+            if (words != null) {
+                result.chunks[chunk] = nonEmpty(Container.ofWords(words));
+            }
+        }
+        return result;
+    }
+
+    RowBitmap andNot(RowBitmap other) {
+        RowBitmap result = new RowBitmap();
+        result.chunks = new Container[chunks.length];
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk] == null) {
+                continue;
+            }
+            Container right = chunk < other.chunks.length ? other.chunks[chunk] : null;
+            result.chunks[chunk] = right == null
+                    ? chunks[chunk].copy()
+                    : nonEmpty(Container.andNot(chunks[chunk], right));
+        }
+        return result;
+    }
+
+    private static Container nonEmpty(Container container) {
+        return container.cardinality == 0 ? null : container;
+    }
+
+    // Visits rows in ascending order until action returns false; returns false if it stopped early
+    boolean forEach(IntPredicate action) {
+        for (int chunk = 0; chunk < chunks.length; chunk++) {
+            if (chunks[chunk] != null && !chunks[chunk].forEach(chunk << 16, action)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Rows in ascending order; splits between chunks, so a parallel stream gets
+    // one task per 64K rows at most
+    Spliterator.OfInt spliterator() {
+        return new RowSpliterator(0, chunks.length);
+    }
+
+    private final class RowSpliterator implements Spliterator.OfInt {
+        private int chunk;
+        private final int end;
+        // Next low 16 bits to look at within chunk
+        private int next;
+
+        RowSpliterator(int chunk, int end) {
+            this.chunk = chunk;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(IntConsumer action) {
+            for (; chunk < end; chunk++, next = 0) {
+                Container container = chunks[chunk];
+                int low = container == null || next > 0xFFFF ? -1 : container.nextValue(next);
+                if (low >= 0) {
+                    next = low + 1;
+                    action.accept((chunk << 16) + low);
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public void forEachRemaining(IntConsumer action) {
+            if (chunk < end && next > 0) {
+                // Finish the partly consumed chunk
+                int low;
+                while (next <= 0xFFFF && (low = chunks[chunk].nextValue(next)) >= 0) {
+                    next = low + 1;
+                    action.accept((chunk << 16) + low);
+                }
+                chunk++;
+                next = 0;
+            }
+            for (; chunk < end; chunk++) {
+                if (chunks[chunk] != null) {
+                    chunks[chunk].forEach(chunk << 16, row -> {
+                        action.accept(row);
+                        return true;
+                    });
+                }
+            }
+        }
+
+        @Override
+        public Spliterator.OfInt trySplit() {
+            if (next > 0 || end - chunk < 2) {
+                return null;
+            }
+            int middle = (chunk + end) >>> 1;
+            RowSpliterator prefix = new RowSpliterator(chunk, middle);
+            chunk = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            long size = 0;
+            for (int c = chunk; c < end; c++) {
+                if (chunks[c] != null) {
+                    size += chunks[c].cardinality;
+                }
+            }
+            return size;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | DISTINCT | SORTED | NONNULL;
+        }
+
+        @Override
+        public Comparator<? super Integer> getComparator() {
+            return null;
+        }
+    }
+
+    long sizeInBytes() {
+        long size = 16 + 4L * chunks.length;
+        for (Container container : chunks) {
+            if (container != null) {
+                size += container.sizeInBytes();
+            }
+        }
+        return size;
+    }
+
+    private static final class Container {
+        // Exactly one of values (sorted, cardinality used) and words is set
+        private char[] values = new char[4];
+        private long[] words;
+        private int cardinality;
+
+        static Container firstRows(int rows) {
+            Container container = new Container();
+            if (rows <= ARRAY_LIMIT) {
+                container.values = new char[Math.max(4, rows)];
+                for (int i = 0; i < rows; i++) {
+                    container.values[i] = (char) i;
+                }
+            } else {
+                container.values = null;
+                container.words = new long[WORDS];
+                Arrays.fill(container.words, 0, rows >>> 6, -1L);
+                if ((rows & 63) != 0) {
+                    container.words[rows >>> 6] = (1L << rows) - 1;
+                }
+            }
+            container.cardinality = rows;
+            return container;
+        }
+
+        private static Container ofWords(long[] words) {
+            Container container = new Container();
+            container.values = null;
+            container.words = words;
+            for (long word : words) {
+                container.cardinality += Long.bitCount(word);
+            }
+            return container;
+        }
+
+        private static Container ofValues(char[] values, int count) {
+            Container container = new Container();
+            container.values = values;
+            container.cardinality = count;
+            if (count > ARRAY_LIMIT) {
+                container.toBitmap();
+            }
+            return container;
+        }
+
+        boolean contains(char low) {
+            if (values != null) {
+                return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+            }
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        void add(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) == 0) {
+                    words[low >>> 6] |= bit;
+                    cardinality++;
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                return;
+            }
+            if (cardinality == ARRAY_LIMIT) {
+                toBitmap();
+                add(low);
+                return;
+            }
+            index = -index - 1;
+            if (cardinality == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_LIMIT, cardinality * 2));
+            }
+            System.arraycopy(values, index, values, index + 1, cardinality - index);
+            values[index] = low;
+            cardinality++;
+        }
+
+        void remove(char low) {
+            if (words != null) {
+                long bit = 1L << low;
+                if ((words[low >>> 6] & bit) != 0) {
+                    words[low >>> 6] &= ~bit;
+                    cardinality--;
+                    // Half the switch point, so a chunk hovering around it doesn't convert back and forth
+                    if (cardinality < ARRAY_LIMIT / 2) {
+                        toArray();
+                    }
+                }
+                return;
+            }
+            int index = Arrays.binarySearch(values, 0, cardinality, low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, cardinality - index - 1);
+                cardinality--;
+            }
+        }
+
+        private void toBitmap() {
+            words = new long[WORDS];
+            for (int i = 0; i < cardinality; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+            values = null;
+        }
+
+        private void toArray() {
+            char[] array = new char[Math.max(4, cardinality)];
+            int count = 0;
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    array[count++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            values = array;
+            words = null;
+        }
+
+        Container copy() {
+            Container copy = new Container();
+            copy.values = values == null ? null : Arrays.copyOf(values, Math.max(4, cardinality));
+            copy.words = words == null ? null : words.clone();
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        // The smallest value at or above from, or -1
+        int nextValue(int from) {
+            if (values != null) {
+                int index = Arrays.binarySearch(values, 0, cardinality, (char) from);
+                if (index < 0) {
+                    index = -index - 1;
+                }
+                return index < cardinality ? values[index] : -1;
+            }
+            int w = from >>> 6;
+            long word = words[w] & (-1L << from);
+            while (word == 0) {
+                if (++w == WORDS) {
+                    return -1;
+                }
+                word = words[w];
+            }
+            return (w << 6) + Long.numberOfTrailingZeros(word);
+        }
+
+        void orInto(long[] target) {
+            if (values != null) {
+                for (int i = 0; i < cardinality; i++) {
+                    target[values[i] >>> 6] |= 1L << values[i];
+                }
+            } else {
+                for (int w = 0; w < WORDS; w++) {
+                    target[w] |= words[w];
+                }
+            }
+        }
+
+        static Container and(Container a, Container b) {
+            if (a.values != null && b.values != null) {
+                char[] result = new char[Math.max(4, Math.min(a.cardinality, b.cardinality))];
+                int count = 0;
+                for (int i = 0, j = 0; i < a.cardinality && j < b.cardinality; ) {
+                    if (a.values[i] < b.values[j]) {
+                        i++;
+                    } else if (a.values[i] > b.values[j]) {
+                        j++;
+                    } else {
+                        result[count++] = a.values[i];
+                        i++;
+                        j++;
+                    }
+                }
+                return ofValues(result, count);
+            }
+            if (a.values != null) {
+                return filter(a, b, true);
+            }
+            if (b.values != null) {
+                return filter(b, a, true);
+            }
+            long[] result = new long[WORDS];
+            for (int w = 0; w < WORDS; w++) {
+                result[w] = a.words[w] & b.words[w];
+            }
+            return ofWords(result);
+        }
+
+        static Container or(Container a, Container b) {
+            if (a.values != null && b.values != null) {
+                char[] result = new char[a.cardinality + b.cardinality];
+                int count = 0;
+                int i = 0;
+                int j = 0;
+                while (i < a.cardinality || j < b.cardinality) {
+                    if (j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) {
+                        result[count++] = a.values[i++];
+                    } else if (i == a.cardinality || b.values[j] < a.values[i]) {
+                        result[count++] = b.values[j++];
+                    } else {
+                        result[count++] = a.values[i++];
+                        j++;
+                    }
+                }
+                return ofValues(result, count);
+            }
+            Container bitmap = a.words != null ? a : b;
+            Container other = bitmap == a ? b : a;
+            long[] result = bitmap.words.clone();
+            if (other.values != null) {
+                for (int i = 0; i < other.cardinality; i++) {
+                    result[other.values[i] >>> 6] |= 1L << other.values[i];
+                }
+            } else {
+                for (int w = 0; w < WORDS; w++) {
+                    result[w] |= other.words[w];
+                }
+            }
+            return ofWords(result);
+        }
+
+        static Container andNot(Container a, Container b) {
+            if (a.values != null) {
+                return filter(a, b, false);
+            }
+            long[] result = a.words.clone();
+            if (b.values != null) {
+                for (int i = 0; i < b.cardinality; i++) {
+                    result[b.values[i] >>> 6] &= ~(1L << b.values[i]);
+                }
+            } else {
+                for (int w = 0; w < WORDS; w++) {
+                    result[w] &= ~b.words[w];
+                }
+            }
+            return ofWords(result);
+        }
+
+        // The values of array whose membership in other equals keep
+        private static Container filter(Container array, Container other, boolean keep) {
+            char[] result = new char[Math.max(4, array.cardinality)];
+            int count = 0;
+            if (other.words != null) {
+                // Branch-free: always store, advance only when the row is kept
+                long flip = keep ? 0 : 1;
+                for (int i = 0; i < array.cardinality; i++) {
+                    char value = array.values[i];
+                    result[count] = value;
+                    count += (int) (((other.words[value >>> 6] >>> value) & 1) ^ flip);
+                }
+            } else {
+                for (int i = 0; i < array.cardinality; i++) {
+                    if (other.contains(array.values[i]) == keep) {
+                        result[count++] = array.values[i];
+                    }
+                }
+            }
+            return ofValues(result, count);
+        }
+
+        boolean forEach(int base, IntPredicate action) {
+            if (values != null) {
+                for (int i = 0; i < cardinality; i++) {
+                    if (!action.test(base + values[i])) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            for (int w = 0; w < WORDS; w++) {
+                long word = words[w];
+                while (word != 0) {
+                    if (!action.test(base + (w << 6) + Long.numberOfTrailingZeros(word))) {
+                        return false;
+                    }
+                    word &= word - 1;
+                }
+            }
+            return true;
+        }
+
+        long sizeInBytes() {
+            return 24 + (values != null ? 16 + 2L * values.length : 16 + 8L * WORDS);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package main.java;
+import java.util.*;
+
+// Ordered index from salary to the ids of the employees earning it, so range
+// queries and top-N walk only the part of the tree they return.
+//
+// On the concurrent database the tree is a ConcurrentSkipListMap, whose compute
+// swaps values by compare-and-set and removes an emptied bucket only if it is
+// still the same set. A bucket changed in place would let an id added between
+// the two be dropped with it, so there every bucket is left as published and
+// a write replaces it with a changed copy.
+class SalaryIndex<T> {
+    private final Concurrency concurrency;
+    private final NavigableMap<Double, Set<T>> idsBySalary;
+
+    SalaryIndex(Concurrency concurrency) {
+        this.concurrency = concurrency;
+        this.idsBySalary = concurrency.newNavigableMap();
+    }
+
+    void add(T employeeId, double salary) {
+        idsBySalary.compute(salary, (key, ids) -> with(ids, Collections.singleton(employeeId)));
+    }
+
+    void remove(T employeeId, double salary) {
+        idsBySalary.computeIfPresent(salary, (key, ids) -> without(ids, Collections.singleton(employeeId)));
+    }
+
+    // Batch forms: one compute per distinct salary rather than one per employee
+    void addAll(Collection<Employee<T>> batch) {
+        for (Map.Entry<Double, List<T>> group : groupBySalary(batch).entrySet()) {
+            idsBySalary.compute(group.getKey(), (key, ids) -> with(ids, group.getValue()));
+        }
+    }
+
+    void removeAll(Collection<Employee<T>> batch) {
+        for (Map.Entry<Double, List<T>> group : groupBySalary(batch).entrySet()) {
+            idsBySalary.computeIfPresent(group.getKey(), (key, ids) -> without(ids, group.getValue()));
+        }
+    }
+
+    private Set<T> with(Set<T> ids, Collection<T> added) {
+        if (concurrency == Concurrency.CONCURRENT) {
+            Set<T> copy = ids == null ? new HashSet<>(added) : new HashSet<>(ids);
+            copy.addAll(added);
+            return Collections.unmodifiableSet(copy);
+        }
+        if (ids == null) {
+            ids = concurrency.newSet();
+        }
+        ids.addAll(added);
+        return ids;
+    }
+
+    private Set<T> without(Set<T> ids, Collection<T> removed) {
+        if (concurrency == Concurrency.CONCURRENT) {
+            ids = new HashSet<>(ids);
+        }
+        // Not removeAll: that falls back to List.contains when the set is the smaller side
+        for (T id : removed) {
+            ids.remove(id);
+        }
+        if (ids.isEmpty()) {
+            return null;
+        }
+        return concurrency == Concurrency.CONCURRENT ? Collections.unmodifiableSet(ids) : ids;
+    }
+
+    private static <T> Map<Double, List<T>> groupBySalary(Collection<Employee<T>> batch) {
+        Map<Double, List<T>> groups = new HashMap<>();
+        for (Employee<T> employee : batch) {
+            groups.computeIfAbsent(employee.getSalary(), key -> new ArrayList<>()).add(employee.getEmployeeId());
+        }
+        return groups;
+    }
+
+    Collection<Set<T>> range(double minSalary, double maxSalary) {
+        if (minSalary > maxSalary) {
+            return Collections.emptyList();
+        }
+        return idsBySalary.subMap(minSalary, true, maxSalary, true).values();
+    }
+
+    // Ids with a salary in the range, counted no further than cap
+    long countRange(double minSalary, double maxSalary, long cap) {
+        long count = 0;
+        for (Set<T> ids : range(minSalary, maxSalary)) {
+            count += ids.size();
+            if (count >= cap) {
+                return cap;
+            }
+        }
+        return count;
+    }
+
+    Collection<Set<T>> descendingRange(double minSalary, double maxSalary) {
+        if (minSalary > maxSalary) {
+            return Collections.emptyList();
+        }
+        return idsBySalary.subMap(minSalary, true, maxSalary, true).descendingMap().values();
+    }
+
+    Collection<Set<T>> descending() {
+        return idsBySalary.descendingMap().values();
+    }
+
+    // Distinct salaries
+    int size() {
+        return idsBySalary.size();
+    }
+
+    void clear() {
+        idsBySalary.clear();
+    }
+}
@@ -0,0 +1,117 @@
+package main.java;
+import java.util.*;
+
+// The employees in one EmployeeOrder, kept sorted as they change, so a sorted
+// list is a walk rather than a sort and a page is a seek plus the page's rows.
+// Each entry carries its sort key worked out once: names and departments
+// case-folded the way compareToIgnoreCase compares them, so ordering them is
+// a plain String comparison. Ties go by the id's text, which is the order
+// paging uses (PageCursor.totalOrder). Entries are found again by the
+// record's current values, so callers remove a record before changing its
+// key and add it back after. Not thread-safe.
+class SortedView<T> {
+    private final EmployeeOrder order;
+    private final NavigableSet<Key<T>> keys = new TreeSet<>();
+
+    SortedView(EmployeeOrder order) {
+        this.order = order;
+    }
+
+    // What compareToIgnoreCase compares each character as
+    static String fold(String text) {
+        if (text == null) {
+            return "";
+        }
+        char[] folded = new char[text.length()];
+        for (int i = 0; i < folded.length; i++) {
+            folded[i] = Character.toLowerCase(Character.toUpperCase(text.charAt(i)));
+        }
+        return new String(folded);
+    }
+
+    EmployeeOrder order() {
+        return order;
+    }
+
+    void add(Employee<T> employee) {
+        keys.add(key(employee));
+    }
+
+    void remove(Employee<T> employee) {
+        keys.remove(key(employee));
+    }
+
+    void addAll(Collection<Employee<T>> employees) {
+        for (Employee<T> employee : employees) {
+            add(employee);
+        }
+    }
+
+    void clear() {
+        keys.clear();
+    }
+
+    int size() {
+        return keys.size();
+    }
+
+    // The ids in order, starting after cursor when there is one
+    Iterable<T> ids(PageCursor after) {
+        Collection<Key<T>> from = after == null ? keys : keys.tailSet(cursorKey(after), false);
+        return () -> new Iterator<T>() {
+            private final Iterator<Key<T>> keys = from.iterator();
+
+            @Override
+            public boolean hasNext() {
+                return keys.hasNext();
+            }
+
+            @Override
+            public T next() {
+                return keys.next().employeeId;
+            }
+        };
+    }
+
+    private Key<T> key(Employee<T> employee) {
+        String id = PageCursor.idKey(employee);
+        switch (order) {
+            case NAME:
+                return new Key<>(fold(employee.getName()), 0, id, employee.getEmployeeId());
+            case DEPARTMENT:
+                return new Key<>(fold(employee.getDepartment()), 0, id, employee.getEmployeeId());
+            case SALARY:
+                return new Key<>(null, employee.getSalary(), id, employee.getEmployeeId());
+            case PERFORMANCE:
+                return new Key<>(null, employee.getPerformanceRating(), id, employee.getEmployeeId());
+            default:
+                return new Key<>(null, employee.getYearsOfExperience(), id, employee.getEmployeeId());
+        }
+    }
+
+    private Key<T> cursorKey(PageCursor cursor) {
+        boolean text = order == EmployeeOrder.NAME || order == EmployeeOrder.DEPARTMENT;
+        return new Key<>(text ? fold(cursor.text()) : null, cursor.number(), cursor.id(), null);
+    }
+
+    // Text keys ascend; numeric keys descend, like EmployeeOrder's comparators
+    private static final class Key<T> implements Comparable<Key<T>> {
+        final String text;
+        final double number;
+        final String id;
+        final T employeeId;
+
+        Key(String text, double number, String id, T employeeId) {
+            this.text = text;
+            this.number = number;
+            this.id = id;
+            this.employeeId = employeeId;
+        }
+
+        @Override
+        public int compareTo(Key<T> other) {
+            int comparison = text != null ? text.compareTo(other.text) : Double.compare(other.number, number);
+            return comparison != 0 ? comparison : id.compareTo(other.id);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+package test.java;
+
+import main.java.ConcurrentEmployeeDatabase;
+import main.java.Employee;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentEmployeeDatabaseTest {
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Sales"};
+
+    private static Employee<Integer> employee(int id) {
+        return new Employee<>(id, "Employee " + id, DEPARTMENTS[id % DEPARTMENTS.length],
+                50000 + (id % 100) * 500, (id % 50) / 10.0, id % 30, id % 3 != 0);
+    }
+
+    private static void runThreads(int threads, Runnable work) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CyclicBarrier start = new CyclicBarrier(threads);
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            futures.add(pool.submit(() -> {
+                start.await();
+                work.run();
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+    }
+
+    @Test
+    public void testAddIsAtomicUnderContention() throws Exception {
+        ConcurrentEmployeeDatabase<Integer> database = new ConcurrentEmployeeDatabase<>();
+        LongAdder successfulAdds = new LongAdder();
+        runThreads(8, () -> {
+            for (int id = 0; id < 5000; id++) {
+                if (database.addEmployee(employee(id))) {
+                    successfulAdds.increment();
+                }
+            }
+        });
+        assertEquals(5000, successfulAdds.sum());
+        assertEquals(5000, database.getEmployeeCount());
+    }
+
+    @Test
+    public void testRaisesAreNotLost() throws Exception {
+        ConcurrentEmployeeDatabase<Integer> database = new ConcurrentEmployeeDatabase<>();
+        database.addEmployee(new Employee<>(1, "Emmanuel Arhu", "IT", 1000, 5.0, 5, true));
+        runThreads(8, () -> {
+            for (int i = 0; i < 100; i++) {
+                database.giveSalaryRaise(4.0, 1);
+            }
+        });
+        double expected = 1000;
+        for (int i = 0; i < 800; i++) {
+            expected *= 1 + 1.0 / 100;
+        }
+        assertEquals(expected, database.getEmployee(1).get().getSalary(), 1e-6);
+        assertEquals(1, database.getEmployeesBySalaryRange(expected - 1, expected + 1).size());
+    }
+
+    @Test
+    public void testIndexesStayConsistentUnderMixedWrites() throws Exception {
+        ConcurrentEmployeeDatabase<Integer> database = new ConcurrentEmployeeDatabase<>();
+        runThreads(8, () -> {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int i = 0; i < 20000; i++) {
+                int id = random.nextInt(500);
+                switch (random.nextInt(4)) {
+                    case 0 -> database.addEmployee(employee(id));
+                    case 1 -> database.removeEmployee(id);
+                    case 2 -> database.updateEmployeeDetails(id, "department", DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+                    default -> database.updateEmployeeDetails(id, "salary", (double) random.nextInt(40000, 90000));
+                }
+            }
+        });
+
+        long counted = 0;
+        for (Map.Entry<String, Long> entry : database.getDepartmentCounts().entrySet()) {
+            assertEquals(entry.getValue().longValue(), database.getEmployeesByDepartment(entry.getKey()).size());
+            counted += entry.getValue();
+        }
+        assertEquals(database.getEmployeeCount(), counted);
+        assertEquals(database.getEmployeeCount(), database.getEmployeesBySalaryRange(0, Double.MAX_VALUE).size());
+        assertEquals(database.getEmployeeCount(), database.searchEmployeesByName("employee").size());
+    }
+
+    @Test
+    public void testNoWritesLostUnderReadWriteMix() throws Exception {
+        ConcurrentEmployeeDatabase<Integer> database = new ConcurrentEmployeeDatabase<>();
+        int size = 20_000;
+        for (int id = 0; id < size; id++) {
+            database.addEmployee(employee(id));
+        }
+        int threads = 4;
+        AtomicInteger nextThread = new AtomicInteger();
+        // Each thread writes only its own ids, so the last value of each is known, and reads everyone's
+        runThreads(threads, () -> {
+            int t = nextThread.getAndIncrement();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int round = 0; round < 5; round++) {
+                for (int id = t; id < size; id += threads) {
+                    database.updateEmployeeDetails(id, "salary", 40000.0 + round * 1000 + id % 1000);
+                    database.getEmployee(random.nextInt(size));
+                }
+            }
+            for (int i = 0; i < 1000; i++) {
+                int id = size + i * threads + t;
+                database.addEmployee(employee(id));
+                if (i % 2 == 0) {
+                    database.removeEmployee(id);
+                }
+            }
+        });
+
+        int expectedCount = size + threads * 500;
+        assertEquals(expectedCount, database.getEmployeeCount());
+        for (int id = 0; id < size; id++) {
+            assertEquals(44000.0 + id % 1000, database.getEmployee(id).get().getSalary());
+        }
+        for (int i = 0; i < 1000 * threads; i++) {
+            assertEquals(i / threads % 2 != 0, database.getEmployee(size + i).isPresent());
+        }
+        assertEquals(size, database.getEmployeesBySalaryRange(44000, 44999).size());
+        assertEquals(expectedCount, database.getEmployeesBySalaryRange(0, Double.MAX_VALUE).size());
+        assertEquals(expectedCount, database.searchEmployeesByName("employee").size());
+        long counted = 0;
+        for (Map.Entry<String, Long> entry : database.getDepartmentCounts().entrySet()) {
+            assertEquals(entry.getValue().longValue(), database.getEmployeesByDepartment(entry.getKey()).size());
+            counted += entry.getValue();
+        }
+        assertEquals(expectedCount, counted);
+    }
+
+    @Test
+    public void testSalaryIndexKeepsEveryIdUnderContention() throws Exception {
+        ConcurrentEmployeeDatabase<Integer> database = new ConcurrentEmployeeDatabase<>();
+        int threads = 8;
+        int idsPerThread = 4;
+        double[] salaries = new double[16];
+        for (int i = 0; i < salaries.length; i++) {
+            salaries[i] = 40000 + i * 1000;
+        }
+        AtomicInteger nextThread = new AtomicInteger();
+        // Few employees over many salaries, so buckets keep emptying while others are added to them
+        runThreads(threads, () -> {
+            int t = nextThread.getAndIncrement();
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            for (int id = t; id < threads * idsPerThread; id += threads) {
+                database.addEmployee(employee(id));
+            }
+            for (int i = 0; i < 50_000; i++) {
+                int id = t + threads * random.nextInt(idsPerThread);
+                double salary = salaries[random.nextInt(salaries.length)];
+                if (i % 10 == 0) {
+                    database.removeEmployee(id);
+                    Employee<Integer> employee = employee(id);
+                    employee.setSalary(salary);
+                    database.addEmployee(employee);
+                } else {
+                    database.updateEmployeeDetails(id, "salary", salary);
+                }
+            }
+        });
+
+        int count = threads * idsPerThread;
+        assertEquals(count, database.getEmployeeCount());
+        for (int id = 0; id < count; id++) {
+            double salary = database.getEmployee(id).get().getSalary();
+            int employeeId = id;
+            assertTrue(database.getEmployeesBySalaryRange(salary, salary).stream()
+                    .anyMatch(employee -> employee.getEmployeeId() == employeeId), "id " + id);
+        }
+        assertEquals(count, database.getEmployeesBySalaryRange(0, Double.MAX_VALUE).size());
+        assertEquals(count, database.getTopNHighestPaidEmployees(count).size());
+    }
+}
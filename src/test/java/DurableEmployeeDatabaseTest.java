@@ -0,0 +1,186 @@
+package test.java;
+
+import main.java.DatabaseOperation;
+import main.java.DurableEmployeeDatabase;
+import main.java.Employee;
+import main.java.EmployeeBatch;
+import main.java.EmployeeIdCodec;
+import main.java.EmployeeUpdate;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DurableEmployeeDatabaseTest {
+
+    private Path directory;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("employee-journal");
+    }
+
+    private DurableEmployeeDatabase<Integer> open() throws IOException {
+        return DurableEmployeeDatabase.open(directory, EmployeeIdCodec.INTEGER);
+    }
+
+    @Test
+    public void testMutationsSurviveRestart() throws IOException {
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            database.addEmployee(new Employee<>(1, "Emmanuel Arhu", "IT", 75000, 4.5, 5, true));
+            database.addEmployee(new Employee<>(2, "Sarah Johnson", "HR", 65000, 4.7, 7, true));
+            database.addEmployee(new Employee<>(3, "Michael Brown", "Finance", 82000, 3.9, 4, true));
+            database.updateEmployeeDetails(3, "department", "IT");
+            database.updateEmployeeDetails(2, "salary", "70000");
+            database.giveSalaryRaise(4.6, 10);
+            database.removeEmployee(1);
+        }
+
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            assertEquals(2, database.getEmployeeCount());
+            assertFalse(database.getEmployee(1).isPresent());
+            assertEquals(77000.0, database.getEmployee(2).get().getSalary(), 1e-9);
+            assertEquals(1, database.getEmployeesByDepartment("it").size());
+        }
+    }
+
+    @Test
+    public void testLoggingAnUpdateIsNotCountedAsALookup() throws IOException {
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            database.addEmployee(new Employee<>(1, "Emmanuel Arhu", "IT", 75000, 4.5, 5, true));
+            database.updateEmployeeDetails(1, "salary", "80000");
+            database.updateEmployee(1, EmployeeUpdate.of("department", "HR"));
+            assertEquals(0, database.metrics().calls(DatabaseOperation.GET_EMPLOYEE));
+        }
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            assertEquals(80000.0, database.getEmployee(1).get().getSalary(), 1e-9);
+            assertEquals("HR", database.getEmployee(1).get().getDepartment());
+        }
+    }
+
+    @Test
+    public void testRecoveryStartsFromLatestSnapshot() throws IOException {
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            for (int id = 0; id < 1000; id++) {
+                database.addEmployee(new Employee<>(id, "Employee " + id, "IT", 50000, 3.0, 1, true));
+            }
+            database.checkpoint();
+            database.clearDatabase();
+            database.addEmployee(new Employee<>(7, "Emily Davis", "HR", 78000, 4.2, 6, true));
+        }
+
+        try (Stream<Path> files = Files.list(directory)) {
+            assertEquals(2, files.count(), "older segments are dropped after a snapshot");
+        }
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            assertEquals(1, database.getEmployeeCount());
+            assertEquals("Emily Davis", database.getEmployee(7).get().getName());
+        }
+    }
+
+    @Test
+    public void testTornTailIsDiscarded() throws IOException {
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            database.addEmployee(new Employee<>(1, "Emmanuel Arhu", "IT", 75000, 4.5, 5, true));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            Path log = files.filter(f -> f.toString().endsWith(".log") && f.toFile().length() > 0).findFirst().get();
+            Files.write(log, new byte[]{0, 0, 0, 40, 1, 2}, StandardOpenOption.APPEND);
+        }
+
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            assertEquals(1, database.getEmployeeCount());
+            database.addEmployee(new Employee<>(2, "Sarah Johnson", "HR", 65000, 4.7, 7, true));
+        }
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            assertEquals(2, database.getEmployeeCount());
+        }
+    }
+
+    @Test
+    public void testCorruptionBeforeTheLastSegmentFailsRecovery() throws IOException {
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            database.addEmployee(new Employee<>(1, "Emmanuel Arhu", "IT", 75000, 4.5, 5, true));
+            database.addEmployee(new Employee<>(2, "Sarah Johnson", "HR", 65000, 4.7, 7, true));
+        }
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            database.addEmployee(new Employee<>(3, "Michael Brown", "Finance", 82000, 3.9, 4, true));
+        }
+        // A flipped byte in the first segment is not a torn write, and cutting
+        // the log there would silently drop employee 3 as well
+        Path first = directory.resolve("wal-0.log");
+        byte[] bytes = Files.readAllBytes(first);
+        bytes[12] ^= 1;
+        Files.write(first, bytes);
+
+        assertThrows(IOException.class, this::open);
+        assertArrayEquals(bytes, Files.readAllBytes(first), "the corrupt segment is left as it was");
+    }
+
+    @Test
+    public void testBatchesSurviveRestartOrVanishWhole() throws IOException {
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            List<Employee<Integer>> hires = new ArrayList<>();
+            for (int id = 0; id < 40_000; id++) {
+                hires.add(new Employee<>(id, "Employee " + id, "IT", 50000, 3.0, 1, true));
+            }
+            assertEquals(40_000, database.addEmployees(hires));
+            database.applyBatch(new EmployeeBatch<Integer>().update(1, "department", "HR").remove(2));
+        }
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            assertEquals(39_999, database.getEmployeeCount());
+            assertEquals("HR", database.getEmployee(1).get().getDepartment());
+        }
+
+        // Cut the log inside the last batch: none of it may come back
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            List<Employee<Integer>> hires = new ArrayList<>();
+            for (int id = 100_000; id < 140_000; id++) {
+                hires.add(new Employee<>(id, "Employee " + id, "IT", 50000, 3.0, 1, true));
+            }
+            database.addEmployees(hires);
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            Path log = files.filter(f -> f.toString().endsWith(".log") && f.toFile().length() > 0)
+                    .max(Path::compareTo).get();
+            try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+                channel.truncate(channel.size() - 100);
+            }
+        }
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            assertEquals(39_999, database.getEmployeeCount());
+        }
+    }
+
+    @Test
+    public void testRecoversEveryRecordOfALargeJournal() throws IOException {
+        int count = 200_000;
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            for (int id = 0; id < count; id++) {
+                database.addEmployee(new Employee<>(id, "Employee " + id, "IT", 50000 + id, 3.0, 1, true));
+            }
+            for (int id = 0; id < count; id += 1000) {
+                database.updateEmployeeDetails(id, "salary", 1.0 * id);
+                database.removeEmployee(id + 1);
+            }
+            database.sync();
+        }
+
+        try (DurableEmployeeDatabase<Integer> database = open()) {
+            assertEquals(count - count / 1000, database.getEmployeeCount());
+            assertEquals(5000.0, database.getEmployee(5000).get().getSalary());
+            assertFalse(database.getEmployee(5001).isPresent());
+            assertEquals(50000.0 + 5002, database.getEmployee(5002).get().getSalary());
+            assertEquals("Employee " + (count - 1), database.getEmployee(count - 1).get().getName());
+        }
+    }
+}
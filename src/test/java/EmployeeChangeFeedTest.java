@@ -0,0 +1,196 @@
+package test.java;
+
+import main.java.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeChangeFeedTest {
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing"};
+
+    private static Employee<Integer> employee(int id, Random random) {
+        return new Employee<>(id, "Employee " + id, DEPARTMENTS[random.nextInt(DEPARTMENTS.length)],
+                40000 + random.nextInt(60000), random.nextInt(11) / 2.0, random.nextInt(30), random.nextBoolean());
+    }
+
+    // Keeps a copy of the database from its changes alone
+    private static final class Replica implements EmployeeChangeFeed.Listener<Integer> {
+        final Map<Integer, Employee<Integer>> employees = new HashMap<>();
+        final List<EmployeeChange.Kind> kinds = new ArrayList<>();
+
+        @Override
+        public void changed(List<EmployeeChange<Integer>> batch) {
+            for (EmployeeChange<Integer> change : batch) {
+                kinds.add(change.getKind());
+                switch (change.getKind()) {
+                    case ADDED:
+                        employees.put(change.getEmployeeId(), new Employee<>(change.getEmployee()));
+                        break;
+                    case REMOVED:
+                        assertNotNull(employees.remove(change.getEmployeeId()));
+                        break;
+                    case FIELD_CHANGED:
+                        Employee<Integer> employee = employees.get(change.getEmployeeId());
+                        if (change.getField() == EmployeeField.SALARY) {
+                            assertEquals(employee.getSalary(), change.getOldValue());
+                        }
+                        EmployeeUpdate.of(change.getField(), change.getNewValue()).applyTo(employee);
+                        break;
+                    case RAISE:
+                        for (Integer id : change.getRaisedIds()) {
+                            Employee<Integer> raised = employees.get(id);
+                            raised.setSalary(raised.getSalary() * (1 + change.getPercentage() / 100));
+                        }
+                        break;
+                    case CLEARED:
+                        employees.clear();
+                        break;
+                }
+            }
+        }
+    }
+
+    private static void assertSameEmployees(EmployeeDatabase<Integer> database, Map<Integer, Employee<Integer>> replica) {
+        assertEquals(database.getEmployeeCount(), replica.size());
+        for (Employee<Integer> expected : database.getAllEmployees()) {
+            Employee<Integer> actual = replica.get(expected.getEmployeeId());
+            assertNotNull(actual, "missing " + expected.getEmployeeId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getDepartment(), actual.getDepartment());
+            assertEquals(expected.getSalary(), actual.getSalary());
+            assertEquals(expected.getPerformanceRating(), actual.getPerformanceRating());
+            assertEquals(expected.getYearsOfExperience(), actual.getYearsOfExperience());
+            assertEquals(expected.isActive(), actual.isActive());
+        }
+    }
+
+    @Test
+    public void testReplicaFollowsEveryKindOfChange() {
+        EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+        Random random = new Random(19);
+        Replica replica = new Replica();
+        database.changes().subscribe(replica);
+
+        for (int round = 0; round < 3000; round++) {
+            int id = random.nextInt(500);
+            switch (random.nextInt(7)) {
+                case 0:
+                case 1:
+                    database.addEmployee(employee(id, random));
+                    break;
+                case 2:
+                    database.removeEmployee(id);
+                    break;
+                case 3:
+                    database.upsertEmployee(employee(id, random));
+                    break;
+                case 4:
+                    database.updateEmployeeDetails(id, "salary", 30000 + random.nextInt(90000));
+                    database.updateEmployeeDetails(id, "department", DEPARTMENTS[random.nextInt(DEPARTMENTS.length)]);
+                    database.updateEmployeeDetails(id, "isActive", random.nextBoolean());
+                    break;
+                case 5:
+                    database.applyBatch(new EmployeeBatch<Integer>()
+                            .upsert(employee(id, random))
+                            .remove(random.nextInt(500))
+                            .upsert(employee(500 + random.nextInt(100), random)));
+                    break;
+                default:
+                    database.giveSalaryRaise(random.nextInt(11) / 2.0, random.nextInt(20));
+                    break;
+            }
+            if (round == 2000) {
+                database.clearDatabase();
+            }
+        }
+        assertTrue(database.changes().awaitDelivery(10, TimeUnit.SECONDS));
+        assertSameEmployees(database, replica.employees);
+        assertTrue(replica.kinds.containsAll(EnumSet.allOf(EmployeeChange.Kind.class)));
+        database.changes().close();
+    }
+
+    @Test
+    public void testSlowListenerIsToldWhatItMissed() throws InterruptedException {
+        EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicLong received = new AtomicLong();
+        AtomicLong lost = new AtomicLong();
+        database.changes().subscribe(new EmployeeChangeFeed.Listener<>() {
+            @Override
+            public void changed(List<EmployeeChange<Integer>> batch) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                received.addAndGet(batch.size());
+            }
+
+            @Override
+            public void overflowed(long count) {
+                lost.addAndGet(count);
+            }
+        });
+        int count = 100_000;
+        Random random = new Random(7);
+        for (int id = 0; id < count; id++) {
+            // Writers carry on while the listener is stuck
+            assertTrue(database.addEmployee(employee(id, random)));
+        }
+        release.countDown();
+        assertTrue(database.changes().awaitDelivery(10, TimeUnit.SECONDS));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (lost.get() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+        assertTrue(lost.get() > 0);
+        assertEquals(count, received.get() + lost.get());
+        database.changes().close();
+    }
+
+    @Test
+    public void testConcurrentWritersKeepEachEmployeesChangesInOrder() throws Exception {
+        ConcurrentEmployeeDatabase<Integer> database = new ConcurrentEmployeeDatabase<>();
+        Replica replica = new Replica();
+        database.changes().subscribe(replica);
+        Thread[] writers = new Thread[4];
+        for (int t = 0; t < writers.length; t++) {
+            int seed = t;
+            writers[t] = new Thread(() -> {
+                Random random = new Random(seed);
+                for (int round = 0; round < 5000; round++) {
+                    int id = random.nextInt(200);
+                    switch (random.nextInt(3)) {
+                        case 0:
+                            database.addEmployee(employee(id, random));
+                            break;
+                        case 1:
+                            database.removeEmployee(id);
+                            break;
+                        default:
+                            database.updateEmployeeDetails(id, "performanceRating", random.nextInt(11) / 2.0);
+                            database.updateEmployeeDetails(id, "salary", 30000 + random.nextInt(90000));
+                            break;
+                    }
+                }
+            });
+            writers[t].start();
+        }
+        // Raises run while the writers change salaries the raises have already reached
+        for (int round = 0; round < 200; round++) {
+            database.giveSalaryRaise(round % 11 / 2.0, 1 + round % 5);
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertTrue(database.changes().awaitDelivery(10, TimeUnit.SECONDS));
+        assertSameEmployees(database, replica.employees);
+        database.changes().close();
+    }
+}
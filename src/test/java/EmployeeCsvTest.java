@@ -0,0 +1,126 @@
+package test.java;
+
+import main.java.Employee;
+import main.java.EmployeeCsv;
+import main.java.EmployeeDatabase;
+import main.java.InvalidEmployeeDataException;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeCsvTest {
+
+    @Test
+    public void testExportThenImportRoundTrips() throws IOException {
+        EmployeeDatabase<Integer> source = new EmployeeDatabase<>();
+        source.addEmployee(new Employee<>(1, "Arhu, Emmanuel", "IT", 75000.5, 4.5, 5, true));
+        source.addEmployee(new Employee<>(2, "Sarah \"Sally\" Johnson", "HR", 65000, 4.7, 7, false));
+        // Import trims unquoted fields, so padded values must come back quoted
+        source.addEmployee(new Employee<>(3, "  Michael Brown ", " Finance", 82000, 3.9, 4, true));
+        Path file = Files.createTempFile("employees", ".csv");
+
+        assertEquals(3, EmployeeCsv.exportCsv(source, file));
+        EmployeeDatabase<Integer> target = new EmployeeDatabase<>();
+        assertEquals(3, EmployeeCsv.importCsv(file, target, Integer::valueOf));
+
+        for (int id = 1; id <= 3; id++) {
+            assertEquals(source.getEmployee(id).toString(), target.getEmployee(id).toString());
+        }
+        assertEquals("  Michael Brown ", target.getEmployee(3).get().getName());
+    }
+
+    @Test
+    public void testEmployeesWithoutADepartmentRoundTrip() throws IOException {
+        EmployeeDatabase<Integer> source = new EmployeeDatabase<>();
+        source.addEmployee(new Employee<>(1, "Emmanuel Arhu", null, 75000, 4.5, 5, true));
+        source.addEmployee(new Employee<>(2, "Sarah Johnson", "", 65000, 4.7, 7, true));
+        Path file = Files.createTempFile("employees", ".csv");
+
+        assertEquals(2, EmployeeCsv.exportCsv(source, file));
+        EmployeeDatabase<Integer> target = new EmployeeDatabase<>();
+        assertEquals(2, EmployeeCsv.importCsv(file, target, Integer::valueOf));
+        assertNull(target.getEmployee(1).get().getDepartment());
+        assertEquals("", target.getEmployee(2).get().getDepartment());
+
+        // Import requires a name, so export refuses to write a file without one
+        source.addEmployee(new Employee<>(3, null, "IT", 82000, 3.9, 4, true));
+        assertThrows(InvalidEmployeeDataException.class, () -> EmployeeCsv.exportCsv(source, file));
+        assertFalse(Files.exists(file));
+    }
+
+    @Test
+    public void testInvalidRowsAreReportedByLineAndNothingIsLoaded() throws IOException {
+        Path file = Files.createTempFile("employees", ".csv");
+        Files.write(file, List.of(
+                EmployeeCsv.HEADER,
+                "1,Emmanuel Arhu,IT,75000,4.5,5,true",
+                "2,Sarah Johnson,HR,lots,4.7,7,true",
+                "3,Michael Brown,Finance,82000,3.9,4",
+                "4,Emily Davis,IT,78000,4.2,6,yes"));
+
+        EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+        InvalidEmployeeDataException error = assertThrows(InvalidEmployeeDataException.class,
+                () -> EmployeeCsv.importCsv(file, database, Integer::valueOf));
+        assertTrue(error.getMessage().contains("3 line(s)"), error.getMessage());
+        assertTrue(error.getMessage().contains("line 3: salary 'lots'"), error.getMessage());
+        assertTrue(error.getMessage().contains("line 4: expected 7 fields"), error.getMessage());
+        assertTrue(error.getMessage().contains("line 5: isActive"), error.getMessage());
+        assertEquals(0, database.getEmployeeCount());
+    }
+
+    @Test
+    public void testLargeFileIsSplitWithoutLosingLines() throws IOException {
+        Path file = Files.createTempFile("employees", ".csv");
+        int rows = 300_000;
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int id = 0; id < rows; id++) {
+                out.write(id + ",Employee " + id + ",IT," + (40000 + id % 1000) + ",3.5," + id % 30 + ",true\n");
+            }
+            out.write("bad row\n");
+        }
+
+        InvalidEmployeeDataException error = assertThrows(InvalidEmployeeDataException.class,
+                () -> EmployeeCsv.importCsv(file, new EmployeeDatabase<>(), Integer::valueOf));
+        assertTrue(error.getMessage().contains("line " + (rows + 1) + ":"), error.getMessage());
+
+        List<String> lines = Files.readAllLines(file);
+        Files.write(file, lines.subList(0, rows));
+        EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+        assertEquals(rows, EmployeeCsv.importCsv(file, database, Integer::valueOf));
+        assertEquals("Employee 12345", database.getEmployee(12345).get().getName());
+    }
+
+    @Test
+    public void testRowsAddedBeforeAnErrorAreRolledBack() throws IOException {
+        Path file = Files.createTempFile("employees", ".csv");
+        int rows = 20_000;
+        int blankLines = 66_000;
+        try (BufferedWriter out = Files.newBufferedWriter(file)) {
+            for (int id = 1; id <= rows; id++) {
+                out.write(id + ",Employee " + id + ",IT,50000,3.5,2,true\n");
+            }
+            // Over 64 MB of blank lines, so the bad row is in a later window than the batches already added
+            String blank = " ".repeat(1023) + "\n";
+            for (int i = 0; i < blankLines; i++) {
+                out.write(blank);
+            }
+            out.write("bad row\n");
+        }
+
+        EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+        database.addEmployee(new Employee<>(7, "Existing", "HR", 60000, 4, 3, true));
+        InvalidEmployeeDataException error = assertThrows(InvalidEmployeeDataException.class,
+                () -> EmployeeCsv.importCsv(file, database, Integer::valueOf));
+        assertTrue(error.getMessage().contains("line " + (rows + blankLines + 1) + ":"), error.getMessage());
+        // The employee that was there before keeps its record
+        assertEquals(1, database.getEmployeeCount());
+        assertEquals("Existing", database.getEmployee(7).get().getName());
+        assertTrue(database.getEmployee(1).isEmpty());
+    }
+}
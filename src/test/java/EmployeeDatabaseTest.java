@@ -0,0 +1,218 @@
+package test.java;
+
+import main.java.DepartmentStats;
+import main.java.Employee;
+import main.java.EmployeeBatch;
+import main.java.EmployeeDatabase;
+import main.java.EmployeeNotFoundException;
+import main.java.EmployeeUpdate;
+import main.java.InvalidEmployeeDataException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeDatabaseTest {
+
+    private EmployeeDatabase<Integer> database;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmployeeDatabase<>();
+        database.addEmployee(new Employee<>(1, "Emmanuel Arhu", "IT", 75000, 4.5, 5, true));
+        database.addEmployee(new Employee<>(2, "Sarah Johnson", "HR", 65000, 4.7, 7, true));
+        database.addEmployee(new Employee<>(3, "Michael Brown", "Finance", 82000, 3.9, 4, true));
+        database.addEmployee(new Employee<>(4, "Emily Davis", "IT", 78000, 4.2, 6, true));
+        database.addEmployee(new Employee<>(5, "David Wilson", "Marketing", 61000, 4.0, 3, false));
+    }
+
+    @Test
+    public void testDepartmentLookupIgnoresCase() {
+        assertEquals(2, database.getEmployeesByDepartment("it").size());
+        assertEquals(2, database.getEmployeesByDepartment("IT").size());
+        assertTrue(database.getEmployeesByDepartment("Legal").isEmpty());
+    }
+
+    @Test
+    public void testDepartmentIndexFollowsMutations() {
+        database.removeEmployee(1);
+        assertEquals(1, database.getEmployeesByDepartment("IT").size());
+
+        assertTrue(database.updateEmployeeDetails(4, "department", "Finance"));
+        assertTrue(database.getEmployeesByDepartment("IT").isEmpty());
+        assertEquals(2, database.getEmployeesByDepartment("finance").size());
+
+        Map<String, Long> counts = database.getDepartmentCounts();
+        assertNull(counts.get("IT"));
+        assertEquals(Long.valueOf(2), counts.get("Finance"));
+
+        database.clearDatabase();
+        assertTrue(database.getDepartmentCounts().isEmpty());
+        assertTrue(database.getEmployeesByDepartment("Finance").isEmpty());
+    }
+
+    @Test
+    public void testAverageSalaryByDepartment() {
+        assertEquals(76500.0, database.calculateAverageSalaryByDepartment("it"), 0.001);
+        assertEquals(0.0, database.calculateAverageSalaryByDepartment("Legal"), 0.001);
+
+        List<Employee<Integer>> hr = database.getEmployeesByDepartment("HR");
+        assertEquals("Sarah Johnson", hr.get(0).getName());
+    }
+
+    @Test
+    public void testAverageSalaryDoesNotDriftUnderChurn() {
+        // Hires far above and below the finance salary come and go; the
+        // running total must land back exactly on the one that stays
+        for (int round = 0; round < 50; round++) {
+            List<Employee<Integer>> hires = new ArrayList<>();
+            for (int id = 100; id < 300; id++) {
+                hires.add(new Employee<>(id, "Contractor " + id, "Finance",
+                        id % 2 == 0 ? 9_876_543.21 * id : 0.07 * id, 3.0, 1, true));
+            }
+            database.addEmployees(hires);
+            for (int id = 100; id < 300; id++) {
+                database.removeEmployee(id);
+            }
+        }
+        assertEquals(82000.0, database.calculateAverageSalaryByDepartment("Finance"));
+
+        // An emptied department starts over from nothing
+        database.removeEmployee(3);
+        database.addEmployee(new Employee<>(3, "Michael Brown", "Finance", 0.1, 3.9, 4, true));
+        assertEquals(0.1, database.calculateAverageSalaryByDepartment("Finance"));
+    }
+
+    @Test
+    public void testSalaryRangeAndTopPaidFollowRaises() {
+        assertEquals(3, database.getEmployeesBySalaryRange(65000, 78000).size());
+        assertTrue(database.getEmployeesBySalaryRange(90000, 80000).isEmpty());
+
+        List<Employee<Integer>> topTwo = database.getTopNHighestPaidEmployees(2);
+        assertEquals(3, topTwo.get(0).getEmployeeId());
+        assertEquals(4, topTwo.get(1).getEmployeeId());
+
+        assertEquals(1, database.giveSalaryRaise(4.6, 50));
+        assertEquals(2, database.getTopNHighestPaidEmployees(1).get(0).getEmployeeId());
+        assertTrue(database.getEmployeesBySalaryRange(65000, 65000).isEmpty());
+
+        assertTrue(database.updateEmployeeDetails(5, "salary", "100000"));
+        assertEquals(5, database.getTopNHighestPaidEmployees(1).get(0).getEmployeeId());
+        assertEquals(5, database.getTopNHighestPaidEmployees(10).size());
+    }
+
+    @Test
+    public void testNameSearchFollowsNameEdits() {
+        assertEquals(2, database.searchEmployeesByName("em").size());
+        assertEquals(1, database.searchEmployeesByName("JOHNSON").size());
+        assertEquals(5, database.searchEmployeesByName("").size());
+        assertTrue(database.searchEmployeesByName("xyz").isEmpty());
+
+        assertTrue(database.updateEmployeeDetails(2, "name", "Sarah Mensah"));
+        assertTrue(database.searchEmployeesByName("johnson").isEmpty());
+        assertEquals(2, database.searchEmployeesByName("Mensah").get(0).getEmployeeId());
+
+        database.removeEmployee(2);
+        assertTrue(database.searchEmployeesByName("mensah").isEmpty());
+    }
+
+    @Test
+    public void testBatchesKeepIndexesConsistent() {
+        List<Employee<Integer>> hires = new ArrayList<>();
+        for (int id = 10; id < 20; id++) {
+            hires.add(new Employee<>(id, "Hire " + id, "Legal", 50000 + id, 3.5, 1, true));
+        }
+        hires.add(new Employee<>(1, "Duplicate", "Legal", 1, 1, 1, true));
+        assertEquals(10, database.addEmployees(hires));
+        assertEquals("Emmanuel Arhu", database.getEmployee(1).get().getName());
+        assertEquals(10, database.getEmployeesByDepartment("legal").size());
+        assertEquals(10, database.searchEmployeesByName("hire").size());
+
+        assertEquals(2, database.removeEmployees(Arrays.asList(10, 11, 99)));
+        assertEquals(Long.valueOf(8), database.getDepartmentCounts().get("Legal"));
+
+        int changed = database.applyBatch(new EmployeeBatch<Integer>()
+                .update(1, "department", "Legal")
+                .update(1, "salary", 90000.0)
+                .upsert(new Employee<>(30, "Ama Owusu", "HR", 70000, 4.1, 2, true))
+                .remove(12));
+        assertEquals(3, changed);
+        assertEquals(1, database.getTopNHighestPaidEmployees(1).get(0).getEmployeeId());
+        assertEquals(1, database.getEmployeesByDepartment("IT").size());
+        assertEquals(Long.valueOf(8), database.getDepartmentCounts().get("Legal"));
+        assertEquals(2, database.getEmployeesByDepartment("hr").size());
+        assertTrue(database.searchEmployeesByName("Hire 12").isEmpty());
+    }
+
+    @Test
+    public void testInvalidBatchChangesNothing() {
+        assertThrows(InvalidEmployeeDataException.class,
+                () -> new EmployeeBatch<Integer>().remove(1).update(2, "salary", "not a number"));
+        assertThrows(EmployeeNotFoundException.class,
+                () -> database.applyBatch(new EmployeeBatch<Integer>().remove(3).update(3, "name", "Gone")));
+        assertEquals(5, database.getEmployeeCount());
+        assertEquals(65000.0, database.getEmployee(2).get().getSalary(), 0.001);
+    }
+
+    @Test
+    public void testBatchUpdatesLeaveTheCallersUpsertAlone() {
+        Employee<Integer> hire = new Employee<>(30, "Ama Owusu", "HR", 70000, 4.1, 2, true);
+        assertThrows(EmployeeNotFoundException.class, () -> database.applyBatch(new EmployeeBatch<Integer>()
+                .upsert(hire).update(30, "salary", 90000.0).update(99, "name", "Nobody")));
+        assertEquals(70000.0, hire.getSalary(), 0.001);
+
+        database.applyBatch(new EmployeeBatch<Integer>().upsert(hire).update(30, "salary", 90000.0));
+        assertEquals(70000.0, hire.getSalary(), 0.001);
+        assertEquals(90000.0, database.getEmployee(30).get().getSalary(), 0.001);
+        assertEquals(30, database.getTopNHighestPaidEmployees(1).get(0).getEmployeeId());
+    }
+
+    @Test
+    public void testPreparedUpdatesAreReusableAndReportErrors() {
+        EmployeeUpdate transfer = EmployeeUpdate.department("Legal");
+        for (int id = 1; id <= 3; id++) {
+            database.updateEmployee(id, transfer);
+        }
+        assertEquals(3, database.getEmployeesByDepartment("legal").size());
+        assertEquals(1, database.getEmployeesByDepartment("it").size());
+
+        database.updateEmployee(5, EmployeeUpdate.of("SALARY", 90000));
+        assertEquals(5, database.getTopNHighestPaidEmployees(1).get(0).getEmployeeId());
+
+        InvalidEmployeeDataException unknown = assertThrows(InvalidEmployeeDataException.class,
+                () -> EmployeeUpdate.of("title", "Manager"));
+        assertTrue(unknown.getMessage().contains("title"));
+        assertThrows(InvalidEmployeeDataException.class, () -> EmployeeUpdate.performanceRating(7));
+        assertThrows(InvalidEmployeeDataException.class, () -> EmployeeUpdate.of("isActive", "maybe"));
+        assertThrows(EmployeeNotFoundException.class, () -> database.updateEmployee(99, transfer));
+        assertFalse(database.updateEmployeeDetails(1, "yearsOfExperience", 2.5));
+    }
+
+    @Test
+    public void testDepartmentStatisticsFollowMutations() {
+        DepartmentStats it = database.getDepartmentStatistics().get("IT");
+        assertEquals(2, it.getCount());
+        assertEquals(75000.0, it.getMinSalary(), 0.001);
+        assertEquals(78000.0, it.getMaxSalary(), 0.001);
+        assertEquals(4.35, it.getAverageRating(), 1e-9);
+
+        database.giveSalaryRaise(4.4, 10);
+        database.updateEmployee(4, EmployeeUpdate.active(false));
+        database.removeEmployee(1);
+        it = database.getDepartmentStatistics().get("IT");
+        assertEquals(1, it.getCount());
+        assertEquals(0, it.getActiveCount());
+        assertEquals(78000.0, it.getMaxSalary(), 0.001);
+        assertEquals(71500.0, database.getDepartmentStatistics().get("HR").getTotalSalary(), 0.001);
+
+        database.updateEmployee(4, EmployeeUpdate.department("HR"));
+        assertNull(database.getDepartmentStatistics().get("IT"));
+        assertEquals(2, database.getDepartmentStatistics().get("HR").getCount());
+        assertEquals(74750.0, database.calculateAverageSalaryByDepartment("hr"), 0.001);
+    }
+}
@@ -0,0 +1,148 @@
+package test.java;
+
+import main.java.*;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeMetricsTest {
+
+    // These tests count calls, not what they return: alike employees but for
+    // their ids, in turn in three departments for the department gauge
+    private static <D extends EmployeeDatabase<Integer>> D hire(D database, int count) {
+        String[] departments = {"IT", "HR", "Finance"};
+        for (int id = 0; id < count; id++) {
+            database.addEmployee(new Employee<>(id, "Employee " + id, departments[id % departments.length],
+                    50000, 3.0, 1, true));
+        }
+        return database;
+    }
+
+    @Test
+    public void testCountsEachPublicCallOnce() {
+        EmployeeDatabase<Integer> database = hire(new EmployeeDatabase<>(), 300);
+        EmployeeMetrics metrics = database.metrics();
+        for (int i = 0; i < 7; i++) {
+            database.getEmployee(i);
+        }
+        database.searchEmployeesByName("Employee 1");
+        database.getEmployeesByMinRating(4);
+        database.getEmployeesSortedBySalary();
+        database.updateEmployeeDetails(1, "salary", 50000);
+
+        assertEquals(300, metrics.calls(DatabaseOperation.ADD_EMPLOYEE));
+        assertEquals(7, metrics.calls(DatabaseOperation.GET_EMPLOYEE));
+        assertEquals(1, metrics.calls(DatabaseOperation.SEARCH_EMPLOYEES_BY_NAME));
+        assertEquals(1, metrics.calls(DatabaseOperation.GET_EMPLOYEES_BY_MIN_RATING));
+        // getEmployeesByMinRating plans its query itself rather than calling query()
+        assertEquals(0, metrics.calls(DatabaseOperation.QUERY));
+        assertEquals(1, metrics.calls(DatabaseOperation.UPDATE_EMPLOYEE_DETAILS));
+        assertEquals(3, metrics.latency(DatabaseOperation.Kind.QUERY).count());
+
+        LatencySnapshot adds = metrics.latency(DatabaseOperation.ADD_EMPLOYEE);
+        assertTrue(adds.percentileNanos(50) > 0);
+        assertTrue(adds.percentileNanos(50) <= adds.percentileNanos(99));
+        assertTrue(adds.percentileNanos(99) <= adds.maxNanos());
+        assertTrue(adds.meanNanos() <= adds.maxNanos());
+
+        LatencySnapshot before = metrics.latency(DatabaseOperation.ADD_EMPLOYEE);
+        database.addEmployee(new Employee<>(1000, "New", "IT", 50000, 3, 1, true));
+        assertEquals(1, metrics.latency(DatabaseOperation.ADD_EMPLOYEE).minus(before).count());
+        // Lookups are counted every time but timed one call in a sample
+        LatencySnapshot lookups = metrics.latency(DatabaseOperation.GET_EMPLOYEE);
+        assertTrue(lookups.count() >= 1 && lookups.count() < 7);
+    }
+
+    @Test
+    public void testConcurrentCallsAreAllCounted() throws InterruptedException {
+        ConcurrentEmployeeDatabase<Integer> database = hire(new ConcurrentEmployeeDatabase<>(), 1000);
+        Thread[] readers = new Thread[4];
+        for (int t = 0; t < readers.length; t++) {
+            readers[t] = new Thread(() -> {
+                for (int i = 0; i < 50_000; i++) {
+                    database.getEmployee(i % 1000);
+                }
+            });
+            readers[t].start();
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertEquals(200_000, database.metrics().calls(DatabaseOperation.GET_EMPLOYEE));
+    }
+
+    @Test
+    public void testBatchesAndStreamsAreCountedOnce() {
+        ConcurrentEmployeeDatabase<Integer> database = hire(new ConcurrentEmployeeDatabase<>(), 10);
+        EmployeeMetrics metrics = database.metrics();
+        database.applyBatch(new EmployeeBatch<Integer>()
+                .upsert(new Employee<>(20, "New", "IT", 50000, 3, 1, true))
+                .update(1, "salary", 60000)
+                .remove(2));
+        database.removeEmployees(List.of(3, 4));
+        database.stream().count();
+        database.stream(new EmployeeQuery().department("IT")).count();
+
+        assertEquals(1, metrics.calls(DatabaseOperation.APPLY_BATCH));
+        assertEquals(1, metrics.calls(DatabaseOperation.REMOVE_EMPLOYEES));
+        assertEquals(0, metrics.calls(DatabaseOperation.UPSERT_EMPLOYEE));
+        assertEquals(0, metrics.calls(DatabaseOperation.REMOVE_EMPLOYEE));
+        assertEquals(2, metrics.calls(DatabaseOperation.STREAM));
+        assertEquals(0, metrics.latency(DatabaseOperation.STREAM).count());
+    }
+
+    @Test
+    public void testExportsThroughJmx() throws Exception {
+        EmployeeDatabase<Integer> database = hire(new EmployeeDatabase<>(), 30);
+        database.getEmployeesSortedByName();
+        ObjectName name = database.metrics().registerMBean("EmployeeMetricsTest");
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            assertEquals(30, server.getAttribute(name, "EmployeeCount"));
+
+            TabularData departments = (TabularData) server.getAttribute(name, "DepartmentCounts");
+            assertEquals(10L, departments.get(new Object[]{"IT"}).get("value"));
+
+            TabularData indexes = (TabularData) server.getAttribute(name, "IndexSizes");
+            assertEquals(3L, indexes.get(new Object[]{"departments"}).get("value"));
+            assertEquals(30L, indexes.get(new Object[]{"sortedByNAME"}).get("value"));
+
+            TabularData operations = (TabularData) server.getAttribute(name, "Operations");
+            CompositeData adds = (CompositeData) operations.get(new Object[]{"addEmployee"}).get("value");
+            assertEquals(30L, adds.get("calls"));
+            assertTrue((Double) adds.get("maxMicros") > 0);
+
+            String dump = (String) server.invoke(name, "dump", null, null);
+            assertTrue(dump.contains("getEmployeesSortedByName"));
+        } finally {
+            EmployeeMetrics.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testDumpsPeriodically() throws InterruptedException {
+        EmployeeDatabase<Integer> database = hire(new EmployeeDatabase<>(), 5);
+        BlockingQueue<String> dumps = new ArrayBlockingQueue<>(16);
+        ScheduledFuture<?> dumping = database.metrics().dumpEvery(20, TimeUnit.MILLISECONDS, dumps::offer);
+        try {
+            String first = dumps.poll(5, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertTrue(first.startsWith("employees 5"));
+            assertTrue(first.contains("addEmployee"));
+            assertNotNull(dumps.poll(5, TimeUnit.SECONDS));
+        } finally {
+            dumping.cancel(false);
+        }
+    }
+}
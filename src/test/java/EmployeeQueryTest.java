@@ -0,0 +1,236 @@
+package test.java;
+
+import main.java.Employee;
+import main.java.EmployeeBatch;
+import main.java.EmployeeDatabase;
+import main.java.EmployeeOrder;
+import main.java.EmployeePage;
+import main.java.EmployeeQuery;
+import main.java.EmployeeUpdate;
+import main.java.QueryPlan;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeQueryTest {
+
+    private static final String[] DEPARTMENTS = {"IT", "HR", "Finance", "Marketing", "Legal"};
+
+    private EmployeeDatabase<Integer> database;
+
+    @BeforeEach
+    public void setUp() {
+        database = new EmployeeDatabase<>();
+        Random random = new Random(11);
+        for (int id = 0; id < 20_000; id++) {
+            database.addEmployee(new Employee<>(id, "Employee " + Integer.toString(id, 36),
+                    id < 50 ? "Research" : DEPARTMENTS[random.nextInt(DEPARTMENTS.length)],
+                    30000 + random.nextInt(90000), random.nextInt(51) / 10.0, random.nextInt(30),
+                    random.nextBoolean()));
+        }
+    }
+
+    // What the query means, computed the slow way
+    private List<Employee<Integer>> scan(EmployeeQuery query, EmployeeOrder order, int limit) {
+        List<Employee<Integer>> expected = new ArrayList<>(database.filterEmployees(query::matches));
+        if (order != null) {
+            expected.sort(order.comparator());
+        }
+        return limit >= 0 && expected.size() > limit ? expected.subList(0, limit) : expected;
+    }
+
+    private static List<String> keys(List<Employee<Integer>> employees, EmployeeOrder order) {
+        // Ties may come back in any order, so compare the sort keys, not the rows
+        List<String> keys = new ArrayList<>();
+        for (Employee<Integer> employee : employees) {
+            if (order == null) {
+                keys.add(Integer.toString(employee.getEmployeeId()));
+                continue;
+            }
+            switch (order) {
+                case NAME -> keys.add(employee.getName().toLowerCase(Locale.ROOT));
+                case DEPARTMENT -> keys.add(employee.getDepartment().toLowerCase(Locale.ROOT));
+                case SALARY -> keys.add(Double.toString(employee.getSalary()));
+                case PERFORMANCE -> keys.add(Double.toString(employee.getPerformanceRating()));
+                default -> keys.add(Integer.toString(employee.getYearsOfExperience()));
+            }
+        }
+        if (order == null) {
+            keys.sort(null);
+        }
+        return keys;
+    }
+
+    @Test
+    public void testPlansPickTheSelectivePath() {
+        QueryPlan plan = database.explain(new EmployeeQuery().department("research").nameContains("ee"));
+        assertEquals(QueryPlan.Access.DEPARTMENT_INDEX, plan.getAccess());
+        assertEquals(50, plan.getEstimatedRows());
+        assertTrue(plan.toString().contains("department index"), plan.toString());
+
+        assertEquals(QueryPlan.Access.SALARY_RANGE,
+                database.explain(new EmployeeQuery().department("IT").salaryBetween(50000, 50100)).getAccess());
+        assertEquals(QueryPlan.Access.NAME_INDEX,
+                database.explain(new EmployeeQuery().department("IT").nameContains("ee 1a")).getAccess());
+        assertEquals(QueryPlan.Access.SALARY_ORDER,
+                database.explain(new EmployeeQuery().active(true).orderBy(EmployeeOrder.SALARY).limit(10)).getAccess());
+        assertEquals(QueryPlan.Access.BITMAPS,
+                database.explain(new EmployeeQuery().department("IT").active(true).minRating(4)).getAccess());
+        assertEquals(QueryPlan.Access.FULL_SCAN, database.explain(new EmployeeQuery().nameContains("ee")).getAccess());
+        assertEquals(QueryPlan.Access.SORTED_VIEW,
+                database.explain(new EmployeeQuery().active(true).orderBy(EmployeeOrder.NAME).limit(10)).getAccess());
+        assertEquals(QueryPlan.Access.SORTED_VIEW,
+                database.explain(new EmployeeQuery().orderBy(EmployeeOrder.DEPARTMENT)).getAccess());
+        assertEquals(QueryPlan.Access.DEPARTMENT_INDEX,
+                database.explain(new EmployeeQuery().department("research").orderBy(EmployeeOrder.NAME)).getAccess());
+    }
+
+    @Test
+    public void testSortedViewsFollowWrites() {
+        // Reading every order builds its view before the writes
+        for (EmployeeOrder order : EmployeeOrder.values()) {
+            assertEquals(keys(scan(new EmployeeQuery(), order, -1), order), keys(sorted(order), order));
+        }
+        Random random = new Random(20);
+        for (int round = 0; round < 500; round++) {
+            int id = random.nextInt(21_000);
+            switch (random.nextInt(6)) {
+                case 0 -> database.addEmployee(new Employee<>(id, "new " + id, "legal", 40000, 2.5, 3, true));
+                case 1 -> database.removeEmployee(id);
+                case 2 -> database.upsertEmployee(new Employee<>(id, "Upserted " + id, "hr", 60000, 4.5, 9, false));
+                case 3 -> database.updateEmployeeDetails(id, "name", "renamed " + random.nextInt(100));
+                case 4 -> database.updateEmployeeDetails(id, random.nextBoolean() ? "department" : "yearsOfExperience",
+                        random.nextBoolean() ? "Finance" : "7");
+                default -> database.updateEmployeeDetails(id, random.nextBoolean() ? "salary" : "performanceRating",
+                        random.nextInt(5));
+            }
+        }
+        database.giveSalaryRaise(4, 5);
+        database.applyBatch(new EmployeeBatch<Integer>().remove(10).update(11, EmployeeUpdate.name("Batched"))
+                .upsert(new Employee<>(30_000, "Batch added", "IT", 1, 1, 1, true)));
+        for (EmployeeOrder order : EmployeeOrder.values()) {
+            assertEquals(keys(scan(new EmployeeQuery(), order, -1), order), keys(sorted(order), order), order.toString());
+            EmployeeQuery query = new EmployeeQuery().active(true).orderBy(order).limit(40);
+            assertEquals(keys(scan(query, order, 40), order), keys(database.query(query), order), order.toString());
+        }
+        database.clearDatabase();
+        database.addEmployee(new Employee<>(1, "Only", "IT", 1, 1, 1, true));
+        assertEquals(1, database.getEmployeesSortedByName().size());
+    }
+
+    private List<Employee<Integer>> sorted(EmployeeOrder order) {
+        return switch (order) {
+            case NAME -> database.getEmployeesSortedByName();
+            case DEPARTMENT -> database.getEmployeesSortedByDepartment();
+            case SALARY -> database.getEmployeesSortedBySalary();
+            case PERFORMANCE -> database.getEmployeesSortedByPerformance();
+            case EXPERIENCE -> database.getEmployeesSortedByExperience();
+        };
+    }
+
+    @Test
+    public void testEveryPlanReturnsWhatAScanWould() {
+        database.removeEmployees(List.of(3, 4000, 19_999));
+        database.updateEmployee(5, EmployeeUpdate.active(false));
+        database.updateEmployee(6, EmployeeUpdate.department("it"));
+        database.updateEmployee(7, EmployeeUpdate.yearsOfExperience(31));
+        List<Supplier<EmployeeQuery>> queries = List.of(
+                () -> new EmployeeQuery().department("research"),
+                () -> new EmployeeQuery().department("it").salaryBetween(50000, 52000).active(true),
+                () -> new EmployeeQuery().nameContains("ee 1").minRating(3),
+                () -> new EmployeeQuery().nameContains("zz"),
+                () -> new EmployeeQuery().salaryBetween(90000, 80000),
+                () -> new EmployeeQuery().department("Nowhere"),
+                () -> new EmployeeQuery().active(true),
+                () -> new EmployeeQuery().department("it").active(false).minRating(3.7),
+                () -> new EmployeeQuery().minRating(0.3).minExperience(12),
+                () -> new EmployeeQuery().active(true).minExperience(29));
+        EmployeeOrder[] orders = {null, EmployeeOrder.SALARY, EmployeeOrder.NAME, EmployeeOrder.DEPARTMENT};
+        int[] limits = {-1, 0, 1, 25};
+        for (Supplier<EmployeeQuery> conditions : queries) {
+            for (EmployeeOrder order : orders) {
+                for (int limit : limits) {
+                    EmployeeQuery query = conditions.get();
+                    if (order != null) {
+                        query.orderBy(order);
+                    }
+                    if (limit >= 0) {
+                        query.limit(limit);
+                    }
+                    List<Employee<Integer>> actual = database.query(query);
+                    List<Employee<Integer>> expected = scan(query, order, limit);
+                    if (order == null && limit >= 0) {
+                        // Without an order any limit rows that match will do
+                        assertEquals(expected.size(), actual.size(), query.toString());
+                        assertTrue(actual.stream().allMatch(query::matches), query.toString());
+                    } else {
+                        assertEquals(keys(expected, order), keys(actual, order), database.explain(query).toString());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testPagesNeitherRepeatNorSkipRowsAcrossWrites() {
+        EmployeeOrder[] orders = {null, EmployeeOrder.SALARY, EmployeeOrder.NAME, EmployeeOrder.EXPERIENCE,
+                EmployeeOrder.DEPARTMENT};
+        int nextId = 100_000;
+        for (EmployeeOrder order : orders) {
+            EmployeeQuery query = new EmployeeQuery().department("IT").active(true);
+            if (order != null) {
+                query.orderBy(order);
+            }
+            Set<Integer> unseen = new HashSet<>();
+            database.filterEmployees(query::matches).forEach(e -> unseen.add(e.getEmployeeId()));
+            Set<Integer> seen = new HashSet<>();
+            String cursor = null;
+            do {
+                EmployeePage<Integer> page = database.page(query, cursor, 97);
+                for (Employee<Integer> employee : page.getEmployees()) {
+                    assertTrue(seen.add(employee.getEmployeeId()), "repeated " + employee);
+                    unseen.remove(employee.getEmployeeId());
+                }
+                // Writes between pages: drop a row already returned and one still ahead, add a new one
+                database.removeEmployee(page.getEmployees().get(0).getEmployeeId());
+                Iterator<Integer> ahead = unseen.iterator();
+                if (ahead.hasNext()) {
+                    database.removeEmployee(ahead.next());
+                    ahead.remove();
+                }
+                database.addEmployee(new Employee<>(nextId++, "Added " + nextId, "IT", 50000, 3, 5, true));
+                cursor = page.getNextCursor();
+            } while (cursor != null);
+            assertTrue(unseen.isEmpty(), order + " skipped " + unseen);
+        }
+        assertThrows(IllegalArgumentException.class, () -> database.page(new EmployeeQuery(),
+                database.page(new EmployeeQuery().orderBy(EmployeeOrder.NAME), null, 5).getNextCursor(), 5));
+        assertThrows(IllegalArgumentException.class, () -> database.page(new EmployeeQuery(), "not a cursor", 5));
+    }
+
+    @Test
+    public void testParallelStreamsMatchQueries() {
+        List<EmployeeQuery> queries = List.of(
+                new EmployeeQuery(),
+                new EmployeeQuery().department("it").active(true).minRating(2.5),
+                new EmployeeQuery().department("research"),
+                new EmployeeQuery().salaryBetween(50000, 60000),
+                new EmployeeQuery().nameContains("ee 1"));
+        for (EmployeeQuery query : queries) {
+            List<Employee<Integer>> streamed = database.stream(query).parallel().collect(Collectors.toList());
+            assertEquals(keys(database.query(query), null), keys(streamed, null), query.toString());
+        }
+        EmployeeQuery limited = new EmployeeQuery().active(false).limit(10);
+        List<Employee<Integer>> streamed = database.stream(limited).parallel().collect(Collectors.toList());
+        assertEquals(10, streamed.size());
+        assertTrue(streamed.stream().allMatch(limited::matches));
+        EmployeeQuery ordered = new EmployeeQuery().minExperience(20).orderBy(EmployeeOrder.SALARY).limit(30);
+        assertEquals(keys(database.query(ordered), EmployeeOrder.SALARY),
+                keys(database.stream(ordered).collect(Collectors.toList()), EmployeeOrder.SALARY));
+    }
+}
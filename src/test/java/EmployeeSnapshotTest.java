@@ -0,0 +1,246 @@
+package test.java;
+
+import main.java.*;
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeSnapshotTest {
+
+    // Salaries 40000 + id, so each is distinct and the top paid have one
+    // answer, in turn in three departments
+    private static <D extends EmployeeDatabase<Integer>> D database(D database, int count) {
+        String[] departments = {"IT", "HR", "Finance"};
+        for (int id = 0; id < count; id++) {
+            database.addEmployee(new Employee<>(id, "Employee " + id, departments[id % departments.length],
+                    40000 + id, (id % 11) / 2.0, id % 30, true));
+        }
+        return database;
+    }
+
+    @Test
+    public void testSnapshotKeepsTheStateItWasTakenIn() {
+        EmployeeDatabase<Integer> database = database(new EmployeeDatabase<>(), 100);
+        EmployeeSnapshot<Integer> snapshot = database.snapshot();
+        List<Employee<Integer>> topPaid = database.getTopNHighestPaidEmployees(3);
+
+        database.giveSalaryRaise(0, 10);
+        database.updateEmployeeDetails(5, "department", "Legal");
+        database.removeEmployee(7);
+        database.addEmployee(new Employee<>(500, "Newcomer", "IT", 90000, 5, 1, true));
+        EmployeeSnapshot<Integer> later = database.snapshot();
+        database.clearDatabase();
+
+        assertEquals(100, snapshot.getEmployeeCount());
+        assertEquals(40005, snapshot.getEmployee(5).get().getSalary());
+        assertEquals("Finance", snapshot.getEmployee(5).get().getDepartment());
+        assertTrue(snapshot.getEmployee(7).isPresent());
+        assertFalse(snapshot.getEmployee(500).isPresent());
+        assertEquals(topPaid, snapshot.getTopNHighestPaidEmployees(3));
+        assertEquals(34, snapshot.getEmployeesByDepartment("it").size());
+        assertEquals(Map.of("IT", 34L, "HR", 33L, "Finance", 33L), snapshot.getDepartmentCounts());
+        assertEquals(11, snapshot.searchEmployeesByName("employee 1").size());
+        assertEquals(3, snapshot.query(new EmployeeQuery().department("HR").limit(3)).size());
+
+        assertEquals(100, later.getEmployeeCount());
+        assertEquals(40005 * 1.1, later.getEmployee(5).get().getSalary(), 1e-6);
+        assertEquals("Legal", later.getEmployee(5).get().getDepartment());
+        assertFalse(later.getEmployee(7).isPresent());
+        assertEquals(500, later.getTopNHighestPaidEmployees(1).get(0).getEmployeeId());
+        assertEquals(0, database.snapshot().getEmployeeCount());
+    }
+
+    @Test
+    public void testSnapshotIsReadOnly() {
+        EmployeeDatabase<Integer> database = database(new EmployeeDatabase<>(), 10);
+        EmployeeSnapshot<Integer> snapshot = database.snapshot();
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.removeEmployee(1));
+        assertThrows(UnsupportedOperationException.class, () -> snapshot.giveSalaryRaise(0, 5));
+        Employee<Integer> employee = snapshot.getEmployee(1).get();
+        assertThrows(UnsupportedOperationException.class, () -> employee.setSalary(1));
+        assertEquals(database.getEmployee(1).get(), employee);
+    }
+
+    @Test
+    public void testMatchesTheDatabaseThroughRandomWrites() {
+        EmployeeDatabase<String> database = new EmployeeDatabase<>();
+        database.snapshot();
+        Random random = new Random(7);
+        // "Aa" and "BB" have the same hash code, so some ids collide
+        String[] ids = new String[400];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = (i % 2 == 0 ? "Aa" : "BB") + (i / 2);
+        }
+        for (int step = 0; step < 20_000; step++) {
+            String id = ids[random.nextInt(ids.length)];
+            switch (random.nextInt(4)) {
+                case 0:
+                case 1:
+                    database.upsertEmployee(new Employee<>(id, id, "IT", random.nextInt(100_000), 3, 1, true));
+                    break;
+                case 2:
+                    database.removeEmployee(id);
+                    break;
+                default:
+                    database.updateEmployeeDetails(id, "salary", (double) random.nextInt(100_000));
+                    break;
+            }
+            if (step % 1000 == 0) {
+                assertSameEmployees(database, database.snapshot());
+            }
+        }
+        assertSameEmployees(database, database.snapshot());
+    }
+
+    private static <T> void assertSameEmployees(EmployeeDatabase<T> database, EmployeeSnapshot<T> snapshot) {
+        assertEquals(database.getEmployeeCount(), snapshot.getEmployeeCount());
+        assertEquals(database.getEmployeeCount(), snapshot.getAllEmployees().size());
+        for (Employee<T> employee : database.getAllEmployees()) {
+            Employee<T> copy = snapshot.getEmployee(employee.getEmployeeId()).orElseThrow();
+            assertEquals(employee.getSalary(), copy.getSalary());
+        }
+    }
+
+    @Test
+    public void testReportsNeverSeeHalfARaise() throws InterruptedException {
+        assertReportsNeverSeeHalfARaise(database(new EmployeeDatabase<>(), 5000));
+        assertReportsNeverSeeHalfARaise(database(new ConcurrentEmployeeDatabase<>(), 5000));
+    }
+
+    private static void assertReportsNeverSeeHalfARaise(EmployeeDatabase<Integer> database)
+            throws InterruptedException {
+        Map<Integer, Double> original = new HashMap<>();
+        database.getAllEmployees().forEach(employee -> original.put(employee.getEmployeeId(), employee.getSalary()));
+        database.snapshot();
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (!done.get() && failure.get() == null) {
+                EmployeeSnapshot<Integer> snapshot = database.snapshot();
+                // Every raise covers everyone, so all salaries have grown by the same factor
+                double factor = Double.NaN;
+                Iterator<Employee<Integer>> iterator = snapshot.getEmployeeIterator();
+                while (iterator.hasNext()) {
+                    Employee<Integer> employee = iterator.next();
+                    double grown = employee.getSalary() / original.get(employee.getEmployeeId());
+                    if (Double.isNaN(factor)) {
+                        factor = grown;
+                    } else if (Math.abs(grown - factor) > 1e-9) {
+                        failure.set("salaries grown by both " + factor + " and " + grown);
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < 200; i++) {
+            database.giveSalaryRaise(0, i % 2 == 0 ? 1 : -100.0 / 101);
+        }
+        done.set(true);
+        reader.join();
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testReportsNeverSeeHalfABatch() throws InterruptedException {
+        ConcurrentEmployeeDatabase<Integer> database = database(new ConcurrentEmployeeDatabase<>(), 500);
+        int temps = 100;
+        EmployeeBatch<Integer> equalSalaries = new EmployeeBatch<>();
+        for (int id = 0; id < 500; id++) {
+            equalSalaries.update(id, "salary", 50000);
+        }
+        database.applyBatch(equalSalaries);
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<String> failure = new AtomicReference<>();
+        // Writes single records the batches also write, while the batches run
+        Thread renamer = new Thread(() -> {
+            for (int i = 0; !done.get(); i++) {
+                database.updateEmployeeDetails(i % 500, "name", "Renamed " + i);
+            }
+        });
+        Thread reader = new Thread(() -> {
+            while (!done.get() && failure.get() == null) {
+                EmployeeSnapshot<Integer> snapshot = database.snapshot();
+                // Every batch sets all 500 salaries alike and adds or removes all the temps
+                Set<Double> salaries = new HashSet<>();
+                int tempCount = 0;
+                for (Employee<Integer> employee : snapshot.getAllEmployees()) {
+                    if (employee.getEmployeeId() < 500) {
+                        salaries.add(employee.getSalary());
+                    } else {
+                        tempCount++;
+                    }
+                }
+                if (salaries.size() > 1 || (tempCount != 0 && tempCount != temps)) {
+                    failure.set(salaries.size() + " salaries, " + tempCount + " temps");
+                }
+            }
+        });
+        renamer.start();
+        reader.start();
+        for (int round = 0; round < 200; round++) {
+            EmployeeBatch<Integer> batch = new EmployeeBatch<>();
+            for (int id = 0; id < 500; id++) {
+                batch.update(id, "salary", 50000 + round);
+            }
+            database.applyBatch(batch);
+            List<Employee<Integer>> added = new ArrayList<>();
+            for (int id = 500; id < 500 + temps; id++) {
+                added.add(new Employee<>(id, "Temp", "IT", 50000, 3, 1, true));
+            }
+            assertEquals(temps, database.addEmployees(added));
+            assertEquals(temps, database.removeEmployees(added.stream().map(Employee::getEmployeeId)
+                    .collect(Collectors.toList())));
+        }
+        done.set(true);
+        renamer.join();
+        reader.join();
+        assertNull(failure.get());
+        EmployeeSnapshot<Integer> snapshot = database.snapshot();
+        assertSameEmployees(database, snapshot);
+        for (Employee<Integer> employee : database.getAllEmployees()) {
+            // The renamer's writes made during batches reached the snapshot too
+            assertEquals(employee.getName(), snapshot.getEmployee(employee.getEmployeeId()).get().getName());
+        }
+    }
+
+    @Test
+    public void testConcurrentWritersAndSnapshotReaders() throws InterruptedException {
+        ConcurrentEmployeeDatabase<Integer> database = database(new ConcurrentEmployeeDatabase<>(), 2000);
+        Thread[] writers = new Thread[4];
+        // Raises overlap the other writers' changes to the records they raise
+        writers[3] = new Thread(() -> {
+            for (int i = 0; i < 20; i++) {
+                database.giveSalaryRaise(0, 1);
+            }
+        });
+        writers[3].start();
+        for (int t = 0; t < 3; t++) {
+            int first = 10_000 * (t + 1);
+            writers[t] = new Thread(() -> {
+                for (int i = 0; i < 5000; i++) {
+                    database.addEmployee(new Employee<>(first + i, "Temp", "IT", 50000, 3, 1, true));
+                    database.updateEmployeeDetails(i % 2000, "salary", 60000.0 + i);
+                    database.removeEmployee(first + i);
+                }
+            });
+            writers[t].start();
+        }
+        for (int i = 0; i < 200; i++) {
+            EmployeeSnapshot<Integer> snapshot = database.snapshot();
+            int count = snapshot.getEmployeeCount();
+            assertTrue(count >= 2000 && count <= 2003);
+            assertEquals(count, snapshot.getAllEmployees().size());
+            assertEquals(snapshot.getAllEmployees().size(), snapshot.getAllEmployees().size());
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        assertSameEmployees(database, database.snapshot());
+    }
+}
@@ -0,0 +1,68 @@
+package test.java;
+
+import main.java.Employee;
+import main.java.EmployeeOrder;
+import main.java.EmployeeSorter;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeSorterTest {
+
+    private static final String[] NAMES = {"anna", "Anna", "ANNA", "bob", "\u00c9mile", "\u00e9mile", "zo\u00eb", "Zed", "_x", "a b"};
+
+    private static List<Employee<Integer>> employees(int count, long seed) {
+        Random random = new Random(seed);
+        List<Employee<Integer>> employees = new ArrayList<>(count);
+        for (int id = 0; id < count; id++) {
+            // Few distinct values of everything, so most rows tie with others
+            employees.add(new Employee<>(id, NAMES[random.nextInt(NAMES.length)] + random.nextInt(20),
+                    NAMES[random.nextInt(NAMES.length)], random.nextInt(2000) * 37.5 + (random.nextBoolean() ? 0 : 0.01),
+                    random.nextInt(51) / 10.0, random.nextInt(45), true));
+        }
+        return employees;
+    }
+
+    private static List<Integer> ids(List<Employee<Integer>> employees) {
+        List<Integer> ids = new ArrayList<>(employees.size());
+        for (Employee<Integer> employee : employees) {
+            ids.add(employee.getEmployeeId());
+        }
+        return ids;
+    }
+
+    @Test
+    public void testSortsLikeTheComparatorsIncludingTies() {
+        // Below and well above the size where the sort goes parallel
+        for (int count : new int[]{0, 1, 2, 17, 5000, 200_000}) {
+            for (EmployeeOrder order : EmployeeOrder.values()) {
+                List<Employee<Integer>> expected = employees(count, count);
+                List<Employee<Integer>> actual = new ArrayList<>(expected);
+                expected.sort(order.comparator());
+                EmployeeSorter.sort(actual, order);
+                // Both are stable, so even tied rows come out in the same order
+                assertEquals(ids(expected), ids(actual), order + " of " + count);
+            }
+        }
+    }
+
+    @Test
+    public void testSortsMillionsOfRows() {
+        List<Employee<Integer>> employees = employees(2_000_000, 5);
+        for (EmployeeOrder order : EmployeeOrder.values()) {
+            List<Employee<Integer>> rows = new ArrayList<>(employees);
+            EmployeeSorter.sort(rows, order);
+            for (int i = 1; i < rows.size(); i++) {
+                assertTrue(order.<Integer>comparator().compare(rows.get(i - 1), rows.get(i)) <= 0, order + " at " + i);
+            }
+            // Sorted rows sort to themselves, ties included
+            List<Employee<Integer>> again = new ArrayList<>(rows);
+            EmployeeSorter.sort(again, order);
+            assertEquals(ids(rows), ids(again), order.toString());
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package test.java;
+
+import main.java.Employee;
+import main.java.EmployeeDatabase;
+import main.java.EmployeeStatistics;
+import main.java.NumericSummary;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EmployeeStatisticsTest {
+
+    @Test
+    public void testGroupedStatisticsMatchExactValues() {
+        EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+        String[] departments = {"IT", "HR", "Finance"};
+        Random random = new Random(7);
+        int count = 200_000;
+        double[][] salaries = new double[departments.length][count];
+        int[] sizes = new int[departments.length];
+        for (int id = 0; id < count; id++) {
+            int department = random.nextInt(departments.length);
+            // Log-normal, like real pay
+            double salary = Math.exp(11 + 0.4 * random.nextGaussian());
+            salaries[department][sizes[department]++] = salary;
+            database.addEmployee(new Employee<>(id, "Employee " + id, departments[department], salary,
+                    random.nextInt(51) / 10.0, random.nextInt(30), random.nextBoolean()));
+        }
+
+        Map<String, EmployeeStatistics> statistics = database.getStatistics(Employee::getDepartment);
+        assertEquals(departments.length, statistics.size());
+        for (int d = 0; d < departments.length; d++) {
+            double[] values = Arrays.copyOf(salaries[d], sizes[d]);
+            Arrays.sort(values);
+            double mean = Arrays.stream(values).average().getAsDouble();
+            double variance = Arrays.stream(values).map(v -> (v - mean) * (v - mean)).sum() / values.length;
+
+            NumericSummary salary = statistics.get(departments[d]).getSalary();
+            assertEquals(values.length, salary.getCount());
+            assertEquals(mean, salary.getMean(), mean * 1e-9);
+            assertEquals(variance, salary.getVariance(), variance * 1e-6);
+            assertEquals(values[0], salary.getMin());
+            assertEquals(values[values.length - 1], salary.getMax());
+            for (double percentile : new double[]{1, 25, 50, 90, 99, 99.9}) {
+                double exact = values[(int) (percentile / 100 * (values.length - 1))];
+                assertEquals(exact, salary.getPercentile(percentile), exact * 0.011, "p" + percentile);
+            }
+        }
+
+        Map<Integer, EmployeeStatistics> bands = database.getStatistics(
+                Employee::isActive, EmployeeStatistics.experienceBand(10));
+        assertEquals(3, bands.size());
+        long active = bands.values().stream().mapToLong(EmployeeStatistics::getActiveCount).sum();
+        assertEquals(active, bands.values().stream().mapToLong(EmployeeStatistics::getCount).sum());
+        NumericSummary rating = bands.get(20).getRating();
+        assertTrue(rating.getMin() >= 0 && rating.getMax() <= 5);
+        assertEquals(2.5, rating.getPercentile(50), 0.1);
+    }
+}
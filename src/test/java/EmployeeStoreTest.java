@@ -0,0 +1,177 @@
+package test.java;
+
+import main.java.ColumnarEmployeeStore;
+import main.java.DatabaseOperation;
+import main.java.DepartmentStats;
+import main.java.Employee;
+import main.java.EmployeeDatabase;
+import main.java.EmployeeMetrics;
+import main.java.EmployeeOrder;
+import main.java.EmployeeQuery;
+import main.java.EmployeeStore;
+import main.java.IntEmployeeDatabase;
+import main.java.MappedEmployeeStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Runs the same operations against every EmployeeStore layout and checks each
+// answers exactly like EmployeeDatabase.
+public class EmployeeStoreTest {
+
+    private static List<Supplier<EmployeeStore<Integer>>> layouts() {
+        return List.of(ColumnarEmployeeStore::new, IntEmployeeDatabase::new, EmployeeStoreTest::mappedStore);
+    }
+
+    private static MappedEmployeeStore mappedStore() {
+        try {
+            Path directory = Files.createTempDirectory("employees");
+            directory.toFile().deleteOnExit();
+            return new MappedEmployeeStore(directory.resolve("employees"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void fill(EmployeeStore<Integer> store) {
+        String[] departments = {"IT", "HR", "Finance", "Marketing", "it"};
+        for (int id = 1; id <= 200; id++) {
+            store.addEmployee(new Employee<>(id, "Employee " + id, departments[id % departments.length],
+                    40000 + (id * 7919 % 50000), (id % 51) / 10.0, id % 25, id % 4 != 0));
+        }
+        store.removeEmployee(17);
+        store.removeEmployee(200);
+        // No department: left out of the per-department answers by every layout
+        store.addEmployee(new Employee<>(201, "Unassigned", null, 45000, 3.0, 2, true));
+        store.updateEmployeeDetails(3, "department", "Legal");
+        store.updateEmployeeDetails(4, "salary", "99999");
+        store.updateEmployeeDetails(5, "name", "Sarah Johnson");
+        store.updateEmployeeDetails(6, "isActive", false);
+        store.giveSalaryRaise(4.5, 10);
+    }
+
+    private static Set<String> rows(Collection<Employee<Integer>> employees) {
+        Set<String> rows = new HashSet<>();
+        for (Employee<Integer> employee : employees) {
+            rows.add(employee.toString());
+        }
+        return rows;
+    }
+
+    @Test
+    public void testLayoutsAnswerLikeEmployeeDatabase() {
+        EmployeeDatabase<Integer> expected = new EmployeeDatabase<>();
+        fill(expected);
+
+        for (Supplier<EmployeeStore<Integer>> layout : layouts()) {
+            EmployeeStore<Integer> store = layout.get();
+            fill(store);
+            String name = store.getClass().getSimpleName();
+
+            assertEquals(expected.getEmployeeCount(), store.getEmployeeCount(), name);
+            assertEquals(rows(expected.getAllEmployees()), rows(store.getAllEmployees()), name);
+            assertEquals(rows(expected.getEmployeesByDepartment("IT")), rows(store.getEmployeesByDepartment("IT")), name);
+            assertEquals(rows(expected.searchEmployeesByName("johns")), rows(store.searchEmployeesByName("johns")), name);
+            assertEquals(rows(expected.searchEmployeesByName("e 1")), rows(store.searchEmployeesByName("e 1")), name);
+            assertEquals(rows(expected.getEmployeesByMinRating(4.0)), rows(store.getEmployeesByMinRating(4.0)), name);
+            assertEquals(rows(expected.getEmployeesBySalaryRange(50000, 70000)),
+                    rows(store.getEmployeesBySalaryRange(50000, 70000)), name);
+            assertEquals(rows(expected.filterEmployees(Employee::isActive)), rows(store.filterEmployees(Employee::isActive)), name);
+            assertEquals(expected.getDepartmentCounts(), store.getDepartmentCounts(), name);
+            assertSameStatistics(expected.getDepartmentStatistics(), store.getDepartmentStatistics(), name);
+            assertEquals(expected.calculateAverageSalaryByDepartment("it"),
+                    store.calculateAverageSalaryByDepartment("it"), 1e-6, name);
+            assertEquals(expected.getTopNHighestPaidEmployees(1).toString(),
+                    store.getTopNHighestPaidEmployees(1).toString(), name);
+            assertEquals(10, store.getTopNHighestPaidEmployees(10).size(), name);
+            assertEquals(expected.getEmployee(5).toString(), store.getEmployee(5).toString(), name);
+            assertFalse(store.getEmployee(17).isPresent(), name);
+
+            // Cursors carry sort keys, so one store's cursor pages another identically
+            EmployeeQuery query = new EmployeeQuery().active(true).orderBy(EmployeeOrder.SALARY);
+            String cursor = expected.page(query, null, 15).getNextCursor();
+            assertEquals(expected.page(query, cursor, 15).getEmployees().toString(),
+                    store.page(query, cursor, 15).getEmployees().toString(), name);
+            assertEquals(rows(expected.getEmployeesByDepartment("it")),
+                    rows(store.stream(new EmployeeQuery().department("it")).parallel().collect(Collectors.toList())), name);
+
+            store.clearDatabase();
+            assertEquals(0, store.getEmployeeCount(), name);
+            assertTrue(store.getDepartmentCounts().isEmpty(), name);
+        }
+    }
+
+    private static void assertSameStatistics(Map<String, DepartmentStats> expected,
+                                             Map<String, DepartmentStats> actual, String name) {
+        assertEquals(expected.keySet(), actual.keySet(), name);
+        for (DepartmentStats stats : expected.values()) {
+            DepartmentStats other = actual.get(stats.getDepartment());
+            assertEquals(stats.getCount(), other.getCount(), name);
+            assertEquals(stats.getActiveCount(), other.getActiveCount(), name);
+            assertEquals(stats.getMinSalary(), other.getMinSalary(), 1e-9, name);
+            assertEquals(stats.getMaxSalary(), other.getMaxSalary(), 1e-9, name);
+            assertEquals(stats.getAverageSalary(), other.getAverageSalary(), 1e-6, name);
+            assertEquals(stats.getAverageRating(), other.getAverageRating(), 1e-9, name);
+        }
+    }
+
+    @Test
+    public void testIntKeyedLookupsSurviveChurn() {
+        IntEmployeeDatabase database = new IntEmployeeDatabase();
+        for (int id = -5000; id < 5000; id++) {
+            assertTrue(database.addEmployee(new Employee<>(id, "Employee " + id, "IT", 50000, 3.0, 1, true)));
+        }
+        for (int id = -5000; id < 5000; id += 2) {
+            assertTrue(database.removeEmployee(id));
+        }
+        assertEquals(5000, database.getEmployeeCount());
+        for (int id = -5000; id < 5000; id++) {
+            assertEquals(id % 2 != 0, database.containsEmployee(id));
+        }
+        assertTrue(database.updateEmployeeDetails(7, "salary", 60000.0));
+        assertEquals(60000.0, database.getEmployee(7).get().getSalary());
+        assertFalse(database.addEmployee(new Employee<>(7, "Duplicate", "HR", 1, 1, 1, true)));
+        database.upsertEmployee(new Employee<>(9, "Replaced", "HR", 1, 1, 1, true));
+        database.upsertEmployee(new Employee<>(10, "Inserted", "HR", 1, 1, 1, true));
+        assertEquals("Replaced", database.getEmployee(9).get().getName());
+        assertEquals(2, database.getEmployeesByDepartment("HR").size());
+        assertEquals(5001, database.getEmployeeCount());
+
+        EmployeeMetrics metrics = database.metrics();
+        assertEquals(10_000, metrics.calls(DatabaseOperation.CONTAINS_EMPLOYEE));
+        assertEquals(5000, metrics.calls(DatabaseOperation.REMOVE_EMPLOYEE));
+        assertEquals(2, metrics.calls(DatabaseOperation.GET_EMPLOYEE));
+    }
+
+    @Test
+    public void testMappedStoreReopensWithItsData() throws IOException {
+        Path base = Files.createTempDirectory("employees").resolve("employees");
+        try (MappedEmployeeStore store = new MappedEmployeeStore(base)) {
+            for (int id = 0; id < 3000; id++) {
+                store.addEmployee(new Employee<>(id, "Employee " + id, id % 2 == 0 ? "IT" : "HR",
+                        50000 + id, 3.5, 2, true));
+            }
+            store.removeEmployee(0);
+            store.updateEmployeeDetails(1, "name", "Emmanuel Arhu");
+        }
+
+        try (MappedEmployeeStore store = new MappedEmployeeStore(base)) {
+            assertEquals(2999, store.getEmployeeCount());
+            assertFalse(store.getEmployee(0).isPresent());
+            assertEquals("Emmanuel Arhu", store.getEmployee(1).get().getName());
+            assertEquals(2999, store.getEmployee(2999).get().getEmployeeId());
+            assertEquals(1499, store.getEmployeesByDepartment("it").size());
+            assertEquals(2999, store.getTopNHighestPaidEmployees(1).get(0).getEmployeeId());
+            assertTrue(store.addEmployee(new Employee<>(0, "Sarah Johnson", "HR", 1, 1, 1, false)));
+            assertEquals(Long.valueOf(1501), store.getDepartmentCounts().get("HR"));
+        }
+    }
+}
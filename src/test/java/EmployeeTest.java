@@ -19,10 +19,10 @@ public class EmployeeTest {
     public void testEmployeeCreation() {
         assertEquals(1, employee.getEmployeeId());
         assertEquals("John", employee.getName());
-        assertEquals("Doe", employee.getLastName());
-        assertEquals(5000.0, employee.getSalary());
+        assertEquals("Doe", employee.getDepartment());
+        assertEquals(50000.0, employee.getSalary());
         assertEquals(40.0, employee.getPerformanceRating());
-        assertEquals(101, employee.getDepartment());
+        assertEquals(101, employee.getYearsOfExperience());
         assertFalse(employee.isActive());
     }
 
@@ -36,7 +36,7 @@ public class EmployeeTest {
 
     @Test
     public void testGetFullName() {
-        Employee employee = new Employee(1, "John", "Doe", 50000.0, 40.0, 101, false);
+        Employee employee = new Employee(1, "John Doe", "Engineering", 50000.0, 40.0, 101, false);
 
         assertEquals("John Doe", employee.getName());
     }
@@ -45,7 +45,9 @@ public class EmployeeTest {
     public void testPromoteToManager() {
         Employee employee = new Employee(1, "John", "Doe", 50000.0, 40.0, 101, false);
 
-        employee.setPerformanceRating(40.0);
+        employee.setPerformanceRating(45.0);
+        employee.setActive(true);
+        assertEquals(45.0, employee.getPerformanceRating());
         assertTrue(employee.isActive());
     }
 }
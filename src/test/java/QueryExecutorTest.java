@@ -0,0 +1,159 @@
+package test.java;
+
+import main.java.ConcurrentEmployeeDatabase;
+import main.java.Employee;
+import main.java.EmployeeDatabase;
+import main.java.EmployeeQuery;
+import main.java.EmployeeStatistics;
+import main.java.QueryExecutor;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class QueryExecutorTest {
+
+    // Stands in for the FX application thread: the test thread runs what is delivered
+    private final BlockingQueue<Runnable> delivered = new LinkedBlockingQueue<>();
+    private final List<String> events = new ArrayList<>();
+
+    private QueryExecutor<EmployeeDatabase<Integer>> executor(EmployeeDatabase<Integer> database) {
+        return new QueryExecutor<>(database, delivered::add, new QueryExecutor.Listener() {
+            @Override
+            public void started(String label) {
+                events.add("started " + label);
+            }
+
+            @Override
+            public void finished(String label, long elapsedNanos) {
+                assertTrue(elapsedNanos >= 0);
+                events.add("finished " + label);
+            }
+
+            @Override
+            public void failed(String label, RuntimeException error) {
+                events.add("failed " + label);
+            }
+        });
+    }
+
+    private static EmployeeDatabase<Integer> database(int count) {
+        EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+        for (int id = 1; id <= count; id++) {
+            database.addEmployee(new Employee<>(id, "Employee " + id, id % 2 == 0 ? "IT" : "HR",
+                    50000 + id, 3.0, 5, true));
+        }
+        return database;
+    }
+
+    // Runs deliveries until one of them completes result
+    private <R> R await(CompletableFuture<R> result) throws InterruptedException {
+        while (!result.isDone()) {
+            Runnable next = delivered.poll(10, TimeUnit.SECONDS);
+            assertNotNull(next, "nothing delivered");
+            next.run();
+        }
+        return result.join();
+    }
+
+    // Spins until interrupted, as a long scan would
+    private static int blockUntilInterrupted(CountDownLatch running, AtomicBoolean interrupted) {
+        running.countDown();
+        while (!Thread.currentThread().isInterrupted()) {
+            Thread.onSpinWait();
+        }
+        interrupted.set(true);
+        throw new CancellationException();
+    }
+
+    @Test
+    public void testNewerRequestCancelsTheRunningOne() throws Exception {
+        try (QueryExecutor<EmployeeDatabase<Integer>> executor = executor(database(10))) {
+            CountDownLatch running = new CountDownLatch(1);
+            AtomicBoolean interrupted = new AtomicBoolean();
+            CompletableFuture<Integer> stale = new CompletableFuture<>();
+            executor.submit("Slow", db -> blockUntilInterrupted(running, interrupted), stale::complete);
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+
+            CompletableFuture<Integer> latest = new CompletableFuture<>();
+            executor.submit("Count", EmployeeDatabase::getEmployeeCount, latest::complete);
+            assertEquals(10, await(latest));
+            assertTrue(interrupted.get());
+            assertFalse(stale.isDone());
+            assertEquals(List.of("started Count", "finished Count"), events);
+        }
+    }
+
+    @Test
+    public void testWriteInterruptsAndReruns() throws Exception {
+        EmployeeDatabase<Integer> database = database(10);
+        try (QueryExecutor<EmployeeDatabase<Integer>> executor = executor(database)) {
+            CountDownLatch running = new CountDownLatch(1);
+            AtomicBoolean interrupted = new AtomicBoolean();
+            AtomicInteger runs = new AtomicInteger();
+            CompletableFuture<Integer> result = new CompletableFuture<>();
+            executor.submit("Count", db -> runs.incrementAndGet() == 1
+                    ? blockUntilInterrupted(running, interrupted) : db.getEmployeeCount(), result::complete);
+            assertTrue(running.await(10, TimeUnit.SECONDS));
+
+            boolean added = executor.write(db -> db.addEmployee(new Employee<>(11, "New", "IT", 1, 1, 1, true)));
+            assertTrue(added);
+            assertEquals(11, await(result));
+            assertTrue(interrupted.get());
+            assertEquals(2, runs.get());
+        }
+    }
+
+    @Test
+    public void testFailuresAreReported() throws Exception {
+        try (QueryExecutor<EmployeeDatabase<Integer>> executor = executor(database(10))) {
+            executor.submit("Broken", db -> {
+                throw new IllegalStateException("broken");
+            }, result -> fail("no result expected"));
+            while (!events.contains("failed Broken")) {
+                delivered.take().run();
+            }
+            assertEquals(List.of("started Broken", "failed Broken"), events);
+        }
+    }
+
+    @Test
+    public void testPlannerGivesUpWhenInterrupted() {
+        EmployeeDatabase<Integer> database = database(20000);
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class,
+                    () -> database.query(new EmployeeQuery().minExperience(0)));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(20000, database.query(new EmployeeQuery().minExperience(0)).size());
+    }
+
+    // Reports without an index to answer them, which write() would otherwise wait out
+    @Test
+    public void testReportsGiveUpWhenInterrupted() {
+        EmployeeDatabase<Integer> database = new ConcurrentEmployeeDatabase<>();
+        for (int id = 1; id <= 100_000; id++) {
+            database.addEmployee(new Employee<>(id, "Employee " + id, id % 2 == 0 ? "IT" : "HR",
+                    50000 + id, 3.0, id % 40, true));
+        }
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(CancellationException.class, database::getEmployeesSortedByName);
+            assertThrows(CancellationException.class, database::getEmployeesSortedBySalary);
+            assertThrows(CancellationException.class,
+                    () -> database.getStatistics(EmployeeStatistics.experienceBand(10)));
+        } finally {
+            Thread.interrupted();
+        }
+        assertEquals(100_000, database.getEmployeesSortedByName().size());
+        assertEquals(100_000, database.getStatistics(EmployeeStatistics.experienceBand(10)).values().stream()
+                .mapToLong(EmployeeStatistics::getCount).sum());
+    }
+}
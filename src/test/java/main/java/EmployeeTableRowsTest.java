@@ -0,0 +1,92 @@
+package main.java;
+
+import javafx.collections.ListChangeListener;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// In main.java to reach EmployeeTableRows, which is package-private. After
+// every edit the rows must match a fresh run of the query.
+public class EmployeeTableRowsTest {
+
+    private static EmployeeDatabase<Integer> database(int count) {
+        EmployeeDatabase<Integer> database = new EmployeeDatabase<>();
+        String[] departments = {"IT", "HR", "Finance"};
+        for (int id = 0; id < count; id++) {
+            database.addEmployee(new Employee<>(id, "Employee " + id, departments[id % departments.length],
+                    40000 + (id * 37) % 5000, 3, id % 30, true));
+        }
+        return database;
+    }
+
+    // The query's matches, each once, in its order; equal salaries may come in any order
+    private static void assertRows(EmployeeDatabase<Integer> database, EmployeeTableRows rows, String message) {
+        int[] expected = EmployeeTableRows.matchingIds(database, rows.query());
+        int[] actual = rows.stream().mapToInt(Employee::getEmployeeId).toArray();
+        Arrays.sort(expected);
+        Arrays.sort(actual);
+        assertArrayEquals(expected, actual, message);
+        if (rows.query().order() != null) {
+            Comparator<Employee<Integer>> order = rows.query().order().comparator();
+            for (int row = 1; row < rows.size(); row++) {
+                assertTrue(order.compare(rows.get(row - 1), rows.get(row)) <= 0, message + ", row " + row);
+            }
+        }
+    }
+
+    @Test
+    public void testEditsKeepTheRowsInQueryOrder() {
+        EmployeeDatabase<Integer> database = database(2000);
+        EmployeeTableRows rows = new EmployeeTableRows(database);
+        List<Employee<Integer>> removed = new ArrayList<>();
+        rows.addListener((ListChangeListener<Employee<Integer>>) change -> {
+            while (change.next()) {
+                removed.addAll(change.getRemoved());
+            }
+        });
+        rows.show(new EmployeeQuery().department("IT").orderBy(EmployeeOrder.SALARY));
+        removed.clear();
+
+        Random random = new Random(17);
+        String[] departments = {"IT", "HR"};
+        for (int i = 0; i < 3000; i++) {
+            int id = random.nextInt(2200);
+            Employee<Integer> previous = database.getEmployee(id).orElse(null);
+            String message = "edit " + i + " of " + id;
+            if (previous != null && random.nextInt(4) == 0) {
+                database.removeEmployee(id);
+                removed.clear();
+                rows.removed(previous);
+                assertTrue(removed.isEmpty() || removed.equals(List.of(previous)), message);
+            } else {
+                Employee<Integer> employee = new Employee<>(id, "Employee " + id,
+                        departments[random.nextInt(departments.length)], 40000 + random.nextInt(5000), 3, 1, true);
+                database.upsertEmployee(employee);
+                removed.clear();
+                rows.changed(previous, employee);
+                // A moved or dropped row is reported as the record it was, not the one now stored
+                for (Employee<Integer> row : removed) {
+                    assertSame(previous, row, message);
+                }
+            }
+            if (i % 100 == 0) {
+                assertRows(database, rows, message);
+            }
+        }
+        assertRows(database, rows, "after every edit");
+
+        // Showing new rows starts the id lookup over
+        rows.show(new EmployeeQuery().department("HR"));
+        Employee<Integer> previous = rows.get(0);
+        Employee<Integer> moved = new Employee<>(previous.getEmployeeId(), "Moved", "IT", 1, 3, 1, true);
+        database.upsertEmployee(moved);
+        rows.changed(previous, moved);
+        assertRows(database, rows, "after showing HR");
+    }
+}
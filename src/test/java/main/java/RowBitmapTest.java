@@ -0,0 +1,186 @@
+package main.java;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Random;
+import java.util.stream.StreamSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// In main.java to reach RowBitmap, which is package-private. Every result is
+// checked against a java.util.BitSet holding the same rows.
+public class RowBitmapTest {
+
+    private static final int CHUNK = 1 << 16;
+    // Five chunks, over 300k rows
+    private static final int ROWS = 5 * CHUNK;
+    // Rows per chunk from none to nearly all, so chunks sit on both sides of the 4096-row array limit
+    private static final int[] CHUNK_SIZES = {0, 1, 300, 2047, 4096, 4097, 6000, 40_000, 65_000};
+
+    private static void assertSameRows(BitSet expected, RowBitmap actual, String message) {
+        assertEquals(expected.cardinality(), actual.cardinality(), message);
+        int[] rows = expected.stream().toArray();
+        int[] visited = new int[rows.length];
+        int[] count = {0};
+        assertTrue(actual.forEach(row -> {
+            visited[count[0]++] = row;
+            return true;
+        }), message);
+        assertArrayEquals(rows, visited, message);
+        assertArrayEquals(rows, StreamSupport.intStream(actual.spliterator(), false).toArray(), message);
+        assertArrayEquals(rows, StreamSupport.intStream(actual.spliterator(), true).toArray(), message);
+        for (int row = 0; row < ROWS + CHUNK; row += 61) {
+            assertEquals(expected.get(row), actual.contains(row), message + ", row " + row);
+        }
+    }
+
+    // Fills the first chunks chunks with a random number of random rows each
+    private static void fill(Random random, int chunks, RowBitmap bitmap, BitSet rows) {
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int size = CHUNK_SIZES[random.nextInt(CHUNK_SIZES.length)];
+            for (int i = 0; i < size; i++) {
+                int row = chunk * CHUNK + random.nextInt(CHUNK);
+                bitmap.add(row);
+                rows.set(row);
+            }
+        }
+    }
+
+    private static BitSet copy(BitSet rows) {
+        return (BitSet) rows.clone();
+    }
+
+    @Test
+    public void testRandomOperationsMatchBitSet() {
+        Random random = new Random(15);
+        for (int round = 0; round < 12; round++) {
+            RowBitmap a = new RowBitmap();
+            BitSet aRows = new BitSet();
+            fill(random, 5, a, aRows);
+            // Fewer chunks on one side, so and/or/andNot meet chunk arrays of different lengths
+            RowBitmap b = new RowBitmap();
+            BitSet bRows = new BitSet();
+            fill(random, 1 + random.nextInt(5), b, bRows);
+            for (int i = 0; i < 20_000; i++) {
+                int row = random.nextInt(ROWS);
+                if (random.nextBoolean()) {
+                    a.remove(row);
+                    aRows.clear(row);
+                } else {
+                    b.remove(row);
+                    bRows.clear(row);
+                }
+            }
+            String message = "round " + round;
+            assertSameRows(aRows, a, message);
+            assertSameRows(bRows, b, message);
+
+            BitSet and = copy(aRows);
+            and.and(bRows);
+            assertSameRows(and, a.and(b), message + ", a and b");
+            assertSameRows(and, b.and(a), message + ", b and a");
+            BitSet or = copy(aRows);
+            or.or(bRows);
+            assertSameRows(or, a.or(b), message + ", a or b");
+            assertSameRows(or, b.or(a), message + ", b or a");
+            assertSameRows(or, RowBitmap.union(new RowBitmap[]{a, b}, 0, 2), message + ", union");
+            BitSet aNotB = copy(aRows);
+            aNotB.andNot(bRows);
+            assertSameRows(aNotB, a.andNot(b), message + ", a andNot b");
+            BitSet bNotA = copy(bRows);
+            bNotA.andNot(aRows);
+            assertSameRows(bNotA, b.andNot(a), message + ", b andNot a");
+
+            // The operands are left as they were
+            assertSameRows(aRows, a, message);
+            assertSameRows(bRows, b, message);
+        }
+    }
+
+    @Test
+    public void testRemovalTurnsBitmapChunksBackIntoArrays() {
+        Random random = new Random(3);
+        RowBitmap bitmap = new RowBitmap();
+        BitSet rows = new BitSet();
+        // Chunk 2, dense enough to be a bitmap, next to sparse neighbours
+        bitmap.add(5);
+        rows.set(5);
+        bitmap.add(3 * CHUNK + 7);
+        rows.set(3 * CHUNK + 7);
+        while (rows.cardinality() < 10_002) {
+            int row = 2 * CHUNK + random.nextInt(CHUNK);
+            bitmap.add(row);
+            rows.set(row);
+        }
+        int[] chunkRows = rows.get(2 * CHUNK, 3 * CHUNK).stream().map(row -> row + 2 * CHUNK).toArray();
+        // Removes in random order
+        for (int i = chunkRows.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = chunkRows[i];
+            chunkRows[i] = chunkRows[j];
+            chunkRows[j] = swap;
+        }
+        long bitmapBytes = 0;
+        for (int removed = 0; removed < chunkRows.length; removed++) {
+            int left = chunkRows.length - removed;
+            if (left == 2048) {
+                bitmapBytes = bitmap.sizeInBytes();
+            }
+            if (left == 2047) {
+                // Below half the array limit the chunk is a sorted array again
+                assertTrue(bitmap.sizeInBytes() < bitmapBytes - 4000);
+                assertSameRows(rows, bitmap, "2047 rows left");
+                // and keeps working as one
+                for (int i = 0; i < 100; i++) {
+                    int row = 2 * CHUNK + random.nextInt(CHUNK);
+                    bitmap.add(row);
+                    rows.set(row);
+                    bitmap.remove(row);
+                    rows.clear(row);
+                }
+                assertSameRows(rows, bitmap, "after adding to the array");
+            }
+            if (left == 4097 || left == 4096 || left == 2049 || left == 2048 || left == 1) {
+                assertSameRows(rows, bitmap, left + " rows left");
+            }
+            bitmap.remove(chunkRows[removed]);
+            rows.clear(chunkRows[removed]);
+        }
+        assertSameRows(rows, bitmap, "chunk emptied");
+        assertEquals(2, bitmap.cardinality());
+    }
+
+    @Test
+    public void testFirstRowsAcrossChunks() {
+        Random random = new Random(11);
+        for (int count : new int[]{0, 1, 4095, 4096, 4097, CHUNK - 1, CHUNK, CHUNK + 1, 3 * CHUNK + 5, 200_001}) {
+            String message = "first " + count;
+            RowBitmap bitmap = RowBitmap.firstRows(count);
+            BitSet rows = new BitSet();
+            rows.set(0, count);
+            assertSameRows(rows, bitmap, message);
+
+            RowBitmap other = new RowBitmap();
+            BitSet otherRows = new BitSet();
+            fill(random, 5, other, otherRows);
+            BitSet and = copy(rows);
+            and.and(otherRows);
+            assertSameRows(and, bitmap.and(other), message + " and");
+            BitSet or = copy(rows);
+            or.or(otherRows);
+            assertSameRows(or, bitmap.or(other), message + " or");
+            BitSet andNot = copy(rows);
+            andNot.andNot(otherRows);
+            assertSameRows(andNot, bitmap.andNot(other), message + " andNot");
+
+            bitmap.add(count);
+            rows.set(count);
+            bitmap.remove(0);
+            rows.clear(0);
+            bitmap.remove(count / 2);
+            rows.clear(count / 2);
+            assertSameRows(rows, bitmap, message + " changed");
+        }
+    }
+}